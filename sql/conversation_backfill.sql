@@ -0,0 +1,69 @@
+-- 会话摘要表：为已有数据库建表并按历史消息回填
+-- 新库由 local-init.sql / docker 初始化脚本建表，无需执行；回填期间应停止写入
+
+-- 私聊会话摘要表（每个用户与每个聊天对象一行，随消息批次更新）
+CREATE TABLE IF NOT EXISTS `conversation` (
+    `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '记录ID',
+    `owner_id` BIGINT NOT NULL COMMENT '会话所属用户ID',
+    `peer_id` BIGINT NOT NULL COMMENT '聊天对象ID',
+    `last_message_id` BIGINT NOT NULL COMMENT '最后一条消息ID',
+    `last_sender_id` BIGINT NOT NULL COMMENT '最后一条消息发送者ID',
+    `last_message_preview` VARCHAR(200) COMMENT '最后一条消息摘要',
+    `last_message_time` DATETIME NOT NULL COMMENT '最后一条消息时间',
+    `unread_count` INT NOT NULL DEFAULT 0 COMMENT '未读数',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_owner_peer` (`owner_id`, `peer_id`),
+    INDEX `idx_owner_time` (`owner_id`, `last_message_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='私聊会话摘要表';
+
+-- 群会话摘要表（每个群一行，未读数由Redis计数器维护）
+CREATE TABLE IF NOT EXISTS `group_conversation` (
+    `group_id` BIGINT PRIMARY KEY COMMENT '群组ID',
+    `last_message_id` BIGINT NOT NULL COMMENT '最后一条消息ID',
+    `last_sender_id` BIGINT NOT NULL COMMENT '最后一条消息发送者ID',
+    `last_message_preview` VARCHAR(200) COMMENT '最后一条消息摘要',
+    `last_message_time` DATETIME NOT NULL COMMENT '最后一条消息时间',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='群会话摘要表';
+
+-- 私聊会话：每个方向取最后一条消息，未读数按接收方统计
+INSERT INTO conversation (owner_id, peer_id, last_message_id, last_sender_id, last_message_preview,
+                          last_message_time, unread_count)
+SELECT t.owner_id, t.peer_id, m.id, m.sender_id,
+       CASE m.content_type
+           WHEN 'IMAGE' THEN '[图片]'
+           WHEN 'FILE' THEN '[文件]'
+           WHEN 'AUDIO' THEN '[语音]'
+           WHEN 'VIDEO' THEN '[视频]'
+           WHEN 'EMOJI' THEN '[表情]'
+           ELSE LEFT(m.content, 100)
+       END,
+       m.create_time,
+       (SELECT COUNT(*) FROM message u
+        WHERE u.receiver_id = t.owner_id AND u.sender_id = t.peer_id AND u.status != 'READ')
+FROM (
+    SELECT owner_id, peer_id, MAX(id) AS last_id FROM (
+        SELECT sender_id AS owner_id, receiver_id AS peer_id, id FROM message
+        UNION ALL
+        SELECT receiver_id AS owner_id, sender_id AS peer_id, id FROM message
+    ) x
+    GROUP BY owner_id, peer_id
+) t
+INNER JOIN message m ON m.id = t.last_id
+ON DUPLICATE KEY UPDATE unread_count = VALUES(unread_count);
+
+-- 群会话：每个群取最后一条消息
+INSERT INTO group_conversation (group_id, last_message_id, last_sender_id, last_message_preview, last_message_time)
+SELECT m.group_id, m.id, m.sender_id,
+       CASE m.content_type
+           WHEN 'IMAGE' THEN '[图片]'
+           WHEN 'FILE' THEN '[文件]'
+           WHEN 'AUDIO' THEN '[语音]'
+           WHEN 'VIDEO' THEN '[视频]'
+           WHEN 'EMOJI' THEN '[表情]'
+           ELSE LEFT(m.content, 100)
+       END,
+       m.create_time
+FROM (SELECT group_id, MAX(id) AS last_id FROM group_message GROUP BY group_id) t
+INNER JOIN group_message m ON m.id = t.last_id
+ON DUPLICATE KEY UPDATE last_message_id = last_message_id;
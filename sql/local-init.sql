@@ -26,6 +26,7 @@ CREATE TABLE `user` (
     `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX `idx_username` (`username`),
+    INDEX `idx_nickname` (`nickname`),
     INDEX `idx_email` (`email`),
     INDEX `idx_status` (`status`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户表';
@@ -89,6 +90,9 @@ CREATE TABLE `message` (
     INDEX `idx_receiver_id` (`receiver_id`),
     INDEX `idx_create_time` (`create_time`),
     INDEX `idx_conversation` (`sender_id`, `receiver_id`, `create_time`),
+    INDEX `idx_conversation_id` (`sender_id`, `receiver_id`, `id` DESC),
+    INDEX `idx_receiver_status_sender` (`receiver_id`, `status`, `sender_id`),
+    INDEX `idx_receiver_status_id` (`receiver_id`, `status`, `id`),
     FOREIGN KEY (`sender_id`) REFERENCES `user`(`id`) ON DELETE CASCADE,
     FOREIGN KEY (`receiver_id`) REFERENCES `user`(`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='私聊消息表';
@@ -153,6 +157,7 @@ CREATE TABLE `group_message` (
     INDEX `idx_sender_id` (`sender_id`),
     INDEX `idx_create_time` (`create_time`),
     INDEX `idx_group_time` (`group_id`, `create_time`),
+    INDEX `idx_group_msg_id` (`group_id`, `id` DESC),
     FOREIGN KEY (`group_id`) REFERENCES `chat_group`(`id`) ON DELETE CASCADE,
     FOREIGN KEY (`sender_id`) REFERENCES `user`(`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='群消息表';
@@ -171,7 +176,35 @@ CREATE TABLE `group_message_read` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='群消息已读记录表';
 
 -- =============================================
--- 5. 初始化数据
+-- 5. 会话摘要表
+-- =============================================
+-- 私聊会话摘要表（每个用户与每个聊天对象一行，随消息批次更新）
+CREATE TABLE `conversation` (
+    `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '记录ID',
+    `owner_id` BIGINT NOT NULL COMMENT '会话所属用户ID',
+    `peer_id` BIGINT NOT NULL COMMENT '聊天对象ID',
+    `last_message_id` BIGINT NOT NULL COMMENT '最后一条消息ID',
+    `last_sender_id` BIGINT NOT NULL COMMENT '最后一条消息发送者ID',
+    `last_message_preview` VARCHAR(200) COMMENT '最后一条消息摘要',
+    `last_message_time` DATETIME NOT NULL COMMENT '最后一条消息时间',
+    `unread_count` INT NOT NULL DEFAULT 0 COMMENT '未读数',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_owner_peer` (`owner_id`, `peer_id`),
+    INDEX `idx_owner_time` (`owner_id`, `last_message_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='私聊会话摘要表';
+
+-- 群会话摘要表（每个群一行，未读数由Redis计数器维护）
+CREATE TABLE `group_conversation` (
+    `group_id` BIGINT PRIMARY KEY COMMENT '群组ID',
+    `last_message_id` BIGINT NOT NULL COMMENT '最后一条消息ID',
+    `last_sender_id` BIGINT NOT NULL COMMENT '最后一条消息发送者ID',
+    `last_message_preview` VARCHAR(200) COMMENT '最后一条消息摘要',
+    `last_message_time` DATETIME NOT NULL COMMENT '最后一条消息时间',
+    `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='群会话摘要表';
+
+-- =============================================
+-- 6. 初始化数据
 -- =============================================
 
 -- 初始化角色
@@ -8,12 +8,20 @@ ALTER TABLE message ADD INDEX idx_message_create_time (create_time);
 ALTER TABLE message ADD INDEX idx_message_sender_receiver (sender_id, receiver_id);
 ALTER TABLE message ADD INDEX idx_message_content_type (content_type);
 ALTER TABLE message ADD INDEX idx_message_status (status);
+-- 聊天记录游标分页：每个方向按ID倒序范围扫描
+ALTER TABLE message ADD INDEX idx_conversation_id (sender_id, receiver_id, id DESC);
+-- 未读数统计：按接收者+状态范围扫描，按发送者分组时无需回表
+ALTER TABLE message ADD INDEX idx_receiver_status_sender (receiver_id, status, sender_id);
+-- 离线消息分块推送：按接收者+状态定位后按ID游标顺序读取
+ALTER TABLE message ADD INDEX idx_receiver_status_id (receiver_id, status, id);
 
 -- group_message 表索引
 ALTER TABLE group_message ADD INDEX idx_group_message_group_id (group_id);
 ALTER TABLE group_message ADD INDEX idx_group_message_sender_id (sender_id);
 ALTER TABLE group_message ADD INDEX idx_group_message_create_time (create_time);
 ALTER TABLE group_message ADD INDEX idx_group_message_content_type (content_type);
+-- 群聊记录游标分页：按群ID定位后按ID倒序读取
+ALTER TABLE group_message ADD INDEX idx_group_msg_id (group_id, id DESC);
 
 -- group_member 表索引
 ALTER TABLE group_member ADD INDEX idx_group_member_group_id (group_id);
@@ -27,3 +35,5 @@ ALTER TABLE friendship ADD INDEX idx_friendship_status (status);
 
 -- user 表索引（username和email可能已有唯一索引）
 ALTER TABLE user ADD INDEX idx_user_status (status);
+-- 用户搜索：昵称前缀匹配（用户名前缀走 username 上的索引）
+ALTER TABLE user ADD INDEX idx_nickname (nickname);
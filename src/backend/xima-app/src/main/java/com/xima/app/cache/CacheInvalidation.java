@@ -0,0 +1,20 @@
+package com.xima.app.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * 缓存失效通知（通过 Redis 发布/订阅在节点间传播）
+ */
+@Getter
+@AllArgsConstructor
+public class CacheInvalidation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String origin;     // 发出通知的节点
+    private final String cacheName;
+    private final Object key;        // null 表示清空整个缓存
+}
@@ -0,0 +1,389 @@
+package com.xima.app.cache;
+
+import com.xima.app.entity.GroupMember;
+import com.xima.app.mapper.GroupMemberMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * 群成员内存索引
+ * 成员校验、角色校验、禁言校验和扇出名单都从这里读取，首次访问时按群懒加载；
+ * 每个群是一个不可变快照（成员ID开放寻址表 + 角色/禁言位图），读取无锁、不访问数据库。
+ * 成员变更在事务提交后以写时复制的方式应用到已加载的快照上，回滚时不生效；
+ * 同时通过缓存失效通道通知其他节点丢弃该群的快照，通知丢失时由快照过期时间兜底
+ */
+@Component
+@RequiredArgsConstructor
+public class GroupMembershipIndex {
+
+    public static final String INVALIDATION_NAME = "group-members";
+
+    private final GroupMemberMapper groupMemberMapper;
+    private final TwoTierCacheManager cacheManager;
+
+    private final Map<Long, Snapshot> groups = new ConcurrentHashMap<>();
+
+    // 每次变更递增，加载期间发生过变更的结果不放入索引，避免旧数据覆盖
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${app.cache.membership.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @PostConstruct
+    public void init() {
+        cacheManager.addInvalidationListener(INVALIDATION_NAME, key -> {
+            if (key instanceof Long) {
+                discard((Long) key);
+            }
+        });
+    }
+
+    /**
+     * 获取群成员快照
+     */
+    public Members get(Long groupId) {
+        long now = System.currentTimeMillis();
+        Snapshot snapshot = groups.get(groupId);
+        if (snapshot != null && !snapshot.isExpired(now, ttlSeconds)) {
+            return snapshot.members;
+        }
+        long gen = generation.get();
+        Members loaded = Members.of(groupMemberMapper.findByGroupId(groupId));
+        // 代数比较放在 compute 内，与提交后 computeIfPresent 的变更串行，加载期间的变更不会被旧数据覆盖
+        Snapshot current = groups.compute(groupId, (id, existing) -> {
+            if (existing != null && !existing.isExpired(now, ttlSeconds)) {
+                return existing;
+            }
+            return generation.get() == gen ? new Snapshot(loaded, now) : null;
+        });
+        return current != null ? current.members : loaded;
+    }
+
+    public boolean isMember(Long groupId, Long userId) {
+        return get(groupId).contains(userId);
+    }
+
+    public List<Long> getMemberIds(Long groupId) {
+        return get(groupId).getMemberIds();
+    }
+
+    /**
+     * 成员ID数组（不装箱，供扇出等热点路径使用，调用方不得修改）
+     */
+    public long[] getMemberIdArray(Long groupId) {
+        return get(groupId).getMemberIdArray();
+    }
+
+    /**
+     * 新成员入群（在事务中调用时提交后生效）
+     */
+    public void addMembers(Long groupId, Collection<Long> userIds) {
+        if (!userIds.isEmpty()) {
+            List<Long> added = List.copyOf(userIds);
+            apply(groupId, members -> members.withMembers(added));
+        }
+    }
+
+    /**
+     * 成员被移出或退群（在事务中调用时提交后生效）
+     */
+    public void removeMember(Long groupId, Long userId) {
+        apply(groupId, members -> members.without(userId));
+    }
+
+    /**
+     * 成员角色变更（在事务中调用时提交后生效）
+     */
+    public void setRole(Long groupId, Long userId, GroupMember.MemberRole role) {
+        apply(groupId, members -> members.withRole(userId, role));
+    }
+
+    /**
+     * 成员禁言状态变更（在事务中调用时提交后生效）
+     */
+    public void setMuted(Long groupId, Long userId, boolean muted) {
+        apply(groupId, members -> members.withMuted(userId, muted));
+    }
+
+    /**
+     * 移除某个群的索引（如解散群），在事务中调用时提交后生效
+     */
+    public void evict(Long groupId) {
+        runAfterCommit(() -> {
+            discard(groupId);
+            cacheManager.publishInvalidation(INVALIDATION_NAME, groupId);
+        });
+    }
+
+    /**
+     * 把变更应用到已加载的快照上；未加载的群下次访问时从数据库读到的已是提交后的数据
+     */
+    private void apply(Long groupId, UnaryOperator<Members> change) {
+        runAfterCommit(() -> {
+            generation.incrementAndGet();
+            groups.computeIfPresent(groupId, (id, snapshot) -> snapshot.with(change.apply(snapshot.members)));
+            cacheManager.publishInvalidation(INVALIDATION_NAME, groupId);
+        });
+    }
+
+    private void discard(Long groupId) {
+        generation.incrementAndGet();
+        groups.remove(groupId);
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 索引条目：快照及其从数据库加载的时间（本地变更不刷新加载时间，过期后重新加载以兜底丢失的跨节点通知）
+     */
+    private static final class Snapshot {
+        private final Members members;
+        private final long loadedAt;
+
+        private Snapshot(Members members, long loadedAt) {
+            this.members = members;
+            this.loadedAt = loadedAt;
+        }
+
+        private Snapshot with(Members changed) {
+            return new Snapshot(changed, loadedAt);
+        }
+
+        private boolean isExpired(long now, long ttlSeconds) {
+            return ttlSeconds > 0 && now - loadedAt >= ttlSeconds * 1000;
+        }
+    }
+
+    /**
+     * 某个群的成员快照（不可变，修改返回新快照）
+     * 成员按序号存放，用户ID到序号用开放寻址的 long 表查找，角色和禁言状态是按序号的位图
+     */
+    public static final class Members {
+
+        private static final long EMPTY = 0L;
+
+        // 序号 -> 用户ID（按入群顺序）
+        private final long[] userIds;
+        // 开放寻址表：槽位 -> 用户ID / 序号，容量为2的幂且至少为成员数的2倍
+        private final long[] slots;
+        private final int[] ordinals;
+        private final BitSet owners;
+        private final BitSet admins;
+        private final BitSet muted;
+        private final List<Long> memberIds;
+
+        private Members(long[] userIds, BitSet owners, BitSet admins, BitSet muted) {
+            this.userIds = userIds;
+            this.owners = owners;
+            this.admins = admins;
+            this.muted = muted;
+            int capacity = Integer.highestOneBit(Math.max(4, userIds.length * 2 - 1)) << 1;
+            this.slots = new long[capacity];
+            this.ordinals = new int[capacity];
+            for (int i = 0; i < userIds.length; i++) {
+                int slot = slotOf(userIds[i]);
+                slots[slot] = userIds[i];
+                ordinals[slot] = i;
+            }
+            this.memberIds = new AbstractList<Long>() {
+                @Override
+                public Long get(int index) {
+                    return Members.this.userIds[index];
+                }
+
+                @Override
+                public int size() {
+                    return Members.this.userIds.length;
+                }
+            };
+        }
+
+        public static Members of(List<GroupMember> members) {
+            long[] userIds = new long[members.size()];
+            BitSet owners = new BitSet();
+            BitSet admins = new BitSet();
+            BitSet muted = new BitSet();
+            int size = 0;
+            for (GroupMember member : members) {
+                userIds[size] = member.getUserId();
+                if (member.getRole() == GroupMember.MemberRole.OWNER) {
+                    owners.set(size);
+                } else if (member.getRole() == GroupMember.MemberRole.ADMIN) {
+                    admins.set(size);
+                }
+                if (Boolean.TRUE.equals(member.getMuted())) {
+                    muted.set(size);
+                }
+                size++;
+            }
+            return new Members(userIds, owners, admins, muted);
+        }
+
+        public boolean contains(Long userId) {
+            return ordinalOf(userId) >= 0;
+        }
+
+        public boolean isMuted(Long userId) {
+            int ordinal = ordinalOf(userId);
+            return ordinal >= 0 && muted.get(ordinal);
+        }
+
+        /**
+         * 成员角色，非成员返回null
+         */
+        public GroupMember.MemberRole getRole(Long userId) {
+            int ordinal = ordinalOf(userId);
+            if (ordinal < 0) {
+                return null;
+            }
+            if (owners.get(ordinal)) {
+                return GroupMember.MemberRole.OWNER;
+            }
+            return admins.get(ordinal) ? GroupMember.MemberRole.ADMIN : GroupMember.MemberRole.MEMBER;
+        }
+
+        /**
+         * 是否是群主或管理员
+         */
+        public boolean isManager(Long userId) {
+            int ordinal = ordinalOf(userId);
+            return ordinal >= 0 && (owners.get(ordinal) || admins.get(ordinal));
+        }
+
+        public List<Long> getMemberIds() {
+            return memberIds;
+        }
+
+        /**
+         * 成员ID数组，快照内部数据，调用方不得修改
+         */
+        public long[] getMemberIdArray() {
+            return userIds;
+        }
+
+        public int size() {
+            return userIds.length;
+        }
+
+        Members withMembers(List<Long> added) {
+            long[] grown = Arrays.copyOf(userIds, userIds.length + added.size());
+            int size = userIds.length;
+            for (Long userId : added) {
+                // 已在群中的忽略（加载时已读到提交后的数据）
+                if (!contains(userId) && !containsAdded(grown, userIds.length, size, userId)) {
+                    grown[size++] = userId;
+                }
+            }
+            if (size == userIds.length) {
+                return this;
+            }
+            return new Members(Arrays.copyOf(grown, size), owners, admins, muted);
+        }
+
+        Members without(Long userId) {
+            int removed = ordinalOf(userId);
+            if (removed < 0) {
+                return this;
+            }
+            long[] remaining = new long[userIds.length - 1];
+            System.arraycopy(userIds, 0, remaining, 0, removed);
+            System.arraycopy(userIds, removed + 1, remaining, removed, remaining.length - removed);
+            return new Members(remaining, shiftOut(owners, removed), shiftOut(admins, removed),
+                    shiftOut(muted, removed));
+        }
+
+        Members withRole(Long userId, GroupMember.MemberRole role) {
+            int ordinal = ordinalOf(userId);
+            if (ordinal < 0) {
+                return this;
+            }
+            BitSet newOwners = (BitSet) owners.clone();
+            BitSet newAdmins = (BitSet) admins.clone();
+            newOwners.set(ordinal, role == GroupMember.MemberRole.OWNER);
+            newAdmins.set(ordinal, role == GroupMember.MemberRole.ADMIN);
+            return new Members(userIds, newOwners, newAdmins, muted);
+        }
+
+        Members withMuted(Long userId, boolean mute) {
+            int ordinal = ordinalOf(userId);
+            if (ordinal < 0 || muted.get(ordinal) == mute) {
+                return this;
+            }
+            BitSet newMuted = (BitSet) muted.clone();
+            newMuted.set(ordinal, mute);
+            return new Members(userIds, owners, admins, newMuted);
+        }
+
+        private int ordinalOf(Long userId) {
+            if (userId == null || userId == EMPTY) {
+                return -1;
+            }
+            int mask = slots.length - 1;
+            for (int slot = hash(userId) & mask; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (slots[slot] == userId) {
+                    return ordinals[slot];
+                }
+            }
+            return -1;
+        }
+
+        private int slotOf(long userId) {
+            int mask = slots.length - 1;
+            int slot = hash(userId) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int hash(long userId) {
+            long h = userId * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private static boolean containsAdded(long[] userIds, int from, int to, long userId) {
+            for (int i = from; i < to; i++) {
+                if (userIds[i] == userId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 去掉一个序号后，后面的位整体前移一位
+         */
+        private static BitSet shiftOut(BitSet bits, int removed) {
+            BitSet shifted = bits.get(0, removed);
+            for (int i = bits.nextSetBit(removed + 1); i >= 0; i = bits.nextSetBit(i + 1)) {
+                shifted.set(i - 1);
+            }
+            return shifted;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.xima.app.cache;
+
+import com.xima.app.entity.GroupMessage;
+import com.xima.app.mapper.GroupMessageMapper;
+import com.xima.app.mapper.GroupMessageReadMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 群未读计数器（Redis）
+ * 每个群维护累计消息数，每个用户维护各群的已读消息数，未读数 = 累计消息数 - 已读消息数，
+ * 查询时一次MGET加一次HMGET，不扫描消息表。
+ * 计数在首次查询时从数据库初始化（之后只做增量），键带过期时间（有新消息时顺延），过期后重新按数据库校准；
+ * Redis不可用时调用方回退到逐群SQL统计
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GroupUnreadCounter {
+
+    // 群累计消息数：xima:unread:group:{groupId} -> count
+    private static final String MESSAGE_COUNT_KEY = "xima:unread:group:";
+    // 用户已读消息数：xima:unread:read:{userId} -> hash{groupId: count}
+    private static final String READ_COUNT_KEY = "xima:unread:read:";
+    // 初始化期间暂存的增量：xima:unread:pending:{groupId} -> count，存在即表示有线程正在从数据库统计该群
+    private static final String PENDING_KEY = "xima:unread:pending:";
+    private static final Duration INIT_WINDOW = Duration.ofSeconds(60);
+
+    // KEYS 按（累计数，暂存增量）成对传入：已初始化的计数直接累加并顺延过期时间，正在初始化的记入暂存，
+    // 其余等首次查询时从数据库统计；ARGV[i]=第i个群的增量，最后一个参数为过期秒数
+    private static final RedisScript<Long> INCREMENT_IF_EXISTS = new DefaultRedisScript<>(
+            "local n = #KEYS / 2 " +
+            "for i = 1, n do " +
+            "  local key = KEYS[2 * i - 1] " +
+            "  if redis.call('EXISTS', key) == 1 then " +
+            "    redis.call('INCRBY', key, ARGV[i]) " +
+            "    redis.call('EXPIRE', key, ARGV[n + 1]) " +
+            "  elseif redis.call('EXISTS', KEYS[2 * i]) == 1 then " +
+            "    redis.call('INCRBY', KEYS[2 * i], ARGV[i]) " +
+            "  end " +
+            "end " +
+            "return 0", Long.class);
+
+    // 用数据库统计值加上统计期间暂存的增量初始化累计数（已存在则保留），返回累计数；ARGV[1]=统计值，ARGV[2]=过期秒数
+    private static final RedisScript<Long> INIT_COUNT = new DefaultRedisScript<>(
+            "local count = redis.call('GET', KEYS[1]) " +
+            "if not count then " +
+            "  count = tonumber(ARGV[1]) + tonumber(redis.call('GET', KEYS[2]) or '0') " +
+            "  redis.call('SET', KEYS[1], count, 'EX', ARGV[2]) " +
+            "end " +
+            "redis.call('DEL', KEYS[2]) " +
+            "return tonumber(count)", Long.class);
+
+    // 已读数对齐到群当前累计消息数；累计数不存在时删掉旧的已读数，下次查询时两者一起按数据库重新初始化
+    private static final RedisScript<Long> MARK_READ = new DefaultRedisScript<>(
+            "local count = redis.call('GET', KEYS[1]) " +
+            "if count then " +
+            "  redis.call('HSET', KEYS[2], ARGV[1], count) " +
+            "  redis.call('EXPIRE', KEYS[2], ARGV[2]) " +
+            "  return tonumber(count) " +
+            "end " +
+            "redis.call('HDEL', KEYS[2], ARGV[1]) " +
+            "return -1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final GroupMessageMapper groupMessageMapper;
+    private final GroupMessageReadMapper groupMessageReadMapper;
+
+    @Value("${app.unread.ttl-hours:72}")
+    private long ttlHours;
+
+    /**
+     * 消息批次落库后累加各群计数
+     */
+    public void onMessagesSaved(List<GroupMessage> messages) {
+        Map<Long, Long> increments = new LinkedHashMap<>();
+        for (GroupMessage message : messages) {
+            increments.merge(message.getGroupId(), 1L, Long::sum);
+        }
+        increment(increments);
+    }
+
+    /**
+     * 单条消息（如系统消息）写入后累加计数；在事务中调用时提交后才累加
+     */
+    public void onMessageSaved(Long groupId) {
+        afterCommit(() -> increment(Collections.singletonMap(groupId, 1L)));
+    }
+
+    /**
+     * 新成员加入后已读数对齐到群当前累计消息数（含加入的系统消息），与数据库中指向系统消息的已读位置一致；
+     * 在事务中调用时提交后才对齐，须在插入系统消息之后调用
+     */
+    public void onMembersJoined(Long groupId, List<Long> userIds) {
+        afterCommit(() -> {
+            for (Long userId : userIds) {
+                markRead(groupId, userId);
+            }
+        });
+    }
+
+    /**
+     * 成员退出或被移除后删除其已读数，避免重新加入时离开期间的消息都算作未读；在事务中调用时提交后才删除
+     */
+    public void onMemberLeft(Long groupId, Long userId) {
+        afterCommit(() -> {
+            try {
+                redisTemplate.opsForHash().delete(readCountKey(userId), String.valueOf(groupId));
+            } catch (RuntimeException e) {
+                log.warn("删除用户 {} 在群 {} 的已读计数失败: {}", userId, groupId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 用户读完某群消息
+     */
+    public void markRead(Long groupId, Long userId) {
+        try {
+            redisTemplate.execute(MARK_READ, List.of(messageCountKey(groupId), readCountKey(userId)),
+                    String.valueOf(groupId), String.valueOf(Duration.ofHours(ttlHours).getSeconds()));
+        } catch (RuntimeException e) {
+            // 未对齐的已读数在过期后会按数据库中的已读位置重新初始化
+            log.warn("更新群 {} 已读计数失败: {}", groupId, e.getMessage());
+        }
+    }
+
+    /**
+     * 群解散后删除计数
+     */
+    public void evictGroup(Long groupId) {
+        try {
+            redisTemplate.delete(messageCountKey(groupId));
+        } catch (RuntimeException e) {
+            log.warn("删除群 {} 未读计数失败: {}", groupId, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询用户在各群的未读数（只返回大于0的）
+     *
+     * @throws RuntimeException Redis不可用时，由调用方回退到SQL统计
+     */
+    public Map<Long, Integer> getUnreadCounts(Long userId, List<Long> groupIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        if (groupIds.isEmpty()) {
+            return result;
+        }
+        List<String> countKeys = new ArrayList<>(groupIds.size());
+        List<Object> fields = new ArrayList<>(groupIds.size());
+        for (Long groupId : groupIds) {
+            countKeys.add(messageCountKey(groupId));
+            fields.add(String.valueOf(groupId));
+        }
+        List<String> counts = redisTemplate.opsForValue().multiGet(countKeys);
+        List<Object> reads = redisTemplate.opsForHash().multiGet(readCountKey(userId), fields);
+        if (counts == null || reads == null || counts.size() != groupIds.size() || reads.size() != groupIds.size()) {
+            throw new IllegalStateException("Redis未返回完整的未读计数");
+        }
+
+        for (int i = 0; i < groupIds.size(); i++) {
+            Long groupId = groupIds.get(i);
+            long count = counts.get(i) != null ? Long.parseLong(counts.get(i)) : initMessageCount(groupId);
+            long read = reads.get(i) != null ? Long.parseLong((String) reads.get(i)) : initReadCount(groupId, userId, count);
+            long unread = count - read;
+            if (unread > 0) {
+                result.put(groupId, (int) unread);
+            }
+        }
+        return result;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void increment(Map<Long, Long> increments) {
+        List<String> keys = new ArrayList<>(increments.size() * 2);
+        Object[] args = new Object[increments.size() + 1];
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : increments.entrySet()) {
+            keys.add(messageCountKey(entry.getKey()));
+            keys.add(pendingKey(entry.getKey()));
+            args[i++] = String.valueOf(entry.getValue());
+        }
+        args[i] = String.valueOf(Duration.ofHours(ttlHours).getSeconds());
+        try {
+            redisTemplate.execute(INCREMENT_IF_EXISTS, keys, args);
+        } catch (RuntimeException e) {
+            // 漏掉的增量在计数过期后按数据库重新校准
+            log.warn("累加群消息计数失败({}个群): {}", increments.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 首次查询时从数据库统计群累计消息数
+     * 先登记暂存键再统计，统计期间提交的消息增量记入暂存，初始化时一并计入，不会漏掉；
+     * 同一时间只有登记成功的线程写入累计数，其他线程直接使用数据库统计值
+     */
+    private long initMessageCount(Long groupId) {
+        String key = messageCountKey(groupId);
+        String pendingKey = pendingKey(groupId);
+        Boolean owner = redisTemplate.opsForValue().setIfAbsent(pendingKey, "0", INIT_WINDOW);
+        long total = groupMessageMapper.countByGroupId(groupId);
+        if (!Boolean.TRUE.equals(owner)) {
+            String existing = redisTemplate.opsForValue().get(key);
+            return existing != null ? Long.parseLong(existing) : total;
+        }
+        Long count = redisTemplate.execute(INIT_COUNT, List.of(key, pendingKey),
+                String.valueOf(total), String.valueOf(Duration.ofHours(ttlHours).getSeconds()));
+        return count != null ? count : total;
+    }
+
+    /**
+     * 首次查询时按数据库中的已读位置换算已读消息数
+     */
+    private long initReadCount(Long groupId, Long userId, long messageCount) {
+        Long lastReadId = groupMessageReadMapper.getLastReadMessageId(groupId, userId);
+        int unread = groupMessageMapper.countUnreadMessages(groupId, lastReadId != null ? lastReadId : 0L);
+        long read = Math.max(0, messageCount - unread);
+        String key = readCountKey(userId);
+        redisTemplate.opsForHash().putIfAbsent(key, String.valueOf(groupId), String.valueOf(read));
+        redisTemplate.expire(key, Duration.ofHours(ttlHours));
+        return read;
+    }
+
+    private static String messageCountKey(Long groupId) {
+        return MESSAGE_COUNT_KEY + groupId;
+    }
+
+    private static String pendingKey(Long groupId) {
+        return PENDING_KEY + groupId;
+    }
+
+    private static String readCountKey(Long userId) {
+        return READ_COUNT_KEY + userId;
+    }
+}
@@ -0,0 +1,167 @@
+package com.xima.app.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 两级缓存
+ * 一级为本地 Caffeine（有界、按写入时间过期），二级为 Redis（可选，多节点共享）；
+ * 失效和清空时通过 Redis 发布/订阅通知其他节点丢弃本地副本。put 只用于回源填充（@Cacheable 未命中、批量回填），
+ * 写入的是刚从数据库读到的值，不通知其他节点，避免每次未命中都让全集群丢弃该 key；数据变更走 evict（如 @CacheEvict）。
+ * Redis 不可用时退化为只读写本地缓存，不影响业务
+ */
+@Slf4j
+public class TwoTierCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<Object, Object> local;
+    private final org.springframework.cache.Cache remote;
+    // 通知其他节点失效本地副本：(缓存名, key)，key为null表示清空
+    private final BiConsumer<String, Object> invalidationPublisher;
+
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+
+    public TwoTierCache(String name, Cache<Object, Object> local, org.springframework.cache.Cache remote,
+                        BiConsumer<String, Object> invalidationPublisher) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = remoteGet(key);
+        if (value != null) {
+            local.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        // Caffeine 保证同一个 key 只加载一次
+        return (T) fromStoreValue(local.get(key, k -> {
+            Object value = remoteGet(k);
+            if (value != null) {
+                return value;
+            }
+            try {
+                value = toStoreValue(valueLoader.call());
+            } catch (Exception e) {
+                throw new ValueRetrievalException(k, valueLoader, e);
+            }
+            remotePut(k, value);
+            return value;
+        }));
+    }
+
+    /**
+     * 回源填充：写入本地和 Redis，不发布失效通知
+     */
+    @Override
+    public void put(Object key, Object value) {
+        Object storeValue = toStoreValue(value);
+        local.put(key, storeValue);
+        remotePut(key, storeValue);
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(key);
+        if (remote != null) {
+            try {
+                remote.evict(key);
+            } catch (RuntimeException e) {
+                log.warn("Redis缓存 {} 失效失败: {}", name, e.getMessage());
+            }
+        }
+        invalidationPublisher.accept(name, key);
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        if (remote != null) {
+            try {
+                remote.clear();
+            } catch (RuntimeException e) {
+                log.warn("Redis缓存 {} 清空失败: {}", name, e.getMessage());
+            }
+        }
+        invalidationPublisher.accept(name, null);
+    }
+
+    /**
+     * 收到其他节点的失效通知时，只丢弃本地副本
+     */
+    public void evictLocal(Object key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    public Cache<Object, Object> getLocalCache() {
+        return local;
+    }
+
+    public long getRemoteHits() {
+        return remoteHits.sum();
+    }
+
+    public long getRemoteMisses() {
+        return remoteMisses.sum();
+    }
+
+    private Object remoteGet(Object key) {
+        if (remote == null) {
+            return null;
+        }
+        try {
+            org.springframework.cache.Cache.ValueWrapper wrapper = remote.get(key);
+            if (wrapper != null && wrapper.get() != null) {
+                remoteHits.increment();
+                return wrapper.get();
+            }
+            remoteMisses.increment();
+        } catch (RuntimeException e) {
+            log.warn("Redis缓存 {} 读取失败: {}", name, e.getMessage());
+        }
+        return null;
+    }
+
+    private void remotePut(Object key, Object value) {
+        if (remote == null) {
+            return;
+        }
+        try {
+            remote.put(key, value);
+        } catch (RuntimeException e) {
+            log.warn("Redis缓存 {} 写入失败: {}", name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.xima.app.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.xima.app.dto.cache.CacheStatsDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 两级缓存管理器
+ * 缓存名称在创建时固定；有 RedisConnectionFactory 时启用 Redis 二级缓存和跨节点失效通知，否则只用本地缓存。
+ * 失效通知可能因网络抖动丢失，本地缓存的过期时间是最终一致性的兜底
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, InitializingBean, DisposableBean {
+
+    public static final String INVALIDATION_CHANNEL = "xima:cache:invalidation";
+    private static final String KEY_PREFIX = "xima:cache:";
+
+    // 本节点标识，用于忽略自己发出的失效通知
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoTierCache> caches = new LinkedHashMap<>();
+    // 不经过 Spring Cache 的本地结构（如群成员索引）也复用同一失效通道，按名称注册处理器
+    private final Map<String, Consumer<Object>> listeners = new ConcurrentHashMap<>();
+    private final RedisConnectionFactory connectionFactory;
+    private final JdkSerializationRedisSerializer serializer = new JdkSerializationRedisSerializer(getClass().getClassLoader());
+
+    private RedisTemplate<String, Object> publisher;
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * @param connectionFactory 为null时只启用本地缓存
+     */
+    public TwoTierCacheManager(Collection<String> cacheNames, long maximumSize, Duration localTtl,
+                               Duration remoteTtl, RedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+
+        RedisCacheManager remoteManager = null;
+        if (connectionFactory != null) {
+            RedisCacheConfiguration remoteConfig = RedisCacheConfiguration.defaultCacheConfig()
+                    .entryTtl(remoteTtl)
+                    .prefixCacheNameWith(KEY_PREFIX)
+                    .disableCachingNullValues()
+                    .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
+            remoteManager = RedisCacheManager.builder(connectionFactory)
+                    .cacheDefaults(remoteConfig)
+                    .initialCacheNames(new LinkedHashSet<>(cacheNames))
+                    .build();
+            remoteManager.afterPropertiesSet();
+        }
+
+        for (String name : cacheNames) {
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(localTtl)
+                    .recordStats()
+                    .build();
+            Cache remote = remoteManager != null ? remoteManager.getCache(name) : null;
+            caches.put(name, new TwoTierCache(name, local, remote, this::publishInvalidation));
+        }
+        log.info("两级缓存已创建: {}, 本地上限: {}, 本地TTL: {}, Redis二级缓存: {}",
+                cacheNames, maximumSize, localTtl, connectionFactory != null ? "启用(TTL " + remoteTtl + ")" : "未启用");
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (connectionFactory == null) {
+            return;
+        }
+        publisher = new RedisTemplate<>();
+        publisher.setConnectionFactory(connectionFactory);
+        publisher.setKeySerializer(StringRedisSerializer.UTF_8);
+        publisher.setValueSerializer(serializer);
+        publisher.afterPropertiesSet();
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener((message, pattern) -> onInvalidation(message.getBody()),
+                new ChannelTopic(INVALIDATION_CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        try {
+            listenerContainer.start();
+        } catch (RuntimeException e) {
+            // 订阅失败不影响启动，容器会按恢复间隔重试，期间依赖本地TTL兜底
+            log.warn("订阅缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.get(name);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 各缓存的命中统计
+     */
+    public List<CacheStatsDTO> getStats() {
+        List<CacheStatsDTO> result = new ArrayList<>();
+        caches.forEach((name, cache) -> {
+            CacheStats stats = cache.getLocalCache().stats();
+            result.add(CacheStatsDTO.builder()
+                    .name(name)
+                    .size(cache.getLocalCache().estimatedSize())
+                    .hitCount(stats.hitCount())
+                    .missCount(stats.missCount())
+                    .hitRate(stats.hitRate())
+                    .evictionCount(stats.evictionCount())
+                    .remoteHitCount(cache.getRemoteHits())
+                    .remoteMissCount(cache.getRemoteMisses())
+                    .remoteEnabled(connectionFactory != null)
+                    .build());
+        });
+        return result;
+    }
+
+    /**
+     * 注册本地结构的失效处理器，收到其他节点发出的同名失效通知时调用
+     */
+    public void addInvalidationListener(String name, Consumer<Object> listener) {
+        listeners.put(name, listener);
+    }
+
+    /**
+     * 通知其他节点失效本地数据（本节点不会收到自己的通知）
+     */
+    public void publishInvalidation(String cacheName, Object key) {
+        if (publisher == null) {
+            return;
+        }
+        try {
+            publisher.convertAndSend(INVALIDATION_CHANNEL, new CacheInvalidation(nodeId, cacheName, key));
+        } catch (RuntimeException e) {
+            log.warn("发布缓存失效通知失败: {} {}", cacheName, e.getMessage());
+        }
+    }
+
+    private void onInvalidation(byte[] body) {
+        try {
+            Object message = serializer.deserialize(body);
+            if (!(message instanceof CacheInvalidation)) {
+                return;
+            }
+            CacheInvalidation invalidation = (CacheInvalidation) message;
+            if (nodeId.equals(invalidation.getOrigin())) {
+                return;
+            }
+            TwoTierCache cache = caches.get(invalidation.getCacheName());
+            if (cache != null) {
+                cache.evictLocal(invalidation.getKey());
+                return;
+            }
+            Consumer<Object> listener = listeners.get(invalidation.getCacheName());
+            if (listener != null) {
+                listener.accept(invalidation.getKey());
+            }
+        } catch (RuntimeException e) {
+            log.warn("处理缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+}
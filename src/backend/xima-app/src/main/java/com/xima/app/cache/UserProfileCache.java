@@ -0,0 +1,85 @@
+package com.xima.app.cache;
+
+import com.xima.app.dto.user.UserProfile;
+import com.xima.app.entity.User;
+import com.xima.app.event.UserProfileChangedEvent;
+import com.xima.app.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户身份快照缓存（发消息、组装消息DTO时使用，避免逐条查 user 表）
+ */
+@Component
+@RequiredArgsConstructor
+public class UserProfileCache {
+
+    public static final String CACHE_NAME = "users";
+
+    private final UserMapper userMapper;
+    private final CacheManager cacheManager;
+
+    /**
+     * 获取用户身份快照，用户不存在时返回null
+     */
+    @Cacheable(value = CACHE_NAME, key = "#userId", unless = "#result == null")
+    public UserProfile get(Long userId) {
+        return UserProfile.fromEntity(userMapper.findById(userId));
+    }
+
+    /**
+     * 批量获取用户身份快照，未命中的ID合并为一次IN查询
+     * 返回的Map不包含不存在的用户
+     */
+    public Map<Long, UserProfile> getAll(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        Map<Long, UserProfile> result = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null) {
+                continue;
+            }
+            UserProfile profile = cache != null ? cache.get(userId, UserProfile.class) : null;
+            if (profile != null) {
+                result.put(userId, profile);
+            } else {
+                misses.add(userId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
+        for (User user : userMapper.findByIds(misses)) {
+            UserProfile profile = UserProfile.fromEntity(user);
+            result.put(profile.getId(), profile);
+            if (cache != null) {
+                cache.put(profile.getId(), profile);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 资料变更提交后失效缓存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(value = CACHE_NAME, key = "#event.profile.id")
+    public void onUserProfileChanged(UserProfileChangedEvent event) {
+    }
+}
@@ -1,26 +1,44 @@
 package com.xima.app.config;
 
-import org.springframework.cache.CacheManager;
+import com.xima.app.cache.TwoTierCacheManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
 
 /**
  * 缓存配置
+ * 本地 Caffeine + Redis 两级缓存；没有 Redis 连接时（如单元测试）只使用本地缓存
  */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    @Value("${app.cache.local.maximum-size:10000}")
+    private long localMaximumSize;
+
+    @Value("${app.cache.local.ttl-seconds:300}")
+    private long localTtlSeconds;
+
+    @Value("${app.cache.remote.ttl-seconds:1800}")
+    private long remoteTtlSeconds;
+
     @Bean
-    public CacheManager cacheManager() {
-        // 使用内存缓存（生产环境可替换为Redis）
-        return new ConcurrentMapCacheManager(
-                "users",           // 用户信息缓存
-                "groups",          // 群组信息缓存
-                "groupMembers",    // 群成员缓存
-                "friendships"      // 好友关系缓存
-        );
+    public TwoTierCacheManager cacheManager(ObjectProvider<RedisConnectionFactory> connectionFactory) {
+        return new TwoTierCacheManager(
+                Arrays.asList(
+                        "users",           // 用户信息缓存
+                        "groups",          // 群组信息缓存
+                        "friendships"      // 好友关系缓存
+                ),
+                localMaximumSize,
+                Duration.ofSeconds(localTtlSeconds),
+                Duration.ofSeconds(remoteTtlSeconds),
+                connectionFactory.getIfAvailable());
     }
 }
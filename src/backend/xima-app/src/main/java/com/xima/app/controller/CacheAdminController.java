@@ -0,0 +1,33 @@
+package com.xima.app.controller;
+
+import com.xima.app.cache.TwoTierCacheManager;
+import com.xima.app.common.Result;
+import com.xima.app.dto.cache.CacheStatsDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 缓存运维控制器
+ */
+@Tag(name = "缓存运维", description = "缓存命中统计接口（需要管理员权限）")
+@RestController
+@RequestMapping("/v1/admin/cache")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class CacheAdminController {
+
+    private final TwoTierCacheManager cacheManager;
+
+    @Operation(summary = "缓存统计", description = "获取各缓存的本地命中率、淘汰数和Redis命中数")
+    @GetMapping("/stats")
+    public Result<List<CacheStatsDTO>> getCacheStats() {
+        return Result.success(cacheManager.getStats());
+    }
+}
@@ -0,0 +1,44 @@
+package com.xima.app.controller;
+
+import com.xima.app.common.Result;
+import com.xima.app.dto.conversation.ConversationDTO;
+import com.xima.app.security.UserDetailsImpl;
+import com.xima.app.service.ConversationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 会话列表控制器
+ */
+@Tag(name = "会话列表", description = "私聊和群聊会话列表相关接口")
+@RestController
+@RequestMapping("/v1/conversations")
+@RequiredArgsConstructor
+public class ConversationController {
+
+    private final ConversationService conversationService;
+
+    @Operation(summary = "获取会话列表",
+            description = "按最后消息时间倒序分页返回私聊和群聊会话，含最后一条消息摘要和未读数")
+    @GetMapping
+    public Result<List<ConversationDTO>> getConversations(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return Result.success(conversationService.getConversations(userDetails.getId(), page, size));
+    }
+
+    @Operation(summary = "私聊会话标记已读", description = "将与指定用户的私聊消息全部标记为已读并清零未读数")
+    @PostMapping("/private/{peerId}/read")
+    public Result<String> markPrivateAsRead(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @PathVariable Long peerId) {
+        conversationService.markPrivateAsRead(userDetails.getId(), peerId);
+        return Result.success("已标记为已读", null);
+    }
+}
@@ -159,14 +159,19 @@ public class GroupController {
         return Result.success("群组已解散", null);
     }
 
-    @Operation(summary = "获取群聊天记录")
+    @Operation(summary = "获取群聊天记录",
+            description = "按时间倒序返回。传beforeId时返回该消息之前的一页，都不传时返回最新一页；" +
+                    "page为旧的偏移分页，翻页越深越慢，仅为兼容保留")
     @GetMapping("/{groupId}/messages")
     public Result<List<GroupMessageDTO>> getMessages(
             @AuthenticationPrincipal UserDetailsImpl userDetails,
             @PathVariable Long groupId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "50") int size) {
-        List<GroupMessageDTO> messages = groupService.getMessages(groupId, userDetails.getId(), page, size);
+        List<GroupMessageDTO> messages = page != null && beforeId == null
+                ? groupService.getMessages(groupId, userDetails.getId(), page, size)
+                : groupService.getMessagesBefore(groupId, userDetails.getId(), beforeId, size);
         return Result.success(messages);
     }
 
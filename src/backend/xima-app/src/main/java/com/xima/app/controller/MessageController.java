@@ -12,6 +12,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 消息控制器
@@ -24,15 +25,19 @@ public class MessageController {
 
     private final MessageService messageService;
 
-    @Operation(summary = "获取聊天历史", description = "获取与指定用户的聊天历史记录")
+    @Operation(summary = "获取聊天历史",
+            description = "获取与指定用户的聊天历史记录（按时间正序）。传before时返回该消息之前的一页，" +
+                    "都不传时返回最新一页；page为旧的偏移分页，翻页越深越慢，仅为兼容保留")
     @GetMapping("/history/{friendId}")
     public Result<List<ChatMessageDTO>> getChatHistory(
             @AuthenticationPrincipal UserDetailsImpl userDetails,
             @PathVariable Long friendId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "20") int size) {
-        List<ChatMessageDTO> messages = messageService.getChatHistory(
-                userDetails.getId(), friendId, page, size);
+        List<ChatMessageDTO> messages = page != null && before == null
+                ? messageService.getChatHistory(userDetails.getId(), friendId, page, size)
+                : messageService.getChatHistoryBefore(userDetails.getId(), friendId, before, size);
         return Result.success(messages);
     }
 
@@ -44,10 +49,12 @@ public class MessageController {
         return Result.success(messages);
     }
 
-    @Operation(summary = "标记消息已读", description = "将指定消息标记为已读")
+    @Operation(summary = "标记消息已读", description = "将指定消息及同一会话中更早的未读消息标记为已读")
     @PostMapping("/{messageId}/read")
-    public Result<String> markAsRead(@PathVariable Long messageId) {
-        messageService.markAsRead(messageId);
+    public Result<String> markAsRead(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @PathVariable Long messageId) {
+        messageService.markAsRead(userDetails.getId(), messageId);
         return Result.success("已标记为已读", null);
     }
 
@@ -60,6 +67,13 @@ public class MessageController {
         return Result.success(count);
     }
 
+    @Operation(summary = "批量获取未读消息数", description = "一次返回各好友发来的未读消息数（发送者ID -> 未读数）")
+    @GetMapping("/unread/counts")
+    public Result<Map<Long, Long>> getUnreadCounts(
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return Result.success(messageService.getUnreadCounts(userDetails.getId()));
+    }
+
     @Operation(summary = "删除消息", description = "删除指定的消息")
     @DeleteMapping("/{messageId}")
     public Result<String> deleteMessage(
@@ -69,15 +83,18 @@ public class MessageController {
         return Result.success("消息已删除", null);
     }
 
-    @Operation(summary = "搜索消息", description = "搜索聊天记录（私聊+群聊）")
+    @Operation(summary = "搜索消息", description = "搜索聊天记录（私聊+群聊）。翻页时传cursor（上一页最后一条结果的cursor），" +
+            "都不传时返回第一页；page为旧的偏移分页，仅为兼容保留")
     @GetMapping("/search")
     public Result<List<SearchMessageDTO>> searchMessages(
             @AuthenticationPrincipal UserDetailsImpl userDetails,
             @RequestParam String keyword,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "20") int size) {
-        List<SearchMessageDTO> messages = messageService.searchAllMessages(
-                userDetails.getId(), keyword, page, size);
+        List<SearchMessageDTO> messages = page != null && cursor == null
+                ? messageService.searchAllMessages(userDetails.getId(), keyword, page, size)
+                : messageService.searchAllMessagesAfter(userDetails.getId(), keyword, cursor, size);
         return Result.success(messages);
     }
 }
@@ -0,0 +1,36 @@
+package com.xima.app.controller;
+
+import com.xima.app.common.Result;
+import com.xima.app.dto.sync.SyncResultDTO;
+import com.xima.app.security.UserDetailsImpl;
+import com.xima.app.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 增量同步控制器
+ */
+@Tag(name = "增量同步", description = "按收件箱序号获取错过的事件")
+@RestController
+@RequestMapping("/v1/sync")
+@RequiredArgsConstructor
+public class SyncController {
+
+    private final SyncService syncService;
+
+    @Operation(summary = "增量同步",
+            description = "返回序号since之后的私聊消息、群消息、撤回和已读回执；reset为true时需全量重载，hasMore为true时带上seq继续同步")
+    @GetMapping
+    public Result<SyncResultDTO> sync(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @RequestParam(required = false) Long since,
+            @RequestParam(defaultValue = "0") int limit) {
+        return Result.success(syncService.sync(userDetails.getId(), since, limit));
+    }
+}
@@ -75,18 +75,20 @@ public class UserController {
         return Result.success(user);
     }
 
-    @Operation(summary = "搜索用户", description = "根据关键字搜索用户")
+    @Operation(summary = "搜索用户", description = "按用户名或昵称前缀搜索用户，最多返回limit个（上限50）")
     @GetMapping("/search")
-    public Result<List<UserDTO>> searchUsers(@RequestParam String keyword) {
-        List<UserDTO> users = userService.searchUsers(keyword);
+    public Result<List<UserDTO>> searchUsers(@RequestParam String keyword,
+                                             @RequestParam(defaultValue = "20") int limit) {
+        List<UserDTO> users = userService.searchUsers(keyword, limit);
         return Result.success(users);
     }
 
-    @Operation(summary = "获取所有用户", description = "获取所有用户列表（需要管理员权限）")
+    @Operation(summary = "获取所有用户", description = "分页获取用户列表，每页最多100个（需要管理员权限）")
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public Result<List<UserDTO>> getAllUsers() {
-        List<UserDTO> users = userService.getAllUsers();
+    public Result<List<UserDTO>> getAllUsers(@RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "20") int size) {
+        List<UserDTO> users = userService.getAllUsers(page, size);
         return Result.success(users);
     }
 
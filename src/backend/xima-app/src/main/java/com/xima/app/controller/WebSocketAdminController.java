@@ -0,0 +1,42 @@
+package com.xima.app.controller;
+
+import com.xima.app.common.Result;
+import com.xima.app.dto.websocket.HeartbeatStatsDTO;
+import com.xima.app.dto.websocket.SessionStatsDTO;
+import com.xima.app.websocket.HeartbeatMonitor;
+import com.xima.app.websocket.WebSocketSessionManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * WebSocket运维控制器
+ */
+@Tag(name = "WebSocket运维", description = "WebSocket连接监控接口（需要管理员权限）")
+@RestController
+@RequestMapping("/v1/admin/websocket")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class WebSocketAdminController {
+
+    private final WebSocketSessionManager sessionManager;
+    private final HeartbeatMonitor heartbeatMonitor;
+
+    @Operation(summary = "会话发送统计", description = "获取每个在线会话的发送次数、阻塞时间和队列积压")
+    @GetMapping("/sessions")
+    public Result<List<SessionStatsDTO>> getSessionStats() {
+        return Result.success(sessionManager.getSessionStats());
+    }
+
+    @Operation(summary = "心跳统计", description = "获取心跳跟踪的会话数、已发送ping数和因空闲超时清理的僵死连接数")
+    @GetMapping("/heartbeat")
+    public Result<HeartbeatStatsDTO> getHeartbeatStats() {
+        return Result.success(heartbeatMonitor.getStats());
+    }
+}
@@ -0,0 +1,26 @@
+package com.xima.app.dto.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 缓存统计DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO {
+
+    private String name;
+    private long size;               // 本地缓存条数（近似值）
+    private long hitCount;           // 本地命中
+    private long missCount;          // 本地未命中
+    private double hitRate;
+    private long evictionCount;      // 因容量或过期被淘汰的条数
+    private long remoteHitCount;     // 本地未命中后 Redis 命中
+    private long remoteMissCount;
+    private boolean remoteEnabled;
+}
@@ -0,0 +1,36 @@
+package com.xima.app.dto.conversation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会话列表项DTO（统一私聊和群聊）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationDTO {
+
+    // 会话类型：PRIVATE-私聊，GROUP-群聊
+    private String type;
+
+    // 私聊为对方用户ID，群聊为群ID
+    private Long peerId;
+    private String name;
+    private String remark;          // 好友备注（仅私聊）
+    private String avatar;
+
+    // 最后一条消息
+    private Long lastMessageId;
+    private Long lastSenderId;
+    private String lastSenderName;
+    private String lastMessagePreview;
+    private LocalDateTime lastMessageTime;
+
+    private Integer unreadCount;
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 聊天消息DTO
@@ -26,12 +27,17 @@ public class ChatMessageDTO {
         JOIN,           // 用户加入
         LEAVE,          // 用户离开
         TYPING,         // 正在输入
-        READ,           // 已读回执
+        READ,           // 已读（客户端上报：已读到会话中的某条消息为止）
+        READ_RECEIPT,   // 已读回执（推送给对方：id为已读到的消息ID）
         SYSTEM,         // 系统消息
         STATUS,         // 状态变化（上线/下线）
         ERROR,          // 错误消息
         KICK,           // 被踢下线（账号在其他设备登录）
         RECALL,         // 消息撤回
+        OFFLINE,        // 离线消息分块（连接建立后推送）
+        OFFLINE_ACK,    // 离线消息分块确认（客户端上报：id为分块的cursor）
+        SYNC,           // 增量同步（客户端上报：id为已同步到的序号；服务端回复该序号之后的事件）
+        DELIVERY_ACK,   // 投递确认（客户端上报：deliveryIds为已收到的私聊帧）
         NOTIFICATION    // 通知消息
     }
 
@@ -48,4 +54,6 @@ public class ChatMessageDTO {
     private MessageContentType contentType;
     private LocalDateTime timestamp;
     private Boolean recalled;           // 是否已撤回
+    private String deliveryId;          // 投递日志记录ID（发给接收者的私聊帧携带，客户端据此确认）
+    private List<String> deliveryIds;   // 投递确认上报的记录ID（逐条确认，可合并上报）
 }
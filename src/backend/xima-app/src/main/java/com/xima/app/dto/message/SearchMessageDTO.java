@@ -35,4 +35,7 @@ public class SearchMessageDTO {
     // 消息内容
     private String content;
     private LocalDateTime timestamp;
+    
+    // 翻页游标：请求下一页时传入本页最后一条的cursor
+    private String cursor;
 }
@@ -0,0 +1,16 @@
+package com.xima.app.dto.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 按发送者分组的未读数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountDTO {
+    private Long senderId;
+    private Long count;
+}
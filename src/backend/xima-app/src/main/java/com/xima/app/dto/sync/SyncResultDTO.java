@@ -0,0 +1,27 @@
+package com.xima.app.dto.sync;
+
+import com.xima.app.dto.message.ChatMessageDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 增量同步结果（REST响应和WebSocket SYNC帧共用）
+ * events 中每一项与实时推送的帧同构（CHAT/GROUP_CHAT/RECALL/READ_RECEIPT），客户端按同一套逻辑处理；
+ * reset 为 true 时增量不可用，客户端应重新加载会话和未读数，并从 seq 开始跟踪
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncResultDTO {
+
+    private ChatMessageDTO.MessageType type;   // 固定为 SYNC
+    private Long seq;                          // 下次同步时带上的序号
+    private Boolean reset;                     // 是否需要全量重载
+    private Boolean hasMore;                   // 是否还有下一页，客户端应立即带上 seq 继续同步
+    private List<ChatMessageDTO> events;       // 按序号正序
+}
@@ -0,0 +1,42 @@
+package com.xima.app.dto.user;
+
+import com.xima.app.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+/**
+ * 用户身份快照（不可变）
+ * 只包含发消息时需要的身份信息，连接建立时解析一次并保存在WebSocket会话属性中
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class UserProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String username;
+    private final String nickname;
+    private final String avatar;
+
+    /**
+     * 显示名称：有昵称用昵称，否则用用户名
+     */
+    public String getDisplayName() {
+        return nickname != null ? nickname : username;
+    }
+
+    /**
+     * 从实体转换为快照
+     */
+    public static UserProfile fromEntity(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new UserProfile(user.getId(), user.getUsername(), user.getNickname(), user.getAvatar());
+    }
+}
@@ -0,0 +1,22 @@
+package com.xima.app.dto.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * WebSocket心跳统计DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeartbeatStatsDTO {
+
+    private long trackedSessions;      // 时间轮上跟踪的会话数
+    private long pingsSent;            // 累计发送的ping数
+    private long reapedSessions;       // 累计因空闲超时关闭的会话数
+    private long pingIntervalSeconds;  // ping间隔
+    private long idleTimeoutSeconds;   // 空闲超时
+}
@@ -0,0 +1,25 @@
+package com.xima.app.dto.websocket;
+
+import com.xima.app.dto.message.ChatMessageDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 离线消息分块帧
+ * 客户端收到后回复 OFFLINE_ACK（id为本块的cursor），服务端确认送达后再推送下一块
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfflineChunkDTO {
+
+    private ChatMessageDTO.MessageType type;   // 固定为 OFFLINE
+    private Long cursor;                       // 本块最后一条消息ID
+    private Boolean hasMore;                   // 是否还有下一块
+    private List<ChatMessageDTO> messages;     // 按ID正序
+}
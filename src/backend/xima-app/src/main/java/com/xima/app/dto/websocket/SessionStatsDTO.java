@@ -0,0 +1,25 @@
+package com.xima.app.dto.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * WebSocket会话发送统计DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionStatsDTO {
+
+    private String username;
+    private String sessionId;
+    private long sendCount;            // 已发送帧数
+    private long blockedTimeMillis;    // 累计阻塞在发送上的时间
+    private long maxBlockedTimeMillis; // 单次最长阻塞时间
+    private int bufferSize;            // 装饰器缓冲区当前字节数
+    private int queuedFrames;          // 出站队列积压帧数
+    private long droppedFrames;        // 已丢弃帧数
+}
@@ -0,0 +1,24 @@
+package com.xima.app.dto.websocket;
+
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.entity.UserStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 好友状态摘要帧
+ * 一个摘要周期内某个用户所有好友的上下线变化合并为一帧
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusDigestDTO {
+
+    private ChatMessageDTO.MessageType type;   // 固定为 STATUS
+    private Map<Long, UserStatus> statuses;    // 好友ID -> 最新状态
+}
@@ -0,0 +1,19 @@
+package com.xima.app.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 私聊会话摘要实体（每个用户与每个聊天对象一行）
+ */
+@Data
+public class Conversation {
+    private Long id;
+    private Long ownerId;            // 会话所属用户
+    private Long peerId;             // 聊天对象
+    private Long lastMessageId;
+    private Long lastSenderId;
+    private String lastMessagePreview;
+    private LocalDateTime lastMessageTime;
+    private Integer unreadCount = 0;
+}
@@ -0,0 +1,16 @@
+package com.xima.app.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 群会话摘要实体（每个群一行，未读数由群未读计数器维护）
+ */
+@Data
+public class GroupConversation {
+    private Long groupId;
+    private Long lastMessageId;
+    private Long lastSenderId;
+    private String lastMessagePreview;
+    private LocalDateTime lastMessageTime;
+}
@@ -0,0 +1,15 @@
+package com.xima.app.event;
+
+import com.xima.app.dto.user.UserProfile;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 用户资料变更事件（昵称、头像等身份信息变化时发布）
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserProfileChangedEvent {
+
+    private final UserProfile profile;
+}
@@ -0,0 +1,60 @@
+package com.xima.app.mapper;
+
+import com.xima.app.dto.conversation.ConversationDTO;
+import com.xima.app.entity.Conversation;
+import com.xima.app.entity.GroupConversation;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 会话摘要数据访问接口
+ */
+@Mapper
+public interface ConversationMapper {
+
+    /**
+     * 批量更新私聊会话：累加未读数，消息ID更大时替换最后一条消息
+     */
+    int batchUpsert(@Param("conversations") List<Conversation> conversations);
+
+    /**
+     * 批量更新群会话的最后一条消息
+     */
+    int batchUpsertGroup(@Param("conversations") List<GroupConversation> conversations);
+
+    /**
+     * 分页查询用户的会话列表（私聊会话 + 所在群），按最后消息时间倒序
+     */
+    List<ConversationDTO> findByOwnerId(@Param("ownerId") Long ownerId,
+                                        @Param("offset") int offset,
+                                        @Param("limit") int limit);
+
+    /**
+     * 清零私聊会话未读数
+     */
+    int resetUnread(@Param("ownerId") Long ownerId, @Param("peerId") Long peerId);
+
+    /**
+     * 扣减私聊会话未读数（不低于0）
+     */
+    int decrementUnread(@Param("ownerId") Long ownerId, @Param("peerId") Long peerId, @Param("count") int count);
+
+    /**
+     * 私聊消息被撤回或删除时，仍以它为最后一条消息的双方会话改用占位摘要
+     */
+    int replaceLastPreview(@Param("userId") Long userId, @Param("peerId") Long peerId,
+                           @Param("messageId") Long messageId, @Param("preview") String preview);
+
+    /**
+     * 群消息被撤回时，仍以它为最后一条消息的群会话改用占位摘要
+     */
+    int replaceGroupLastPreview(@Param("groupId") Long groupId, @Param("messageId") Long messageId,
+                                @Param("preview") String preview);
+
+    /**
+     * 删除群会话
+     */
+    int deleteGroup(@Param("groupId") Long groupId);
+}
@@ -4,6 +4,7 @@ import com.xima.app.entity.Friendship;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -72,6 +73,11 @@ public interface FriendshipMapper {
      */
     List<Long> findFriendIdsByUserId(@Param("userId") Long userId);
 
+    /**
+     * 批量查询一组用户的好友关系（只含 user_id 和 friend_id）
+     */
+    List<Friendship> findFriendPairsByUserIds(@Param("userIds") Collection<Long> userIds);
+
     /**
      * 更新好友备注
      */
@@ -81,4 +87,9 @@ public interface FriendshipMapper {
      * 获取好友备注
      */
     String getRemark(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    /**
+     * 批量获取好友备注（只返回有备注的记录，含 friend_id 和 remark）
+     */
+    List<Friendship> findRemarks(@Param("userId") Long userId, @Param("friendIds") Collection<Long> friendIds);
 }
@@ -4,6 +4,7 @@ import com.xima.app.entity.ChatGroup;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +25,9 @@ public interface GroupMapper {
     // 删除群组
     int deleteById(@Param("id") Long id);
     
+    // 批量查询群组
+    List<ChatGroup> findByIds(@Param("ids") Collection<Long> ids);
+    
     // 查询用户加入的所有群组
     List<ChatGroup> findByUserId(@Param("userId") Long userId);
     
@@ -28,6 +28,9 @@ public interface GroupMemberMapper {
     // 查询群成员ID列表
     List<Long> findMemberIdsByGroupId(@Param("groupId") Long groupId);
     
+    // 查询群全部成员的ID和禁言状态（用于成员索引）
+    List<GroupMember> findByGroupId(@Param("groupId") Long groupId);
+    
     // 更新成员信息
     int update(GroupMember member);
     
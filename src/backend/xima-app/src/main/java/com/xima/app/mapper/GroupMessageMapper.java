@@ -13,9 +13,12 @@ import java.util.List;
 @Mapper
 public interface GroupMessageMapper {
     
-    // 插入群消息
+    // 插入群消息（ID和发送时间需预先分配）
     int insert(GroupMessage message);
     
+    // 批量插入群消息
+    int batchInsert(@Param("messages") List<GroupMessage> messages);
+    
     // 根据ID查询消息
     GroupMessage findById(@Param("id") Long id);
     
@@ -24,9 +27,17 @@ public interface GroupMessageMapper {
                                         @Param("offset") int offset, 
                                         @Param("limit") int limit);
     
+    // 游标分页查询群聊天记录：ID小于beforeId的最近limit条，按ID倒序（不关联用户表）
+    List<GroupMessage> findByGroupIdBefore(@Param("groupId") Long groupId,
+                                           @Param("beforeId") Long beforeId,
+                                           @Param("limit") int limit);
+    
     // 查询群最新消息
     GroupMessageDTO findLatestByGroupId(@Param("groupId") Long groupId);
     
+    // 统计群消息总数（仅用于初始化未读计数）
+    long countByGroupId(@Param("groupId") Long groupId);
+    
     // 统计群未读消息数（根据最后已读消息ID）
     int countUnreadMessages(@Param("groupId") Long groupId, @Param("lastReadMessageId") Long lastReadMessageId);
     
@@ -41,4 +52,7 @@ public interface GroupMessageMapper {
                                          @Param("keyword") String keyword,
                                          @Param("offset") int offset,
                                          @Param("limit") int limit);
+
+    // 按ID顺序分批读取可检索的群消息（文本、未撤回），用于建立检索索引
+    List<GroupMessage> findSearchableAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
 }
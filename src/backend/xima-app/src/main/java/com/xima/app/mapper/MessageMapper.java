@@ -1,9 +1,12 @@
 package com.xima.app.mapper;
 
+import com.xima.app.dto.message.SearchMessageDTO;
+import com.xima.app.dto.message.UnreadCountDTO;
 import com.xima.app.entity.Message;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -17,11 +20,21 @@ public interface MessageMapper {
      */
     Message findById(@Param("id") Long id);
 
+    /**
+     * 根据ID批量查询消息（按ID正序）
+     */
+    List<Message> findByIds(@Param("ids") List<Long> ids);
+
     /**
      * 插入消息
      */
     int insert(Message message);
 
+    /**
+     * 批量插入消息（ID和发送时间由调用方预先分配）
+     */
+    int batchInsert(@Param("messages") List<Message> messages);
+
     /**
      * 更新消息状态
      */
@@ -35,6 +48,15 @@ public interface MessageMapper {
                                    @Param("offset") int offset, 
                                    @Param("limit") int limit);
 
+    /**
+     * 游标分页查询两个用户之间的聊天记录：ID小于beforeId的最近limit条，按ID倒序
+     * 从最新一条开始时传 Long.MAX_VALUE
+     */
+    List<Message> findChatHistoryBefore(@Param("userId1") Long userId1,
+                                        @Param("userId2") Long userId2,
+                                        @Param("beforeId") Long beforeId,
+                                        @Param("limit") int limit);
+
     /**
      * 查询用户的离线消息
      */
@@ -45,11 +67,34 @@ public interface MessageMapper {
      */
     int updateStatusToDelivered(@Param("receiverId") Long receiverId);
 
+    /**
+     * 游标分页查询离线消息：ID大于afterId的最早limit条
+     */
+    List<Message> findOfflineMessagesAfter(@Param("receiverId") Long receiverId,
+                                           @Param("afterId") Long afterId,
+                                           @Param("limit") int limit);
+
+    /**
+     * 将指定的离线消息标记为已送达
+     */
+    int updateStatusToDeliveredByIds(@Param("receiverId") Long receiverId, @Param("ids") List<Long> ids);
+
+    /**
+     * 将某个发送者发来的未读消息标记为已读（upToId为null时标记全部，否则只标记ID不大于upToId的）
+     */
+    int updateStatusToRead(@Param("receiverId") Long receiverId, @Param("senderId") Long senderId,
+                           @Param("upToId") Long upToId);
+
     /**
      * 统计未读消息数
      */
     long countUnreadMessages(@Param("receiverId") Long receiverId, @Param("senderId") Long senderId);
 
+    /**
+     * 按发送者分组统计未读消息数
+     */
+    List<UnreadCountDTO> countUnreadBySender(@Param("receiverId") Long receiverId);
+
     /**
      * 删除消息
      */
@@ -67,4 +112,21 @@ public interface MessageMapper {
                                   @Param("keyword") String keyword,
                                   @Param("offset") int offset, 
                                   @Param("limit") int limit);
+
+    /**
+     * 一次查询搜索用户的私聊和所在群的消息（检索索引不可用时使用），按时间、ID、会话类型倒序；
+     * beforeTime 不为空时从 (beforeTime, beforeId, beforeType) 之后开始且忽略 offset，发送者、群名等由调用方批量填充
+     */
+    List<SearchMessageDTO> searchAllMessages(@Param("userId") Long userId,
+                                             @Param("keyword") String keyword,
+                                             @Param("beforeTime") LocalDateTime beforeTime,
+                                             @Param("beforeId") Long beforeId,
+                                             @Param("beforeType") String beforeType,
+                                             @Param("offset") int offset,
+                                             @Param("limit") int limit);
+
+    /**
+     * 按ID顺序分批读取可检索的消息（文本、未撤回），用于建立检索索引
+     */
+    List<Message> findSearchableAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
 }
@@ -4,6 +4,7 @@ import com.xima.app.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,6 +18,11 @@ public interface UserMapper {
      */
     User findById(@Param("id") Long id);
 
+    /**
+     * 根据ID批量查询用户（只含基本资料和状态，不含密码和角色）
+     */
+    List<User> findByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 根据用户名查询用户
      */
@@ -63,10 +69,16 @@ public interface UserMapper {
     List<User> findAll();
 
     /**
-     * 分页查询用户
+     * 分页查询用户（按ID顺序）
      */
     List<User> findByPage(@Param("offset") int offset, @Param("limit") int limit);
 
+    /**
+     * 按用户名或昵称前缀搜索用户，最多返回limit个，用户名等于 exact 的排在最前
+     * （keyword 中的 LIKE 通配符需由调用方转义，exact 为未转义的原始关键字）
+     */
+    List<User> searchByPrefix(@Param("keyword") String keyword, @Param("exact") String exact, @Param("limit") int limit);
+
     /**
      * 统计用户总数
      */
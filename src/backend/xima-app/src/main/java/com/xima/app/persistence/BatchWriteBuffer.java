@@ -0,0 +1,207 @@
+package com.xima.app.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * 批量写缓冲区（write-behind）
+ * 调用方把记录放入有界环形队列后立即返回一个Future，刷写线程按“攒够批次或等够时间”批量落库，
+ * 整批提交成功后才完成该批所有Future；整批失败时逐条重试，只有本身写不进去的记录以异常完成，由调用方决定如何通知。
+ * 每个刷写线程有自己的队列，记录按分区键（如接收者、群）固定进入同一队列，同一分区的批次按入队顺序提交
+ */
+@Slf4j
+public class BatchWriteBuffer<T> {
+
+    private final String name;
+    private final List<BlockingQueue<Pending<T>>> queues = new ArrayList<>();
+    private final ToLongFunction<T> partitionKey;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final Consumer<List<T>> batchWriter;
+    private final List<Thread> flushers = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity        队列总容量（各刷写线程均分），满时调用方最多等待 offerTimeoutMillis
+     * @param batchSize       单批最大条数
+     * @param flushIntervalMs 批次未满时最长等待时间
+     * @param flusherThreads  刷写线程数，每个线程同一时刻只占用一个数据库连接
+     * @param partitionKey    分区键，相同键的记录由同一个刷写线程按顺序写入
+     * @param batchWriter     批量写入逻辑（一次多行插入），整批失败时会以单条列表逐条再调用
+     */
+    public BatchWriteBuffer(String name, int capacity, int batchSize, long flushIntervalMs,
+                            long offerTimeoutMillis, int flusherThreads, ToLongFunction<T> partitionKey,
+                            Consumer<List<T>> batchWriter) {
+        this.name = name;
+        this.partitionKey = partitionKey;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.batchWriter = batchWriter;
+
+        ThreadFactory threadFactory = new CustomizableThreadFactory(name + "-flusher-");
+        int queueCapacity = Math.max(1, capacity / flusherThreads);
+        for (int i = 0; i < flusherThreads; i++) {
+            BlockingQueue<Pending<T>> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            Thread flusher = threadFactory.newThread(() -> runFlusher(queue));
+            flushers.add(flusher);
+            flusher.start();
+        }
+        log.info("批量写缓冲区 {} 已启动, 容量: {}, 批次: {}, 间隔: {}ms, 刷写线程: {}",
+                name, capacity, batchSize, flushIntervalMs, flusherThreads);
+    }
+
+    /**
+     * 提交一条记录，返回的Future在其所在批次提交后完成
+     */
+    public CompletableFuture<T> submit(T item) {
+        Pending<T> pending = new Pending<>(item);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException(name + " 已关闭"));
+            return pending.future;
+        }
+        BlockingQueue<Pending<T>> queue = queues.get(
+                Math.floorMod(partitionKey.applyAsLong(item), queues.size()));
+        try {
+            if (!queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                pending.future.completeExceptionally(new IllegalStateException(name + " 写入队列已满"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(e);
+        }
+        return pending.future;
+    }
+
+    /**
+     * 当前积压条数
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (BlockingQueue<Pending<T>> queue : queues) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    private void runFlusher(BlockingQueue<Pending<T>> queue) {
+        List<Pending<T>> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(queue, batch);
+            } catch (InterruptedException e) {
+                // 关闭时被中断，继续把剩余记录刷完
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 等第一条到达后开始计时，直到攒满一批或超过刷写间隔
+     */
+    private void collect(BlockingQueue<Pending<T>> queue, List<Pending<T>> batch) throws InterruptedException {
+        Pending<T> first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Pending<T>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            items.add(pending.item);
+        }
+        try {
+            batchWriter.accept(items);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                log.error("{} 写入失败: {}", name, e.getMessage(), e);
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            // 一条坏记录会让整条多行插入回滚，逐条重试，避免连累同批其他记录
+            log.warn("{} 批量写入失败({}条)，改为逐条写入: {}", name, items.size(), e.getMessage());
+            for (Pending<T> pending : batch) {
+                flushOne(pending);
+            }
+            return;
+        }
+        for (Pending<T> pending : batch) {
+            pending.future.complete(pending.item);
+        }
+    }
+
+    private void flushOne(Pending<T> pending) {
+        try {
+            batchWriter.accept(Collections.singletonList(pending.item));
+        } catch (Exception e) {
+            log.error("{} 写入失败: {}", name, e.getMessage(), e);
+            pending.future.completeExceptionally(e);
+            return;
+        }
+        pending.future.complete(pending.item);
+    }
+
+    /**
+     * 停止接收新记录，等待已入队的记录刷完
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread flusher : flushers) {
+            try {
+                flusher.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int left = getPendingCount();
+        if (left > 0) {
+            log.warn("{} 关闭超时，仍有 {} 条记录未写入", name, left);
+        }
+    }
+
+    private static final class Pending<T> {
+        private final T item;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Pending(T item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.xima.app.persistence;
+
+import com.xima.app.entity.Conversation;
+import com.xima.app.entity.GroupConversation;
+import com.xima.app.entity.GroupMessage;
+import com.xima.app.entity.Message;
+import com.xima.app.entity.MessageContentType;
+import com.xima.app.entity.MessageStatus;
+import com.xima.app.mapper.ConversationMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 会话摘要写入器
+ * 在消息批次的同一事务内更新会话列表：私聊每方一行（接收方未读数+1），群聊每群一行（未读数由群未读计数器维护，
+ * 避免按成员扇出写入）。同一批次内同一会话只写一次，按主键排序写入以固定加锁顺序。
+ * 消息被撤回或删除时，仍以它为最后一条消息的会话改用占位摘要，接收方尚未读到的私聊消息同时扣减未读数
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversationSummaryWriter {
+
+    private static final int PREVIEW_LENGTH = 100;
+
+    public static final String RECALLED_PREVIEW = "[消息已撤回]";
+    public static final String DELETED_PREVIEW = "[消息已删除]";
+
+    private static final Comparator<long[]> PAIR_ORDER =
+            Comparator.<long[]>comparingLong(pair -> pair[0]).thenComparingLong(pair -> pair[1]);
+
+    private final ConversationMapper conversationMapper;
+
+    /**
+     * 按私聊消息批次更新双方的会话
+     */
+    public void onMessagesSaved(List<Message> messages) {
+        Map<long[], Conversation> conversations = new TreeMap<>(PAIR_ORDER);
+        for (Message message : messages) {
+            merge(conversations, message.getSenderId(), message.getReceiverId(), message, 0);
+            if (!message.getSenderId().equals(message.getReceiverId())) {
+                merge(conversations, message.getReceiverId(), message.getSenderId(), message, 1);
+            }
+        }
+        if (!conversations.isEmpty()) {
+            conversationMapper.batchUpsert(new ArrayList<>(conversations.values()));
+        }
+    }
+
+    /**
+     * 按群消息批次更新各群的最后一条消息
+     */
+    public void onGroupMessagesSaved(List<GroupMessage> messages) {
+        Map<Long, GroupConversation> conversations = new TreeMap<>();
+        for (GroupMessage message : messages) {
+            GroupConversation current = conversations.get(message.getGroupId());
+            if (current != null && current.getLastMessageId() > message.getId()) {
+                continue;
+            }
+            GroupConversation conversation = new GroupConversation();
+            conversation.setGroupId(message.getGroupId());
+            conversation.setLastMessageId(message.getId());
+            conversation.setLastSenderId(message.getSenderId());
+            conversation.setLastMessagePreview(preview(message.getContent(), message.getContentType()));
+            conversation.setLastMessageTime(message.getCreateTime());
+            conversations.put(message.getGroupId(), conversation);
+        }
+        if (!conversations.isEmpty()) {
+            conversationMapper.batchUpsertGroup(new ArrayList<>(conversations.values()));
+        }
+    }
+
+    /**
+     * 单条群消息（如系统消息）写入时更新群会话
+     */
+    public void onGroupMessageSaved(GroupMessage message) {
+        onGroupMessagesSaved(List.of(message));
+    }
+
+    /**
+     * 私聊消息被撤回或删除（message 为撤回、删除前读到的记录）
+     */
+    public void onMessageRemoved(Message message, String placeholder) {
+        conversationMapper.replaceLastPreview(message.getSenderId(), message.getReceiverId(), message.getId(), placeholder);
+        if (!message.getSenderId().equals(message.getReceiverId())
+                && (message.getStatus() == MessageStatus.SENT || message.getStatus() == MessageStatus.DELIVERED)) {
+            conversationMapper.decrementUnread(message.getReceiverId(), message.getSenderId(), 1);
+        }
+    }
+
+    /**
+     * 群消息被撤回
+     */
+    public void onGroupMessageRemoved(GroupMessage message) {
+        conversationMapper.replaceGroupLastPreview(message.getGroupId(), message.getId(), RECALLED_PREVIEW);
+    }
+
+    private void merge(Map<long[], Conversation> conversations, Long ownerId, Long peerId, Message message, int unread) {
+        long[] key = {ownerId, peerId};
+        Conversation conversation = conversations.get(key);
+        if (conversation == null) {
+            conversation = new Conversation();
+            conversation.setOwnerId(ownerId);
+            conversation.setPeerId(peerId);
+            conversation.setUnreadCount(0);
+            conversations.put(key, conversation);
+        }
+        conversation.setUnreadCount(conversation.getUnreadCount() + unread);
+        if (conversation.getLastMessageId() == null || conversation.getLastMessageId() < message.getId()) {
+            conversation.setLastMessageId(message.getId());
+            conversation.setLastSenderId(message.getSenderId());
+            conversation.setLastMessagePreview(preview(message.getContent(), message.getContentType()));
+            conversation.setLastMessageTime(message.getCreateTime());
+        }
+    }
+
+    /**
+     * 会话列表中展示的消息摘要：文本截断，其他类型显示类型标签
+     */
+    public static String preview(String content, MessageContentType contentType) {
+        if (contentType == null) {
+            contentType = MessageContentType.TEXT;
+        }
+        switch (contentType) {
+            case IMAGE:
+                return "[图片]";
+            case FILE:
+                return "[文件]";
+            case AUDIO:
+                return "[语音]";
+            case VIDEO:
+                return "[视频]";
+            case EMOJI:
+                return "[表情]";
+            default:
+                if (content == null) {
+                    return "";
+                }
+                return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) : content;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.xima.app.persistence;
+
+import com.xima.app.cache.GroupUnreadCounter;
+import com.xima.app.entity.GroupMessage;
+import com.xima.app.mapper.GroupMessageMapper;
+import com.xima.app.search.MessageSearchIndex;
+import com.xima.app.sync.InboxLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 群消息批量写入器
+ * 不同群的消息进入同一个缓冲区，按批多行插入 group_message 表并在同一事务内更新群会话摘要，提交后累加各群未读计数、写入成员收件箱和检索索引
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GroupMessageBatchWriter {
+
+    private final GroupMessageMapper groupMessageMapper;
+    private final SnowflakeIdGenerator idGenerator;
+    private final GroupUnreadCounter unreadCounter;
+    private final ConversationSummaryWriter conversationSummaryWriter;
+    private final InboxLog inboxLog;
+    private final MessageSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.persistence.group-message.buffer-capacity:65536}")
+    private int bufferCapacity;
+
+    @Value("${app.persistence.group-message.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.persistence.group-message.flush-interval-ms:10}")
+    private long flushIntervalMs;
+
+    @Value("${app.persistence.group-message.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    @Value("${app.persistence.group-message.flusher-threads:2}")
+    private int flusherThreads;
+
+    private BatchWriteBuffer<GroupMessage> buffer;
+
+    @PostConstruct
+    public void init() {
+        // 按群分区：同一群的消息按入队顺序提交
+        buffer = new BatchWriteBuffer<>("group-message-writer", bufferCapacity, batchSize, flushIntervalMs,
+                offerTimeoutMs, flusherThreads, GroupMessage::getGroupId, this::writeBatch);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        buffer.shutdown(10_000);
+    }
+
+    /**
+     * 分配ID后入队，返回的Future在消息所在批次提交后完成
+     */
+    public CompletableFuture<GroupMessage> save(GroupMessage message) {
+        message.setId(idGenerator.nextId());
+        if (message.getCreateTime() == null) {
+            message.setCreateTime(LocalDateTime.now());
+        }
+        return buffer.submit(message);
+    }
+
+    private void writeBatch(List<GroupMessage> messages) {
+        transactionTemplate.executeWithoutResult(status -> {
+            groupMessageMapper.batchInsert(messages);
+            conversationSummaryWriter.onGroupMessagesSaved(messages);
+        });
+        // 计数和收件箱写入失败不影响消息落库
+        unreadCounter.onMessagesSaved(messages);
+        inboxLog.onGroupMessagesSaved(messages);
+        searchIndex.onGroupMessagesSaved(messages);
+    }
+
+    /**
+     * 当前积压条数
+     */
+    public int getPendingCount() {
+        return buffer.getPendingCount();
+    }
+}
@@ -0,0 +1,91 @@
+package com.xima.app.persistence;
+
+import com.xima.app.entity.Message;
+import com.xima.app.mapper.MessageMapper;
+import com.xima.app.search.MessageSearchIndex;
+import com.xima.app.sync.InboxLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 私聊消息批量写入器
+ * 入队前预分配ID和发送时间，由缓冲区按批多行插入 message 表，并在同一事务内更新双方的会话摘要，提交后写入双方收件箱和检索索引
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageBatchWriter {
+
+    private final MessageMapper messageMapper;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ConversationSummaryWriter conversationSummaryWriter;
+    private final InboxLog inboxLog;
+    private final MessageSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.persistence.message.buffer-capacity:65536}")
+    private int bufferCapacity;
+
+    @Value("${app.persistence.message.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.persistence.message.flush-interval-ms:10}")
+    private long flushIntervalMs;
+
+    @Value("${app.persistence.message.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    @Value("${app.persistence.message.flusher-threads:2}")
+    private int flusherThreads;
+
+    private BatchWriteBuffer<Message> buffer;
+
+    @PostConstruct
+    public void init() {
+        // 按接收者分区：同一接收者的消息按ID顺序提交，离线推送按ID游标分页时不会漏掉晚提交的小ID
+        buffer = new BatchWriteBuffer<>("message-writer", bufferCapacity, batchSize, flushIntervalMs,
+                offerTimeoutMs, flusherThreads, Message::getReceiverId, this::writeBatch);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        buffer.shutdown(10_000);
+    }
+
+    /**
+     * 分配ID后入队，返回的Future在消息所在批次提交后完成
+     */
+    public CompletableFuture<Message> save(Message message) {
+        message.setId(idGenerator.nextId());
+        if (message.getCreateTime() == null) {
+            message.setCreateTime(LocalDateTime.now());
+        }
+        return buffer.submit(message);
+    }
+
+    private void writeBatch(List<Message> messages) {
+        transactionTemplate.executeWithoutResult(status -> {
+            messageMapper.batchInsert(messages);
+            conversationSummaryWriter.onMessagesSaved(messages);
+        });
+        // 收件箱写入失败不影响消息落库
+        inboxLog.onMessagesSaved(messages);
+        searchIndex.onMessagesSaved(messages);
+    }
+
+    /**
+     * 当前积压条数
+     */
+    public int getPendingCount() {
+        return buffer.getPendingCount();
+    }
+}
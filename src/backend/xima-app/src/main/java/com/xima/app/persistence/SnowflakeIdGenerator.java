@@ -0,0 +1,79 @@
+package com.xima.app.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 雪花算法ID生成器（53位，前端JavaScript Number可安全表示）
+ * 布局：41位毫秒时间戳（自定义纪元起约69年） | 5位节点ID | 7位序列号（每节点每毫秒128个）
+ * 消息在写库之前就需要确定ID，以便先入缓冲区、后批量落库
+ */
+@Slf4j
+@Component
+public class SnowflakeIdGenerator {
+
+    // 自定义纪元：2024-01-01 00:00:00 UTC
+    private static final long EPOCH = 1704067200000L;
+
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    @Value("${app.id.node-id:0}")
+    private long nodeId;
+
+    // 以下字段由 this 保护
+    private long lastTimestamp = -1L;
+    private long sequence;
+
+    public SnowflakeIdGenerator() {
+    }
+
+    public SnowflakeIdGenerator(long nodeId) {
+        this.nodeId = nodeId;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("app.id.node-id 必须在 0~" + MAX_NODE_ID + " 之间: " + nodeId);
+        }
+        log.info("ID生成器节点ID: {}", nodeId);
+    }
+
+    /**
+     * 生成下一个ID
+     */
+    public synchronized long nextId() {
+        long timestamp = System.currentTimeMillis();
+        if (timestamp < lastTimestamp) {
+            // 时钟回拨：沿用上次时间戳继续分配序列号，保证单调递增
+            timestamp = lastTimestamp;
+        }
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                timestamp = waitNextMillis(lastTimestamp);
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+        return ((timestamp - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    private long waitNextMillis(long lastTimestamp) {
+        long timestamp = System.currentTimeMillis();
+        while (timestamp <= lastTimestamp) {
+            Thread.onSpinWait();
+            timestamp = System.currentTimeMillis();
+        }
+        return timestamp;
+    }
+}
@@ -0,0 +1,284 @@
+package com.xima.app.presence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.dto.websocket.StatusDigestDTO;
+import com.xima.app.entity.Friendship;
+import com.xima.app.entity.UserStatus;
+import com.xima.app.mapper.FriendshipMapper;
+import com.xima.app.websocket.ClusterRouter;
+import com.xima.app.websocket.FramePriority;
+import com.xima.app.websocket.WebSocketSessionManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在线状态跟踪
+ * 在线标记保存在 Redis（带过期时间，由连接所在节点定期续期），不再在每次连接/断开时写 user.status；
+ * 断开后等待一个宽限期才算下线，宽限期内重连（在任意节点）不产生状态变化；
+ * 状态变化先合并，按摘要周期一次查出所有变化用户的好友，每个接收者只收到一帧摘要
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PresenceTracker {
+
+    // 在线标记：xima:presence:{userId} -> nodeId
+    private static final String PRESENCE_KEY = "xima:presence:";
+    private static final int REFRESH_BATCH = 1000;
+    // 一次查询好友关系的用户数上限
+    private static final int QUERY_BATCH = 500;
+
+    // 标记在线并返回之前的标记（宽限期内或其他节点上仍在线时非空）
+    private static final RedisScript<String> CLAIM = new DefaultRedisScript<>(
+            "local previous = redis.call('GET', KEYS[1]) " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) " +
+            "if previous then return previous end " +
+            "return false", String.class);
+
+    // 只删除仍属于本节点的标记，用户已在其他节点重连时保留
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    // 续期本节点用户的标记；标记已丢失（如Redis重启）时重新登记，已被其他节点占用的不动
+    private static final RedisScript<Long> REFRESH = new DefaultRedisScript<>(
+            "local refreshed = 0 " +
+            "for i, key in ipairs(KEYS) do " +
+            "  local owner = redis.call('GET', key) " +
+            "  if owner == ARGV[1] or not owner then " +
+            "    redis.call('SET', key, ARGV[1], 'EX', ARGV[2]) " +
+            "    refreshed = refreshed + 1 " +
+            "  end " +
+            "end " +
+            "return refreshed", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final WebSocketSessionManager sessionManager;
+    private final ClusterRouter clusterRouter;
+    private final FriendshipMapper friendshipMapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.presence.ttl-seconds:90}")
+    private long ttlSeconds;
+
+    @Value("${app.presence.debounce-ms:5000}")
+    private long debounceMs;
+
+    @Value("${app.presence.digest-interval-ms:1000}")
+    private long digestIntervalMs;
+
+    // 已断开、仍在宽限期内的用户
+    private final Map<Long, ScheduledFuture<?>> pendingOffline = new ConcurrentHashMap<>();
+    // 待通知的状态变化：用户ID -> 最新状态
+    private final Map<Long, UserStatus> changes = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("presence-"));
+        scheduler.scheduleWithFixedDelay(this::flushDigests, digestIntervalMs, digestIntervalMs, TimeUnit.MILLISECONDS);
+        long refreshSeconds = Math.max(1, ttlSeconds / 3);
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 用户连接到本节点（在会话绑定用户ID之后调用）
+     */
+    public void online(Long userId) {
+        ScheduledFuture<?> pending = pendingOffline.remove(userId);
+        boolean reconnected = pending != null && pending.cancel(false);
+        String previous = claim(userId);
+        // 宽限期内重连，或在其他节点上仍在线时，好友看到的状态没有变化
+        if (!reconnected && previous == null) {
+            changes.put(userId, UserStatus.ONLINE);
+        }
+    }
+
+    /**
+     * 用户从本节点断开（在会话解绑用户ID之后调用），宽限期后仍未重连才算下线
+     */
+    public void offline(Long userId) {
+        ScheduledFuture<?> future = scheduler.schedule(() -> expire(userId), debounceMs, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = pendingOffline.put(userId, future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * 批量判断一组用户是否在线（含宽限期内的），Redis 不可用时只看本节点
+     */
+    public Set<Long> getOnlineUserIds(Collection<Long> userIds) {
+        Set<Long> online = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (sessionManager.isLocal(userId) || pendingOffline.containsKey(userId)) {
+                online.add(userId);
+            } else {
+                unknown.add(userId);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return online;
+        }
+        try {
+            List<String> keys = new ArrayList<>(unknown.size());
+            for (Long userId : unknown) {
+                keys.add(presenceKey(userId));
+            }
+            List<String> nodes = redisTemplate.opsForValue().multiGet(keys);
+            if (nodes != null) {
+                for (int i = 0; i < unknown.size() && i < nodes.size(); i++) {
+                    if (nodes.get(i) != null) {
+                        online.add(unknown.get(i));
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("查询在线状态失败({}个用户): {}", unknown.size(), e.getMessage());
+        }
+        return online;
+    }
+
+    /**
+     * 展示给好友的状态：离线时为 OFFLINE；在线时用户自己设置的离开、忙碌等状态优先
+     */
+    public static UserStatus effectiveStatus(UserStatus stored, boolean online) {
+        if (!online) {
+            return UserStatus.OFFLINE;
+        }
+        return stored == null || stored == UserStatus.OFFLINE ? UserStatus.ONLINE : stored;
+    }
+
+    private void expire(Long userId) {
+        // 宽限期内已在本节点重连
+        if (sessionManager.isLocal(userId)) {
+            return;
+        }
+        pendingOffline.remove(userId);
+        if (release(userId)) {
+            changes.put(userId, UserStatus.OFFLINE);
+        }
+    }
+
+    /**
+     * 把一个周期内的状态变化按接收者合并成摘要帧发出
+     */
+    void flushDigests() {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Map<Long, UserStatus> batch = new HashMap<>();
+        for (Long userId : changes.keySet()) {
+            UserStatus status = changes.remove(userId);
+            if (status != null) {
+                batch.put(userId, status);
+            }
+        }
+        try {
+            // 接收者ID -> {好友ID -> 最新状态}
+            Map<Long, Map<Long, UserStatus>> digests = new HashMap<>();
+            List<Long> userIds = new ArrayList<>(batch.keySet());
+            for (int from = 0; from < userIds.size(); from += QUERY_BATCH) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + QUERY_BATCH, userIds.size()));
+                for (Friendship friendship : friendshipMapper.findFriendPairsByUserIds(chunk)) {
+                    digests.computeIfAbsent(friendship.getFriendId(), k -> new LinkedHashMap<>())
+                            .put(friendship.getUserId(), batch.get(friendship.getUserId()));
+                }
+            }
+
+            int sent = 0;
+            for (Long recipientId : getOnlineUserIds(digests.keySet())) {
+                StatusDigestDTO digest = StatusDigestDTO.builder()
+                        .type(ChatMessageDTO.MessageType.STATUS)
+                        .statuses(digests.get(recipientId))
+                        .build();
+                if (sessionManager.sendToUser(recipientId, objectMapper.writeValueAsString(digest),
+                        FramePriority.DROPPABLE)) {
+                    sent++;
+                }
+            }
+            log.debug("{} 个用户状态变化，已向 {} 个在线好友推送摘要", batch.size(), sent);
+        } catch (Exception e) {
+            log.error("推送状态摘要失败: {}", e.getMessage());
+        }
+    }
+
+    private String claim(Long userId) {
+        try {
+            return redisTemplate.execute(CLAIM, Collections.singletonList(presenceKey(userId)),
+                    clusterRouter.getNodeId(), String.valueOf(ttlSeconds));
+        } catch (RuntimeException e) {
+            log.warn("标记用户 {} 在线失败: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 删除本节点的在线标记，返回是否应通知下线（Redis 不可用时以本节点为准）
+     */
+    private boolean release(Long userId) {
+        try {
+            Long deleted = redisTemplate.execute(RELEASE, Collections.singletonList(presenceKey(userId)),
+                    clusterRouter.getNodeId());
+            return deleted == null || deleted > 0;
+        } catch (RuntimeException e) {
+            log.warn("清除用户 {} 的在线标记失败: {}", userId, e.getMessage());
+            return true;
+        }
+    }
+
+    private void refresh() {
+        long[] localUserIds = sessionManager.getLocalUserIds();
+        if (localUserIds.length == 0) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(localUserIds.length);
+        for (long userId : localUserIds) {
+            keys.add(presenceKey(userId));
+        }
+        try {
+            // 分批续期，避免单个脚本长时间占用Redis
+            for (int from = 0; from < keys.size(); from += REFRESH_BATCH) {
+                redisTemplate.execute(REFRESH, keys.subList(from, Math.min(from + REFRESH_BATCH, keys.size())),
+                        clusterRouter.getNodeId(), String.valueOf(ttlSeconds));
+            }
+        } catch (RuntimeException e) {
+            log.warn("续期在线标记失败({}个用户): {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private static String presenceKey(long userId) {
+        return PRESENCE_KEY + userId;
+    }
+}
@@ -0,0 +1,26 @@
+package com.xima.app.search;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 消息检索命中（索引中存储的字段，用户名、群名等由调用方批量填充）
+ */
+@Getter
+@Builder
+public class MessageSearchHit {
+
+    // PRIVATE-私聊，GROUP-群聊
+    private final String chatType;
+    private final Long id;
+    private final Long senderId;
+    private final Long receiverId;
+    private final Long groupId;
+    private final String content;
+    private final LocalDateTime createTime;
+    private final float score;
+    // 翻页游标（SearchCursor 编码）
+    private final String cursor;
+}
@@ -0,0 +1,553 @@
+package com.xima.app.search;
+
+import com.xima.app.entity.GroupMessage;
+import com.xima.app.entity.Message;
+import com.xima.app.entity.MessageContentType;
+import com.xima.app.mapper.GroupMessageMapper;
+import com.xima.app.mapper.MessageMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.cjk.CJKWidthFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 消息全文检索索引（Lucene，本地磁盘）
+ * 私聊和群聊的文本消息在同一个索引中，内容按 CJK 二元组（同时保留单字）分词；
+ * 消息落库、撤回、删除时增量维护，首次启动时从数据库全量建立；新增按周期刷盘，撤回、删除随即刷盘，
+ * 避免进程崩溃后已撤回的消息重新可搜。
+ * 索引只包含本节点写入的消息，集群模式下不启用；
+ * 索引不可用（未启用、集群模式、打开失败、仍在初始化）时由调用方退回数据库查询
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageSearchIndex {
+
+    public static final String PRIVATE = "PRIVATE";
+    public static final String GROUP = "GROUP";
+
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_ID = "id";
+    // 可见范围：私聊为收发双方 U+用户ID，群聊为 G+群ID，搜索时一次集合查询限定范围
+    private static final String FIELD_SCOPE = "scope";
+    private static final String FIELD_GROUP = "group";
+    private static final String FIELD_SENDER = "sender";
+    private static final String FIELD_RECEIVER = "receiver";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_TIME = "time";
+    // 排序用的消息ID（doc values），作为游标翻页的最后一级排序键
+    private static final String FIELD_SORT_ID = "sort_id";
+
+    // 提交数据中的标记：已完成从数据库的全量建立
+    private static final String BOOTSTRAPPED = "bootstrapped";
+    // 一次查询最多使用的词项数，超出部分忽略
+    private static final int MAX_QUERY_TERMS = 32;
+
+    // 按相关度排序，相关度相同时新消息在前，再按ID保证排序键唯一
+    private static final Sort SORT = new Sort(SortField.FIELD_SCORE,
+            new SortField(FIELD_TIME, SortField.Type.LONG, true),
+            new SortField(FIELD_SORT_ID, SortField.Type.LONG, true));
+
+    private final MessageMapper messageMapper;
+    private final GroupMessageMapper groupMessageMapper;
+
+    @Value("${app.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.index-dir:./data/search-index}")
+    private String indexDir;
+
+    @Value("${app.search.refresh-interval-ms:1000}")
+    private long refreshIntervalMs;
+
+    @Value("${app.search.commit-interval-seconds:30}")
+    private long commitIntervalSeconds;
+
+    @Value("${app.search.bootstrap-batch-size:1000}")
+    private int bootstrapBatchSize;
+
+    @Value("${app.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    private final Analyzer analyzer = new ChatContentAnalyzer();
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean ready;
+    private volatile boolean closing;
+    // 已有待执行的删除刷盘任务时不再重复提交
+    private final AtomicBoolean commitRequested = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("消息检索索引未启用，搜索使用数据库查询");
+            return;
+        }
+        if (clusterEnabled) {
+            // 各节点只索引自己写入的消息，单个节点的索引不完整
+            log.info("集群模式下不启用本地消息检索索引，搜索使用数据库查询");
+            return;
+        }
+        try {
+            directory = FSDirectory.open(Paths.get(indexDir));
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            writer = new IndexWriter(directory, config);
+            searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            log.error("打开消息检索索引失败，搜索使用数据库查询: {}", e.getMessage(), e);
+            close();
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("search-index-"));
+        if (isBootstrapped()) {
+            ready = true;
+        } else {
+            scheduler.execute(this::bootstrap);
+        }
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::commit, commitIntervalSeconds, commitIntervalSeconds, TimeUnit.SECONDS);
+        log.info("消息检索索引: {}, 文档数 {}", indexDir, writer.getDocStats().numDocs);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        closing = true;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        commit();
+        close();
+    }
+
+    /**
+     * 索引是否可以提供搜索
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 私聊消息落库后加入索引（非文本、已撤回的消息不索引）
+     */
+    public void onMessagesSaved(List<Message> messages) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            for (Message message : messages) {
+                if (isSearchable(message.getContentType(), message.getRecalled(), message.getContent())) {
+                    writer.updateDocument(keyTerm(PRIVATE, message.getId()), toDocument(message));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("私聊消息写入检索索引失败({}条): {}", messages.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 群消息落库后加入索引（系统消息不索引）
+     */
+    public void onGroupMessagesSaved(List<GroupMessage> messages) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            for (GroupMessage message : messages) {
+                if (isSearchable(message.getContentType(), message.getRecalled(), message.getContent())) {
+                    writer.updateDocument(keyTerm(GROUP, message.getId()), toDocument(message));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("群消息写入检索索引失败({}条): {}", messages.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 私聊消息撤回或删除（在事务中调用时提交后生效）
+     */
+    public void onPrivateMessageRemoved(Long messageId) {
+        delete(keyTerm(PRIVATE, messageId));
+    }
+
+    /**
+     * 群消息撤回（在事务中调用时提交后生效）
+     */
+    public void onGroupMessageRemoved(Long messageId) {
+        delete(keyTerm(GROUP, messageId));
+    }
+
+    /**
+     * 群解散，删除该群的全部消息（在事务中调用时提交后生效）
+     */
+    public void onGroupDissolved(Long groupId) {
+        delete(new Term(FIELD_GROUP, String.valueOf(groupId)));
+    }
+
+    /**
+     * 在用户的私聊和所在群中一次查询全部会话，按相关度排序（相同时新消息在前）取全局前 limit 条；
+     * 传入游标时从游标之后开始（offset 忽略），否则跳过前 offset 条
+     */
+    public List<MessageSearchHit> search(Long userId, Collection<Long> groupIds, String keyword,
+                                         SearchCursor after, int offset, int limit) throws IOException {
+        Query query = buildQuery(userId, groupIds, keyword);
+        if (query == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (after != null) {
+            offset = 0;
+        }
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = after != null
+                    ? searcher.searchAfter(toFieldDoc(after, searcher), query, limit, SORT, true)
+                    : searcher.search(query, offset + limit, SORT, true);
+            StoredFields storedFields = searcher.storedFields();
+            List<MessageSearchHit> hits = new ArrayList<>(Math.max(0, topDocs.scoreDocs.length - offset));
+            for (int i = offset; i < topDocs.scoreDocs.length; i++) {
+                ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                hits.add(toHit(storedFields.document(scoreDoc.doc), scoreDoc.score));
+            }
+            return hits;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 首次启动时按ID顺序分批读取数据库中的文本消息建立索引，期间落库的新消息同时增量写入（按消息键覆盖，不会重复）
+     */
+    private void bootstrap() {
+        long start = System.currentTimeMillis();
+        long count = 0;
+        try {
+            long afterId = 0;
+            while (!closing) {
+                List<Message> batch = messageMapper.findSearchableAfter(afterId, bootstrapBatchSize);
+                onMessagesSaved(batch);
+                count += batch.size();
+                if (batch.size() < bootstrapBatchSize) {
+                    break;
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+            afterId = 0;
+            while (!closing) {
+                List<GroupMessage> batch = groupMessageMapper.findSearchableAfter(afterId, bootstrapBatchSize);
+                onGroupMessagesSaved(batch);
+                count += batch.size();
+                if (batch.size() < bootstrapBatchSize) {
+                    break;
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+            if (closing) {
+                return;
+            }
+            writer.setLiveCommitData(Map.of(BOOTSTRAPPED, "true").entrySet());
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            ready = true;
+            log.info("消息检索索引建立完成: {} 条消息, 耗时 {}ms", count, System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.error("建立消息检索索引失败，搜索继续使用数据库查询: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean isBootstrapped() {
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (BOOTSTRAPPED.equals(entry.getKey())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 让最近写入的消息对搜索可见
+     */
+    void refresh() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException | RuntimeException e) {
+            log.warn("刷新检索索引失败: {}", e.getMessage());
+        }
+    }
+
+    private void commit() {
+        try {
+            if (writer != null && writer.isOpen() && writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("提交检索索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 删除后尽快刷盘（在索引线程上执行，连续的删除合并为一次提交）
+     */
+    private void requestCommit() {
+        if (scheduler == null || !commitRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                commitRequested.set(false);
+                commit();
+            });
+        } catch (RejectedExecutionException e) {
+            // 关闭中，destroy 会做最后一次提交
+            commitRequested.set(false);
+        }
+    }
+
+    private void delete(Term term) {
+        if (writer == null) {
+            return;
+        }
+        Runnable action = () -> {
+            try {
+                writer.deleteDocuments(term);
+                requestCommit();
+            } catch (IOException | RuntimeException e) {
+                log.warn("从检索索引删除 {} 失败: {}", term, e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void close() {
+        try {
+            if (searcherManager != null) {
+                searcherManager.close();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            if (directory != null) {
+                directory.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("关闭检索索引失败: {}", e.getMessage());
+        }
+        ready = false;
+        searcherManager = null;
+        writer = null;
+        directory = null;
+    }
+
+    /**
+     * 关键词按与内容相同的方式分词，所有词项都必须出现；范围限定为用户参与的私聊和所在的群
+     */
+    private Query buildQuery(Long userId, Collection<Long> groupIds, String keyword) throws IOException {
+        Set<String> terms = analyze(keyword);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            query.add(new TermQuery(new Term(FIELD_CONTENT, term)), BooleanClause.Occur.MUST);
+        }
+
+        List<BytesRef> scopes = new ArrayList<>(groupIds.size() + 1);
+        scopes.add(new BytesRef(userScope(userId)));
+        for (Long groupId : groupIds) {
+            scopes.add(new BytesRef(groupScope(groupId)));
+        }
+        query.add(new TermInSetQuery(FIELD_SCOPE, scopes), BooleanClause.Occur.FILTER);
+        return query.build();
+    }
+
+    private Set<String> analyze(String keyword) throws IOException {
+        Set<String> terms = new LinkedHashSet<>();
+        if (keyword == null) {
+            return terms;
+        }
+        try (TokenStream stream = analyzer.tokenStream(FIELD_CONTENT, new StringReader(keyword))) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+
+    private static boolean isSearchable(MessageContentType contentType, Boolean recalled, String content) {
+        return contentType == MessageContentType.TEXT && !Boolean.TRUE.equals(recalled)
+                && content != null && !content.isBlank();
+    }
+
+    private static String userScope(Long userId) {
+        return "U" + userId;
+    }
+
+    private static String groupScope(Long groupId) {
+        return "G" + groupId;
+    }
+
+    private static Term keyTerm(String type, Long messageId) {
+        return new Term(FIELD_KEY, type.charAt(0) + String.valueOf(messageId));
+    }
+
+    private static Document toDocument(Message message) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_KEY, keyTerm(PRIVATE, message.getId()).text(), Field.Store.NO));
+        doc.add(new StringField(FIELD_TYPE, PRIVATE, Field.Store.YES));
+        doc.add(new StoredField(FIELD_ID, message.getId()));
+        doc.add(new NumericDocValuesField(FIELD_SORT_ID, message.getId()));
+        doc.add(new StringField(FIELD_SCOPE, userScope(message.getSenderId()), Field.Store.NO));
+        doc.add(new StringField(FIELD_SCOPE, userScope(message.getReceiverId()), Field.Store.NO));
+        doc.add(new StoredField(FIELD_SENDER, message.getSenderId()));
+        doc.add(new StoredField(FIELD_RECEIVER, message.getReceiverId()));
+        addContent(doc, message.getContent(), message.getCreateTime());
+        return doc;
+    }
+
+    private static Document toDocument(GroupMessage message) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_KEY, keyTerm(GROUP, message.getId()).text(), Field.Store.NO));
+        doc.add(new StringField(FIELD_TYPE, GROUP, Field.Store.YES));
+        doc.add(new StoredField(FIELD_ID, message.getId()));
+        doc.add(new NumericDocValuesField(FIELD_SORT_ID, message.getId()));
+        doc.add(new StringField(FIELD_SCOPE, groupScope(message.getGroupId()), Field.Store.NO));
+        doc.add(new StringField(FIELD_GROUP, String.valueOf(message.getGroupId()), Field.Store.YES));
+        doc.add(new StoredField(FIELD_SENDER, message.getSenderId()));
+        addContent(doc, message.getContent(), message.getCreateTime());
+        return doc;
+    }
+
+    private static void addContent(Document doc, String content, LocalDateTime createTime) {
+        long time = createTime != null
+                ? createTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        doc.add(new TextField(FIELD_CONTENT, content, Field.Store.YES));
+        doc.add(new NumericDocValuesField(FIELD_TIME, time));
+        doc.add(new StoredField(FIELD_TIME, time));
+    }
+
+    /**
+     * 游标转换为 searchAfter 的起点；ID使排序键唯一，文档号取最后一个，排序键完全相同的文档都视为已返回
+     */
+    private static FieldDoc toFieldDoc(SearchCursor cursor, IndexSearcher searcher) {
+        return new FieldDoc(searcher.getIndexReader().maxDoc() - 1, cursor.getScore(),
+                new Object[]{cursor.getScore(), cursor.getTime(), cursor.getId()});
+    }
+
+    private static MessageSearchHit toHit(Document doc, float score) {
+        String group = doc.get(FIELD_GROUP);
+        Number receiver = numeric(doc, FIELD_RECEIVER);
+        long id = numeric(doc, FIELD_ID).longValue();
+        long time = numeric(doc, FIELD_TIME).longValue();
+        return MessageSearchHit.builder()
+                .chatType(doc.get(FIELD_TYPE))
+                .id(id)
+                .senderId(numeric(doc, FIELD_SENDER).longValue())
+                .receiverId(receiver != null ? receiver.longValue() : null)
+                .groupId(group != null ? Long.valueOf(group) : null)
+                .content(doc.get(FIELD_CONTENT))
+                .createTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()))
+                .score(score)
+                .cursor(SearchCursor.ofIndex(score, time, id).encode())
+                .build();
+    }
+
+    private static Number numeric(Document doc, String field) {
+        return doc.getField(field) != null ? doc.getField(field).numericValue() : null;
+    }
+
+    /**
+     * 聊天内容分词：标准分词后统一全角/半角、转小写，中日韩文字输出二元组并保留单字（单字关键词也能命中）
+     */
+    private static final class ChatContentAnalyzer extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer source = new StandardTokenizer();
+            TokenStream result = new CJKWidthFilter(source);
+            result = new LowerCaseFilter(result);
+            result = new CJKBigramFilter(result, CJKBigramFilter.HAN | CJKBigramFilter.HIRAGANA
+                    | CJKBigramFilter.KATAKANA | CJKBigramFilter.HANGUL, true);
+            return new TokenStreamComponents(source, result);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.xima.app.search;
+
+import com.xima.app.exception.BusinessException;
+import com.xima.app.exception.ErrorCode;
+import lombok.Getter;
+
+/**
+ * 消息搜索翻页游标：上一页最后一条结果的排序键，下一页从它之后继续
+ * 索引结果按（相关度、时间、ID）排序，数据库结果按（时间、ID、会话类型）排序；游标记录来源，翻页过程中不切换查询方式
+ * 私聊消息和群消息分属两张表，ID可能相同，数据库游标带上会话类型才能唯一定位
+ * 编码格式：L_相关度_时间毫秒_消息ID 或 D_时间毫秒_消息ID_会话类型（旧格式 D_时间毫秒_消息ID 按私聊处理）
+ */
+@Getter
+public final class SearchCursor {
+
+    private static final String INDEX = "L";
+    private static final String DATABASE = "D";
+    private static final String SEPARATOR = "_";
+
+    private final boolean fromIndex;
+    private final float score;
+    private final long time;
+    private final long id;
+    // 会话类型 PRIVATE / GROUP，仅数据库游标使用
+    private final String chatType;
+
+    private SearchCursor(boolean fromIndex, float score, long time, long id, String chatType) {
+        this.fromIndex = fromIndex;
+        this.score = score;
+        this.time = time;
+        this.id = id;
+        this.chatType = chatType;
+    }
+
+    public static SearchCursor ofIndex(float score, long time, long id) {
+        return new SearchCursor(true, score, time, id, null);
+    }
+
+    public static SearchCursor ofDatabase(long time, long id, String chatType) {
+        return new SearchCursor(false, 0f, time, id, chatType);
+    }
+
+    /**
+     * 解析客户端传入的游标，为空时返回null（从第一页开始）
+     */
+    public static SearchCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String[] parts = value.split(SEPARATOR);
+        try {
+            if (parts.length == 4 && INDEX.equals(parts[0])) {
+                float score = Float.parseFloat(parts[1]);
+                if (Float.isFinite(score)) {
+                    return ofIndex(score, Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+                }
+            } else if (parts.length == 3 && DATABASE.equals(parts[0])) {
+                return ofDatabase(Long.parseLong(parts[1]), Long.parseLong(parts[2]), MessageSearchIndex.PRIVATE);
+            } else if (parts.length == 4 && DATABASE.equals(parts[0])
+                    && (MessageSearchIndex.PRIVATE.equals(parts[3]) || MessageSearchIndex.GROUP.equals(parts[3]))) {
+                return ofDatabase(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]);
+            }
+        } catch (NumberFormatException ignored) {
+            // 按格式错误处理
+        }
+        throw new BusinessException(ErrorCode.PARAM_ERROR.getCode(), "无效的搜索游标");
+    }
+
+    public String encode() {
+        return fromIndex
+                ? INDEX + SEPARATOR + score + SEPARATOR + time + SEPARATOR + id
+                : DATABASE + SEPARATOR + time + SEPARATOR + id + SEPARATOR + chatType;
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,26 @@
+package com.xima.app.service;
+
+import com.xima.app.dto.conversation.ConversationDTO;
+
+import java.util.List;
+
+/**
+ * 会话列表服务接口
+ */
+public interface ConversationService {
+
+    /**
+     * 分页获取会话列表（私聊和群聊，按最后消息时间倒序），含最后一条消息摘要和未读数
+     */
+    List<ConversationDTO> getConversations(Long userId, int page, int size);
+
+    /**
+     * 将与某个用户的私聊会话标记为已读
+     */
+    void markPrivateAsRead(Long userId, Long peerId);
+
+    /**
+     * 将与某个用户的私聊会话标记为已读到指定消息为止，返回新标记为已读的消息数
+     */
+    int markPrivateAsReadUpTo(Long userId, Long peerId, Long upToMessageId);
+}
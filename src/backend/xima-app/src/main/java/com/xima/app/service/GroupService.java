@@ -1,8 +1,12 @@
 package com.xima.app.service;
 
+import com.xima.app.cache.GroupMembershipIndex;
+import com.xima.app.cache.GroupUnreadCounter;
+import com.xima.app.cache.UserProfileCache;
 import com.xima.app.dto.group.*;
 import com.xima.app.dto.group.InviteMembersResult;
 import com.xima.app.entity.ChatGroup;
+import com.xima.app.entity.Friendship;
 import com.xima.app.entity.GroupMember;
 import com.xima.app.entity.GroupMessage;
 import com.xima.app.entity.MessageContentType;
@@ -12,21 +16,32 @@ import com.xima.app.mapper.GroupMessageMapper;
 import com.xima.app.mapper.GroupMessageReadMapper;
 import com.xima.app.mapper.UserMapper;
 import com.xima.app.mapper.FriendshipMapper;
+import com.xima.app.mapper.ConversationMapper;
 import com.xima.app.entity.User;
+import com.xima.app.dto.user.UserProfile;
+import com.xima.app.persistence.ConversationSummaryWriter;
+import com.xima.app.persistence.GroupMessageBatchWriter;
+import com.xima.app.persistence.SnowflakeIdGenerator;
+import com.xima.app.search.MessageSearchIndex;
+import com.xima.app.sync.InboxLog;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 群组服务
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class GroupService {
@@ -37,6 +52,15 @@ public class GroupService {
     private final GroupMessageReadMapper groupMessageReadMapper;
     private final UserMapper userMapper;
     private final FriendshipMapper friendshipMapper;
+    private final GroupMembershipIndex membershipIndex;
+    private final UserProfileCache userProfileCache;
+    private final GroupMessageBatchWriter groupMessageBatchWriter;
+    private final SnowflakeIdGenerator idGenerator;
+    private final GroupUnreadCounter unreadCounter;
+    private final ConversationMapper conversationMapper;
+    private final ConversationSummaryWriter conversationSummaryWriter;
+    private final InboxLog inboxLog;
+    private final MessageSearchIndex searchIndex;
 
     /**
      * 创建群组
@@ -154,16 +178,15 @@ public class GroupService {
      * 添加群成员
      */
     @Transactional
-    @CacheEvict(value = "groupMembers", key = "#groupId")
     public boolean addMember(Long groupId, Long userId, Long operatorId) {
         // 检查操作者权限
-        GroupMember operator = groupMemberMapper.findByGroupIdAndUserId(groupId, operatorId);
-        if (operator == null || operator.getRole() == GroupMember.MemberRole.MEMBER) {
+        GroupMembershipIndex.Members members = membershipIndex.get(groupId);
+        if (!members.isManager(operatorId)) {
             return false;
         }
 
         // 检查是否已是成员
-        if (groupMemberMapper.isMember(groupId, userId)) {
+        if (members.contains(userId)) {
             return false;
         }
 
@@ -175,21 +198,19 @@ public class GroupService {
         member.setMuted(false);
         groupMemberMapper.insert(member);
         groupMapper.incrementMemberCount(groupId);
+        membershipIndex.addMembers(groupId, List.of(userId));
 
         // 发送系统消息
         User operatorUser = userMapper.findById(operatorId);
         User newMember = userMapper.findById(userId);
         if (operatorUser != null && newMember != null) {
-            GroupMessage systemMsg = new GroupMessage();
-            systemMsg.setGroupId(groupId);
-            systemMsg.setSenderId(operatorId);
-            systemMsg.setContent(operatorUser.getNickname() + " 邀请 " + newMember.getNickname() + " 加入了群聊");
-            systemMsg.setContentType(MessageContentType.SYSTEM);
-            groupMessageMapper.insert(systemMsg);
+            GroupMessage systemMsg = insertSystemMessage(groupId, operatorId,
+                    operatorUser.getNickname() + " 邀请 " + newMember.getNickname() + " 加入了群聊");
             
             // 新成员加入时，将系统消息标记为已读（避免历史消息显示为未读）
             groupMessageReadMapper.upsertLastRead(groupId, userId, systemMsg.getId());
         }
+        unreadCounter.onMembersJoined(groupId, List.of(userId));
 
         return true;
     }
@@ -198,11 +219,11 @@ public class GroupService {
      * 移除群成员
      */
     @Transactional
-    @CacheEvict(value = "groupMembers", key = "#groupId")
     public boolean removeMember(Long groupId, Long userId, Long operatorId) {
         // 检查操作者权限
-        GroupMember operator = groupMemberMapper.findByGroupIdAndUserId(groupId, operatorId);
-        if (operator == null) {
+        GroupMembershipIndex.Members members = membershipIndex.get(groupId);
+        GroupMember.MemberRole operatorRole = members.getRole(operatorId);
+        if (operatorRole == null) {
             return false;
         }
 
@@ -213,24 +234,22 @@ public class GroupService {
         }
 
         // 只有群主和管理员可以移除成员
-        if (operator.getRole() == GroupMember.MemberRole.MEMBER) {
+        if (operatorRole == GroupMember.MemberRole.MEMBER) {
             return false;
         }
 
         // 移除成员
         groupMemberMapper.deleteByGroupIdAndUserId(groupId, userId);
         groupMapper.decrementMemberCount(groupId);
+        membershipIndex.removeMember(groupId, userId);
+        unreadCounter.onMemberLeft(groupId, userId);
 
         // 发送系统消息
         User operatorUser = userMapper.findById(operatorId);
         User targetUser = userMapper.findById(userId);
         if (operatorUser != null && targetUser != null) {
-            GroupMessage systemMsg = new GroupMessage();
-            systemMsg.setGroupId(groupId);
-            systemMsg.setSenderId(operatorId);
-            systemMsg.setContent(operatorUser.getNickname() + " 将 " + targetUser.getNickname() + " 移出群聊");
-            systemMsg.setContentType(MessageContentType.SYSTEM);
-            groupMessageMapper.insert(systemMsg);
+            insertSystemMessage(groupId, operatorId,
+                    operatorUser.getNickname() + " 将 " + targetUser.getNickname() + " 移出群聊");
         }
 
         return true;
@@ -253,15 +272,12 @@ public class GroupService {
 
         groupMemberMapper.deleteByGroupIdAndUserId(groupId, userId);
         groupMapper.decrementMemberCount(groupId);
+        membershipIndex.removeMember(groupId, userId);
+        unreadCounter.onMemberLeft(groupId, userId);
 
         // 发送系统消息
         User user = userMapper.findById(userId);
-        GroupMessage systemMsg = new GroupMessage();
-        systemMsg.setGroupId(groupId);
-        systemMsg.setSenderId(userId);
-        systemMsg.setContent(user.getNickname() + " 退出了群聊");
-        systemMsg.setContentType(MessageContentType.SYSTEM);
-        groupMessageMapper.insert(systemMsg);
+        insertSystemMessage(groupId, userId, user.getNickname() + " 退出了群聊");
 
         return true;
     }
@@ -282,34 +298,51 @@ public class GroupService {
         groupMemberMapper.deleteByGroupId(groupId);
         // 删除群组
         groupMapper.deleteById(groupId);
+        conversationMapper.deleteGroup(groupId);
+        membershipIndex.evict(groupId);
+        unreadCounter.evictGroup(groupId);
+        searchIndex.onGroupDissolved(groupId);
 
         return true;
     }
 
     /**
-     * 发送群消息
+     * 发送群消息（等待消息落库后返回）
      */
     public GroupMessageDTO sendMessage(Long groupId, Long senderId, String content, MessageContentType contentType) {
+        return submitMessage(groupId, senderId, content, contentType).join();
+    }
+
+    /**
+     * 提交群消息到批量写入队列，返回的Future在消息落库后完成；非群成员时结果为null
+     */
+    public CompletableFuture<GroupMessageDTO> submitMessage(Long groupId, Long senderId, String content,
+                                                           MessageContentType contentType) {
         // 检查是否是群成员
-        GroupMember member = groupMemberMapper.findByGroupIdAndUserId(groupId, senderId);
-        if (member == null) {
-            return null;
+        GroupMembershipIndex.Members members = membershipIndex.get(groupId);
+        if (!members.contains(senderId)) {
+            return CompletableFuture.completedFuture(null);
         }
         
         // 检查是否被禁言
-        if (member.getMuted() != null && member.getMuted()) {
+        if (members.isMuted(senderId)) {
             throw new RuntimeException("您已被禁言，无法发送消息");
         }
 
+        // group_message.content 非空，入队前拦下，避免一条坏消息拖垮整批写入
+        if (content == null || content.isBlank()) {
+            throw new RuntimeException("消息内容不能为空");
+        }
+
         GroupMessage message = new GroupMessage();
         message.setGroupId(groupId);
         message.setSenderId(senderId);
         message.setContent(content);
         message.setContentType(contentType);
-        groupMessageMapper.insert(message);
+        CompletableFuture<GroupMessage> saved = groupMessageBatchWriter.save(message);
 
         // 返回消息DTO
-        User sender = userMapper.findById(senderId);
+        UserProfile sender = userProfileCache.get(senderId);
         GroupMessageDTO dto = new GroupMessageDTO();
         dto.setId(message.getId());
         dto.setGroupId(groupId);
@@ -322,7 +355,7 @@ public class GroupService {
         dto.setContentType(contentType.name());
         dto.setCreateTime(message.getCreateTime());
 
-        return dto;
+        return saved.thenApply(m -> dto);
     }
 
     /**
@@ -330,37 +363,102 @@ public class GroupService {
      */
     public List<GroupMessageDTO> getMessages(Long groupId, Long userId, int page, int size) {
         // 检查是否是群成员
-        if (!groupMemberMapper.isMember(groupId, userId)) {
+        if (!membershipIndex.isMember(groupId, userId)) {
             return new ArrayList<>();
         }
 
         int offset = page * size;
         List<GroupMessageDTO> messages = groupMessageMapper.findByGroupId(groupId, offset, size);
-        
-        // 填充好友备注
+        fillRemarks(userId, messages);
+        return messages;
+    }
+
+    /**
+     * 游标分页获取群聊天记录：返回ID小于beforeId的最近size条（按时间倒序），beforeId为null时取最新一页
+     * 下一页以本页最后一条消息的ID作为beforeId；发送者资料和好友备注每页各批量查询一次
+     */
+    public List<GroupMessageDTO> getMessagesBefore(Long groupId, Long userId, Long beforeId, int size) {
+        if (!membershipIndex.isMember(groupId, userId)) {
+            return new ArrayList<>();
+        }
+
+        long cursor = beforeId != null ? beforeId : Long.MAX_VALUE;
+        List<GroupMessage> messages = groupMessageMapper.findByGroupIdBefore(groupId, cursor, size);
+        List<GroupMessageDTO> result = new ArrayList<>(messages.size());
+        if (messages.isEmpty()) {
+            return result;
+        }
+
+        Set<Long> senderIds = new HashSet<>();
+        for (GroupMessage message : messages) {
+            senderIds.add(message.getSenderId());
+        }
+        Map<Long, UserProfile> senders = userProfileCache.getAll(senderIds);
+
+        for (GroupMessage message : messages) {
+            GroupMessageDTO dto = new GroupMessageDTO();
+            dto.setId(message.getId());
+            dto.setGroupId(message.getGroupId());
+            dto.setSenderId(message.getSenderId());
+            UserProfile sender = senders.get(message.getSenderId());
+            if (sender != null) {
+                dto.setSenderUsername(sender.getUsername());
+                dto.setSenderName(sender.getNickname());
+                dto.setSenderAvatar(sender.getAvatar());
+            }
+            dto.setContent(message.getContent());
+            dto.setContentType(message.getContentType() != null ? message.getContentType().name() : null);
+            dto.setRecalled(message.getRecalled());
+            dto.setCreateTime(message.getCreateTime());
+            result.add(dto);
+        }
+        fillRemarks(userId, result);
+        return result;
+    }
+
+    /**
+     * 填充好友备注（一页消息只查一次）
+     */
+    private void fillRemarks(Long userId, List<GroupMessageDTO> messages) {
+        Set<Long> senderIds = new HashSet<>();
         for (GroupMessageDTO msg : messages) {
             if (msg.getSenderId() != null && !msg.getSenderId().equals(userId)) {
-                String remark = friendshipMapper.getRemark(userId, msg.getSenderId());
-                msg.setSenderRemark(remark);
+                senderIds.add(msg.getSenderId());
+            }
+        }
+        if (senderIds.isEmpty()) {
+            return;
+        }
+        Map<Long, String> remarks = new HashMap<>();
+        for (Friendship friendship : friendshipMapper.findRemarks(userId, senderIds)) {
+            remarks.put(friendship.getFriendId(), friendship.getRemark());
+        }
+        for (GroupMessageDTO msg : messages) {
+            if (msg.getSenderId() != null && !msg.getSenderId().equals(userId)) {
+                msg.setSenderRemark(remarks.get(msg.getSenderId()));
             }
         }
-        
-        return messages;
     }
 
     /**
-     * 获取群成员ID列表（带缓存）
+     * 获取群成员ID列表（来自成员索引）
      */
-    @Cacheable(value = "groupMembers", key = "#groupId")
     public List<Long> getMemberIds(Long groupId) {
-        return groupMemberMapper.findMemberIdsByGroupId(groupId);
+        return membershipIndex.getMemberIds(groupId);
+    }
+
+    /**
+     * 获取群成员ID数组（来自成员索引，只读）
+     */
+    public long[] getMemberIdArray(Long groupId) {
+        return membershipIndex.getMemberIdArray(groupId);
     }
 
     /**
      * 检查用户是否是群成员
      */
     public boolean isMember(Long groupId, Long userId) {
-        return groupMemberMapper.isMember(groupId, userId);
+        return membershipIndex.isMember(groupId, userId);
     }
 
     /**
@@ -368,8 +466,7 @@ public class GroupService {
      */
     public boolean updateGroup(Long groupId, Long userId, String name, String description, String avatar) {
         // 检查权限
-        GroupMember member = groupMemberMapper.findByGroupIdAndUserId(groupId, userId);
-        if (member == null || member.getRole() == GroupMember.MemberRole.MEMBER) {
+        if (!membershipIndex.get(groupId).isManager(userId)) {
             return false;
         }
 
@@ -387,17 +484,28 @@ public class GroupService {
      * 获取用户所有群的未读消息数
      */
     public Map<Long, Integer> getUnreadCounts(Long userId) {
+        return getUnreadCounts(userId, groupMemberMapper.findGroupIdsByUserId(userId));
+    }
+
+    /**
+     * 获取用户在指定群的未读消息数（调用方保证用户是这些群的成员）
+     */
+    public Map<Long, Integer> getUnreadCounts(Long userId, List<Long> groupIds) {
+        try {
+            return unreadCounter.getUnreadCounts(userId, groupIds);
+        } catch (RuntimeException e) {
+            log.warn("读取群未读计数失败，改为按数据库统计: {}", e.getMessage());
+        }
+
         Map<Long, Integer> result = new HashMap<>();
-        List<ChatGroup> groups = groupMapper.findByUserId(userId);
-        
-        for (ChatGroup group : groups) {
-            Long lastReadId = groupMessageReadMapper.getLastReadMessageId(group.getId(), userId);
+        for (Long groupId : groupIds) {
+            Long lastReadId = groupMessageReadMapper.getLastReadMessageId(groupId, userId);
             if (lastReadId == null) {
                 lastReadId = 0L;
             }
-            int unreadCount = groupMessageMapper.countUnreadMessages(group.getId(), lastReadId);
+            int unreadCount = groupMessageMapper.countUnreadMessages(groupId, lastReadId);
             if (unreadCount > 0) {
-                result.put(group.getId(), unreadCount);
+                result.put(groupId, unreadCount);
             }
         }
         
@@ -412,6 +520,7 @@ public class GroupService {
         GroupMessageDTO latestMsg = groupMessageMapper.findLatestByGroupId(groupId);
         if (latestMsg != null) {
             groupMessageReadMapper.upsertLastRead(groupId, userId, latestMsg.getId());
+            unreadCounter.markRead(groupId, userId);
         }
     }
 
@@ -432,26 +541,22 @@ public class GroupService {
         }
 
         // 检查目标用户是否是群成员
-        GroupMember member = groupMemberMapper.findByGroupIdAndUserId(groupId, targetUserId);
-        if (member == null) {
+        if (!membershipIndex.isMember(groupId, targetUserId)) {
             return false;
         }
 
         // 更新角色
         GroupMember.MemberRole newRole = isAdmin ? GroupMember.MemberRole.ADMIN : GroupMember.MemberRole.MEMBER;
         groupMemberMapper.updateRole(groupId, targetUserId, newRole.name());
+        membershipIndex.setRole(groupId, targetUserId, newRole);
 
         // 发送系统消息
         User operatorUser = userMapper.findById(operatorId);
         User targetUser = userMapper.findById(targetUserId);
         if (operatorUser != null && targetUser != null) {
             String action = isAdmin ? "设为管理员" : "取消管理员";
-            GroupMessage systemMsg = new GroupMessage();
-            systemMsg.setGroupId(groupId);
-            systemMsg.setSenderId(operatorId);
-            systemMsg.setContent(operatorUser.getNickname() + " 将 " + targetUser.getNickname() + " " + action);
-            systemMsg.setContentType(MessageContentType.SYSTEM);
-            groupMessageMapper.insert(systemMsg);
+            insertSystemMessage(groupId, operatorId,
+                    operatorUser.getNickname() + " 将 " + targetUser.getNickname() + " " + action);
         }
 
         return true;
@@ -469,8 +574,7 @@ public class GroupService {
         }
 
         // 检查新群主是否是群成员
-        GroupMember newOwner = groupMemberMapper.findByGroupIdAndUserId(groupId, newOwnerId);
-        if (newOwner == null) {
+        if (!membershipIndex.isMember(groupId, newOwnerId)) {
             return false;
         }
 
@@ -480,17 +584,15 @@ public class GroupService {
         // 更新角色：新群主设为OWNER，原群主设为MEMBER
         groupMemberMapper.updateRole(groupId, newOwnerId, GroupMember.MemberRole.OWNER.name());
         groupMemberMapper.updateRole(groupId, currentOwnerId, GroupMember.MemberRole.MEMBER.name());
+        membershipIndex.setRole(groupId, newOwnerId, GroupMember.MemberRole.OWNER);
+        membershipIndex.setRole(groupId, currentOwnerId, GroupMember.MemberRole.MEMBER);
 
         // 发送系统消息
         User oldOwner = userMapper.findById(currentOwnerId);
         User newOwnerUser = userMapper.findById(newOwnerId);
         if (oldOwner != null && newOwnerUser != null) {
-            GroupMessage systemMsg = new GroupMessage();
-            systemMsg.setGroupId(groupId);
-            systemMsg.setSenderId(currentOwnerId);
-            systemMsg.setContent(oldOwner.getNickname() + " 将群主转让给 " + newOwnerUser.getNickname());
-            systemMsg.setContentType(MessageContentType.SYSTEM);
-            groupMessageMapper.insert(systemMsg);
+            insertSystemMessage(groupId, currentOwnerId,
+                    oldOwner.getNickname() + " 将群主转让给 " + newOwnerUser.getNickname());
         }
 
         return true;
@@ -502,8 +604,9 @@ public class GroupService {
     @Transactional
     public boolean setMuted(Long groupId, Long targetUserId, boolean muted, Long operatorId) {
         // 检查操作者权限（群主或管理员）
-        GroupMember operator = groupMemberMapper.findByGroupIdAndUserId(groupId, operatorId);
-        if (operator == null || operator.getRole() == GroupMember.MemberRole.MEMBER) {
+        GroupMembershipIndex.Members members = membershipIndex.get(groupId);
+        GroupMember.MemberRole operatorRole = members.getRole(operatorId);
+        if (operatorRole == null || operatorRole == GroupMember.MemberRole.MEMBER) {
             return false;
         }
 
@@ -514,28 +617,25 @@ public class GroupService {
         }
 
         // 管理员不能禁言其他管理员
-        GroupMember target = groupMemberMapper.findByGroupIdAndUserId(groupId, targetUserId);
-        if (target == null) {
+        GroupMember.MemberRole targetRole = members.getRole(targetUserId);
+        if (targetRole == null) {
             return false;
         }
-        if (operator.getRole() == GroupMember.MemberRole.ADMIN && target.getRole() == GroupMember.MemberRole.ADMIN) {
+        if (operatorRole == GroupMember.MemberRole.ADMIN && targetRole == GroupMember.MemberRole.ADMIN) {
             return false;
         }
 
         // 更新禁言状态
         groupMemberMapper.updateMuted(groupId, targetUserId, muted);
+        membershipIndex.setMuted(groupId, targetUserId, muted);
 
         // 发送系统消息
         User operatorUser = userMapper.findById(operatorId);
         User targetUser = userMapper.findById(targetUserId);
         if (operatorUser != null && targetUser != null) {
             String action = muted ? "禁言" : "解除禁言";
-            GroupMessage systemMsg = new GroupMessage();
-            systemMsg.setGroupId(groupId);
-            systemMsg.setSenderId(operatorId);
-            systemMsg.setContent(operatorUser.getNickname() + " 将 " + targetUser.getNickname() + " " + action);
-            systemMsg.setContentType(MessageContentType.SYSTEM);
-            groupMessageMapper.insert(systemMsg);
+            insertSystemMessage(groupId, operatorId,
+                    operatorUser.getNickname() + " 将 " + targetUser.getNickname() + " " + action);
         }
 
         return true;
@@ -560,8 +660,8 @@ public class GroupService {
         }
 
         // 检查操作者是否是群成员
-        GroupMember operator = groupMemberMapper.findByGroupIdAndUserId(groupId, operatorId);
-        if (operator == null) {
+        GroupMembershipIndex.Members members = membershipIndex.get(groupId);
+        if (!members.contains(operatorId)) {
             result.setMessage("您不是该群成员，无法邀请好友");
             result.setFailUserIds(userIds);
             result.setFailCount(userIds.size());
@@ -590,8 +690,8 @@ public class GroupService {
                 continue;
             }
 
-            // 检查是否已是群成员
-            if (groupMemberMapper.isMember(groupId, userId)) {
+            // 检查是否已是群成员（包括本次已邀请的）
+            if (members.contains(userId) || successUserIds.contains(userId)) {
                 failUserIds.add(userId);
                 continue;
             }
@@ -612,22 +712,20 @@ public class GroupService {
         // 更新群成员数量
         if (!successUserIds.isEmpty()) {
             groupMapper.updateMemberCount(groupId, currentCount);
+            membershipIndex.addMembers(groupId, successUserIds);
 
             // 发送系统消息
             if (operatorUser != null && !invitedNames.isEmpty()) {
                 String namesStr = String.join("、", invitedNames);
-                GroupMessage systemMsg = new GroupMessage();
-                systemMsg.setGroupId(groupId);
-                systemMsg.setSenderId(operatorId);
-                systemMsg.setContent(operatorUser.getNickname() + " 邀请 " + namesStr + " 加入了群聊");
-                systemMsg.setContentType(MessageContentType.SYSTEM);
-                groupMessageMapper.insert(systemMsg);
+                GroupMessage systemMsg = insertSystemMessage(groupId, operatorId,
+                        operatorUser.getNickname() + " 邀请 " + namesStr + " 加入了群聊");
                 
                 // 新成员加入时，将系统消息标记为已读（避免历史消息显示为未读）
                 for (Long userId : successUserIds) {
                     groupMessageReadMapper.upsertLastRead(groupId, userId, systemMsg.getId());
                 }
             }
+            unreadCounter.onMembersJoined(groupId, successUserIds);
         }
 
         result.setSuccessCount(successUserIds.size());
@@ -645,4 +743,22 @@ public class GroupService {
 
         return result;
     }
+
+    /**
+     * 插入群系统消息（与普通群消息共用雪花ID序列，随当前事务提交）
+     */
+    private GroupMessage insertSystemMessage(Long groupId, Long senderId, String content) {
+        GroupMessage systemMsg = new GroupMessage();
+        systemMsg.setId(idGenerator.nextId());
+        systemMsg.setGroupId(groupId);
+        systemMsg.setSenderId(senderId);
+        systemMsg.setContent(content);
+        systemMsg.setContentType(MessageContentType.SYSTEM);
+        systemMsg.setCreateTime(LocalDateTime.now());
+        groupMessageMapper.insert(systemMsg);
+        conversationSummaryWriter.onGroupMessageSaved(systemMsg);
+        unreadCounter.onMessageSaved(groupId);
+        inboxLog.onGroupMessageSaved(systemMsg);
+        return systemMsg;
+    }
 }
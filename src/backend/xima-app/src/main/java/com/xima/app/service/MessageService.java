@@ -4,6 +4,7 @@ import com.xima.app.dto.message.ChatMessageDTO;
 import com.xima.app.dto.message.SearchMessageDTO;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 消息服务接口
@@ -15,21 +16,47 @@ public interface MessageService {
      */
     List<ChatMessageDTO> getChatHistory(Long userId1, Long userId2, int page, int size);
 
+    /**
+     * 游标分页获取聊天历史：返回ID小于beforeId的最近size条（按时间正序），beforeId为null时取最新一页
+     * 下一页以本页第一条消息的ID作为beforeId
+     */
+    List<ChatMessageDTO> getChatHistoryBefore(Long userId, Long friendId, Long beforeId, int size);
+
     /**
      * 获取离线消息
      */
     List<ChatMessageDTO> getOfflineMessages(Long userId);
 
     /**
-     * 标记消息为已读
+     * 游标分页获取离线消息（按ID正序），不改变消息状态
+     */
+    List<ChatMessageDTO> getOfflineMessagesAfter(Long userId, Long afterId, int limit);
+
+    /**
+     * 根据ID批量获取私聊消息（按ID正序），不存在的ID被忽略
+     */
+    List<ChatMessageDTO> getMessagesByIds(List<Long> messageIds);
+
+    /**
+     * 将客户端已确认收到的离线消息标记为已送达
      */
-    void markAsRead(Long messageId);
+    void markDelivered(Long userId, List<Long> messageIds);
+
+    /**
+     * 标记消息为已读（会话中该消息及更早的未读消息一并标记），只有接收者可以标记
+     */
+    void markAsRead(Long userId, Long messageId);
 
     /**
      * 获取未读消息数
      */
     long getUnreadCount(Long receiverId, Long senderId);
 
+    /**
+     * 获取各发送者的未读消息数（只返回大于0的）
+     */
+    Map<Long, Long> getUnreadCounts(Long receiverId);
+
     /**
      * 删除消息
      */
@@ -44,4 +71,9 @@ public interface MessageService {
      * 搜索所有消息（私聊+群聊）
      */
     List<SearchMessageDTO> searchAllMessages(Long userId, String keyword, int page, int size);
+
+    /**
+     * 搜索所有消息（私聊+群聊），按游标翻页：cursor 为上一页最后一条结果的cursor，为空时返回第一页
+     */
+    List<SearchMessageDTO> searchAllMessagesAfter(Long userId, String keyword, String cursor, int size);
 }
@@ -0,0 +1,14 @@
+package com.xima.app.service;
+
+import com.xima.app.dto.sync.SyncResultDTO;
+
+/**
+ * 增量同步服务接口
+ */
+public interface SyncService {
+
+    /**
+     * 获取序号since之后的事件（私聊消息、群消息、撤回、已读回执），limit不大于0时使用默认页大小
+     */
+    SyncResultDTO sync(Long userId, Long since, int limit);
+}
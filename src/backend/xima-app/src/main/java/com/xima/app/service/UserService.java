@@ -32,9 +32,9 @@ public interface UserService {
     void updateUserStatus(Long id, UserStatus status);
 
     /**
-     * 获取所有用户
+     * 分页获取用户（按ID顺序）
      */
-    List<UserDTO> getAllUsers();
+    List<UserDTO> getAllUsers(int page, int size);
 
     /**
      * 删除用户
@@ -42,9 +42,9 @@ public interface UserService {
     void deleteUser(Long id);
 
     /**
-     * 搜索用户
+     * 按用户名或昵称前缀搜索用户，最多返回limit个
      */
-    List<UserDTO> searchUsers(String keyword);
+    List<UserDTO> searchUsers(String keyword, int limit);
 
     /**
      * 更新用户头像
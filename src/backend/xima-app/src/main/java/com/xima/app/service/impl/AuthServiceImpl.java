@@ -120,9 +120,6 @@ public class AuthServiceImpl implements AuthService {
         // 获取用户信息
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
-        // 更新用户状态为在线
-        userMapper.updateStatus(userDetails.getId(), UserStatus.ONLINE.name());
-
         log.info("用户登录成功: {}", userDetails.getUsername());
 
         return LoginResponse.builder()
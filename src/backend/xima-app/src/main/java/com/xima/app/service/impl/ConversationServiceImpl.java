@@ -0,0 +1,109 @@
+package com.xima.app.service.impl;
+
+import com.xima.app.cache.UserProfileCache;
+import com.xima.app.dto.conversation.ConversationDTO;
+import com.xima.app.dto.user.UserProfile;
+import com.xima.app.entity.Friendship;
+import com.xima.app.mapper.ConversationMapper;
+import com.xima.app.mapper.FriendshipMapper;
+import com.xima.app.mapper.MessageMapper;
+import com.xima.app.service.ConversationService;
+import com.xima.app.service.GroupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 会话列表服务实现
+ * 会话摘要由消息写入器随消息批次维护，这里只读一页摘要再批量补充资料、备注和群未读数
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversationServiceImpl implements ConversationService {
+
+    public static final String TYPE_PRIVATE = "PRIVATE";
+    public static final String TYPE_GROUP = "GROUP";
+
+    private final ConversationMapper conversationMapper;
+    private final MessageMapper messageMapper;
+    private final FriendshipMapper friendshipMapper;
+    private final UserProfileCache userProfileCache;
+    private final GroupService groupService;
+
+    @Override
+    public List<ConversationDTO> getConversations(Long userId, int page, int size) {
+        List<ConversationDTO> conversations = conversationMapper.findByOwnerId(userId, page * size, size);
+        if (conversations.isEmpty()) {
+            return conversations;
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> peerIds = new HashSet<>();
+        List<Long> groupIds = new ArrayList<>();
+        for (ConversationDTO conversation : conversations) {
+            if (TYPE_GROUP.equals(conversation.getType())) {
+                groupIds.add(conversation.getPeerId());
+            } else {
+                peerIds.add(conversation.getPeerId());
+                userIds.add(conversation.getPeerId());
+            }
+            if (conversation.getLastSenderId() != null) {
+                userIds.add(conversation.getLastSenderId());
+            }
+        }
+
+        Map<Long, UserProfile> profiles = userProfileCache.getAll(userIds);
+        Map<Long, String> remarks = new HashMap<>();
+        if (!peerIds.isEmpty()) {
+            for (Friendship friendship : friendshipMapper.findRemarks(userId, peerIds)) {
+                remarks.put(friendship.getFriendId(), friendship.getRemark());
+            }
+        }
+        Map<Long, Integer> groupUnread = groupIds.isEmpty()
+                ? new HashMap<>() : groupService.getUnreadCounts(userId, groupIds);
+
+        for (ConversationDTO conversation : conversations) {
+            if (TYPE_GROUP.equals(conversation.getType())) {
+                conversation.setUnreadCount(groupUnread.getOrDefault(conversation.getPeerId(), 0));
+            } else {
+                UserProfile peer = profiles.get(conversation.getPeerId());
+                if (peer != null) {
+                    conversation.setName(peer.getDisplayName());
+                    conversation.setAvatar(peer.getAvatar());
+                }
+                conversation.setRemark(remarks.get(conversation.getPeerId()));
+            }
+            UserProfile lastSender = conversation.getLastSenderId() != null
+                    ? profiles.get(conversation.getLastSenderId()) : null;
+            if (lastSender != null) {
+                conversation.setLastSenderName(lastSender.getDisplayName());
+            }
+        }
+        return conversations;
+    }
+
+    @Override
+    @Transactional
+    public void markPrivateAsRead(Long userId, Long peerId) {
+        messageMapper.updateStatusToRead(userId, peerId, null);
+        conversationMapper.resetUnread(userId, peerId);
+    }
+
+    @Override
+    @Transactional
+    public int markPrivateAsReadUpTo(Long userId, Long peerId, Long upToMessageId) {
+        int updated = messageMapper.updateStatusToRead(userId, peerId, upToMessageId);
+        // 未读数与消息在同一事务内累加，按实际标记的条数扣减即可保持一致
+        if (updated > 0) {
+            conversationMapper.decrementUnread(userId, peerId, updated);
+        }
+        return updated;
+    }
+}
@@ -1,7 +1,9 @@
 package com.xima.app.service.impl;
 
+import com.xima.app.cache.UserProfileCache;
 import com.xima.app.dto.friend.FriendDTO;
 import com.xima.app.dto.friend.FriendRequestInfoDTO;
+import com.xima.app.dto.user.UserProfile;
 import com.xima.app.entity.Friendship;
 import com.xima.app.entity.FriendshipStatus;
 import com.xima.app.entity.User;
@@ -9,6 +11,7 @@ import com.xima.app.exception.BusinessException;
 import com.xima.app.exception.ErrorCode;
 import com.xima.app.mapper.FriendshipMapper;
 import com.xima.app.mapper.UserMapper;
+import com.xima.app.presence.PresenceTracker;
 import com.xima.app.service.FriendshipService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,7 +19,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 好友服务实现
@@ -28,6 +35,8 @@ public class FriendshipServiceImpl implements FriendshipService {
 
     private final FriendshipMapper friendshipMapper;
     private final UserMapper userMapper;
+    private final UserProfileCache userProfileCache;
+    private final PresenceTracker presenceTracker;
 
     @Override
     @Transactional
@@ -116,12 +125,24 @@ public class FriendshipServiceImpl implements FriendshipService {
     public List<FriendDTO> getFriendList(Long userId) {
         List<Friendship> friendships = friendshipMapper.findFriendsByUserId(userId);
         List<FriendDTO> friends = new ArrayList<>();
+        if (friendships.isEmpty()) {
+            return friends;
+        }
 
+        // 整页一次IN查询；在线与否以在线状态跟踪为准，表中的状态只代表用户自己设置的离开、忙碌等
+        Set<Long> friendUserIds = new HashSet<>();
         for (Friendship friendship : friendships) {
-            // 现在每个用户有自己的记录，user_id是当前用户，friend_id是好友
-            Long friendUserId = friendship.getFriendId();
+            friendUserIds.add(friendship.getFriendId());
+        }
+        Map<Long, User> friendUsers = new HashMap<>();
+        for (User user : userMapper.findByIds(friendUserIds)) {
+            friendUsers.put(user.getId(), user);
+        }
+        Set<Long> onlineUserIds = presenceTracker.getOnlineUserIds(friendUserIds);
 
-            User friendUser = userMapper.findById(friendUserId);
+        for (Friendship friendship : friendships) {
+            // 现在每个用户有自己的记录，user_id是当前用户，friend_id是好友
+            User friendUser = friendUsers.get(friendship.getFriendId());
             if (friendUser != null) {
                 // 优先使用备注，没有备注则使用昵称
                 String displayName = friendship.getRemark() != null && !friendship.getRemark().isEmpty()
@@ -134,7 +155,8 @@ public class FriendshipServiceImpl implements FriendshipService {
                         .nickname(displayName)
                         .remark(friendship.getRemark())
                         .avatar(friendUser.getAvatar())
-                        .status(friendUser.getStatus())
+                        .status(PresenceTracker.effectiveStatus(friendUser.getStatus(),
+                                onlineUserIds.contains(friendUser.getId())))
                         .friendshipStatus(friendship.getStatus())
                         .createTime(friendship.getCreateTime())
                         .build());
@@ -149,8 +171,14 @@ public class FriendshipServiceImpl implements FriendshipService {
         List<Friendship> requests = friendshipMapper.findPendingRequestsByFriendId(userId);
         List<FriendRequestInfoDTO> result = new ArrayList<>();
 
+        Set<Long> fromUserIds = new HashSet<>();
         for (Friendship request : requests) {
-            User fromUser = userMapper.findById(request.getUserId());
+            fromUserIds.add(request.getUserId());
+        }
+        Map<Long, UserProfile> profiles = userProfileCache.getAll(fromUserIds);
+
+        for (Friendship request : requests) {
+            UserProfile fromUser = profiles.get(request.getUserId());
             if (fromUser != null) {
                 result.add(FriendRequestInfoDTO.builder()
                         .requestId(request.getId())
@@ -172,8 +200,14 @@ public class FriendshipServiceImpl implements FriendshipService {
         List<Friendship> requests = friendshipMapper.findSentRequestsByUserId(userId);
         List<FriendRequestInfoDTO> result = new ArrayList<>();
 
+        Set<Long> toUserIds = new HashSet<>();
+        for (Friendship request : requests) {
+            toUserIds.add(request.getFriendId());
+        }
+        Map<Long, UserProfile> profiles = userProfileCache.getAll(toUserIds);
+
         for (Friendship request : requests) {
-            User toUser = userMapper.findById(request.getFriendId());
+            UserProfile toUser = profiles.get(request.getFriendId());
             if (toUser != null) {
                 result.add(FriendRequestInfoDTO.builder()
                         .requestId(request.getId())
@@ -1,28 +1,40 @@
 package com.xima.app.service.impl;
 
-import com.xima.app.dto.group.GroupMessageDTO;
+import com.xima.app.cache.UserProfileCache;
 import com.xima.app.dto.message.ChatMessageDTO;
 import com.xima.app.dto.message.SearchMessageDTO;
+import com.xima.app.dto.message.UnreadCountDTO;
+import com.xima.app.dto.user.UserProfile;
 import com.xima.app.entity.ChatGroup;
 import com.xima.app.entity.Message;
-import com.xima.app.entity.MessageStatus;
-import com.xima.app.entity.User;
 import com.xima.app.exception.BusinessException;
 import com.xima.app.exception.ErrorCode;
 import com.xima.app.mapper.GroupMapper;
 import com.xima.app.mapper.GroupMemberMapper;
-import com.xima.app.mapper.GroupMessageMapper;
 import com.xima.app.mapper.MessageMapper;
-import com.xima.app.mapper.UserMapper;
+import com.xima.app.persistence.ConversationSummaryWriter;
+import com.xima.app.search.MessageSearchHit;
+import com.xima.app.search.MessageSearchIndex;
+import com.xima.app.search.SearchCursor;
+import com.xima.app.service.ConversationService;
 import com.xima.app.service.MessageService;
+import com.xima.app.websocket.DeliveryLog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 消息服务实现
@@ -33,10 +45,13 @@ import java.util.List;
 public class MessageServiceImpl implements MessageService {
 
     private final MessageMapper messageMapper;
-    private final UserMapper userMapper;
-    private final GroupMessageMapper groupMessageMapper;
+    private final UserProfileCache userProfileCache;
     private final GroupMemberMapper groupMemberMapper;
     private final GroupMapper groupMapper;
+    private final ConversationService conversationService;
+    private final MessageSearchIndex searchIndex;
+    private final DeliveryLog deliveryLog;
+    private final ConversationSummaryWriter conversationSummaryWriter;
 
     @Override
     public List<ChatMessageDTO> getChatHistory(Long userId1, Long userId2, int page, int size) {
@@ -45,6 +60,16 @@ public class MessageServiceImpl implements MessageService {
         return convertToDTO(messages);
     }
 
+    @Override
+    public List<ChatMessageDTO> getChatHistoryBefore(Long userId, Long friendId, Long beforeId, int size) {
+        // 第一页也带上ID范围条件，保证两个方向都走 idx_conversation_id 的有序扫描
+        long cursor = beforeId != null ? beforeId : Long.MAX_VALUE;
+        List<Message> messages = messageMapper.findChatHistoryBefore(userId, friendId, cursor, size);
+        // 查询按ID倒序取最近的一页，返回前翻转为时间正序
+        Collections.reverse(messages);
+        return convertToDTO(messages);
+    }
+
     @Override
     public List<ChatMessageDTO> getOfflineMessages(Long userId) {
         List<Message> messages = messageMapper.findOfflineMessages(userId);
@@ -53,14 +78,39 @@ public class MessageServiceImpl implements MessageService {
         return convertToDTO(messages);
     }
 
+    @Override
+    public List<ChatMessageDTO> getOfflineMessagesAfter(Long userId, Long afterId, int limit) {
+        return convertToDTO(messageMapper.findOfflineMessagesAfter(userId, afterId != null ? afterId : 0L, limit));
+    }
+
+    @Override
+    public List<ChatMessageDTO> getMessagesByIds(List<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return convertToDTO(messageMapper.findByIds(messageIds));
+    }
+
+    @Override
+    public void markDelivered(Long userId, List<Long> messageIds) {
+        if (!messageIds.isEmpty()) {
+            messageMapper.updateStatusToDeliveredByIds(userId, messageIds);
+        }
+    }
+
     @Override
     @Transactional
-    public void markAsRead(Long messageId) {
+    public void markAsRead(Long userId, Long messageId) {
         Message message = messageMapper.findById(messageId);
         if (message == null) {
             throw new BusinessException(ErrorCode.MESSAGE_NOT_FOUND);
         }
-        messageMapper.updateStatus(messageId, MessageStatus.READ.name());
+        // 只能标记发给自己的消息
+        if (!message.getReceiverId().equals(userId)) {
+            throw new BusinessException(ErrorCode.ACCESS_DENIED);
+        }
+        // 已读按"读到这条为止"处理，一条范围UPDATE覆盖会话内更早的未读消息
+        conversationService.markPrivateAsReadUpTo(message.getReceiverId(), message.getSenderId(), messageId);
     }
 
     @Override
@@ -68,6 +118,15 @@ public class MessageServiceImpl implements MessageService {
         return messageMapper.countUnreadMessages(receiverId, senderId);
     }
 
+    @Override
+    public Map<Long, Long> getUnreadCounts(Long receiverId) {
+        Map<Long, Long> result = new HashMap<>();
+        for (UnreadCountDTO unread : messageMapper.countUnreadBySender(receiverId)) {
+            result.put(unread.getSenderId(), unread.getCount());
+        }
+        return result;
+    }
+
     @Override
     @Transactional
     public void deleteMessage(Long userId, Long messageId) {
@@ -80,6 +139,9 @@ public class MessageServiceImpl implements MessageService {
             throw new BusinessException(ErrorCode.ACCESS_DENIED);
         }
         messageMapper.deleteById(messageId);
+        searchIndex.onPrivateMessageRemoved(messageId);
+        deliveryLog.remove(message.getReceiverId(), messageId);
+        conversationSummaryWriter.onMessageRemoved(message, ConversationSummaryWriter.DELETED_PREVIEW);
     }
 
     @Override
@@ -91,77 +153,113 @@ public class MessageServiceImpl implements MessageService {
     
     @Override
     public List<SearchMessageDTO> searchAllMessages(Long userId, String keyword, int page, int size) {
-        List<SearchMessageDTO> results = new ArrayList<>();
-        int offset = page * size;
-        
-        // 1. 搜索私聊消息
-        List<Message> privateMessages = messageMapper.searchMessages(userId, keyword, offset, size);
-        for (Message msg : privateMessages) {
-            User sender = userMapper.findById(msg.getSenderId());
-            User receiver = userMapper.findById(msg.getReceiverId());
-            
-            results.add(SearchMessageDTO.builder()
-                    .id(msg.getId())
-                    .chatType("PRIVATE")
-                    .senderId(msg.getSenderId())
-                    .senderName(sender != null ? (sender.getNickname() != null ? sender.getNickname() : sender.getUsername()) : null)
-                    .senderAvatar(sender != null ? sender.getAvatar() : null)
-                    .receiverId(msg.getReceiverId())
-                    .receiverName(receiver != null ? (receiver.getNickname() != null ? receiver.getNickname() : receiver.getUsername()) : null)
-                    .content(msg.getContent())
-                    .timestamp(msg.getCreateTime())
-                    .build());
+        return searchAll(userId, keyword, null, page * size, size);
+    }
+
+    @Override
+    public List<SearchMessageDTO> searchAllMessagesAfter(Long userId, String keyword, String cursor, int size) {
+        return searchAll(userId, keyword, SearchCursor.parse(cursor), 0, size);
+    }
+
+    /**
+     * 私聊和所有群在一次查询中取全局前size条：索引就绪时查索引，否则一条SQL合并查询；
+     * 数据库游标翻页时保持走数据库，结果中的用户资料和群名一次批量填充
+     */
+    private List<SearchMessageDTO> searchAll(Long userId, String keyword, SearchCursor after, int offset, int size) {
+        if (searchIndex.isReady() && (after == null || after.isFromIndex())) {
+            try {
+                List<Long> groupIds = groupMemberMapper.findGroupIdsByUserId(userId);
+                List<MessageSearchHit> hits = searchIndex.search(userId, groupIds, keyword, after, offset, size);
+                List<SearchMessageDTO> results = new ArrayList<>(hits.size());
+                for (MessageSearchHit hit : hits) {
+                    results.add(SearchMessageDTO.builder()
+                            .id(hit.getId())
+                            .chatType(hit.getChatType())
+                            .senderId(hit.getSenderId())
+                            .receiverId(hit.getReceiverId())
+                            .groupId(hit.getGroupId())
+                            .content(hit.getContent())
+                            .timestamp(hit.getCreateTime())
+                            .cursor(hit.getCursor())
+                            .build());
+                }
+                return fillSearchResults(results);
+            } catch (IOException | RuntimeException e) {
+                log.warn("检索索引查询失败，改用数据库查询: {}", e.getMessage());
+            }
+        }
+
+        LocalDateTime beforeTime = after != null
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(after.getTime()), ZoneId.systemDefault())
+                : null;
+        Long beforeId = after != null ? after.getId() : null;
+        String beforeType = after != null ? after.getChatType() : null;
+        List<SearchMessageDTO> results = messageMapper.searchAllMessages(
+                userId, keyword, beforeTime, beforeId, beforeType, after != null ? 0 : offset, size);
+        for (SearchMessageDTO result : results) {
+            long time = result.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            result.setCursor(SearchCursor.ofDatabase(time, result.getId(), result.getChatType()).encode());
         }
-        
-        // 2. 搜索用户所在群的消息
-        List<Long> groupIds = groupMemberMapper.findGroupIdsByUserId(userId);
-        for (Long groupId : groupIds) {
-            List<GroupMessageDTO> groupMessages = groupMessageMapper.searchMessages(groupId, keyword, 0, size);
-            ChatGroup group = groupMapper.findById(groupId);
-            
-            for (GroupMessageDTO msg : groupMessages) {
-                results.add(SearchMessageDTO.builder()
-                        .id(msg.getId())
-                        .chatType("GROUP")
-                        .senderId(msg.getSenderId())
-                        .senderName(msg.getSenderName())
-                        .senderAvatar(msg.getSenderAvatar())
-                        .groupId(groupId)
-                        .groupName(group != null ? group.getName() : null)
-                        .content(msg.getContent())
-                        .timestamp(msg.getCreateTime())
-                        .build());
+        return fillSearchResults(results);
+    }
+
+    /**
+     * 批量填充搜索结果的收发双方资料和群名
+     */
+    private List<SearchMessageDTO> fillSearchResults(List<SearchMessageDTO> results) {
+        if (results.isEmpty()) {
+            return results;
+        }
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> groupIds = new HashSet<>();
+        for (SearchMessageDTO result : results) {
+            userIds.add(result.getSenderId());
+            if (result.getReceiverId() != null) {
+                userIds.add(result.getReceiverId());
+            }
+            if (result.getGroupId() != null) {
+                groupIds.add(result.getGroupId());
             }
         }
-        
-        // 3. 按时间倒序排序，取前size条
-        results.sort(Comparator.comparing(SearchMessageDTO::getTimestamp).reversed());
-        if (results.size() > size) {
-            results = results.subList(0, size);
+        Map<Long, UserProfile> profiles = userProfileCache.getAll(userIds);
+        Map<Long, String> groupNames = new HashMap<>();
+        if (!groupIds.isEmpty()) {
+            for (ChatGroup group : groupMapper.findByIds(groupIds)) {
+                groupNames.put(group.getId(), group.getName());
+            }
+        }
+        for (SearchMessageDTO result : results) {
+            UserProfile sender = profiles.get(result.getSenderId());
+            UserProfile receiver = result.getReceiverId() != null ? profiles.get(result.getReceiverId()) : null;
+            result.setSenderName(sender != null ? sender.getDisplayName() : null);
+            result.setSenderAvatar(sender != null ? sender.getAvatar() : null);
+            result.setReceiverName(receiver != null ? receiver.getDisplayName() : null);
+            result.setGroupName(result.getGroupId() != null ? groupNames.get(result.getGroupId()) : null);
         }
-        
         return results;
     }
 
     /**
-     * 将消息实体列表转换为DTO列表
+     * 将消息实体列表转换为DTO列表（收发双方资料一次批量获取）
      */
     private List<ChatMessageDTO> convertToDTO(List<Message> messages) {
-        List<ChatMessageDTO> result = new ArrayList<>();
+        List<ChatMessageDTO> result = new ArrayList<>(messages.size());
+        if (messages.isEmpty()) {
+            return result;
+        }
+        Map<Long, UserProfile> profiles = userProfileCache.getAll(collectUserIds(messages));
         for (Message message : messages) {
-            User sender = userMapper.findById(message.getSenderId());
-            User receiver = userMapper.findById(message.getReceiverId());
+            UserProfile sender = profiles.get(message.getSenderId());
+            UserProfile receiver = profiles.get(message.getReceiverId());
 
             result.add(ChatMessageDTO.builder()
                     .id(message.getId())
                     .type(ChatMessageDTO.MessageType.CHAT)
                     .senderId(message.getSenderId())
-                    .senderName(sender != null ? 
-                            (sender.getNickname() != null ? sender.getNickname() : sender.getUsername()) : null)
+                    .senderName(sender != null ? sender.getDisplayName() : null)
                     .senderAvatar(sender != null ? sender.getAvatar() : null)
                     .receiverId(message.getReceiverId())
-                    .receiverName(receiver != null ? 
-                            (receiver.getNickname() != null ? receiver.getNickname() : receiver.getUsername()) : null)
+                    .receiverName(receiver != null ? receiver.getDisplayName() : null)
                     .content(message.getContent())
                     .contentType(message.getContentType())
                     .timestamp(message.getCreateTime())
@@ -170,4 +268,16 @@ public class MessageServiceImpl implements MessageService {
         }
         return result;
     }
+
+    /**
+     * 收集一页消息涉及的全部用户ID
+     */
+    private Set<Long> collectUserIds(List<Message> messages) {
+        Set<Long> userIds = new HashSet<>();
+        for (Message message : messages) {
+            userIds.add(message.getSenderId());
+            userIds.add(message.getReceiverId());
+        }
+        return userIds;
+    }
 }
@@ -0,0 +1,147 @@
+package com.xima.app.service.impl;
+
+import com.xima.app.dto.group.GroupMessageDTO;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.dto.sync.SyncResultDTO;
+import com.xima.app.entity.MessageContentType;
+import com.xima.app.service.GroupService;
+import com.xima.app.service.MessageService;
+import com.xima.app.service.SyncService;
+import com.xima.app.sync.InboxEvent;
+import com.xima.app.sync.InboxLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量同步服务实现
+ * 收件箱只存事件引用，这里读一页事件后按类型批量回查：私聊消息按ID一次查询，
+ * 群消息按群合并范围后每个群一次游标查询，撤回和已读回执直接由事件还原
+ */
+@Service
+@RequiredArgsConstructor
+public class SyncServiceImpl implements SyncService {
+
+    private final InboxLog inboxLog;
+    private final MessageService messageService;
+    private final GroupService groupService;
+
+    @Value("${app.sync.page-size:200}")
+    private int pageSize;
+
+    @Value("${app.sync.group-message-limit:200}")
+    private int groupMessageLimit;
+
+    @Override
+    public SyncResultDTO sync(Long userId, Long since, int limit) {
+        InboxLog.Page page = inboxLog.read(userId, since, limit > 0 ? Math.min(limit, pageSize) : pageSize);
+        List<ChatMessageDTO> events = page.isReset() ? Collections.emptyList() : hydrate(userId, page.getEvents());
+        return SyncResultDTO.builder()
+                .type(ChatMessageDTO.MessageType.SYNC)
+                .seq(page.getSeq())
+                .reset(page.isReset())
+                .hasMore(page.isHasMore())
+                .events(events)
+                .build();
+    }
+
+    private List<ChatMessageDTO> hydrate(Long userId, List<InboxEvent> events) {
+        List<Long> messageIds = new ArrayList<>();
+        // 群ID -> {最小消息ID, 最大消息ID}
+        Map<Long, long[]> groupRanges = new LinkedHashMap<>();
+        for (InboxEvent event : events) {
+            if (event.getType() == ChatMessageDTO.MessageType.CHAT) {
+                messageIds.add(event.getId());
+            } else if (event.getType() == ChatMessageDTO.MessageType.GROUP_CHAT) {
+                long[] range = groupRanges.computeIfAbsent(event.getGroupId(), k -> new long[]{Long.MAX_VALUE, Long.MIN_VALUE});
+                range[0] = Math.min(range[0], event.getFromId());
+                range[1] = Math.max(range[1], event.getId());
+            }
+        }
+
+        Map<Long, ChatMessageDTO> messages = new HashMap<>();
+        for (ChatMessageDTO message : messageService.getMessagesByIds(messageIds)) {
+            messages.put(message.getId(), message);
+        }
+        Map<Long, List<ChatMessageDTO>> groupMessages = new HashMap<>();
+        for (Map.Entry<Long, long[]> entry : groupRanges.entrySet()) {
+            groupMessages.put(entry.getKey(), loadGroupMessages(entry.getKey(), userId, entry.getValue()[0], entry.getValue()[1]));
+        }
+
+        // 按序号顺序输出；同一个群的消息按ID正序，在第一个覆盖到它的范围事件处输出
+        List<ChatMessageDTO> result = new ArrayList<>(events.size());
+        Map<Long, Integer> groupCursors = new HashMap<>();
+        for (InboxEvent event : events) {
+            switch (event.getType()) {
+                case CHAT:
+                    ChatMessageDTO message = messages.get(event.getId());
+                    if (message != null) {
+                        result.add(message);
+                    }
+                    break;
+                case GROUP_CHAT:
+                    List<ChatMessageDTO> pending = groupMessages.get(event.getGroupId());
+                    int cursor = groupCursors.getOrDefault(event.getGroupId(), 0);
+                    while (cursor < pending.size() && pending.get(cursor).getId() <= event.getId()) {
+                        result.add(pending.get(cursor++));
+                    }
+                    groupCursors.put(event.getGroupId(), cursor);
+                    break;
+                case RECALL:
+                    result.add(ChatMessageDTO.builder()
+                            .type(ChatMessageDTO.MessageType.RECALL)
+                            .id(event.getId())
+                            .groupId(event.getGroupId())
+                            .content(event.getContent())
+                            .recalled(true)
+                            .build());
+                    break;
+                case READ_RECEIPT:
+                    result.add(ChatMessageDTO.builder()
+                            .type(ChatMessageDTO.MessageType.READ_RECEIPT)
+                            .id(event.getId())
+                            .senderId(event.getPeerId())
+                            .receiverId(userId)
+                            .build());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询群内ID在 [fromId, toId] 之间的消息（按ID正序）；超过上限时只补最近的部分，更早的由客户端按历史分页拉取
+     */
+    private List<ChatMessageDTO> loadGroupMessages(Long groupId, Long userId, long fromId, long toId) {
+        List<GroupMessageDTO> page = groupService.getMessagesBefore(groupId, userId, toId + 1, groupMessageLimit);
+        List<ChatMessageDTO> result = new ArrayList<>(page.size());
+        for (int i = page.size() - 1; i >= 0; i--) {
+            GroupMessageDTO message = page.get(i);
+            if (message.getId() < fromId) {
+                continue;
+            }
+            result.add(ChatMessageDTO.builder()
+                    .id(message.getId())
+                    .type(ChatMessageDTO.MessageType.GROUP_CHAT)
+                    .groupId(message.getGroupId())
+                    .senderId(message.getSenderId())
+                    .senderName(message.getDisplayName())
+                    .senderAvatar(message.getSenderAvatar())
+                    .content(message.getContent())
+                    .contentType(message.getContentType() != null ? MessageContentType.valueOf(message.getContentType()) : null)
+                    .timestamp(message.getCreateTime())
+                    .recalled(message.getRecalled())
+                    .build());
+        }
+        return result;
+    }
+}
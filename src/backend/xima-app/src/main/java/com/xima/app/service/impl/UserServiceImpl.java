@@ -2,20 +2,27 @@ package com.xima.app.service.impl;
 
 import com.xima.app.dto.user.UpdateUserRequest;
 import com.xima.app.dto.user.UserDTO;
+import com.xima.app.dto.user.UserProfile;
 import com.xima.app.entity.User;
 import com.xima.app.entity.UserStatus;
+import com.xima.app.event.UserProfileChangedEvent;
 import com.xima.app.exception.BusinessException;
 import com.xima.app.exception.ErrorCode;
 import com.xima.app.mapper.UserMapper;
+import com.xima.app.presence.PresenceTracker;
 import com.xima.app.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -26,8 +33,15 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    // 用户搜索单次最多返回条数
+    private static final int MAX_SEARCH_LIMIT = 50;
+    // 用户列表单页最多条数
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PresenceTracker presenceTracker;
 
     @Override
     public UserDTO getUserById(Long id) {
@@ -35,7 +49,7 @@ public class UserServiceImpl implements UserService {
         if (user == null) {
             throw new BusinessException(ErrorCode.USER_NOT_FOUND);
         }
-        return UserDTO.fromEntity(user);
+        return withPresence(user);
     }
 
     @Override
@@ -44,7 +58,7 @@ public class UserServiceImpl implements UserService {
         if (user == null) {
             throw new BusinessException(ErrorCode.USER_NOT_FOUND);
         }
-        return UserDTO.fromEntity(user);
+        return withPresence(user);
     }
 
     @Override
@@ -89,7 +103,9 @@ public class UserServiceImpl implements UserService {
         userMapper.update(user);
         log.info("用户信息更新成功: {}", user.getUsername());
 
-        return UserDTO.fromEntity(userMapper.findById(id));
+        User updated = userMapper.findById(id);
+        eventPublisher.publishEvent(new UserProfileChangedEvent(UserProfile.fromEntity(updated)));
+        return withPresence(updated);
     }
 
     @Override
@@ -103,10 +119,9 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public List<UserDTO> getAllUsers() {
-        return userMapper.findAll().stream()
-                .map(UserDTO::fromEntity)
-                .collect(Collectors.toList());
+    public List<UserDTO> getAllUsers(int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return withPresence(userMapper.findByPage(Math.max(0, page) * pageSize, pageSize));
     }
 
     @Override
@@ -121,13 +136,43 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public List<UserDTO> searchUsers(String keyword) {
-        // 简单实现：根据用户名模糊搜索
-        return userMapper.findAll().stream()
-                .filter(user -> user.getUsername().contains(keyword) ||
-                        (user.getNickname() != null && user.getNickname().contains(keyword)))
-                .map(UserDTO::fromEntity)
-                .collect(Collectors.toList());
+    public List<UserDTO> searchUsers(String keyword, int limit) {
+        String prefix = keyword != null ? keyword.trim() : "";
+        if (prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 用户名、昵称前缀匹配走索引范围扫描，开销只与返回条数有关；精确匹配排序用未转义的关键字
+        int size = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        return withPresence(userMapper.searchByPrefix(escapeLike(prefix), prefix, size));
+    }
+
+    /**
+     * 转换为DTO并换上实际展示的状态：user.status 只是用户自己设置的状态，在线与否以在线标记为准（一次批量查询）
+     */
+    private UserDTO withPresence(User user) {
+        return withPresence(Collections.singletonList(user)).get(0);
+    }
+
+    private List<UserDTO> withPresence(List<User> users) {
+        if (users.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Long> onlineUserIds = presenceTracker.getOnlineUserIds(
+                users.stream().map(User::getId).collect(Collectors.toList()));
+        List<UserDTO> result = new ArrayList<>(users.size());
+        for (User user : users) {
+            UserDTO dto = UserDTO.fromEntity(user);
+            dto.setStatus(PresenceTracker.effectiveStatus(user.getStatus(), onlineUserIds.contains(user.getId())));
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * 转义 LIKE 通配符，关键字中的 % 和 _ 按普通字符匹配
+     */
+    private static String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     @Override
@@ -138,6 +183,8 @@ public class UserServiceImpl implements UserService {
             throw new BusinessException(ErrorCode.USER_NOT_FOUND);
         }
         userMapper.updateAvatar(id, avatarUrl);
+        user.setAvatar(avatarUrl);
+        eventPublisher.publishEvent(new UserProfileChangedEvent(UserProfile.fromEntity(user)));
         log.info("用户头像更新成功: {}", user.getUsername());
     }
 
@@ -0,0 +1,29 @@
+package com.xima.app.sync;
+
+import com.xima.app.dto.message.ChatMessageDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 收件箱事件
+ * 只记录引用，消息正文在同步时按ID批量回查：
+ * CHAT - id为私聊消息ID，peerId为会话对方；
+ * GROUP_CHAT - 一个写入批次中某群的消息范围 [fromId, id]；
+ * RECALL - id为被撤回的消息ID，群消息带groupId，content为撤回提示；
+ * READ_RECEIPT - peerId已读到与本人会话中的第id条消息
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxEvent {
+
+    private ChatMessageDTO.MessageType type;
+    private Long id;
+    private Long fromId;
+    private Long peerId;
+    private Long groupId;
+    private String content;
+}
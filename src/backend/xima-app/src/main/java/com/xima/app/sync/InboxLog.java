@@ -0,0 +1,278 @@
+package com.xima.app.sync;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.cache.GroupMembershipIndex;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.entity.GroupMessage;
+import com.xima.app.entity.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户收件箱（Redis Stream）
+ * 每个用户一个单调递增的序号，私聊消息、群消息、撤回和已读回执落库后按接收方各追加一条事件，
+ * 事件ID即序号；客户端带上已同步到的序号即可只取之后的增量，重连成本与错过的事件数成正比。
+ * 每个收件箱只保留最近若干条并带过期时间，序号早于保留范围、Redis不可用或收件箱已过期时要求客户端全量重载
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InboxLog {
+
+    // 序号：xima:sync:seq:{userId} -> seq
+    private static final String SEQ_KEY = "xima:sync:seq:";
+    // 事件流：xima:sync:inbox:{userId} -> stream{seq-0: {e: 事件JSON}}
+    private static final String INBOX_KEY = "xima:sync:inbox:";
+    private static final String EVENT_FIELD = "e";
+
+    // 一次脚本调用最多追加的事件数，避免大群扇出时长时间阻塞Redis
+    private static final int APPEND_BATCH = 512;
+
+    // KEYS 为成对的 (序号键, 事件流键)，ARGV[1]=保留条数，ARGV[2]=过期秒数，ARGV[3..]=逐对的事件；
+    // 序号键丢失时按事件流最后一条恢复，两者都不存在时从当前秒*1000起编号，保证新序号大于过期前发出的序号
+    private static final RedisScript<Long> APPEND = new DefaultRedisScript<>(
+            "local n = 3 " +
+            "for i = 1, #KEYS, 2 do " +
+            "  if redis.call('EXISTS', KEYS[i]) == 0 then " +
+            "    local last = redis.call('XREVRANGE', KEYS[i + 1], '+', '-', 'COUNT', 1) " +
+            "    if #last > 0 then " +
+            "      redis.call('SET', KEYS[i], string.match(last[1][1], '^%d+')) " +
+            "    else " +
+            "      redis.call('SET', KEYS[i], redis.call('TIME')[1] * 1000) " +
+            "    end " +
+            "  end " +
+            "  local seq = redis.call('INCR', KEYS[i]) " +
+            "  redis.call('XADD', KEYS[i + 1], 'MAXLEN', '~', ARGV[1], seq .. '-0', '" + EVENT_FIELD + "', ARGV[n]) " +
+            "  redis.call('EXPIRE', KEYS[i], ARGV[2]) " +
+            "  redis.call('EXPIRE', KEYS[i + 1], ARGV[2]) " +
+            "  n = n + 1 " +
+            "end " +
+            "return n - 3", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final GroupMembershipIndex membershipIndex;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.sync.max-length:10000}")
+    private long maxLength;
+
+    @Value("${app.sync.ttl-hours:168}")
+    private long ttlHours;
+
+    /**
+     * 私聊消息批次落库后，给收发双方各追加一条事件
+     */
+    public void onMessagesSaved(List<Message> messages) {
+        List<Long> userIds = new ArrayList<>(messages.size() * 2);
+        List<InboxEvent> events = new ArrayList<>(messages.size() * 2);
+        for (Message message : messages) {
+            userIds.add(message.getReceiverId());
+            events.add(InboxEvent.builder()
+                    .type(ChatMessageDTO.MessageType.CHAT)
+                    .id(message.getId())
+                    .peerId(message.getSenderId())
+                    .build());
+            if (!message.getSenderId().equals(message.getReceiverId())) {
+                userIds.add(message.getSenderId());
+                events.add(InboxEvent.builder()
+                        .type(ChatMessageDTO.MessageType.CHAT)
+                        .id(message.getId())
+                        .peerId(message.getReceiverId())
+                        .build());
+            }
+        }
+        append(userIds, events);
+    }
+
+    /**
+     * 群消息批次落库后，每个群给每个成员追加一条范围事件（而不是每条消息一条）
+     */
+    public void onGroupMessagesSaved(List<GroupMessage> messages) {
+        // 群ID -> {最小消息ID, 最大消息ID}
+        Map<Long, long[]> ranges = new LinkedHashMap<>();
+        for (GroupMessage message : messages) {
+            long[] range = ranges.computeIfAbsent(message.getGroupId(), k -> new long[]{Long.MAX_VALUE, Long.MIN_VALUE});
+            range[0] = Math.min(range[0], message.getId());
+            range[1] = Math.max(range[1], message.getId());
+        }
+        List<Long> userIds = new ArrayList<>();
+        List<InboxEvent> events = new ArrayList<>();
+        for (Map.Entry<Long, long[]> entry : ranges.entrySet()) {
+            InboxEvent event = InboxEvent.builder()
+                    .type(ChatMessageDTO.MessageType.GROUP_CHAT)
+                    .groupId(entry.getKey())
+                    .fromId(entry.getValue()[0])
+                    .id(entry.getValue()[1])
+                    .build();
+            for (Long memberId : membershipIndex.getMemberIds(entry.getKey())) {
+                userIds.add(memberId);
+                events.add(event);
+            }
+        }
+        append(userIds, events);
+    }
+
+    /**
+     * 单条群消息（如系统消息）写入后追加事件；在事务中调用时提交后才追加，成员名单取提交后的
+     */
+    public void onGroupMessageSaved(GroupMessage message) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    onGroupMessagesSaved(Collections.singletonList(message));
+                }
+            });
+        } else {
+            onGroupMessagesSaved(Collections.singletonList(message));
+        }
+    }
+
+    /**
+     * 给一组用户追加同一条事件（撤回、已读回执等）
+     */
+    public void append(List<Long> userIds, InboxEvent event) {
+        append(userIds, Collections.nCopies(userIds.size(), event));
+    }
+
+    /**
+     * 读取序号since之后的最多limit条事件
+     */
+    public Page read(Long userId, Long since, int limit) {
+        try {
+            String value = redisTemplate.opsForValue().get(seqKey(userId));
+            long current = value != null ? Long.parseLong(value) : 0L;
+            // 新客户端、收件箱已过期或序号来自其他纪元时，从当前序号开始重新跟踪
+            if (since == null || since <= 0 || since > current) {
+                return Page.reset(current);
+            }
+            if (since == current) {
+                return new Page(current, false, false, Collections.emptyList());
+            }
+
+            List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().range(inboxKey(userId),
+                    Range.rightUnbounded(Range.Bound.inclusive(String.valueOf(since + 1))),
+                    RedisZSetCommands.Limit.limit().count(limit + 1));
+            // 序号连续，第一条不是 since+1 说明中间的事件已被裁剪
+            if (records == null || records.isEmpty() || records.get(0).getId().getTimestamp() != since + 1) {
+                return Page.reset(current);
+            }
+            boolean hasMore = records.size() > limit;
+            if (hasMore) {
+                records = records.subList(0, limit);
+            }
+            List<InboxEvent> events = new ArrayList<>(records.size());
+            for (MapRecord<String, Object, Object> record : records) {
+                events.add(objectMapper.readValue((String) record.getValue().get(EVENT_FIELD), InboxEvent.class));
+            }
+            long seq = records.get(records.size() - 1).getId().getTimestamp();
+            return new Page(seq, false, hasMore, events);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("读取用户 {} 的收件箱失败: {}", userId, e.getMessage());
+            return Page.reset(0L);
+        }
+    }
+
+    private void append(List<Long> userIds, List<InboxEvent> events) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        try {
+            String ttlSeconds = String.valueOf(Duration.ofHours(ttlHours).getSeconds());
+            // 同一事件对象扇出给多个用户时只序列化一次
+            Map<InboxEvent, String> serialized = new IdentityHashMap<>();
+            for (int start = 0; start < userIds.size(); start += APPEND_BATCH) {
+                int end = Math.min(start + APPEND_BATCH, userIds.size());
+                List<String> keys = new ArrayList<>((end - start) * 2);
+                Object[] args = new Object[end - start + 2];
+                args[0] = String.valueOf(maxLength);
+                args[1] = ttlSeconds;
+                for (int i = start; i < end; i++) {
+                    keys.add(seqKey(userIds.get(i)));
+                    keys.add(inboxKey(userIds.get(i)));
+                    InboxEvent event = events.get(i);
+                    String json = serialized.get(event);
+                    if (json == null) {
+                        json = objectMapper.writeValueAsString(event);
+                        serialized.put(event, json);
+                    }
+                    args[i - start + 2] = json;
+                }
+                redisTemplate.execute(APPEND, keys, args);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            // 漏记的事件无法通过增量补回，收件箱过期或被裁剪后客户端会全量重载
+            log.warn("追加收件箱事件失败({}条): {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    private static String seqKey(Long userId) {
+        return SEQ_KEY + userId;
+    }
+
+    private static String inboxKey(Long userId) {
+        return INBOX_KEY + userId;
+    }
+
+    /**
+     * 一次读取的结果
+     */
+    public static final class Page {
+        private final long seq;
+        private final boolean reset;
+        private final boolean hasMore;
+        private final List<InboxEvent> events;
+
+        public Page(long seq, boolean reset, boolean hasMore, List<InboxEvent> events) {
+            this.seq = seq;
+            this.reset = reset;
+            this.hasMore = hasMore;
+            this.events = events;
+        }
+
+        public static Page reset(long seq) {
+            return new Page(seq, true, false, Collections.emptyList());
+        }
+
+        /**
+         * 本次返回的最后一条事件的序号；需要重载时为当前序号
+         */
+        public long getSeq() {
+            return seq;
+        }
+
+        /**
+         * 是否需要客户端全量重载
+         */
+        public boolean isReset() {
+            return reset;
+        }
+
+        public boolean isHasMore() {
+            return hasMore;
+        }
+
+        public List<InboxEvent> getEvents() {
+            return events;
+        }
+    }
+}
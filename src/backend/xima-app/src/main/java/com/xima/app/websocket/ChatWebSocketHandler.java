@@ -1,20 +1,38 @@
 package com.xima.app.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.cache.UserProfileCache;
+import com.xima.app.dto.group.GroupMessageDTO;
 import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.dto.user.UserProfile;
 import com.xima.app.entity.*;
+import com.xima.app.event.UserProfileChangedEvent;
 import com.xima.app.mapper.*;
+import com.xima.app.persistence.ConversationSummaryWriter;
+import com.xima.app.persistence.MessageBatchWriter;
+import com.xima.app.presence.PresenceTracker;
+import com.xima.app.search.MessageSearchIndex;
 import com.xima.app.service.GroupService;
+import com.xima.app.service.SyncService;
+import com.xima.app.sync.InboxEvent;
+import com.xima.app.sync.InboxLog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 聊天WebSocket处理器
@@ -25,49 +43,60 @@ import java.time.LocalDateTime;
 public class ChatWebSocketHandler extends TextWebSocketHandler {
 
     private final WebSocketSessionManager sessionManager;
+    private final GroupFanoutEngine fanoutEngine;
     private final UserMapper userMapper;
+    private final UserProfileCache userProfileCache;
     private final MessageMapper messageMapper;
+    private final MessageBatchWriter messageBatchWriter;
     private final GroupMessageMapper groupMessageMapper;
-    private final FriendshipMapper friendshipMapper;
     private final GroupService groupService;
+    private final ReadReceiptCoalescer readReceiptCoalescer;
+    private final OfflineMessagePusher offlineMessagePusher;
+    private final DeliveryLog deliveryLog;
+    private final SyncService syncService;
+    private final InboxLog inboxLog;
+    private final PresenceTracker presenceTracker;
+    private final MessageSearchIndex searchIndex;
+    private final ConversationSummaryWriter conversationSummaryWriter;
     private final ObjectMapper objectMapper;
     
     // 消息撤回时间限制（2分钟）
     private static final long RECALL_TIME_LIMIT = 2 * 60 * 1000;
 
+    // 会话属性：发送者身份快照
+    public static final String PROFILE_ATTRIBUTE = "profile";
+
     @Override
     public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
         String username = (String) session.getAttributes().get("username");
         if (username != null) {
             // 添加新会话，获取旧会话
-            WebSocketSession oldSession = sessionManager.addSession(username, session);
+            SessionOutbox oldSession = sessionManager.addSession(username, session);
             
             // 如果存在旧会话，踢出旧设备
-            if (oldSession != null && oldSession.isOpen()) {
+            if (oldSession != null && oldSession.getSession().isOpen()) {
                 try {
-                    // 发送踢出通知给旧设备
-                    ChatMessageDTO kickMsg = ChatMessageDTO.builder()
-                            .type(ChatMessageDTO.MessageType.KICK)
-                            .content("您的账号在其他设备登录，您已被迫下线")
-                            .timestamp(LocalDateTime.now())
-                            .build();
-                    oldSession.sendMessage(new TextMessage(objectMapper.writeValueAsString(kickMsg)));
-                    // 关闭旧会话
-                    oldSession.close();
+                    // 发送踢出通知给旧设备，发送完成后关闭旧会话
+                    sessionManager.sendAndClose(oldSession, kickMessage(), CloseStatus.NORMAL);
                     log.info("用户 {} 在其他设备登录，旧会话已被踢出", username);
                 } catch (Exception e) {
                     log.error("踢出旧会话失败: {}", e.getMessage());
                 }
             }
             
-            // 更新用户状态为在线
             User user = userMapper.findByUsername(username);
             if (user != null) {
-                userMapper.updateStatus(user.getId(), UserStatus.ONLINE.name());
-                sessionManager.bindUserId(user.getId(), username);
+                // 缓存身份快照，后续每帧不再查库
+                session.getAttributes().put(PROFILE_ATTRIBUTE, UserProfile.fromEntity(user));
+                String previousNode = sessionManager.bindUserId(user.getId(), username);
+                // 旧连接在集群中的其他节点上时，由该节点踢出
+                if (previousNode != null) {
+                    sessionManager.kickRemote(previousNode, user.getId(), kickMessage());
+                    log.info("用户 {} 在其他设备登录，已通知节点 {} 踢出旧会话", username, previousNode);
+                }
                 
-                // 通知好友该用户上线
-                notifyFriendsStatusChange(user.getId(), UserStatus.ONLINE);
+                // 标记在线，好友在下一个摘要周期收到上线通知
+                presenceTracker.online(user.getId());
             }
 
             // 发送欢迎消息
@@ -76,26 +105,37 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     .content("欢迎 " + username + " 加入聊天")
                     .timestamp(LocalDateTime.now())
                     .build();
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(welcomeMsg)));
+            sessionManager.sendMessage(username, objectMapper.writeValueAsString(welcomeMsg));
+
+            if (user != null) {
+                // 先重投上次连接未确认的帧，再分块推送离线消息（客户端按消息ID去重）
+                for (String frame : deliveryLog.pending(user.getId())) {
+                    sessionManager.sendMessage(username, frame);
+                }
+                offlineMessagePusher.start(session, username, user.getId());
+            }
         }
     }
 
     @Override
     protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) throws Exception {
         String username = (String) session.getAttributes().get("username");
+        if (username != null) {
+            sessionManager.touch(username, session);
+        }
         String payload = message.getPayload();
 
         try {
             ChatMessageDTO chatMessage = objectMapper.readValue(payload, ChatMessageDTO.class);
             
-            // 获取发送者信息
-            User sender = userMapper.findByUsername(username);
+            // 获取发送者信息（连接建立时缓存的快照）
+            UserProfile sender = (UserProfile) session.getAttributes().get(PROFILE_ATTRIBUTE);
             if (sender == null) {
                 return;
             }
 
             chatMessage.setSenderId(sender.getId());
-            chatMessage.setSenderName(sender.getNickname() != null ? sender.getNickname() : sender.getUsername());
+            chatMessage.setSenderName(sender.getDisplayName());
             chatMessage.setSenderAvatar(sender.getAvatar());
             chatMessage.setTimestamp(LocalDateTime.now());
 
@@ -110,11 +150,21 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     handleTypingMessage(chatMessage);
                     break;
                 case READ:
-                    handleReadMessage(chatMessage);
+                    handleReadMessage(chatMessage, sender);
                     break;
                 case RECALL:
                     handleRecallMessage(chatMessage, sender);
                     break;
+                case OFFLINE_ACK:
+                    offlineMessagePusher.onAck(session, (String) session.getAttributes().get("username"),
+                            sender.getId(), chatMessage.getId());
+                    break;
+                case SYNC:
+                    handleSyncMessage(chatMessage, sender);
+                    break;
+                case DELIVERY_ACK:
+                    handleDeliveryAck(chatMessage, sender);
+                    break;
                 default:
                     log.warn("未知消息类型: {}", chatMessage.getType());
             }
@@ -126,39 +176,66 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     /**
      * 处理聊天消息
      */
-    private void handleChatMessage(ChatMessageDTO chatMessage, User sender) throws Exception {
-        // 保存消息到数据库
+    private void handleChatMessage(ChatMessageDTO chatMessage, UserProfile sender) throws Exception {
+        // 同批消息一次多行插入，外键或非空约束不满足的消息必须在入队前拦下
+        if (chatMessage.getContent() == null || chatMessage.getContent().isBlank()) {
+            sendErrorMessage(sender.getId(), "消息内容不能为空");
+            return;
+        }
+        if (chatMessage.getReceiverId() == null || userProfileCache.get(chatMessage.getReceiverId()) == null) {
+            sendErrorMessage(sender.getId(), "接收者不存在");
+            return;
+        }
+
+        // 预分配ID后进入批量写缓冲区，不在当前线程等待数据库提交
         Message message = new Message();
         message.setSenderId(sender.getId());
         message.setReceiverId(chatMessage.getReceiverId());
         message.setContent(chatMessage.getContent());
         message.setContentType(chatMessage.getContentType() != null ? 
                 chatMessage.getContentType() : MessageContentType.TEXT);
-        messageMapper.insert(message);
+        message.setCreateTime(chatMessage.getTimestamp());
+        CompletableFuture<Message> saved = messageBatchWriter.save(message);
 
         chatMessage.setId(message.getId());
+        chatMessage.setDeliveryId(null);
+        TextMessage frame = new TextMessage(objectMapper.writeValueAsString(chatMessage));
 
-        // 发送给接收者
-        String receiverUsername = sessionManager.getUsernameByUserId(chatMessage.getReceiverId());
-        if (receiverUsername != null) {
-            String messageJson = objectMapper.writeValueAsString(chatMessage);
-            boolean sent = sessionManager.sendMessage(receiverUsername, messageJson);
+        // 所在批次提交后才投递给接收者并回执发送者，保证对方看到的消息一定已落库
+        saved.whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("消息 {} 保存失败: {}", message.getId(), ex.getMessage());
+                sendErrorMessageQuietly(sender.getId(), "消息发送失败，请重试");
+                return;
+            }
+
+            // 发给接收者的帧先记入投递日志，确认前断线会在下次连接时重投
+            TextMessage receiverFrame = frame;
+            String deliveryId = deliveryLog.append(chatMessage.getReceiverId(), chatMessage);
+            if (deliveryId != null) {
+                chatMessage.setDeliveryId(deliveryId);
+                try {
+                    receiverFrame = new TextMessage(objectMapper.writeValueAsString(chatMessage));
+                } catch (Exception e) {
+                    log.error("编码消息 {} 失败: {}", message.getId(), e.getMessage());
+                }
+            }
+
+            // 发送给接收者（可能连接在集群中的其他节点）
+            boolean sent = sessionManager.sendToUser(chatMessage.getReceiverId(), receiverFrame);
             if (!sent) {
-                log.info("用户 {} 不在线，消息已保存为离线消息", receiverUsername);
+                log.info("用户 {} 不在线，消息已保存为离线消息", chatMessage.getReceiverId());
             }
-        }
 
-        // 也发送给发送者（确认消息已发送）
-        String senderUsername = sessionManager.getUsernameByUserId(sender.getId());
-        if (senderUsername != null) {
-            sessionManager.sendMessage(senderUsername, objectMapper.writeValueAsString(chatMessage));
-        }
+            // 也发送给发送者（确认消息已发送）
+            sessionManager.sendToUser(sender.getId(), frame);
+        });
     }
 
     /**
      * 处理群聊消息
      */
-    private void handleGroupChatMessage(ChatMessageDTO chatMessage, User sender) throws Exception {
+    private void handleGroupChatMessage(ChatMessageDTO chatMessage, UserProfile sender) throws Exception {
         Long groupId = chatMessage.getGroupId();
         if (groupId == null) {
             log.warn("群消息缺少groupId");
@@ -171,10 +248,10 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        // 保存群消息
-        com.xima.app.dto.group.GroupMessageDTO savedMsg;
+        // 提交到批量写入队列
+        CompletableFuture<GroupMessageDTO> saved;
         try {
-            savedMsg = groupService.sendMessage(
+            saved = groupService.submitMessage(
                     groupId, 
                     sender.getId(), 
                     chatMessage.getContent(),
@@ -182,66 +259,75 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             );
         } catch (RuntimeException e) {
             // 发送错误消息给发送者
-            String senderUsername = sessionManager.getUsernameByUserId(sender.getId());
-            if (senderUsername != null) {
-                ChatMessageDTO errorMsg = ChatMessageDTO.builder()
-                        .type(ChatMessageDTO.MessageType.ERROR)
-                        .content(e.getMessage())
-                        .groupId(groupId)
-                        .timestamp(LocalDateTime.now())
-                        .build();
-                sessionManager.sendMessage(senderUsername, objectMapper.writeValueAsString(errorMsg));
-            }
+            ChatMessageDTO errorMsg = ChatMessageDTO.builder()
+                    .type(ChatMessageDTO.MessageType.ERROR)
+                    .content(e.getMessage())
+                    .groupId(groupId)
+                    .timestamp(LocalDateTime.now())
+                    .build();
+            sessionManager.sendToUser(sender.getId(), objectMapper.writeValueAsString(errorMsg));
             return;
         }
 
-        if (savedMsg != null) {
-            chatMessage.setId(savedMsg.getId());
-            
-            // 获取群所有成员ID
-            java.util.List<Long> memberIds = groupService.getMemberIds(groupId);
-            String messageJson = objectMapper.writeValueAsString(chatMessage);
-            
-            // 发送给所有在线的群成员
-            for (Long memberId : memberIds) {
-                String memberUsername = sessionManager.getUsernameByUserId(memberId);
-                if (memberUsername != null) {
-                    sessionManager.sendMessage(memberUsername, messageJson);
+        // 落库后再发送给所有在线的群成员
+        saved.whenComplete((savedMsg, ex) -> {
+            if (ex != null) {
+                log.error("群 {} 消息保存失败: {}", groupId, ex.getMessage());
+                sendErrorMessageQuietly(sender.getId(), "消息发送失败，请重试");
+                return;
+            }
+            if (savedMsg != null) {
+                chatMessage.setId(savedMsg.getId());
+                try {
+                    fanoutEngine.fanout(groupService.getMemberIdArray(groupId), chatMessage);
+                } catch (Exception e) {
+                    log.error("群 {} 消息扇出失败: {}", groupId, e.getMessage());
                 }
             }
-        }
+        });
     }
 
     /**
      * 处理正在输入消息
      */
     private void handleTypingMessage(ChatMessageDTO chatMessage) throws Exception {
-        String receiverUsername = sessionManager.getUsernameByUserId(chatMessage.getReceiverId());
-        if (receiverUsername != null) {
-            sessionManager.sendMessage(receiverUsername, objectMapper.writeValueAsString(chatMessage));
-        }
+        sessionManager.sendToUser(chatMessage.getReceiverId(), objectMapper.writeValueAsString(chatMessage),
+                FramePriority.DROPPABLE);
     }
 
     /**
-     * 处理已读回执
+     * 处理已读上报：receiverId为会话对方，id为已读到的消息ID
+     * 回执交给合并器，短时间内的多次上报合并为一次范围更新和一帧回执
      */
-    private void handleReadMessage(ChatMessageDTO chatMessage) throws Exception {
-        // 更新消息状态为已读
-        if (chatMessage.getId() != null) {
-            messageMapper.updateStatus(chatMessage.getId(), "READ");
+    private void handleReadMessage(ChatMessageDTO chatMessage, UserProfile reader) {
+        Long upTo = chatMessage.getId();
+        if (upTo == null) {
+            return;
         }
-        
-        // 通知发送者
-        String senderUsername = sessionManager.getUsernameByUserId(chatMessage.getSenderId());
-        if (senderUsername != null) {
-            sessionManager.sendMessage(senderUsername, objectMapper.writeValueAsString(chatMessage));
+        Long peerId = chatMessage.getReceiverId();
+        if (peerId == null) {
+            // 旧客户端只带消息ID，按消息反查会话对方
+            Message message = messageMapper.findById(upTo);
+            if (message == null || !reader.getId().equals(message.getReceiverId())) {
+                return;
+            }
+            peerId = message.getSenderId();
         }
+        readReceiptCoalescer.submit(reader.getId(), peerId, upTo);
+    }
+
+    /**
+     * 处理增量同步：id为客户端已同步到的序号，回复该序号之后的一页事件
+     */
+    private void handleSyncMessage(ChatMessageDTO chatMessage, UserProfile sender) throws Exception {
+        sessionManager.sendToUser(sender.getId(),
+                objectMapper.writeValueAsString(syncService.sync(sender.getId(), chatMessage.getId(), 0)));
     }
 
     /**
      * 处理消息撤回
      */
-    private void handleRecallMessage(ChatMessageDTO chatMessage, User sender) throws Exception {
+    private void handleRecallMessage(ChatMessageDTO chatMessage, UserProfile sender) throws Exception {
         Long messageId = chatMessage.getId();
         log.info("收到撤回请求: messageId={}, groupId={}, senderId={}", 
                 messageId, chatMessage.getGroupId(), sender.getId());
@@ -279,19 +365,14 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             
             // 执行撤回
             groupMessageMapper.recallMessage(messageId);
+            searchIndex.onGroupMessageRemoved(messageId);
+            conversationSummaryWriter.onGroupMessageRemoved(groupMessage);
             
             // 通知群内所有成员
             chatMessage.setRecalled(true);
             chatMessage.setContent(sender.getNickname() + " 撤回了一条消息");
-            String messageJson = objectMapper.writeValueAsString(chatMessage);
-            
-            java.util.List<Long> memberIds = groupService.getMemberIds(groupId);
-            for (Long memberId : memberIds) {
-                String memberUsername = sessionManager.getUsernameByUserId(memberId);
-                if (memberUsername != null) {
-                    sessionManager.sendMessage(memberUsername, messageJson);
-                }
-            }
+            inboxLog.append(groupService.getMemberIds(groupId), recallEvent(chatMessage));
+            fanoutEngine.fanout(groupService.getMemberIdArray(groupId), chatMessage);
             
             log.info("用户 {} 撤回了群 {} 的消息 {}", sender.getId(), groupId, messageId);
         } else {
@@ -319,91 +400,120 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             
             // 执行撤回
             messageMapper.recallMessage(messageId);
+            searchIndex.onPrivateMessageRemoved(messageId);
+            deliveryLog.remove(message.getReceiverId(), messageId);
+            conversationSummaryWriter.onMessageRemoved(message, ConversationSummaryWriter.RECALLED_PREVIEW);
             
             // 通知双方
             chatMessage.setRecalled(true);
             chatMessage.setContent(sender.getNickname() + " 撤回了一条消息");
+            inboxLog.append(message.getReceiverId().equals(sender.getId())
+                    ? Collections.singletonList(sender.getId())
+                    : Arrays.asList(message.getReceiverId(), sender.getId()), recallEvent(chatMessage));
             String messageJson = objectMapper.writeValueAsString(chatMessage);
             
             // 通知接收者
-            String receiverUsername = sessionManager.getUsernameByUserId(message.getReceiverId());
-            if (receiverUsername != null) {
-                sessionManager.sendMessage(receiverUsername, messageJson);
-            }
+            sessionManager.sendToUser(message.getReceiverId(), messageJson);
             
             // 通知发送者
-            String senderUsername = sessionManager.getUsernameByUserId(sender.getId());
-            if (senderUsername != null) {
-                sessionManager.sendMessage(senderUsername, messageJson);
-            }
+            sessionManager.sendToUser(sender.getId(), messageJson);
             
             log.info("用户 {} 撤回了私聊消息 {}", sender.getId(), messageId);
         }
     }
 
+    /**
+     * 处理投递确认：删掉已确认的投递日志记录，并把对应消息标记为已送达（不再作为离线消息推送）
+     */
+    private void handleDeliveryAck(ChatMessageDTO chatMessage, UserProfile sender) {
+        List<String> deliveryIds = new ArrayList<>();
+        if (chatMessage.getDeliveryIds() != null) {
+            deliveryIds.addAll(chatMessage.getDeliveryIds());
+        }
+        if (chatMessage.getDeliveryId() != null) {
+            deliveryIds.add(chatMessage.getDeliveryId());
+        }
+        List<Long> messageIds = deliveryLog.ack(sender.getId(), deliveryIds);
+        if (!messageIds.isEmpty()) {
+            messageMapper.updateStatusToDeliveredByIds(sender.getId(), messageIds);
+        }
+    }
+
+    private String kickMessage() throws Exception {
+        ChatMessageDTO kickMsg = ChatMessageDTO.builder()
+                .type(ChatMessageDTO.MessageType.KICK)
+                .content("您的账号在其他设备登录，您已被迫下线")
+                .timestamp(LocalDateTime.now())
+                .build();
+        return objectMapper.writeValueAsString(kickMsg);
+    }
+
+    private static InboxEvent recallEvent(ChatMessageDTO recall) {
+        return InboxEvent.builder()
+                .type(ChatMessageDTO.MessageType.RECALL)
+                .id(recall.getId())
+                .groupId(recall.getGroupId())
+                .content(recall.getContent())
+                .build();
+    }
+
     /**
      * 发送错误消息给用户
      */
     private void sendErrorMessage(Long userId, String errorContent) throws Exception {
-        String username = sessionManager.getUsernameByUserId(userId);
-        if (username != null) {
-            ChatMessageDTO errorMsg = ChatMessageDTO.builder()
-                    .type(ChatMessageDTO.MessageType.ERROR)
-                    .content(errorContent)
-                    .timestamp(LocalDateTime.now())
-                    .build();
-            sessionManager.sendMessage(username, objectMapper.writeValueAsString(errorMsg));
+        ChatMessageDTO errorMsg = ChatMessageDTO.builder()
+                .type(ChatMessageDTO.MessageType.ERROR)
+                .content(errorContent)
+                .timestamp(LocalDateTime.now())
+                .build();
+        sessionManager.sendToUser(userId, objectMapper.writeValueAsString(errorMsg));
+    }
+
+    private void sendErrorMessageQuietly(Long userId, String errorContent) {
+        try {
+            sendErrorMessage(userId, errorContent);
+        } catch (Exception e) {
+            log.error("发送错误消息失败: {}", e.getMessage());
         }
     }
 
     @Override
     public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) throws Exception {
         String username = (String) session.getAttributes().get("username");
-        if (username != null) {
-            sessionManager.removeSession(username);
-            
-            // 更新用户状态为离线
-            User user = userMapper.findByUsername(username);
-            if (user != null) {
-                userMapper.updateStatus(user.getId(), UserStatus.OFFLINE.name());
-                
-                // 通知好友该用户下线
-                notifyFriendsStatusChange(user.getId(), UserStatus.OFFLINE);
-                
-                sessionManager.unbindUserId(user.getId());
+        // 被新设备顶替的旧会话关闭时，不影响新会话和在线状态
+        if (username != null && sessionManager.removeSession(username, session)) {
+            UserProfile profile = (UserProfile) session.getAttributes().get(PROFILE_ATTRIBUTE);
+            if (profile != null) {
+                sessionManager.unbindUserId(profile.getId());
+                // 宽限期后仍未重连才通知好友下线
+                presenceTracker.offline(profile.getId());
             }
         }
     }
 
     /**
-     * 通知好友用户状态变化
+     * 用户资料变更后刷新在线会话中的身份快照
      */
-    private void notifyFriendsStatusChange(Long userId, UserStatus status) {
-        try {
-            // 获取用户所有好友的ID
-            java.util.List<Long> friendIds = friendshipMapper.findFriendIdsByUserId(userId);
-            
-            // 构建状态变化消息
-            ChatMessageDTO statusMsg = ChatMessageDTO.builder()
-                    .type(ChatMessageDTO.MessageType.STATUS)
-                    .senderId(userId)
-                    .content(status.name())
-                    .timestamp(LocalDateTime.now())
-                    .build();
-            
-            String messageJson = objectMapper.writeValueAsString(statusMsg);
-            
-            // 通知每个在线的好友
-            for (Long friendId : friendIds) {
-                String friendUsername = sessionManager.getUsernameByUserId(friendId);
-                if (friendUsername != null) {
-                    sessionManager.sendMessage(friendUsername, messageJson);
-                }
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserProfileChanged(UserProfileChangedEvent event) {
+        UserProfile profile = event.getProfile();
+        String username = sessionManager.getUsernameByUserId(profile.getId());
+        if (username != null) {
+            WebSocketSession session = sessionManager.getSession(username);
+            if (session != null) {
+                session.getAttributes().put(PROFILE_ATTRIBUTE, profile);
             }
-            
-            log.info("用户 {} 状态变更为 {}，已通知 {} 个好友", userId, status, friendIds.size());
-        } catch (Exception e) {
-            log.error("通知好友状态变化失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 客户端对心跳ping的回复
+     */
+    @Override
+    protected void handlePongMessage(@NonNull WebSocketSession session, @NonNull PongMessage message) {
+        String username = (String) session.getAttributes().get("username");
+        if (username != null) {
+            sessionManager.touch(username, session);
         }
     }
 
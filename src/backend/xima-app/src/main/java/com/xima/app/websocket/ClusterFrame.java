@@ -0,0 +1,29 @@
+package com.xima.app.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 节点间转发的帧（通过目标节点的 Redis 频道传递）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterFrame {
+
+    /**
+     * 转发类型
+     */
+    public enum Kind {
+        DELIVER,    // 投递给目标用户在本节点的会话
+        KICK        // 用户已在其他节点登录，发送payload后关闭本节点的旧会话
+    }
+
+    private Kind kind;
+    private List<Long> userIds;
+    private String payload;            // 已编码的帧内容
+    private FramePriority priority;
+}
@@ -0,0 +1,273 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 集群路由
+ * 多实例部署时，Redis 中记录每个在线用户连接所在的节点（带过期时间，由所在节点定期续期），
+ * 每个节点订阅自己的频道；发给非本节点用户的帧按路由发布到目标节点的频道，由目标节点投递到本地会话。
+ * 未启用时所有方法直接返回，单实例部署不访问 Redis
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClusterRouter {
+
+    // 用户路由：xima:ws:route:{userId} -> nodeId
+    private static final String ROUTE_KEY = "xima:ws:route:";
+    // 节点频道：xima:ws:node:{nodeId}
+    private static final String NODE_CHANNEL = "xima:ws:node:";
+    private static final int REFRESH_BATCH = 1000;
+
+    // 占用路由并返回之前所在的节点
+    private static final RedisScript<String> CLAIM = new DefaultRedisScript<>(
+            "local previous = redis.call('GET', KEYS[1]) " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) " +
+            "if previous then return previous end " +
+            "return false", String.class);
+
+    // 只释放仍指向本节点的路由，用户已在其他节点重连时保留新路由
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    // 续期仍指向本节点的路由；路由已丢失（如Redis重启）时重新登记，已被其他节点占用的不动
+    private static final RedisScript<Long> REFRESH = new DefaultRedisScript<>(
+            "local refreshed = 0 " +
+            "for i, key in ipairs(KEYS) do " +
+            "  local owner = redis.call('GET', key) " +
+            "  if owner == ARGV[1] or not owner then " +
+            "    redis.call('SET', key, ARGV[1], 'EX', ARGV[2]) " +
+            "    refreshed = refreshed + 1 " +
+            "  end " +
+            "end " +
+            "return refreshed", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${app.cluster.route-ttl-seconds:90}")
+    private long routeTtlSeconds;
+
+    // 本节点上有连接的用户，用于定期续期路由
+    private final Set<Long> localUsers = ConcurrentHashMap.newKeySet();
+
+    private String nodeId;
+    private volatile Consumer<ClusterFrame> receiver;
+    private RedisMessageListenerContainer listenerContainer;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId != null && !configuredNodeId.isEmpty()
+                ? configuredNodeId : UUID.randomUUID().toString();
+        if (!enabled) {
+            return;
+        }
+        RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+        if (connectionFactory == null) {
+            throw new IllegalStateException("启用集群路由需要 Redis 连接");
+        }
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener((message, pattern) -> onFrame(message.getBody()),
+                new ChannelTopic(NODE_CHANNEL + nodeId));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        long refreshSeconds = Math.max(1, routeTtlSeconds / 3);
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("cluster-route-"));
+        scheduler.scheduleWithFixedDelay(this::refreshRoutes, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        log.info("集群路由已启用, 节点: {}, 路由TTL: {}s", nodeId, routeTtlSeconds);
+    }
+
+    @PreDestroy
+    public void destroy() throws Exception {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 注册本节点收到转发帧时的处理逻辑
+     */
+    public void setReceiver(Consumer<ClusterFrame> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * 用户连接到本节点：占用路由，返回用户之前所在的其他节点（没有则为null）
+     */
+    public String claim(Long userId) {
+        if (!enabled) {
+            return null;
+        }
+        localUsers.add(userId);
+        try {
+            String previous = redisTemplate.execute(CLAIM, Collections.singletonList(routeKey(userId)),
+                    nodeId, String.valueOf(routeTtlSeconds));
+            return previous != null && !previous.equals(nodeId) ? previous : null;
+        } catch (RuntimeException e) {
+            log.warn("登记用户 {} 的路由失败: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 用户从本节点断开：释放仍指向本节点的路由
+     */
+    public void release(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        localUsers.remove(userId);
+        try {
+            redisTemplate.execute(RELEASE, Collections.singletonList(routeKey(userId)), nodeId);
+        } catch (RuntimeException e) {
+            // 未释放的路由过期后自动失效
+            log.warn("释放用户 {} 的路由失败: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 转发给不在本节点的用户，返回是否找到了其所在节点
+     */
+    public boolean forward(Long userId, String payload, FramePriority priority) {
+        return forward(Collections.singletonList(userId), payload, priority) > 0;
+    }
+
+    /**
+     * 批量转发给不在本节点的用户：一次查出所有路由，每个目标节点只发布一条，返回转发的用户数
+     */
+    public int forward(Collection<Long> userIds, String payload, FramePriority priority) {
+        if (!enabled || userIds.isEmpty()) {
+            return 0;
+        }
+        try {
+            List<Long> ids = new ArrayList<>(userIds);
+            List<String> keys = new ArrayList<>(ids.size());
+            for (Long userId : ids) {
+                keys.add(routeKey(userId));
+            }
+            List<String> nodes = redisTemplate.opsForValue().multiGet(keys);
+            if (nodes == null) {
+                return 0;
+            }
+            Map<String, List<Long>> byNode = new LinkedHashMap<>();
+            for (int i = 0; i < ids.size() && i < nodes.size(); i++) {
+                String node = nodes.get(i);
+                if (node != null && !node.equals(nodeId)) {
+                    byNode.computeIfAbsent(node, k -> new ArrayList<>()).add(ids.get(i));
+                }
+            }
+            int forwarded = 0;
+            for (Map.Entry<String, List<Long>> entry : byNode.entrySet()) {
+                publish(entry.getKey(), new ClusterFrame(ClusterFrame.Kind.DELIVER, entry.getValue(), payload, priority));
+                forwarded += entry.getValue().size();
+            }
+            return forwarded;
+        } catch (Exception e) {
+            log.warn("转发帧到其他节点失败({}个用户): {}", userIds.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 通知用户之前所在的节点踢出旧连接
+     */
+    public void kick(String node, Long userId, String payload) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            publish(node, new ClusterFrame(ClusterFrame.Kind.KICK, Collections.singletonList(userId), payload,
+                    FramePriority.NORMAL));
+        } catch (Exception e) {
+            log.warn("通知节点 {} 踢出用户 {} 失败: {}", node, userId, e.getMessage());
+        }
+    }
+
+    private void publish(String node, ClusterFrame frame) throws Exception {
+        redisTemplate.convertAndSend(NODE_CHANNEL + node, objectMapper.writeValueAsString(frame));
+    }
+
+    void onFrame(byte[] body) {
+        Consumer<ClusterFrame> current = receiver;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.accept(objectMapper.readValue(new String(body, StandardCharsets.UTF_8), ClusterFrame.class));
+        } catch (Exception e) {
+            log.warn("处理转发帧失败: {}", e.getMessage());
+        }
+    }
+
+    private void refreshRoutes() {
+        if (localUsers.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(localUsers.size());
+        for (Long userId : localUsers) {
+            keys.add(routeKey(userId));
+        }
+        try {
+            // 分批续期，避免单个脚本长时间占用Redis
+            for (int from = 0; from < keys.size(); from += REFRESH_BATCH) {
+                redisTemplate.execute(REFRESH, keys.subList(from, Math.min(from + REFRESH_BATCH, keys.size())),
+                        nodeId, String.valueOf(routeTtlSeconds));
+            }
+        } catch (RuntimeException e) {
+            log.warn("续期本节点路由失败({}个用户): {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private static String routeKey(Long userId) {
+        return ROUTE_KEY + userId;
+    }
+}
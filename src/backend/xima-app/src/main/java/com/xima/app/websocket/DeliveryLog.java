@@ -0,0 +1,180 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.dto.message.ChatMessageDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 私聊投递日志（Redis Stream）
+ * 发给接收者的每一帧私聊消息先追加到接收者的投递日志，记录ID作为 deliveryId 随帧下发；
+ * 客户端逐条确认收到的 deliveryId，确认前的帧在下次连接时直接从日志重投，不回查数据库；
+ * 记录ID在各写入线程、各节点上的生成顺序与帧的发送顺序不一定一致，所以不按ID区间累计确认；
+ * 消息被撤回或删除时同步删掉对应记录，重投不会送出原文。
+ * 半开连接上"发送成功"但实际丢失的帧因此不会丢；日志按条数裁剪并带过期时间，
+ * 裁剪掉或未能写入的消息仍保持未送达状态，由离线消息推送兜底
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeliveryLog {
+
+    // 投递日志：xima:delivery:{userId} -> stream{id: {m: 消息ID, f: 帧JSON}}
+    private static final String DELIVERY_KEY = "xima:delivery:";
+    private static final String MESSAGE_FIELD = "m";
+    private static final String FRAME_FIELD = "f";
+    private static final Pattern DELIVERY_ID = Pattern.compile("\\d+-\\d+");
+
+    // ARGV[1]=消息ID，ARGV[2]=帧JSON，ARGV[3]=保留条数，ARGV[4]=过期秒数；返回记录ID
+    private static final RedisScript<String> APPEND = new DefaultRedisScript<>(
+            "local id = redis.call('XADD', KEYS[1], 'MAXLEN', '~', ARGV[3], '*', " +
+            "'" + MESSAGE_FIELD + "', ARGV[1], '" + FRAME_FIELD + "', ARGV[2]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[4]) " +
+            "return id", String.class);
+
+    // 确认 ARGV 中的记录：返回这些记录的消息ID并删除记录，不存在的记录（已确认、已裁剪）忽略
+    private static final RedisScript<List> ACK = new DefaultRedisScript<>(
+            "local acked = {} " +
+            "for i, id in ipairs(ARGV) do " +
+            "  local entries = redis.call('XRANGE', KEYS[1], id, id) " +
+            "  if #entries > 0 then " +
+            "    local fields = entries[1][2] " +
+            "    for j = 1, #fields, 2 do " +
+            "      if fields[j] == '" + MESSAGE_FIELD + "' then acked[#acked + 1] = fields[j + 1] end " +
+            "    end " +
+            "    redis.call('XDEL', KEYS[1], id) " +
+            "  end " +
+            "end " +
+            "return acked", List.class);
+
+    // 删除某条消息的记录（撤回、删除时调用），ARGV[1]=消息ID；日志按条数裁剪，遍历代价有上限
+    private static final RedisScript<Long> REMOVE = new DefaultRedisScript<>(
+            "local removed = 0 " +
+            "for i, entry in ipairs(redis.call('XRANGE', KEYS[1], '-', '+')) do " +
+            "  local fields = entry[2] " +
+            "  for j = 1, #fields, 2 do " +
+            "    if fields[j] == '" + MESSAGE_FIELD + "' and fields[j + 1] == ARGV[1] then " +
+            "      removed = removed + redis.call('XDEL', KEYS[1], entry[1]) " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return removed", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.websocket.delivery.max-length:1000}")
+    private long maxLength;
+
+    @Value("${app.websocket.delivery.ttl-hours:72}")
+    private long ttlHours;
+
+    @Value("${app.websocket.delivery.redeliver-limit:500}")
+    private int redeliverLimit;
+
+    /**
+     * 追加一帧待投递的私聊消息，返回 deliveryId；Redis 不可用时返回null，该消息只能靠离线推送兜底
+     */
+    public String append(Long userId, ChatMessageDTO message) {
+        try {
+            return redisTemplate.execute(APPEND, Collections.singletonList(deliveryKey(userId)),
+                    String.valueOf(message.getId()), objectMapper.writeValueAsString(message),
+                    String.valueOf(maxLength), String.valueOf(Duration.ofHours(ttlHours).getSeconds()));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("追加用户 {} 的投递日志失败: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 客户端确认收到的帧（只确认列出的记录），返回被确认的消息ID；格式不正确的ID忽略，单次最多 redeliver-limit 条
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> ack(Long userId, Collection<String> deliveryIds) {
+        if (deliveryIds == null || deliveryIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (String deliveryId : deliveryIds) {
+            if (deliveryId != null && DELIVERY_ID.matcher(deliveryId).matches() && ids.size() < redeliverLimit) {
+                ids.add(deliveryId);
+            }
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<Object> acked = redisTemplate.execute(ACK, Collections.singletonList(deliveryKey(userId)),
+                    ids.toArray());
+            if (acked == null || acked.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<Long> messageIds = new ArrayList<>(acked.size());
+            for (Object id : acked) {
+                messageIds.add(Long.valueOf(id.toString()));
+            }
+            return messageIds;
+        } catch (RuntimeException e) {
+            // 未删除的记录下次连接时会重投，客户端按消息ID去重
+            log.warn("确认用户 {} 的投递日志失败: {}", userId, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 消息被撤回或删除后删掉接收者日志中的原始帧，避免重投
+     */
+    public void remove(Long userId, Long messageId) {
+        try {
+            redisTemplate.execute(REMOVE, Collections.singletonList(deliveryKey(userId)), String.valueOf(messageId));
+        } catch (RuntimeException e) {
+            log.warn("删除用户 {} 投递日志中的消息 {} 失败: {}", userId, messageId, e.getMessage());
+        }
+    }
+
+    /**
+     * 取出尚未确认的帧（最多 redeliver-limit 条，按写入顺序），每帧带上各自的 deliveryId
+     */
+    public List<String> pending(Long userId) {
+        try {
+            List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().range(deliveryKey(userId),
+                    Range.unbounded(), RedisZSetCommands.Limit.limit().count(redeliverLimit));
+            if (records == null || records.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<String> frames = new ArrayList<>(records.size());
+            for (MapRecord<String, Object, Object> record : records) {
+                ChatMessageDTO message = objectMapper.readValue((String) record.getValue().get(FRAME_FIELD),
+                        ChatMessageDTO.class);
+                message.setDeliveryId(record.getId().getValue());
+                frames.add(objectMapper.writeValueAsString(message));
+            }
+            return frames;
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("读取用户 {} 的投递日志失败: {}", userId, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private static String deliveryKey(Long userId) {
+        return DELIVERY_KEY + userId;
+    }
+}
@@ -0,0 +1,9 @@
+package com.xima.app.websocket;
+
+/**
+ * 出站帧优先级
+ */
+public enum FramePriority {
+    NORMAL,     // 普通帧（聊天、撤回、回执等），不可丢弃
+    DROPPABLE   // 可丢弃帧（正在输入、在线状态），队列满时优先丢弃
+}
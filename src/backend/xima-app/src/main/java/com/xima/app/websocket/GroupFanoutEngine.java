@@ -0,0 +1,49 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.List;
+
+/**
+ * 群消息扇出引擎
+ * 消息体只序列化一次，共享同一个不可变帧；在线成员一次性批量解析后在调用线程依次入队，
+ * 入队不阻塞（实际写出由各会话出站队列完成），同一接收者的帧保持群内发送顺序
+ */
+@Component
+@RequiredArgsConstructor
+public class GroupFanoutEngine {
+
+    private final WebSocketSessionManager sessionManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 编码消息体并扇出给成员，返回投递的在线会话数
+     */
+    public int fanout(long[] memberIds, Object payload) throws JsonProcessingException {
+        return fanout(memberIds, encode(payload));
+    }
+
+    /**
+     * 将已编码的帧扇出给成员，返回投递的本节点在线会话数；连接在集群其他节点上的成员按节点各转发一次
+     * 不拆批并行：并行投递会让后一条消息（或撤回）先于前一条进入同一接收者的出站队列
+     */
+    public int fanout(long[] memberIds, TextMessage frame) {
+        sessionManager.forwardToRemote(memberIds, frame);
+        List<SessionOutbox> targets = sessionManager.getOnlineOutboxes(memberIds);
+        for (SessionOutbox outbox : targets) {
+            outbox.offer(frame, FramePriority.NORMAL);
+        }
+        return targets.size();
+    }
+
+    /**
+     * 序列化一次，得到可在多个会话间共享的帧
+     */
+    public TextMessage encode(Object payload) throws JsonProcessingException {
+        return new TextMessage(objectMapper.writeValueAsString(payload));
+    }
+}
@@ -0,0 +1,151 @@
+package com.xima.app.websocket;
+
+import com.xima.app.dto.websocket.HeartbeatStatsDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接心跳与僵死连接清理
+ * 会话按下次需要检查的时间挂在时间轮的槽位上，单线程每个刻度只处理一个槽位，
+ * 检查成本与到期的会话数成正比，与在线总数无关：
+ * 空闲超过 ping 间隔时经出站队列发送 ping（浏览器自动回 pong），空闲超过超时时间则关闭会话，
+ * 关闭后由容器回调 afterConnectionClosed，走正常的下线流程
+ */
+@Slf4j
+@Component
+public class HeartbeatMonitor {
+
+    // 僵死连接的关闭状态
+    static final CloseStatus IDLE_TIMEOUT = CloseStatus.SESSION_NOT_RELIABLE.withReason("idle timeout");
+
+    @Value("${app.websocket.heartbeat.ping-interval-seconds:25}")
+    private long pingIntervalSeconds;
+
+    @Value("${app.websocket.heartbeat.idle-timeout-seconds:60}")
+    private long idleTimeoutSeconds;
+
+    @Value("${app.websocket.heartbeat.tick-ms:1000}")
+    private long tickMs;
+
+    private final LongAdder pingsSent = new LongAdder();
+    private final LongAdder reapedSessions = new LongAdder();
+
+    // 时间轮：槽位数覆盖一个 ping 间隔，所有调度延迟都不超过一圈
+    private List<Set<SessionOutbox>> wheel;
+    private long pingIntervalNanos;
+    private long idleTimeoutNanos;
+    // 当前刻度，只由时间轮线程推进
+    private volatile long currentTick;
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void init() {
+        initWheel();
+        ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ws-heartbeat-"));
+        ticker.scheduleAtFixedRate(() -> tick(System.nanoTime()), tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("WebSocket心跳: ping间隔 {}s, 空闲超时 {}s, 时间轮 {} 槽 x {}ms",
+                pingIntervalSeconds, TimeUnit.NANOSECONDS.toSeconds(idleTimeoutNanos), wheel.size(), tickMs);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    void initWheel() {
+        pingIntervalNanos = TimeUnit.SECONDS.toNanos(pingIntervalSeconds);
+        idleTimeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(idleTimeoutSeconds, pingIntervalSeconds + 1));
+        int slots = (int) ((TimeUnit.NANOSECONDS.toMillis(pingIntervalNanos) + tickMs - 1) / tickMs) + 1;
+        wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * 开始跟踪新会话（会话结束后在下次检查时自动移出时间轮）
+     */
+    public void register(SessionOutbox outbox) {
+        schedule(outbox, pingIntervalNanos);
+    }
+
+    /**
+     * 推进一个刻度，处理到期槽位上的会话
+     */
+    void tick(long now) {
+        try {
+            long tick = currentTick + 1;
+            currentTick = tick;
+            Iterator<SessionOutbox> it = wheel.get((int) (tick % wheel.size())).iterator();
+            while (it.hasNext()) {
+                SessionOutbox outbox = it.next();
+                it.remove();
+                check(outbox, now);
+            }
+        } catch (RuntimeException e) {
+            log.error("心跳检查失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void check(SessionOutbox outbox, long now) {
+        if (outbox.isClosed() || !outbox.getSession().isOpen()) {
+            return;
+        }
+        long idle = now - outbox.getLastActivityNanos();
+        if (idle >= idleTimeoutNanos) {
+            reapedSessions.increment();
+            log.info("会话 {} 已空闲 {}s，判定为僵死连接并关闭",
+                    outbox.getSession().getId(), TimeUnit.NANOSECONDS.toSeconds(idle));
+            outbox.closeAsync(IDLE_TIMEOUT);
+            return;
+        }
+        if (idle >= pingIntervalNanos) {
+            if (outbox.offerPing()) {
+                pingsSent.increment();
+            }
+            schedule(outbox, Math.min(pingIntervalNanos, idleTimeoutNanos - idle));
+        } else {
+            schedule(outbox, pingIntervalNanos - idle);
+        }
+    }
+
+    private void schedule(SessionOutbox outbox, long delayNanos) {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        long ticks = Math.max(1, Math.min((delayNanos + tickNanos - 1) / tickNanos, wheel.size() - 1));
+        wheel.get((int) ((currentTick + ticks) % wheel.size())).add(outbox);
+    }
+
+    /**
+     * 心跳统计
+     */
+    public HeartbeatStatsDTO getStats() {
+        long tracked = 0;
+        for (Set<SessionOutbox> slot : wheel) {
+            tracked += slot.size();
+        }
+        return HeartbeatStatsDTO.builder()
+                .trackedSessions(tracked)
+                .pingsSent(pingsSent.sum())
+                .reapedSessions(reapedSessions.sum())
+                .pingIntervalSeconds(pingIntervalSeconds)
+                .idleTimeoutSeconds(TimeUnit.NANOSECONDS.toSeconds(idleTimeoutNanos))
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.xima.app.websocket;
+
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 并发安全且带发送计时的会话装饰器
+ * 多线程同时发送时由父类串行化并施加发送时长/缓冲区上限，本类额外统计阻塞在发送上的时间
+ */
+public class MeteredSessionDecorator extends ConcurrentWebSocketSessionDecorator {
+
+    private final LongAdder sendCount = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final AtomicLong maxBlockedNanos = new AtomicLong();
+
+    public MeteredSessionDecorator(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit) {
+        super(delegate, sendTimeLimit, bufferSizeLimit);
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        long start = System.nanoTime();
+        try {
+            super.sendMessage(message);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            sendCount.increment();
+            blockedNanos.add(elapsed);
+            maxBlockedNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    /**
+     * 发送次数
+     */
+    public long getSendCount() {
+        return sendCount.sum();
+    }
+
+    /**
+     * 累计阻塞在发送上的时间（毫秒）
+     */
+    public long getBlockedTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(blockedNanos.sum());
+    }
+
+    /**
+     * 单次发送最长阻塞时间（毫秒）
+     */
+    public long getMaxBlockedTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxBlockedNanos.get());
+    }
+}
@@ -0,0 +1,107 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.dto.websocket.OfflineChunkDTO;
+import com.xima.app.service.MessageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 离线消息推送器
+ * 连接建立后按消息ID游标分块推送离线消息，每个会话同时只有一块在途：
+ * 客户端确认后才标记该块为已送达并推送下一块，内存占用与离线消息总量无关；
+ * 未确认的块保持未送达状态，下次连接时重新推送
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OfflineMessagePusher {
+
+    // 会话属性：在途分块
+    static final String PENDING_CHUNK_ATTRIBUTE = "offlineChunk";
+
+    private final MessageService messageService;
+    private final WebSocketSessionManager sessionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.websocket.offline.chunk-size:100}")
+    private int chunkSize;
+
+    /**
+     * 连接建立后推送第一块
+     */
+    public void start(WebSocketSession session, String username, Long userId) {
+        sendChunk(session, username, userId, 0L);
+    }
+
+    /**
+     * 客户端确认收到分块：标记送达并推送下一块
+     */
+    public void onAck(WebSocketSession session, String username, Long userId, Long cursor) {
+        Object attribute = session.getAttributes().get(PENDING_CHUNK_ATTRIBUTE);
+        if (!(attribute instanceof PendingChunk)) {
+            return;
+        }
+        PendingChunk pending = (PendingChunk) attribute;
+        if (cursor == null || pending.cursor != cursor) {
+            log.debug("用户 {} 的离线分块确认不匹配: 期望 {}, 实际 {}", username, pending.cursor, cursor);
+            return;
+        }
+        session.getAttributes().remove(PENDING_CHUNK_ATTRIBUTE);
+        messageService.markDelivered(userId, pending.messageIds);
+        if (pending.hasMore) {
+            sendChunk(session, username, userId, pending.cursor);
+        }
+    }
+
+    private void sendChunk(WebSocketSession session, String username, Long userId, Long afterId) {
+        try {
+            // 多取一条判断是否还有下一块
+            List<ChatMessageDTO> messages = messageService.getOfflineMessagesAfter(userId, afterId, chunkSize + 1);
+            if (messages.isEmpty()) {
+                return;
+            }
+            boolean hasMore = messages.size() > chunkSize;
+            if (hasMore) {
+                messages = messages.subList(0, chunkSize);
+            }
+            List<Long> messageIds = new ArrayList<>(messages.size());
+            for (ChatMessageDTO message : messages) {
+                messageIds.add(message.getId());
+            }
+            long cursor = messageIds.get(messageIds.size() - 1);
+
+            OfflineChunkDTO chunk = OfflineChunkDTO.builder()
+                    .type(ChatMessageDTO.MessageType.OFFLINE)
+                    .cursor(cursor)
+                    .hasMore(hasMore)
+                    .messages(messages)
+                    .build();
+            session.getAttributes().put(PENDING_CHUNK_ATTRIBUTE, new PendingChunk(cursor, messageIds, hasMore));
+            if (!sessionManager.sendMessage(username, objectMapper.writeValueAsString(chunk))) {
+                session.getAttributes().remove(PENDING_CHUNK_ATTRIBUTE);
+            }
+        } catch (Exception e) {
+            log.error("推送用户 {} 的离线消息失败: {}", username, e.getMessage());
+        }
+    }
+
+    private static final class PendingChunk {
+        private final long cursor;
+        private final List<Long> messageIds;
+        private final boolean hasMore;
+
+        private PendingChunk(long cursor, List<Long> messageIds, boolean hasMore) {
+            this.cursor = cursor;
+            this.messageIds = messageIds;
+            this.hasMore = hasMore;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.xima.app.websocket;
+
+/**
+ * 出站队列溢出策略
+ */
+public enum OverflowPolicy {
+    DROP_THEN_CLOSE,    // 先丢弃可丢弃帧，仍然放不下则断开连接
+    CLOSE,              // 队列满直接断开连接
+    DROP                // 队列满丢弃新帧，从不断开
+}
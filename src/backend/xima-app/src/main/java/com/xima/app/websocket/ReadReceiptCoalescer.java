@@ -0,0 +1,131 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.service.ConversationService;
+import com.xima.app.sync.InboxEvent;
+import com.xima.app.sync.InboxLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已读回执合并器
+ * 已读回执表示"读到会话中的某条消息为止"，同一会话在一个时间窗口内的多次回执只保留最大的消息ID，
+ * 窗口结束时用一条范围UPDATE落库，写入对方收件箱并给对方推送一帧精简的 READ_RECEIPT
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReadReceiptCoalescer {
+
+    private final ConversationService conversationService;
+    private final WebSocketSessionManager sessionManager;
+    private final InboxLog inboxLog;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.websocket.read-receipt.window-ms:200}")
+    private long windowMs;
+
+    // (读者, 对方) -> 已读到的最大消息ID
+    private final Map<ConversationKey, Long> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("read-receipt-"));
+        scheduler.scheduleWithFixedDelay(this::flush, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    /**
+     * 记录用户已读到与对方会话中的某条消息
+     */
+    public void submit(Long readerId, Long peerId, Long upToMessageId) {
+        pending.merge(new ConversationKey(readerId, peerId), upToMessageId, Math::max);
+    }
+
+    /**
+     * 落库并推送当前窗口内合并后的回执
+     */
+    void flush() {
+        for (ConversationKey key : pending.keySet()) {
+            Long upTo = pending.remove(key);
+            if (upTo == null) {
+                continue;
+            }
+            try {
+                int updated = conversationService.markPrivateAsReadUpTo(key.readerId, key.peerId, upTo);
+                if (updated > 0) {
+                    notifyPeer(key, upTo);
+                }
+            } catch (Exception e) {
+                log.error("处理已读回执失败: reader={}, peer={}, upTo={}: {}",
+                        key.readerId, key.peerId, upTo, e.getMessage());
+            }
+        }
+    }
+
+    private void notifyPeer(ConversationKey key, Long upTo) throws Exception {
+        inboxLog.append(Collections.singletonList(key.peerId), InboxEvent.builder()
+                .type(ChatMessageDTO.MessageType.READ_RECEIPT)
+                .id(upTo)
+                .peerId(key.readerId)
+                .build());
+
+        ChatMessageDTO receipt = ChatMessageDTO.builder()
+                .type(ChatMessageDTO.MessageType.READ_RECEIPT)
+                .id(upTo)
+                .senderId(key.readerId)
+                .receiverId(key.peerId)
+                .timestamp(LocalDateTime.now())
+                .build();
+        sessionManager.sendToUser(key.peerId, objectMapper.writeValueAsString(receipt));
+    }
+
+    private static final class ConversationKey {
+        private final long readerId;
+        private final long peerId;
+
+        private ConversationKey(long readerId, long peerId) {
+            this.readerId = readerId;
+            this.peerId = peerId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ConversationKey)) {
+                return false;
+            }
+            ConversationKey that = (ConversationKey) o;
+            return readerId == that.readerId && peerId == that.peerId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(readerId, peerId);
+        }
+    }
+}
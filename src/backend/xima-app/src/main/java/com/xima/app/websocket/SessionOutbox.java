@@ -0,0 +1,249 @@
+package com.xima.app.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+/**
+ * 会话出站队列
+ * 每个会话一个有界队列，由写线程池串行排空，调用方只负责入队，
+ * 慢客户端只会堆积自己的队列，不会阻塞发送方线程或其他会话的投递
+ */
+@Slf4j
+public class SessionOutbox {
+
+    // 单次排空最多发送的帧数，超过后让出写线程，避免一个会话长期占用
+    private static final int DRAIN_BATCH = 64;
+
+    private static final PingMessage PING = new PingMessage();
+
+    private final String username;
+    private final WebSocketSession session;
+    private final Executor writer;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    // 以下字段由 this 保护
+    private final Deque<Frame> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closed;
+    private long droppedFrames;
+
+    // 最近一次收到客户端数据（消息或pong）的时间
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    public SessionOutbox(String username, WebSocketSession session, Executor writer, int capacity,
+                         OverflowPolicy overflowPolicy) {
+        this.username = username;
+        this.session = session;
+        this.writer = writer;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * 入队一帧，返回是否被接受
+     */
+    public boolean offer(TextMessage message, FramePriority priority) {
+        return enqueue(new Frame(message, priority, null));
+    }
+
+    /**
+     * 入队一个ping（可丢弃：队列满说明还有数据在写，不需要再探测）
+     */
+    public boolean offerPing() {
+        return enqueue(new Frame(PING, FramePriority.DROPPABLE, null));
+    }
+
+    /**
+     * 入队最后一帧，发送完成后关闭会话（用于踢下线等场景）
+     */
+    public boolean offerAndClose(TextMessage message, CloseStatus status) {
+        return enqueue(new Frame(message, FramePriority.NORMAL, status));
+    }
+
+    private boolean enqueue(Frame frame) {
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (queue.size() >= capacity && !makeRoom(frame)) {
+                return false;
+            }
+            queue.addLast(frame);
+            if (frame.closeStatus != null) {
+                closed = true;
+            }
+            if (draining) {
+                return true;
+            }
+            draining = true;
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * 队列已满时按溢出策略腾出空间，返回新帧能否入队
+     */
+    private boolean makeRoom(Frame incoming) {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            droppedFrames++;
+            return false;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP_THEN_CLOSE) {
+            if (incoming.priority == FramePriority.DROPPABLE) {
+                droppedFrames++;
+                return false;
+            }
+            Iterator<Frame> it = queue.iterator();
+            while (it.hasNext()) {
+                if (it.next().priority == FramePriority.DROPPABLE) {
+                    it.remove();
+                    droppedFrames++;
+                    return true;
+                }
+            }
+        }
+        // 没有可丢弃的帧，消费者跟不上，断开连接
+        log.warn("会话 {} 出站队列已满({})，断开连接", session.getId(), capacity);
+        droppedFrames += queue.size() + 1;
+        queue.clear();
+        closed = true;
+        writer.execute(() -> closeQuietly(CloseStatus.SESSION_NOT_RELIABLE));
+        return false;
+    }
+
+    private void scheduleDrain() {
+        try {
+            writer.execute(this::drain);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                draining = false;
+            }
+            log.error("调度出站写任务失败: {}", e.getMessage());
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Frame frame;
+            synchronized (this) {
+                frame = queue.pollFirst();
+                if (frame == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            if (!write(frame)) {
+                return;
+            }
+        }
+        // 还有积压，重新排队让其他会话有机会写出
+        scheduleDrain();
+    }
+
+    private boolean write(Frame frame) {
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(frame.message);
+            }
+            if (frame.closeStatus != null) {
+                closeQuietly(frame.closeStatus);
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("发送消息失败: {}", e.getMessage());
+            synchronized (this) {
+                closed = true;
+                droppedFrames += queue.size();
+                queue.clear();
+                draining = false;
+            }
+            closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+            return false;
+        }
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (Exception e) {
+            log.debug("关闭会话失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 丢弃剩余帧并在写线程上关闭会话，不阻塞调用方（用于清理僵死连接）
+     */
+    public void closeAsync(CloseStatus status) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            droppedFrames += queue.size();
+            queue.clear();
+        }
+        writer.execute(() -> closeQuietly(status));
+    }
+
+    /**
+     * 收到客户端数据时调用
+     */
+    public void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    public long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 会话结束时调用，丢弃剩余帧
+     */
+    public synchronized void shutdown() {
+        closed = true;
+        queue.clear();
+    }
+
+    public synchronized int getQueuedFrames() {
+        return queue.size();
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    private static final class Frame {
+        private final WebSocketMessage<?> message;
+        private final FramePriority priority;
+        private final CloseStatus closeStatus;
+
+        private Frame(WebSocketMessage<?> message, FramePriority priority, CloseStatus closeStatus) {
+            this.message = message;
+            this.priority = priority;
+            this.closeStatus = closeStatus;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.xima.app.websocket;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 本节点的用户会话表：用户ID -> 会话出站队列
+ * 按用户ID哈希分段，每段是以 long 为键的开放寻址表（线性探测，删除时回移），
+ * 键不装箱、没有 Entry 节点；读取走 StampedLock 乐观读，只有与写入冲突时才加读锁
+ */
+public final class UserSessionRegistry {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public UserSessionRegistry() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public SessionOutbox get(long userId) {
+        long hash = hash(userId);
+        return segmentFor(hash).get(userId, (int) hash);
+    }
+
+    public boolean containsKey(long userId) {
+        return get(userId) != null;
+    }
+
+    /**
+     * 登记用户的会话，返回之前的会话（没有则为null）
+     */
+    public SessionOutbox put(long userId, SessionOutbox outbox) {
+        long hash = hash(userId);
+        return segmentFor(hash).put(userId, (int) hash, outbox);
+    }
+
+    public SessionOutbox remove(long userId) {
+        long hash = hash(userId);
+        return segmentFor(hash).remove(userId, (int) hash, null);
+    }
+
+    /**
+     * 仅当用户的会话仍是 outbox 时移除
+     */
+    public boolean remove(long userId, SessionOutbox outbox) {
+        long hash = hash(userId);
+        return segmentFor(hash).remove(userId, (int) hash, outbox) != null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * 当前所有用户ID的快照
+     */
+    public long[] keys() {
+        long[] keys = new long[size()];
+        int count = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                Table table = segment.table;
+                for (int slot = 0; slot < table.values.length; slot++) {
+                    if (table.values[slot] != null) {
+                        if (count == keys.length) {
+                            keys = Arrays.copyOf(keys, Math.max(16, keys.length * 2));
+                        }
+                        keys[count++] = table.keys[slot];
+                    }
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return count == keys.length ? keys : Arrays.copyOf(keys, count);
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    private static long hash(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * 键和值放在同一个对象里，扩容时整体替换，乐观读不会读到长度不一致的两个数组
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final SessionOutbox[] values;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new SessionOutbox[capacity];
+        }
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private Table table = new Table(INITIAL_CAPACITY);
+        private volatile int size;
+
+        private SessionOutbox get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            SessionOutbox value = find(table, key, hash);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    value = find(table, key, hash);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+
+        private SessionOutbox put(long key, int hash, SessionOutbox value) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int mask = t.values.length - 1;
+                int slot = hash & mask;
+                while (t.values[slot] != null) {
+                    if (t.keys[slot] == key) {
+                        SessionOutbox previous = t.values[slot];
+                        t.values[slot] = value;
+                        return previous;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                t.keys[slot] = key;
+                t.values[slot] = value;
+                size++;
+                // 负载因子不超过 0.5，探测链保持很短
+                if (size * 2 > t.values.length) {
+                    table = resize(t);
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private SessionOutbox remove(long key, int hash, SessionOutbox expected) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int mask = t.values.length - 1;
+                int slot = hash & mask;
+                while (t.values[slot] != null) {
+                    if (t.keys[slot] == key) {
+                        SessionOutbox previous = t.values[slot];
+                        if (expected != null && previous != expected) {
+                            return null;
+                        }
+                        delete(t, slot);
+                        size--;
+                        return previous;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private static SessionOutbox find(Table t, long key, int hash) {
+            long[] keys = t.keys;
+            SessionOutbox[] values = t.values;
+            int mask = values.length - 1;
+            int slot = hash & mask;
+            // 乐观读期间表可能正被修改，探测次数以容量为上限
+            for (int probes = 0; probes <= mask; probes++) {
+                SessionOutbox value = values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * 删除后把探测链上后面的元素回移填洞，不使用墓碑
+         */
+        private static void delete(Table t, int slot) {
+            int mask = t.values.length - 1;
+            int hole = slot;
+            for (int i = (slot + 1) & mask; t.values[i] != null; i = (i + 1) & mask) {
+                int home = (int) hash(t.keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    t.keys[hole] = t.keys[i];
+                    t.values[hole] = t.values[i];
+                    hole = i;
+                }
+            }
+            t.keys[hole] = 0;
+            t.values[hole] = null;
+        }
+
+        private static Table resize(Table old) {
+            Table t = new Table(old.values.length * 2);
+            int mask = t.values.length - 1;
+            for (int i = 0; i < old.values.length; i++) {
+                if (old.values[i] != null) {
+                    int slot = (int) hash(old.keys[i]) & mask;
+                    while (t.values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    t.keys[slot] = old.keys[i];
+                    t.values[slot] = old.values[i];
+                }
+            }
+            return t;
+        }
+    }
+}
@@ -1,89 +1,277 @@
 package com.xima.app.websocket;
 
+import com.xima.app.dto.websocket.SessionStatsDTO;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
 
-import java.io.IOException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * WebSocket会话管理器
+ * 会话保存在本节点内存中；启用集群路由时，发给不在本节点的用户的帧经 {@link ClusterRouter} 转发到其所在节点
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class WebSocketSessionManager {
 
-    // 用户名 -> WebSocket会话
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    
-    // 用户ID -> 用户名
-    private final Map<Long, String> userIdToUsername = new ConcurrentHashMap<>();
+    // Tomcat阻塞发送超时属性
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    // 用户名 -> 会话出站队列
+    private final Map<String, SessionOutbox> sessions = new ConcurrentHashMap<>();
+
+    // 用户ID -> 会话出站队列（绑定用户ID后登记，按用户ID投递时不再经过用户名）
+    private final UserSessionRegistry localUsers = new UserSessionRegistry();
+
+    private final ClusterRouter clusterRouter;
+    private final HeartbeatMonitor heartbeatMonitor;
+
+    @Value("${app.websocket.outbound.queue-capacity:512}")
+    private int queueCapacity;
+
+    @Value("${app.websocket.outbound.writer-threads:0}")
+    private int writerThreads;
+
+    @Value("${app.websocket.outbound.overflow-policy:DROP_THEN_CLOSE}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${app.websocket.send-time-limit:10000}")
+    private int sendTimeLimit;
+
+    @Value("${app.websocket.buffer-size-limit:524288}")
+    private int bufferSizeLimit;
+
+    // 出站写线程池，所有会话共享
+    private ExecutorService writerPool;
+
+    @PostConstruct
+    public void init() {
+        int threads = writerThreads > 0 ? writerThreads : Runtime.getRuntime().availableProcessors() * 2;
+        writerPool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("ws-writer-"));
+        log.info("WebSocket出站写线程数: {}, 队列容量: {}, 溢出策略: {}", threads, queueCapacity, overflowPolicy);
+        clusterRouter.setReceiver(this::onClusterFrame);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writerPool.shutdownNow();
+    }
 
     /**
      * 添加会话（如果已有旧会话，先踢出）
      */
-    public WebSocketSession addSession(String username, WebSocketSession session) {
-        WebSocketSession oldSession = sessions.put(username, session);
+    public SessionOutbox addSession(String username, WebSocketSession session) {
+        applyBlockingSendTimeout(session);
+        MeteredSessionDecorator decorated = new MeteredSessionDecorator(session, sendTimeLimit, bufferSizeLimit);
+        SessionOutbox outbox = new SessionOutbox(username, decorated, writerPool, queueCapacity, overflowPolicy);
+        SessionOutbox oldOutbox = sessions.put(username, outbox);
+        heartbeatMonitor.register(outbox);
         log.info("用户 {} 已连接, 当前在线用户数: {}", username, sessions.size());
-        return oldSession; // 返回旧会话，由调用者处理踢出逻辑
+        return oldOutbox; // 返回旧会话，由调用者处理踢出逻辑
     }
 
     /**
-     * 移除会话
+     * 移除会话（仅当仍是当前会话时移除，避免旧设备断开时误删新会话）
      */
-    public void removeSession(String username) {
-        sessions.remove(username);
+    public boolean removeSession(String username, WebSocketSession session) {
+        SessionOutbox outbox = sessions.get(username);
+        if (outbox == null || !outbox.getSession().getId().equals(session.getId())
+                || !sessions.remove(username, outbox)) {
+            return false;
+        }
+        outbox.shutdown();
         log.info("用户 {} 已断开, 当前在线用户数: {}", username, sessions.size());
+        return true;
+    }
+
+    /**
+     * 底层容器的阻塞发送超时与发送时长上限保持一致，避免写线程被僵死连接长期占用
+     */
+    private void applyBlockingSendTimeout(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession) {
+            Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
+            if (nativeSession != null) {
+                nativeSession.getUserProperties().put(BLOCKING_SEND_TIMEOUT, (long) sendTimeLimit);
+            }
+        }
+    }
+
+    /**
+     * 收到客户端数据（消息或pong），刷新会话的活跃时间
+     */
+    public void touch(String username, WebSocketSession session) {
+        SessionOutbox outbox = sessions.get(username);
+        if (outbox != null && outbox.getSession().getId().equals(session.getId())) {
+            outbox.touch();
+        }
     }
 
     /**
      * 获取会话
      */
     public WebSocketSession getSession(String username) {
-        return sessions.get(username);
+        SessionOutbox outbox = sessions.get(username);
+        return outbox != null ? outbox.getSession() : null;
     }
 
     /**
      * 检查用户是否在线
      */
     public boolean isOnline(String username) {
-        WebSocketSession session = sessions.get(username);
+        WebSocketSession session = getSession(username);
         return session != null && session.isOpen();
     }
 
     /**
-     * 发送消息给指定用户
+     * 发送消息给指定用户（异步入队，不阻塞调用线程）
      */
     public boolean sendMessage(String username, String message) {
-        WebSocketSession session = sessions.get(username);
-        if (session != null && session.isOpen()) {
+        return sendMessage(username, message, FramePriority.NORMAL);
+    }
+
+    /**
+     * 按优先级发送消息给指定用户
+     */
+    public boolean sendMessage(String username, String message, FramePriority priority) {
+        SessionOutbox outbox = sessions.get(username);
+        if (outbox != null && outbox.getSession().isOpen()) {
+            return outbox.offer(new TextMessage(message), priority);
+        }
+        return false;
+    }
+
+    /**
+     * 发送已编码的帧给指定用户（同一帧可在多个会话间共享）
+     */
+    public boolean sendMessage(String username, TextMessage frame) {
+        SessionOutbox outbox = sessions.get(username);
+        if (outbox != null && outbox.getSession().isOpen()) {
+            return outbox.offer(frame, FramePriority.NORMAL);
+        }
+        return false;
+    }
+
+    /**
+     * 按用户ID发送消息：用户在本节点时直接入队，否则转发到其所在节点；返回是否投递或转发成功
+     */
+    public boolean sendToUser(Long userId, String message) {
+        return sendToUser(userId, message, FramePriority.NORMAL);
+    }
+
+    /**
+     * 按用户ID和优先级发送消息
+     */
+    public boolean sendToUser(Long userId, String message, FramePriority priority) {
+        SessionOutbox outbox = localUsers.get(userId);
+        if (outbox != null) {
+            return outbox.getSession().isOpen() && outbox.offer(new TextMessage(message), priority);
+        }
+        return clusterRouter.forward(userId, message, priority);
+    }
+
+    /**
+     * 按用户ID发送已编码的帧
+     */
+    public boolean sendToUser(Long userId, TextMessage frame) {
+        SessionOutbox outbox = localUsers.get(userId);
+        if (outbox != null) {
+            return outbox.getSession().isOpen() && outbox.offer(frame, FramePriority.NORMAL);
+        }
+        return clusterRouter.forward(userId, frame.getPayload(), FramePriority.NORMAL);
+    }
+
+    /**
+     * 把帧转发给一组用户中不在本节点的那些（本节点的由调用方直接投递），返回转发的用户数
+     */
+    public int forwardToRemote(long[] userIds, TextMessage frame) {
+        if (!clusterRouter.isEnabled()) {
+            return 0;
+        }
+        List<Long> remote = new ArrayList<>();
+        for (long userId : userIds) {
+            if (!localUsers.containsKey(userId)) {
+                remote.add(userId);
+            }
+        }
+        return clusterRouter.forward(remote, frame.getPayload(), FramePriority.NORMAL);
+    }
+
+    /**
+     * 发送最后一条消息后关闭会话
+     */
+    public void sendAndClose(SessionOutbox outbox, String message, CloseStatus status) {
+        if (!outbox.offerAndClose(new TextMessage(message), status)) {
             try {
-                session.sendMessage(new org.springframework.web.socket.TextMessage(message));
-                return true;
-            } catch (IOException e) {
-                log.error("发送消息失败: {}", e.getMessage());
+                outbox.getSession().close(status);
+            } catch (Exception e) {
+                log.debug("关闭会话失败: {}", e.getMessage());
             }
         }
-        return false;
     }
 
     /**
      * 广播消息给所有在线用户
      */
     public void broadcast(String message) {
-        sessions.values().forEach(session -> {
-            if (session.isOpen()) {
-                try {
-                    session.sendMessage(new org.springframework.web.socket.TextMessage(message));
-                } catch (IOException e) {
-                    log.error("广播消息失败: {}", e.getMessage());
-                }
+        TextMessage frame = new TextMessage(message);
+        sessions.values().forEach(outbox -> {
+            if (outbox.getSession().isOpen()) {
+                outbox.offer(frame, FramePriority.NORMAL);
             }
         });
     }
 
+    /**
+     * 批量解析一组用户中在线会话的出站队列
+     */
+    public List<SessionOutbox> getOnlineOutboxes(long[] userIds) {
+        List<SessionOutbox> result = new ArrayList<>(Math.min(userIds.length, sessions.size()));
+        for (long userId : userIds) {
+            SessionOutbox outbox = localUsers.get(userId);
+            if (outbox != null && outbox.getSession().isOpen()) {
+                result.add(outbox);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取所有会话的发送统计
+     */
+    public List<SessionStatsDTO> getSessionStats() {
+        List<SessionStatsDTO> stats = new ArrayList<>();
+        sessions.forEach((username, outbox) -> {
+            MeteredSessionDecorator session = (MeteredSessionDecorator) outbox.getSession();
+            stats.add(SessionStatsDTO.builder()
+                    .username(username)
+                    .sessionId(session.getId())
+                    .sendCount(session.getSendCount())
+                    .blockedTimeMillis(session.getBlockedTimeMillis())
+                    .maxBlockedTimeMillis(session.getMaxBlockedTimeMillis())
+                    .bufferSize(session.getBufferSize())
+                    .queuedFrames(outbox.getQueuedFrames())
+                    .droppedFrames(outbox.getDroppedFrames())
+                    .build());
+        });
+        return stats;
+    }
+
     /**
      * 获取在线用户数
      */
@@ -92,23 +280,84 @@ public class WebSocketSessionManager {
     }
 
     /**
-     * 绑定用户ID和用户名
+     * 绑定用户ID和用户名，返回用户之前连接所在的其他节点（没有则为null）
+     */
+    public String bindUserId(Long userId, String username) {
+        SessionOutbox outbox = sessions.get(username);
+        if (outbox != null) {
+            localUsers.put(userId, outbox);
+        }
+        return clusterRouter.claim(userId);
+    }
+
+    /**
+     * 通知用户之前所在的节点发送踢出通知并关闭旧会话
      */
-    public void bindUserId(Long userId, String username) {
-        userIdToUsername.put(userId, username);
+    public void kickRemote(String node, Long userId, String message) {
+        clusterRouter.kick(node, userId, message);
+    }
+
+    /**
+     * 本节点上有连接的用户ID（快照）
+     */
+    public long[] getLocalUserIds() {
+        return localUsers.keys();
+    }
+
+    /**
+     * 用户是否连接在本节点
+     */
+    public boolean isLocal(Long userId) {
+        return localUsers.containsKey(userId);
     }
 
     /**
      * 根据用户ID获取用户名
      */
     public String getUsernameByUserId(Long userId) {
-        return userIdToUsername.get(userId);
+        SessionOutbox outbox = localUsers.get(userId);
+        return outbox != null ? outbox.getUsername() : null;
     }
 
     /**
      * 解绑用户ID
      */
     public void unbindUserId(Long userId) {
-        userIdToUsername.remove(userId);
+        localUsers.remove(userId);
+        clusterRouter.release(userId);
+    }
+
+    /**
+     * 处理其他节点转发来的帧，只投递到本节点的会话，不再继续转发
+     */
+    private void onClusterFrame(ClusterFrame frame) {
+        if (frame.getKind() == ClusterFrame.Kind.KICK) {
+            for (Long userId : frame.getUserIds()) {
+                kickLocal(userId, frame.getPayload());
+            }
+            return;
+        }
+        TextMessage message = new TextMessage(frame.getPayload());
+        FramePriority priority = frame.getPriority() != null ? frame.getPriority() : FramePriority.NORMAL;
+        for (Long userId : frame.getUserIds()) {
+            SessionOutbox outbox = localUsers.get(userId);
+            if (outbox != null && outbox.getSession().isOpen()) {
+                outbox.offer(message, priority);
+            }
+        }
+    }
+
+    /**
+     * 用户已在其他节点登录：先移出本节点的会话表（关闭时不再走下线流程），再发送踢出通知并关闭
+     */
+    private void kickLocal(Long userId, String message) {
+        SessionOutbox outbox = localUsers.remove(userId);
+        if (outbox == null) {
+            return;
+        }
+        sessions.remove(outbox.getUsername(), outbox);
+        clusterRouter.release(userId);
+        log.info("用户 {} 已在其他节点登录，关闭本节点的旧会话", outbox.getUsername());
+        sendAndClose(outbox, message, CloseStatus.NORMAL);
     }
 }
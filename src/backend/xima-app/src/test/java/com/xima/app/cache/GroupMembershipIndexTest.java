@@ -0,0 +1,207 @@
+package com.xima.app.cache;
+
+import com.xima.app.entity.GroupMember;
+import com.xima.app.mapper.GroupMemberMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * GroupMembershipIndex 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class GroupMembershipIndexTest {
+
+    @Mock
+    private GroupMemberMapper groupMemberMapper;
+
+    @Mock
+    private TwoTierCacheManager cacheManager;
+
+    private GroupMembershipIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new GroupMembershipIndex(groupMemberMapper, cacheManager);
+        ReflectionTestUtils.setField(index, "ttlSeconds", 300L);
+        lenient().when(groupMemberMapper.findByGroupId(1L)).thenReturn(Arrays.asList(
+                member(1L, GroupMember.MemberRole.OWNER, false),
+                member(2L, GroupMember.MemberRole.ADMIN, false),
+                member(3L, GroupMember.MemberRole.MEMBER, true)));
+    }
+
+    @Test
+    @DisplayName("懒加载一次，之后的成员、角色、禁言校验不访问数据库")
+    void get_LoadsOnce() {
+        // When
+        GroupMembershipIndex.Members members = index.get(1L);
+        index.isMember(1L, 2L);
+        index.getMemberIds(1L);
+
+        // Then
+        verify(groupMemberMapper, times(1)).findByGroupId(1L);
+        assertTrue(members.contains(1L));
+        assertFalse(members.contains(99L));
+        assertEquals(GroupMember.MemberRole.OWNER, members.getRole(1L));
+        assertEquals(GroupMember.MemberRole.ADMIN, members.getRole(2L));
+        assertEquals(GroupMember.MemberRole.MEMBER, members.getRole(3L));
+        assertNull(members.getRole(99L));
+        assertTrue(members.isManager(2L));
+        assertFalse(members.isManager(3L));
+        assertTrue(members.isMuted(3L));
+        assertEquals(Arrays.asList(1L, 2L, 3L), members.getMemberIds());
+    }
+
+    @Test
+    @DisplayName("变更以写时复制方式应用，已取得的旧快照不受影响")
+    void mutations_CopyOnWrite() {
+        // Given
+        GroupMembershipIndex.Members before = index.get(1L);
+
+        // When
+        index.removeMember(1L, 2L);
+        index.addMembers(1L, Arrays.asList(4L, 4L, 1L));
+        index.setMuted(1L, 3L, false);
+        index.setRole(1L, 4L, GroupMember.MemberRole.ADMIN);
+
+        // Then
+        GroupMembershipIndex.Members after = index.get(1L);
+        assertEquals(Arrays.asList(1L, 3L, 4L), after.getMemberIds());
+        assertFalse(after.contains(2L));
+        assertFalse(after.isMuted(3L));
+        assertEquals(GroupMember.MemberRole.OWNER, after.getRole(1L));
+        assertEquals(GroupMember.MemberRole.ADMIN, after.getRole(4L));
+        assertEquals(Arrays.asList(1L, 2L, 3L), before.getMemberIds());
+        assertTrue(before.isMuted(3L));
+        verify(groupMemberMapper, times(1)).findByGroupId(1L);
+    }
+
+    @Test
+    @DisplayName("事务中的变更在提交后才生效")
+    void mutations_AppliedAfterCommit() {
+        // Given
+        index.get(1L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            index.addMembers(1L, List.of(5L));
+
+            // Then：提交前不可见
+            assertFalse(index.isMember(1L, 5L));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            assertTrue(index.isMember(1L, 5L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("变更提交后通知其他节点，收到其他节点的通知时丢弃快照")
+    @SuppressWarnings("unchecked")
+    void invalidation_CrossNode() {
+        // Given
+        ArgumentCaptor<Consumer<Object>> listener = ArgumentCaptor.forClass(Consumer.class);
+        index.init();
+        verify(cacheManager).addInvalidationListener(eq(GroupMembershipIndex.INVALIDATION_NAME), listener.capture());
+        index.get(1L);
+
+        // When
+        index.setMuted(1L, 3L, false);
+        index.evict(2L);
+        listener.getValue().accept(1L);
+        index.get(1L);
+
+        // Then
+        verify(cacheManager).publishInvalidation(GroupMembershipIndex.INVALIDATION_NAME, 1L);
+        verify(cacheManager).publishInvalidation(GroupMembershipIndex.INVALIDATION_NAME, 2L);
+        verify(groupMemberMapper, times(2)).findByGroupId(1L);
+    }
+
+    @Test
+    @DisplayName("快照过期后重新加载，本地变更不延长过期时间")
+    void get_ReloadsAfterTtl() {
+        // Given
+        ReflectionTestUtils.setField(index, "ttlSeconds", 0L);
+        index.get(1L);
+        index.get(1L);
+        verify(groupMemberMapper, times(1)).findByGroupId(1L);
+
+        // When：过期时间设为1秒并把快照加载时间拨回
+        ReflectionTestUtils.setField(index, "ttlSeconds", 1L);
+        index.setMuted(1L, 3L, false);
+        Object snapshot = ((Map<?, ?>) ReflectionTestUtils.getField(index, "groups")).get(1L);
+        ReflectionTestUtils.setField(snapshot, "loadedAt", System.currentTimeMillis() - 2000);
+        GroupMembershipIndex.Members reloaded = index.get(1L);
+
+        // Then
+        verify(groupMemberMapper, times(2)).findByGroupId(1L);
+        assertTrue(reloaded.isMuted(3L));
+    }
+
+    @Test
+    @DisplayName("加载期间发生变更时不放入索引")
+    void get_ChangeDuringLoadNotCached() {
+        // Given：加载过程中提交了一次变更
+        when(groupMemberMapper.findByGroupId(1L)).thenAnswer(invocation -> {
+            index.evict(9L);
+            return List.of(member(1L, GroupMember.MemberRole.OWNER, false));
+        });
+
+        // When
+        index.get(1L);
+        index.get(1L);
+
+        // Then
+        verify(groupMemberMapper, times(2)).findByGroupId(1L);
+    }
+
+    @Test
+    @DisplayName("大群成员查找")
+    void members_LargeGroup() {
+        // Given
+        List<GroupMember> list = new ArrayList<>();
+        for (long userId = 1000; userId < 6000; userId++) {
+            list.add(member(userId, GroupMember.MemberRole.MEMBER, userId % 7 == 0));
+        }
+
+        // When
+        GroupMembershipIndex.Members members = GroupMembershipIndex.Members.of(list);
+
+        // Then
+        assertEquals(5000, members.size());
+        for (long userId = 1000; userId < 6000; userId++) {
+            assertTrue(members.contains(userId));
+            assertEquals(userId % 7 == 0, members.isMuted(userId));
+        }
+        assertFalse(members.contains(999L));
+        assertFalse(members.contains(6000L));
+        assertFalse(members.contains(null));
+    }
+
+    private static GroupMember member(Long userId, GroupMember.MemberRole role, boolean muted) {
+        GroupMember member = new GroupMember();
+        member.setGroupId(1L);
+        member.setUserId(userId);
+        member.setRole(role);
+        member.setMuted(muted);
+        return member;
+    }
+}
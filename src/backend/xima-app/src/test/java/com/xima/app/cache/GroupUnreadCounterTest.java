@@ -0,0 +1,171 @@
+package com.xima.app.cache;
+
+import com.xima.app.entity.GroupMessage;
+import com.xima.app.mapper.GroupMessageMapper;
+import com.xima.app.mapper.GroupMessageReadMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * GroupUnreadCounter 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class GroupUnreadCounterTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private GroupMessageMapper groupMessageMapper;
+
+    @Mock
+    private GroupMessageReadMapper groupMessageReadMapper;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private GroupUnreadCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new GroupUnreadCounter(redisTemplate, groupMessageMapper, groupMessageReadMapper);
+        ReflectionTestUtils.setField(counter, "ttlHours", 72L);
+    }
+
+    @Test
+    @DisplayName("批次内按群合并增量，并带上顺延的过期时间")
+    @SuppressWarnings("unchecked")
+    void onMessagesSaved_IncrementsPerGroup() {
+        // When
+        counter.onMessagesSaved(Arrays.asList(message(10L), message(20L), message(10L)));
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("xima:unread:group:10", "xima:unread:pending:10", "xima:unread:group:20", "xima:unread:pending:20")),
+                eq("2"), eq("1"), eq("259200"));
+    }
+
+    @Test
+    @DisplayName("标记已读时Redis不可用不影响调用方")
+    @SuppressWarnings("unchecked")
+    void markRead_RedisUnavailable() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // When & Then
+        assertDoesNotThrow(() -> counter.markRead(10L, 1L));
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("xima:unread:group:10", "xima:unread:read:1")), eq("10"), eq("259200"));
+    }
+
+    @Test
+    @DisplayName("首次查询时登记暂存键后从数据库初始化，统计期间的增量由脚本一并计入")
+    @SuppressWarnings("unchecked")
+    void getUnreadCounts_InitializesWithPendingIncrements() {
+        // Given：累计数和已读数都未初始化，统计期间又提交了2条
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(valueOperations.multiGet(List.of("xima:unread:group:10"))).thenReturn(Collections.singletonList(null));
+        when(hashOperations.multiGet("xima:unread:read:1", List.of("10"))).thenReturn(Collections.singletonList(null));
+        when(valueOperations.setIfAbsent(eq("xima:unread:pending:10"), eq("0"), any(Duration.class))).thenReturn(true);
+        when(groupMessageMapper.countByGroupId(10L)).thenReturn(5L);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("xima:unread:group:10", "xima:unread:pending:10")),
+                eq("5"), eq("259200"))).thenReturn(7L);
+        when(groupMessageReadMapper.getLastReadMessageId(10L, 1L)).thenReturn(100L);
+        when(groupMessageMapper.countUnreadMessages(10L, 100L)).thenReturn(3);
+
+        // When
+        Map<Long, Integer> unread = counter.getUnreadCounts(1L, List.of(10L));
+
+        // Then：已读数按初始化后的累计数换算
+        assertEquals(Map.of(10L, 3), unread);
+        verify(hashOperations).putIfAbsent("xima:unread:read:1", "10", "4");
+    }
+
+    @Test
+    @DisplayName("其他线程正在初始化时不写累计数，直接使用数据库统计值")
+    void getUnreadCounts_ConcurrentInitialization() {
+        // Given
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(valueOperations.multiGet(List.of("xima:unread:group:10"))).thenReturn(Collections.singletonList(null));
+        when(hashOperations.multiGet("xima:unread:read:1", List.of("10"))).thenReturn(List.of("4"));
+        when(valueOperations.setIfAbsent(eq("xima:unread:pending:10"), eq("0"), any(Duration.class))).thenReturn(false);
+        when(groupMessageMapper.countByGroupId(10L)).thenReturn(6L);
+        when(valueOperations.get("xima:unread:group:10")).thenReturn(null);
+
+        // When
+        Map<Long, Integer> unread = counter.getUnreadCounts(1L, List.of(10L));
+
+        // Then
+        assertEquals(Map.of(10L, 2), unread);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any());
+    }
+
+    @Test
+    @DisplayName("退群后删除已读数，重新加入时对齐到当前累计数，离开期间的消息不算未读")
+    @SuppressWarnings("unchecked")
+    void leaveThenRejoin_NoStaleUnread() {
+        // Given：Redis中群累计5条，用户已全部读完
+        Map<String, String> counts = new HashMap<>(Map.of("xima:unread:group:10", "5"));
+        Map<Object, Object> reads = new HashMap<>(Map.of("10", "5"));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.delete("xima:unread:read:1", "10")).thenAnswer(invocation -> {
+            reads.remove("10");
+            return 1L;
+        });
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("xima:unread:group:10", "xima:unread:read:1")),
+                eq("10"), eq("259200"))).thenAnswer(invocation -> {
+            reads.put("10", counts.get("xima:unread:group:10"));
+            return Long.parseLong(counts.get("xima:unread:group:10"));
+        });
+        when(valueOperations.multiGet(List.of("xima:unread:group:10")))
+                .thenAnswer(invocation -> Collections.singletonList(counts.get("xima:unread:group:10")));
+        when(hashOperations.multiGet("xima:unread:read:1", List.of("10")))
+                .thenAnswer(invocation -> Collections.singletonList(reads.get("10")));
+
+        // When：退群，离开期间群里又发了4条，重新加入（加入的系统消息再计1条）
+        counter.onMemberLeft(10L, 1L);
+        assertFalse(reads.containsKey("10"));
+        counts.put("xima:unread:group:10", "10");
+        counter.onMembersJoined(10L, List.of(1L));
+
+        // Then
+        assertEquals(Map.of(), counter.getUnreadCounts(1L, List.of(10L)));
+        counts.put("xima:unread:group:10", "11");
+        assertEquals(Map.of(10L, 1), counter.getUnreadCounts(1L, List.of(10L)));
+        verifyNoInteractions(groupMessageMapper, groupMessageReadMapper);
+    }
+
+    private static GroupMessage message(Long groupId) {
+        GroupMessage message = new GroupMessage();
+        message.setGroupId(groupId);
+        return message;
+    }
+}
@@ -0,0 +1,131 @@
+package com.xima.app.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TwoTierCache / TwoTierCacheManager 单元测试
+ * 二级缓存用 ConcurrentMapCache 代替 Redis，失效通知记录在列表中
+ */
+class TwoTierCacheTest {
+
+    private final List<Object[]> published = new ArrayList<>();
+    private ConcurrentMapCache remote;
+    private TwoTierCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCache("users", false);
+        cache = new TwoTierCache("users", Caffeine.newBuilder().maximumSize(100).recordStats().build(), remote,
+                (name, key) -> published.add(new Object[]{name, key}));
+    }
+
+    @Test
+    @DisplayName("回源填充写入两级缓存，不发布失效通知")
+    void put_FillsWithoutPublishing() {
+        // When
+        cache.put(1L, "alice");
+
+        // Then
+        assertEquals("alice", cache.getLocalCache().getIfPresent(1L));
+        assertEquals("alice", remote.get(1L).get());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    @DisplayName("本地未命中时读Redis并回填本地；get(key, loader)只加载一次且不发布通知")
+    void get_ReadsThrough() {
+        // Given
+        remote.put(1L, "alice");
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        Object fromRemote = cache.get(1L).get();
+        String loaded = cache.get(2L, () -> "bob-" + loads.incrementAndGet());
+        String cached = cache.get(2L, () -> "bob-" + loads.incrementAndGet());
+
+        // Then
+        assertEquals("alice", fromRemote);
+        assertEquals("alice", cache.getLocalCache().getIfPresent(1L));
+        assertEquals("bob-1", loaded);
+        assertEquals("bob-1", cached);
+        assertEquals("bob-1", remote.get(2L).get());
+        assertEquals(1, cache.getRemoteHits());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    @DisplayName("失效和清空删除两级缓存并发布通知，清空时key为null")
+    void evictAndClear_Publish() {
+        // Given
+        cache.put(1L, "alice");
+        cache.put(2L, "bob");
+
+        // When
+        cache.evict(1L);
+
+        // Then
+        assertNull(cache.getLocalCache().getIfPresent(1L));
+        assertNull(remote.get(1L));
+        assertEquals(1, published.size());
+        assertArrayEquals(new Object[]{"users", 1L}, published.get(0));
+
+        // When
+        cache.clear();
+
+        // Then
+        assertNull(cache.getLocalCache().getIfPresent(2L));
+        assertNull(remote.get(2L));
+        assertEquals(2, published.size());
+        assertArrayEquals(new Object[]{"users", null}, published.get(1));
+    }
+
+    @Test
+    @DisplayName("收到其他节点的失效通知时只丢弃本地副本；自己发出的通知忽略")
+    void manager_ReceivesInvalidation() {
+        // Given
+        TwoTierCacheManager manager = new TwoTierCacheManager(Arrays.asList("users", "groups"), 100,
+                Duration.ofMinutes(5), Duration.ofMinutes(30), null);
+        TwoTierCache users = (TwoTierCache) manager.getCache("users");
+        users.put(1L, "alice");
+        users.put(2L, "bob");
+        List<Object> received = new ArrayList<>();
+        manager.addInvalidationListener("group-members", received::add);
+        String self = (String) ReflectionTestUtils.getField(manager, "nodeId");
+
+        // When
+        receive(manager, new CacheInvalidation(self, "users", 2L));
+        receive(manager, new CacheInvalidation("other", "users", 1L));
+        receive(manager, new CacheInvalidation("other", "group-members", 10L));
+        receive(manager, new CacheInvalidation("other", "unknown", 1L));
+
+        // Then
+        assertNull(users.getLocalCache().getIfPresent(1L));
+        assertEquals("bob", users.getLocalCache().getIfPresent(2L));
+        assertEquals(List.of(10L), received);
+
+        // When：清空通知
+        receive(manager, new CacheInvalidation("other", "users", null));
+
+        // Then
+        assertNull(users.getLocalCache().getIfPresent(2L));
+    }
+
+    private static void receive(TwoTierCacheManager manager, CacheInvalidation invalidation) {
+        byte[] body = new JdkSerializationRedisSerializer().serialize(invalidation);
+        ReflectionTestUtils.invokeMethod(manager, "onInvalidation", (Object) body);
+    }
+}
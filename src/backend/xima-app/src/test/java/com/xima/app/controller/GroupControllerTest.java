@@ -252,6 +252,22 @@ class GroupControllerTest {
                 .andExpect(jsonPath("$.data[0].content").value("Hello Group!"));
     }
 
+    @Test
+    @DisplayName("获取群聊天记录 - 游标分页")
+    @WithUserDetails("testuser")
+    void getMessages_BeforeId() throws Exception {
+        // Given
+        List<GroupMessageDTO> messages = Arrays.asList(testMessage);
+        when(groupService.getMessagesBefore(eq(1L), anyLong(), eq(100L), eq(50))).thenReturn(messages);
+
+        // When & Then
+        mockMvc.perform(get("/v1/groups/1/messages")
+                        .param("beforeId", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data[0].content").value("Hello Group!"));
+    }
+
     @Test
     @DisplayName("发送群消息 - 成功")
     @WithUserDetails("testuser")
@@ -20,6 +20,7 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -89,7 +90,7 @@ class MessageControllerTest {
     @WithUserDetails("testuser")
     void getChatHistory_Empty() throws Exception {
         // Given
-        when(messageService.getChatHistory(anyLong(), anyLong(), anyInt(), anyInt()))
+        when(messageService.getChatHistoryBefore(anyLong(), anyLong(), isNull(), anyInt()))
                 .thenReturn(Collections.emptyList());
 
         // When & Then
@@ -100,6 +101,24 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.data").isEmpty());
     }
 
+    @Test
+    @DisplayName("获取聊天历史 - 游标分页")
+    @WithUserDetails("testuser")
+    void getChatHistory_Before() throws Exception {
+        // Given
+        List<ChatMessageDTO> messages = Arrays.asList(testMessage);
+        when(messageService.getChatHistoryBefore(anyLong(), eq(2L), eq(100L), eq(20))).thenReturn(messages);
+
+        // When & Then
+        mockMvc.perform(get("/v1/messages/history/2")
+                        .param("before", "100")
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data[0].content").value("Hello!"));
+        verify(messageService, never()).getChatHistory(anyLong(), anyLong(), anyInt(), anyInt());
+    }
+
     @Test
     @DisplayName("获取离线消息 - 成功")
     @WithUserDetails("testuser")
@@ -120,14 +139,14 @@ class MessageControllerTest {
     @WithUserDetails("testuser")
     void markAsRead_Success() throws Exception {
         // Given
-        doNothing().when(messageService).markAsRead(1L);
+        doNothing().when(messageService).markAsRead(anyLong(), eq(1L));
 
         // When & Then
         mockMvc.perform(post("/v1/messages/1/read"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(200));
 
-        verify(messageService).markAsRead(1L);
+        verify(messageService).markAsRead(anyLong(), eq(1L));
     }
 
     @Test
@@ -144,6 +163,20 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.data").value(5));
     }
 
+    @Test
+    @DisplayName("批量获取未读消息数 - 成功")
+    @WithUserDetails("testuser")
+    void getUnreadCounts_Success() throws Exception {
+        // Given
+        when(messageService.getUnreadCounts(anyLong())).thenReturn(Map.of(2L, 5L));
+
+        // When & Then
+        mockMvc.perform(get("/v1/messages/unread/counts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data['2']").value(5));
+    }
+
     @Test
     @DisplayName("删除消息 - 成功")
     @WithUserDetails("testuser")
@@ -177,6 +210,23 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.data[0].content").value("Hello!"));
     }
 
+    @Test
+    @DisplayName("搜索消息 - 游标翻页")
+    @WithUserDetails("testuser")
+    void searchMessages_Cursor() throws Exception {
+        // Given
+        when(messageService.searchAllMessagesAfter(anyLong(), eq("Hello"), eq("L_1.0_1_1"), eq(20)))
+                .thenReturn(Arrays.asList(testSearchMessage));
+
+        // When & Then
+        mockMvc.perform(get("/v1/messages/search")
+                        .param("keyword", "Hello")
+                        .param("cursor", "L_1.0_1_1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data[0].content").value("Hello!"));
+    }
+
     @Test
     @DisplayName("未认证访问 - 拒绝")
     void unauthenticated_AccessDenied() throws Exception {
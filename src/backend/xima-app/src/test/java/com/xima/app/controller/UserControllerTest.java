@@ -75,7 +75,7 @@ class UserControllerTest {
     void searchUsers_Success() throws Exception {
         // Given
         List<UserDTO> users = Arrays.asList(testUserDTO);
-        when(userService.searchUsers(anyString())).thenReturn(users);
+        when(userService.searchUsers(anyString(), anyInt())).thenReturn(users);
 
         // When & Then
         mockMvc.perform(get("/v1/users/search")
@@ -92,7 +92,7 @@ class UserControllerTest {
     void getAllUsers_AdminAccess() throws Exception {
         // Given
         List<UserDTO> users = Arrays.asList(testUserDTO);
-        when(userService.getAllUsers()).thenReturn(users);
+        when(userService.getAllUsers(anyInt(), anyInt())).thenReturn(users);
 
         // When & Then
         mockMvc.perform(get("/v1/users"))
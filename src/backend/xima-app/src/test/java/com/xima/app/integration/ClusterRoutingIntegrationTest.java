@@ -0,0 +1,149 @@
+package com.xima.app.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.websocket.ClusterRouter;
+import com.xima.app.websocket.FramePriority;
+import com.xima.app.websocket.HeartbeatMonitor;
+import com.xima.app.websocket.OverflowPolicy;
+import com.xima.app.websocket.WebSocketSessionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 集群路由集成测试
+ * 两个节点共用一个本地 Redis（localhost:6379），验证连接在不同节点上的用户之间的投递和跨节点踢出
+ */
+@Disabled("需要本地Redis，手动运行: mvn test -Dtest=ClusterRoutingIntegrationTest")
+class ClusterRoutingIntegrationTest {
+
+    private static final long TIMEOUT_MS = 3000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LettuceConnectionFactory connectionFactory;
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        nodeA = new Node("node-a", redisTemplate, objectMapper);
+        nodeB = new Node("node-b", redisTemplate, objectMapper);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nodeA.destroy();
+        nodeB.destroy();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    @DisplayName("发给连接在其他节点的用户的消息由该节点投递")
+    void sendToUser_DeliversAcrossNodes() throws Exception {
+        // Given：用户1连接在A，用户2连接在B
+        WebSocketSession alice = nodeA.connect(1L, "alice");
+        WebSocketSession bob = nodeB.connect(2L, "bob");
+
+        // When：A上的用户1发消息给用户2
+        nodeA.sessionManager.sendToUser(2L, "{\"type\":\"CHAT\",\"content\":\"hi\"}");
+
+        // Then
+        verify(bob, timeout(TIMEOUT_MS)).sendMessage(argThat(message ->
+                ((TextMessage) message).getPayload().contains("\"content\":\"hi\"")));
+        verify(alice, never()).sendMessage(any());
+    }
+
+    @Test
+    @DisplayName("群消息扇出时其他节点上的成员收到一次转发")
+    void forwardToRemote_DeliversToRemoteMembers() throws Exception {
+        // Given
+        nodeA.connect(1L, "alice");
+        WebSocketSession bob = nodeB.connect(2L, "bob");
+        WebSocketSession carol = nodeB.connect(3L, "carol");
+
+        // When
+        nodeA.sessionManager.forwardToRemote(new long[]{1L, 2L, 3L}, new TextMessage("{\"type\":\"GROUP_CHAT\"}"));
+
+        // Then
+        verify(bob, timeout(TIMEOUT_MS)).sendMessage(any());
+        verify(carol, timeout(TIMEOUT_MS)).sendMessage(any());
+    }
+
+    @Test
+    @DisplayName("用户在另一个节点登录后，旧节点收到通知并关闭旧会话")
+    void bindUserId_KicksPreviousNode() throws Exception {
+        // Given：用户1先连接在A
+        WebSocketSession oldSession = nodeA.connect(1L, "alice");
+
+        // When：用户1又连接到B
+        WebSocketSession newSession = mockSession("alice-b");
+        nodeB.sessionManager.addSession("alice", newSession);
+        String previousNode = nodeB.sessionManager.bindUserId(1L, "alice");
+        nodeB.sessionManager.kickRemote(previousNode, 1L, "{\"type\":\"KICK\"}");
+
+        // Then：旧会话关闭，之后发给用户1的消息投递到B
+        verify(oldSession, timeout(TIMEOUT_MS)).close(any(CloseStatus.class));
+        nodeA.sessionManager.sendToUser(1L, "{\"type\":\"CHAT\"}", FramePriority.NORMAL);
+        verify(newSession, timeout(TIMEOUT_MS)).sendMessage(any());
+    }
+
+    private static WebSocketSession mockSession(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    /**
+     * 一个节点：独立的会话管理器和集群路由，共用同一个 Redis
+     */
+    private static final class Node {
+        private final ClusterRouter router;
+        private final WebSocketSessionManager sessionManager;
+
+        private Node(String nodeId, StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+            router = new ClusterRouter(redisTemplate, objectMapper);
+            ReflectionTestUtils.setField(router, "enabled", true);
+            ReflectionTestUtils.setField(router, "configuredNodeId", nodeId);
+            ReflectionTestUtils.setField(router, "routeTtlSeconds", 90L);
+            router.init();
+
+            sessionManager = new WebSocketSessionManager(router, mock(HeartbeatMonitor.class));
+            ReflectionTestUtils.setField(sessionManager, "queueCapacity", 512);
+            ReflectionTestUtils.setField(sessionManager, "overflowPolicy", OverflowPolicy.DROP_THEN_CLOSE);
+            ReflectionTestUtils.setField(sessionManager, "sendTimeLimit", 10_000);
+            ReflectionTestUtils.setField(sessionManager, "bufferSizeLimit", 512 * 1024);
+            sessionManager.init();
+        }
+
+        private WebSocketSession connect(Long userId, String username) {
+            WebSocketSession session = mockSession(username);
+            sessionManager.addSession(username, session);
+            sessionManager.bindUserId(userId, username);
+            return session;
+        }
+
+        private void destroy() throws Exception {
+            sessionManager.unbindUserId(1L);
+            sessionManager.unbindUserId(2L);
+            sessionManager.unbindUserId(3L);
+            sessionManager.destroy();
+            router.destroy();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.xima.app.performance;
+
+import com.xima.app.config.ApplicationStartupRunner;
+import com.xima.app.config.TestRedisConfig;
+import com.xima.app.entity.Message;
+import com.xima.app.mapper.MessageMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 私聊历史分页基准测试
+ * 一个100万条消息的会话，对比偏移分页与游标分页在第1页和第10000页的查询耗时
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.username=benchmark@xima.com",
+        // 关闭H2对相同查询结果的复用，否则重复执行的偏移查询直接命中结果缓存
+        "spring.datasource.url=jdbc:h2:mem:testdb;MODE=MySQL;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE"
+})
+@ActiveProfiles("test")
+@Import(TestRedisConfig.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Disabled("性能基准，手动运行: mvn test -Dtest=ChatHistoryPaginationBenchmarkTest")
+class ChatHistoryPaginationBenchmarkTest {
+
+    private static final long USER_A = 1L;
+    private static final long USER_B = 2L;
+    private static final int TOTAL_MESSAGES = 1_000_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private MessageMapper messageMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 启动时重置用户状态依赖 user 表，基准只建 message 表
+    @MockBean
+    private ApplicationStartupRunner applicationStartupRunner;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS message");
+        jdbcTemplate.execute("CREATE TABLE message (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "sender_id BIGINT NOT NULL, " +
+                "receiver_id BIGINT NOT NULL, " +
+                "content TEXT, " +
+                "content_type VARCHAR(20) DEFAULT 'TEXT', " +
+                "status VARCHAR(20) DEFAULT 'SENT', " +
+                "recalled BOOLEAN DEFAULT FALSE, " +
+                "create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        jdbcTemplate.execute("CREATE INDEX idx_conversation ON message (sender_id, receiver_id, create_time)");
+        jdbcTemplate.execute("CREATE INDEX idx_conversation_id ON message (sender_id, receiver_id, id DESC)");
+        // 双方交替发言，ID与发送时间同序
+        jdbcTemplate.execute("INSERT INTO message (id, sender_id, receiver_id, content, create_time) " +
+                "SELECT X, CASE WHEN MOD(X, 2) = 0 THEN " + USER_A + " ELSE " + USER_B + " END, " +
+                "CASE WHEN MOD(X, 2) = 0 THEN " + USER_B + " ELSE " + USER_A + " END, " +
+                "CONCAT('消息 ', X), DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00') " +
+                "FROM SYSTEM_RANGE(1, " + TOTAL_MESSAGES + ")");
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("基准 - 偏移分页 vs 游标分页（第1页 / 第10000页）")
+    void offset_vs_cursor() {
+        // 偏移分页按旧接口从最早一条往后翻，第N页偏移 (N-1)*size
+        int offsetFirst = 0;
+        int offsetDeep = (DEEP_PAGE - 1) * PAGE_SIZE;
+        // 游标分页从最新一条往前翻，第N页的beforeId为第N-1页最早一条的ID
+        long cursorFirst = Long.MAX_VALUE;
+        long cursorDeep = TOTAL_MESSAGES - (long) (DEEP_PAGE - 1) * PAGE_SIZE + 1;
+
+        // 结果一致性：游标第N页与按偏移从末尾倒数第N页是同一批消息
+        int lastPage = TOTAL_MESSAGES / PAGE_SIZE;
+        assertEquals(ids(messageMapper.findChatHistory(USER_A, USER_B, (lastPage - DEEP_PAGE) * PAGE_SIZE, PAGE_SIZE)),
+                reversedIds(messageMapper.findChatHistoryBefore(USER_A, USER_B, cursorDeep, PAGE_SIZE)));
+        assertEquals(ids(messageMapper.findChatHistory(USER_A, USER_B, (lastPage - 1) * PAGE_SIZE, PAGE_SIZE)),
+                reversedIds(messageMapper.findChatHistoryBefore(USER_A, USER_B, cursorFirst, PAGE_SIZE)));
+
+        double offsetFirstMs = median(() -> messageMapper.findChatHistory(USER_A, USER_B, offsetFirst, PAGE_SIZE));
+        double offsetDeepMs = median(() -> messageMapper.findChatHistory(USER_A, USER_B, offsetDeep, PAGE_SIZE));
+        double cursorFirstMs = median(() -> messageMapper.findChatHistoryBefore(USER_A, USER_B, cursorFirst, PAGE_SIZE));
+        double cursorDeepMs = median(() -> messageMapper.findChatHistoryBefore(USER_A, USER_B, cursorDeep, PAGE_SIZE));
+
+        System.out.println("=== 私聊历史分页基准（" + TOTAL_MESSAGES + "条消息，每页" + PAGE_SIZE + "条，取" + ROUNDS + "次中位数） ===");
+        System.out.printf("偏移分页: 第1页 %.2f ms, 第%d页 %.2f ms%n", offsetFirstMs, DEEP_PAGE, offsetDeepMs);
+        System.out.printf("游标分页: 第1页 %.2f ms, 第%d页 %.2f ms%n", cursorFirstMs, DEEP_PAGE, cursorDeepMs);
+    }
+
+    private double median(Supplier<List<Message>> query) {
+        // 预热
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+        double[] samples = new double[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            List<Message> page = query.get();
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+            assertEquals(PAGE_SIZE, page.size());
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+
+    private List<Long> ids(List<Message> messages) {
+        List<Long> ids = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+
+    private List<Long> reversedIds(List<Message> messages) {
+        List<Long> ids = ids(messages);
+        Collections.reverse(ids);
+        return ids;
+    }
+}
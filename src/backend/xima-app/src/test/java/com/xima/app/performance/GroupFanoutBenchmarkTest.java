@@ -0,0 +1,170 @@
+package com.xima.app.performance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.entity.MessageContentType;
+import com.xima.app.websocket.ClusterRouter;
+import com.xima.app.websocket.GroupFanoutEngine;
+import com.xima.app.websocket.HeartbeatMonitor;
+import com.xima.app.websocket.OverflowPolicy;
+import com.xima.app.websocket.WebSocketSessionManager;
+import org.junit.jupiter.api.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 群消息扇出基准测试
+ * 对比逐成员查找+逐成员构造帧（旧实现）与一次编码+批量解析+共享帧入队（扇出引擎）
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Disabled("性能基准，手动运行: mvn test -Dtest=GroupFanoutBenchmarkTest")
+class GroupFanoutBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final AtomicLong delivered = new AtomicLong();
+
+    private WebSocketSessionManager sessionManager;
+    private GroupFanoutEngine fanoutEngine;
+
+    @BeforeEach
+    void setUp() {
+        // 单节点：集群路由未启用，不跟踪心跳
+        sessionManager = new WebSocketSessionManager(new ClusterRouter(null, objectMapper), mock(HeartbeatMonitor.class));
+        ReflectionTestUtils.setField(sessionManager, "queueCapacity", 100_000);
+        ReflectionTestUtils.setField(sessionManager, "overflowPolicy", OverflowPolicy.DROP);
+        ReflectionTestUtils.setField(sessionManager, "sendTimeLimit", 10_000);
+        ReflectionTestUtils.setField(sessionManager, "bufferSizeLimit", 512 * 1024);
+        sessionManager.init();
+
+        fanoutEngine = new GroupFanoutEngine(sessionManager, objectMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionManager.destroy();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("基准 - 200人群")
+    void fanout_200Members() throws Exception {
+        runBenchmark(200);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("基准 - 2000人群")
+    void fanout_2000Members() throws Exception {
+        runBenchmark(2000);
+    }
+
+    private void runBenchmark(int memberCount) throws Exception {
+        long[] memberIds = registerMembers(memberCount);
+        ChatMessageDTO message = ChatMessageDTO.builder()
+                .id(1L)
+                .type(ChatMessageDTO.MessageType.GROUP_CHAT)
+                .senderId(1L)
+                .senderName("sender")
+                .groupId(1L)
+                .content("性能测试群消息内容")
+                .contentType(MessageContentType.TEXT)
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            legacyFanout(memberIds, message);
+            fanoutEngine.fanout(memberIds, message);
+        }
+        awaitDelivered((long) WARMUP_ROUNDS * memberCount * 2);
+
+        long[] legacy = measure(memberIds, memberCount, () -> legacyFanout(memberIds, message));
+        long[] engine = measure(memberIds, memberCount, () -> fanoutEngine.fanout(memberIds, message));
+
+        System.out.println("=== 群消息扇出基准（" + memberCount + "人，" + MEASURE_ROUNDS + "轮） ===");
+        System.out.printf("旧实现  调用方耗时: %.1f μs/条, 全部送达: %.1f μs/条%n",
+                legacy[0] / 1000.0 / MEASURE_ROUNDS, legacy[1] / 1000.0 / MEASURE_ROUNDS);
+        System.out.printf("扇出引擎 调用方耗时: %.1f μs/条, 全部送达: %.1f μs/条%n",
+                engine[0] / 1000.0 / MEASURE_ROUNDS, engine[1] / 1000.0 / MEASURE_ROUNDS);
+
+        assertEquals((long) (WARMUP_ROUNDS * 2 + MEASURE_ROUNDS * 2) * memberCount, delivered.get());
+    }
+
+    /**
+     * 返回 {调用方耗时, 全部送达耗时}，单位纳秒
+     */
+    private long[] measure(long[] memberIds, int memberCount, ThrowingRunnable action) throws Exception {
+        long expected = delivered.get() + (long) MEASURE_ROUNDS * memberCount;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            action.run();
+        }
+        long dispatched = System.nanoTime() - start;
+        awaitDelivered(expected);
+        return new long[]{dispatched, System.nanoTime() - start};
+    }
+
+    /**
+     * 原 handleGroupChatMessage 的投递方式：逐成员两次查表，每个成员构造一个新帧
+     */
+    private void legacyFanout(long[] memberIds, ChatMessageDTO message) throws Exception {
+        String messageJson = objectMapper.writeValueAsString(message);
+        for (long memberId : memberIds) {
+            String memberUsername = sessionManager.getUsernameByUserId(memberId);
+            if (memberUsername != null) {
+                sessionManager.sendMessage(memberUsername, messageJson);
+            }
+        }
+    }
+
+    private long[] registerMembers(int memberCount) throws Exception {
+        long[] memberIds = new long[memberCount];
+        for (long id = 1; id <= memberCount; id++) {
+            String sessionId = "s" + id;
+            WebSocketSession session = (WebSocketSession) Proxy.newProxyInstance(
+                    WebSocketSession.class.getClassLoader(), new Class<?>[]{WebSocketSession.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getId":
+                                return sessionId;
+                            case "isOpen":
+                                return true;
+                            case "sendMessage":
+                                delivered.incrementAndGet();
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+
+            String username = "user" + id;
+            sessionManager.addSession(username, session);
+            sessionManager.bindUserId(id, username);
+            memberIds[(int) id - 1] = id;
+        }
+        return memberIds;
+    }
+
+    private void awaitDelivered(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (delivered.get() < expected) {
+            assertTrue(System.currentTimeMillis() < deadline, "投递超时");
+            Thread.sleep(1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
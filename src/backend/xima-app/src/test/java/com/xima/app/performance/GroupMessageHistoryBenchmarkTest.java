@@ -0,0 +1,129 @@
+package com.xima.app.performance;
+
+import com.xima.app.config.ApplicationStartupRunner;
+import com.xima.app.config.TestRedisConfig;
+import com.xima.app.dto.group.GroupMessageDTO;
+import com.xima.app.service.GroupService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 群聊历史分页基准测试
+ * 1000人群、100万条消息，对比偏移分页（逐条关联用户、逐条查备注）与游标分页（批量填充）在第1页和第10000页的耗时
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.username=benchmark@xima.com",
+        // user 在H2 2.x中是关键字；同时关闭相同查询的结果复用
+        "spring.datasource.url=jdbc:h2:mem:testdb;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;OPTIMIZE_REUSE_RESULTS=FALSE"
+})
+@ActiveProfiles("test")
+@Import(TestRedisConfig.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Disabled("性能基准，手动运行: mvn test -Dtest=GroupMessageHistoryBenchmarkTest")
+class GroupMessageHistoryBenchmarkTest {
+
+    private static final long GROUP_ID = 1L;
+    private static final int MEMBERS = 1_000;
+    private static final int TOTAL_MESSAGES = 1_000_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int ROUNDS = 20;
+    // 查看记录的成员，与其余成员互为好友并都设置了备注
+    private static final long VIEWER = 1L;
+
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 启动时重置用户状态依赖完整的 user 表，基准只建用到的列
+    @MockBean
+    private ApplicationStartupRunner applicationStartupRunner;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS group_message");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS group_member");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS friendship");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS user");
+        jdbcTemplate.execute("CREATE TABLE user (id BIGINT PRIMARY KEY, username VARCHAR(50), nickname VARCHAR(50), " +
+                "avatar VARCHAR(255), status VARCHAR(20) DEFAULT 'OFFLINE', create_time TIMESTAMP, update_time TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE group_member (id BIGINT AUTO_INCREMENT PRIMARY KEY, group_id BIGINT, " +
+                "user_id BIGINT, muted BOOLEAN DEFAULT FALSE)");
+        jdbcTemplate.execute("CREATE INDEX idx_member_group_user ON group_member (group_id, user_id)");
+        jdbcTemplate.execute("CREATE TABLE friendship (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, " +
+                "friend_id BIGINT, status VARCHAR(20), remark VARCHAR(50), create_time TIMESTAMP, update_time TIMESTAMP)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX uk_user_friend ON friendship (user_id, friend_id)");
+        jdbcTemplate.execute("CREATE TABLE group_message (id BIGINT PRIMARY KEY, group_id BIGINT NOT NULL, " +
+                "sender_id BIGINT NOT NULL, content TEXT, content_type VARCHAR(20) DEFAULT 'TEXT', " +
+                "recalled BOOLEAN DEFAULT FALSE, create_time TIMESTAMP)");
+        jdbcTemplate.execute("CREATE INDEX idx_group_time ON group_message (group_id, create_time)");
+        jdbcTemplate.execute("CREATE INDEX idx_group_msg_id ON group_message (group_id, id DESC)");
+
+        jdbcTemplate.execute("INSERT INTO user (id, username, nickname) " +
+                "SELECT X, CONCAT('user', X), CONCAT('成员', X) FROM SYSTEM_RANGE(1, " + MEMBERS + ")");
+        jdbcTemplate.execute("INSERT INTO group_member (group_id, user_id) " +
+                "SELECT " + GROUP_ID + ", X FROM SYSTEM_RANGE(1, " + MEMBERS + ")");
+        jdbcTemplate.execute("INSERT INTO friendship (user_id, friend_id, status, remark) " +
+                "SELECT " + VIEWER + ", X, 'ACCEPTED', CONCAT('备注', X) FROM SYSTEM_RANGE(2, " + MEMBERS + ")");
+        // 消息按ID与发送时间同序，发送者轮流
+        jdbcTemplate.execute("INSERT INTO group_message (id, group_id, sender_id, content, create_time) " +
+                "SELECT X, " + GROUP_ID + ", MOD(X, " + MEMBERS + ") + 1, CONCAT('群消息 ', X), " +
+                "DATEADD('SECOND', X, TIMESTAMP '2021-01-01 00:00:00') FROM SYSTEM_RANGE(1, " + TOTAL_MESSAGES + ")");
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("基准 - 偏移分页 vs 游标分页（第1页 / 第10000页）")
+    void offset_vs_cursor() {
+        long cursorDeep = TOTAL_MESSAGES - (long) (DEEP_PAGE - 1) * PAGE_SIZE + 1;
+
+        // 结果一致性：两种方式的同一页内容、备注相同
+        List<GroupMessageDTO> expected = groupService.getMessages(GROUP_ID, VIEWER, DEEP_PAGE - 1, PAGE_SIZE);
+        List<GroupMessageDTO> actual = groupService.getMessagesBefore(GROUP_ID, VIEWER, cursorDeep, PAGE_SIZE);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getDisplayName(), actual.get(i).getDisplayName());
+        }
+
+        double offsetFirstMs = median(() -> groupService.getMessages(GROUP_ID, VIEWER, 0, PAGE_SIZE));
+        double offsetDeepMs = median(() -> groupService.getMessages(GROUP_ID, VIEWER, DEEP_PAGE - 1, PAGE_SIZE));
+        double cursorFirstMs = median(() -> groupService.getMessagesBefore(GROUP_ID, VIEWER, null, PAGE_SIZE));
+        double cursorDeepMs = median(() -> groupService.getMessagesBefore(GROUP_ID, VIEWER, cursorDeep, PAGE_SIZE));
+
+        System.out.println("=== 群聊历史分页基准（" + MEMBERS + "人群，" + TOTAL_MESSAGES + "条消息，每页" + PAGE_SIZE
+                + "条，取" + ROUNDS + "次中位数） ===");
+        System.out.printf("偏移分页: 第1页 %.2f ms, 第%d页 %.2f ms%n", offsetFirstMs, DEEP_PAGE, offsetDeepMs);
+        System.out.printf("游标分页: 第1页 %.2f ms, 第%d页 %.2f ms%n", cursorFirstMs, DEEP_PAGE, cursorDeepMs);
+    }
+
+    private double median(Supplier<List<GroupMessageDTO>> query) {
+        // 预热（同时让资料缓存和成员索引就绪）
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+        double[] samples = new double[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            List<GroupMessageDTO> page = query.get();
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+            assertEquals(PAGE_SIZE, page.size());
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+}
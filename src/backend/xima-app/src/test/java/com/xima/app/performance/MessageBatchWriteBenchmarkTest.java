@@ -0,0 +1,149 @@
+package com.xima.app.performance;
+
+import com.xima.app.config.ApplicationStartupRunner;
+import com.xima.app.config.TestRedisConfig;
+import com.xima.app.entity.Message;
+import com.xima.app.entity.MessageContentType;
+import com.xima.app.mapper.MessageMapper;
+import com.xima.app.persistence.MessageBatchWriter;
+import com.xima.app.persistence.SnowflakeIdGenerator;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 私聊消息写入基准测试
+ * 对比逐条插入（每条一次提交）与批量写缓冲区（多行插入、整批提交）在同一连接池上的持续写入吞吐
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.username=benchmark@xima.com"
+})
+@ActiveProfiles("test")
+@Import(TestRedisConfig.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Disabled("性能基准，手动运行: mvn test -Dtest=MessageBatchWriteBenchmarkTest（换成MySQL数据源时效果更明显）")
+class MessageBatchWriteBenchmarkTest {
+
+    private static final int SENDER_THREADS = 16;
+    private static final int MESSAGES_PER_THREAD = 2_000;
+
+    @Autowired
+    private MessageMapper messageMapper;
+
+    @Autowired
+    private MessageBatchWriter messageBatchWriter;
+
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 启动时重置用户状态依赖 user 表，基准只建 message 和 conversation 表
+    @MockBean
+    private ApplicationStartupRunner applicationStartupRunner;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS message");
+        jdbcTemplate.execute("CREATE TABLE message (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "sender_id BIGINT NOT NULL, " +
+                "receiver_id BIGINT NOT NULL, " +
+                "content TEXT, " +
+                "content_type VARCHAR(20) DEFAULT 'TEXT', " +
+                "status VARCHAR(20) DEFAULT 'SENT', " +
+                "recalled BOOLEAN DEFAULT FALSE, " +
+                "create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        // 批量写缓冲区在同一事务内更新会话摘要
+        jdbcTemplate.execute("DROP TABLE IF EXISTS conversation");
+        jdbcTemplate.execute("CREATE TABLE conversation (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "owner_id BIGINT NOT NULL, peer_id BIGINT NOT NULL, last_message_id BIGINT NOT NULL, " +
+                "last_sender_id BIGINT NOT NULL, last_message_preview VARCHAR(200), " +
+                "last_message_time TIMESTAMP NOT NULL, unread_count INT DEFAULT 0, update_time TIMESTAMP)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX uk_owner_peer ON conversation (owner_id, peer_id)");
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("基准 - 逐条插入 vs 批量写缓冲区")
+    void singleInsert_vs_batchWriter() throws Exception {
+        // 预热
+        runSingleInsert(SENDER_THREADS, 200);
+        runBatchWriter(SENDER_THREADS, 200);
+
+        double singleRate = runSingleInsert(SENDER_THREADS, MESSAGES_PER_THREAD);
+        double batchRate = runBatchWriter(SENDER_THREADS, MESSAGES_PER_THREAD);
+
+        System.out.println("=== 私聊消息写入基准（" + SENDER_THREADS + "个发送线程，每线程" + MESSAGES_PER_THREAD + "条） ===");
+        System.out.printf("逐条插入:     %.0f 条/秒%n", singleRate);
+        System.out.printf("批量写缓冲区: %.0f 条/秒 (%.1fx)%n", batchRate, batchRate / singleRate);
+
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message", Long.class);
+        assertEquals((long) SENDER_THREADS * (MESSAGES_PER_THREAD + 200) * 2, total);
+    }
+
+    /**
+     * 原 handleChatMessage 的写法：每条消息一条INSERT、一次提交（同样使用预分配ID，只比较提交方式）
+     */
+    private double runSingleInsert(int threads, int perThread) throws Exception {
+        return runConcurrently(threads, perThread, (sender, i) -> {
+            Message message = newMessage(sender, i);
+            message.setId(idGenerator.nextId());
+            message.setCreateTime(LocalDateTime.now());
+            messageMapper.batchInsert(Collections.singletonList(message));
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private double runBatchWriter(int threads, int perThread) throws Exception {
+        return runConcurrently(threads, perThread, (sender, i) -> messageBatchWriter.save(newMessage(sender, i)));
+    }
+
+    /**
+     * 每个线程模拟一个发送者连续发消息，返回从开始到全部提交的吞吐（条/秒）
+     */
+    private double runConcurrently(int threads, int perThread, Sender sender) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<CompletableFuture<?>>>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            long senderId = t + 1;
+            results.add(pool.submit(() -> {
+                List<CompletableFuture<?>> acks = new ArrayList<>(perThread);
+                for (int i = 0; i < perThread; i++) {
+                    acks.add(sender.send(senderId, i));
+                }
+                return acks;
+            }));
+        }
+        for (Future<List<CompletableFuture<?>>> result : results) {
+            CompletableFuture.allOf(result.get().toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return (double) threads * perThread / (elapsed / 1_000_000_000.0);
+    }
+
+    private Message newMessage(long senderId, int i) {
+        return new Message(senderId, senderId + 1000, "基准测试消息 " + i, MessageContentType.TEXT);
+    }
+
+    @FunctionalInterface
+    private interface Sender {
+        CompletableFuture<?> send(long senderId, int i) throws Exception;
+    }
+}
@@ -0,0 +1,167 @@
+package com.xima.app.performance;
+
+import com.xima.app.websocket.OverflowPolicy;
+import com.xima.app.websocket.SessionOutbox;
+import com.xima.app.websocket.UserSessionRegistry;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 会话表基准测试（10万在线用户）
+ * 对比原实现（用户ID -> 用户名 -> 出站队列，两次 ConcurrentHashMap 查找，键装箱）
+ * 与 UserSessionRegistry（long 键开放寻址表，一次查找）的查找吞吐和堆占用
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Disabled("性能基准，手动运行: mvn test -Dtest=SessionRegistryBenchmarkTest")
+public class SessionRegistryBenchmarkTest {
+
+    private static final int USERS = 100_000;
+    // 每次调用查找的用户数，模拟一次群扇出
+    private static final int LOOKUPS = 1024;
+
+    private Map<Long, String> userIdToUsername;
+    private Map<String, SessionOutbox> sessions;
+    private UserSessionRegistry registry;
+    private long[] lookupIds;
+
+    @Setup
+    public void setUp() {
+        SessionOutbox[] outboxes = createOutboxes();
+        userIdToUsername = new ConcurrentHashMap<>();
+        sessions = new ConcurrentHashMap<>();
+        registry = new UserSessionRegistry();
+        for (int i = 0; i < USERS; i++) {
+            long userId = i + 1;
+            userIdToUsername.put(userId, outboxes[i].getUsername());
+            sessions.put(outboxes[i].getUsername(), outboxes[i]);
+            registry.put(userId, outboxes[i]);
+        }
+        // 四分之一的ID不在线，覆盖未命中路径
+        lookupIds = new long[LOOKUPS];
+        long seed = 42;
+        for (int i = 0; i < LOOKUPS; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            lookupIds[i] = 1 + Math.floorMod(seed >>> 16, USERS + USERS / 3);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int legacyLookup() {
+        int found = 0;
+        for (long userId : lookupIds) {
+            String username = userIdToUsername.get(userId);
+            if (username != null && sessions.get(username) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int registryLookup() {
+        int found = 0;
+        for (long userId : lookupIds) {
+            if (registry.get(userId) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    @DisplayName("基准 - 查找吞吐（JMH）")
+    void lookupThroughput() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SessionRegistryBenchmarkTest.class.getSimpleName())
+                .build();
+        assertFalse(new Runner(options).run().isEmpty());
+    }
+
+    @Test
+    @DisplayName("基准 - 10万用户堆占用")
+    void heapFootprint() {
+        SessionOutbox[] outboxes = createOutboxes();
+
+        // 原实现中用户ID索引部分：ConcurrentHashMap<Long, String>（用户名 -> 会话表两种实现都保留）
+        long legacy = retainedBytes(() -> {
+            Map<Long, String> map = new ConcurrentHashMap<>();
+            for (int i = 0; i < USERS; i++) {
+                map.put((long) i + 1, outboxes[i].getUsername());
+            }
+            return map;
+        });
+        long primitive = retainedBytes(() -> {
+            UserSessionRegistry map = new UserSessionRegistry();
+            for (int i = 0; i < USERS; i++) {
+                map.put(i + 1, outboxes[i]);
+            }
+            return map;
+        });
+
+        System.out.println("=== 会话表堆占用（" + USERS + "个在线用户） ===");
+        System.out.printf("ConcurrentHashMap<Long, String>: %.2f MB%n", legacy / 1024.0 / 1024);
+        System.out.printf("UserSessionRegistry:             %.2f MB%n", primitive / 1024.0 / 1024);
+        assertTrue(primitive < legacy);
+    }
+
+    private static SessionOutbox[] createOutboxes() {
+        SessionOutbox[] outboxes = new SessionOutbox[USERS];
+        for (int i = 0; i < USERS; i++) {
+            outboxes[i] = new SessionOutbox("user" + (i + 1), null, Runnable::run, 16, OverflowPolicy.DROP);
+        }
+        return outboxes;
+    }
+
+    /**
+     * 构造结构前后各做几次GC，取已用堆的差值
+     */
+    private static long retainedBytes(Supplier<Object> factory) {
+        long before = usedHeap();
+        Object retained = factory.get();
+        long after = usedHeap();
+        assertNotNull(retained);
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
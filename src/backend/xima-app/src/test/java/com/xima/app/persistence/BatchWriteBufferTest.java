@@ -0,0 +1,187 @@
+package com.xima.app.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BatchWriteBuffer 单元测试
+ * 记录为 long[]{分区键, 序号}，批量写入逻辑只记录收到的批次
+ */
+class BatchWriteBufferTest {
+
+    private final List<List<long[]>> batches = Collections.synchronizedList(new ArrayList<>());
+    private BatchWriteBuffer<long[]> buffer;
+
+    @AfterEach
+    void tearDown() {
+        if (buffer != null) {
+            buffer.shutdown(1_000);
+        }
+    }
+
+    @Test
+    @DisplayName("攒够批次大小时整批写入，提交后完成各自的Future")
+    void submit_FlushesFullBatch() throws Exception {
+        // Given：刷写间隔足够长，只有攒满才会写入
+        CountDownLatch release = new CountDownLatch(1);
+        buffer = new BatchWriteBuffer<>("test", 100, 4, 1_000, 100, 1, item -> item[0], items -> {
+            await(release);
+            batches.add(new ArrayList<>(items));
+        });
+
+        // When
+        List<CompletableFuture<long[]>> futures = new ArrayList<>();
+        for (long i = 0; i < 4; i++) {
+            futures.add(buffer.submit(new long[]{1, i}));
+        }
+
+        // Then：提交前Future未完成
+        assertTrue(futures.stream().noneMatch(CompletableFuture::isDone));
+        release.countDown();
+        for (CompletableFuture<long[]> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, batches.size());
+        assertEquals(4, batches.get(0).size());
+    }
+
+    @Test
+    @DisplayName("批次未满时等到刷写间隔后写入")
+    void submit_FlushesAfterInterval() throws Exception {
+        // Given
+        buffer = new BatchWriteBuffer<>("test", 100, 100, 20, 100, 1, item -> item[0], batches::add);
+
+        // When
+        CompletableFuture<long[]> future = buffer.submit(new long[]{1, 0});
+
+        // Then
+        future.get(5, TimeUnit.SECONDS);
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    @DisplayName("单条记录写入失败时以异常完成")
+    void submit_FailedBatch() {
+        // Given
+        buffer = new BatchWriteBuffer<>("test", 100, 100, 20, 100, 1, item -> item[0], items -> {
+            throw new IllegalStateException("db down");
+        });
+
+        // When
+        CompletableFuture<long[]> future = buffer.submit(new long[]{1, 0});
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals("db down", e.getCause().getMessage());
+    }
+
+    @Test
+    @DisplayName("整批写入失败时逐条重试，只有坏记录以异常完成")
+    void submit_RetriesFailedBatchRowByRow() throws Exception {
+        // Given：序号为2的记录写不进去（如外键不存在），攒满4条才写入
+        buffer = new BatchWriteBuffer<>("test", 100, 4, 1_000, 100, 1, item -> item[0], items -> {
+            if (items.stream().anyMatch(item -> item[1] == 2)) {
+                throw new IllegalStateException("constraint violation");
+            }
+            batches.add(new ArrayList<>(items));
+        });
+
+        // When
+        List<CompletableFuture<long[]>> futures = new ArrayList<>();
+        for (long i = 0; i < 4; i++) {
+            futures.add(buffer.submit(new long[]{1, i}));
+        }
+
+        // Then
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<long[]> future = futures.get(i);
+            if (i == 2) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertEquals("constraint violation", e.getCause().getMessage());
+            } else {
+                assertEquals(i, future.get(5, TimeUnit.SECONDS)[1]);
+            }
+        }
+        assertEquals(3, batches.size());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() == 1));
+    }
+
+    @Test
+    @DisplayName("同一分区的记录按入队顺序写入，多个刷写线程之间不乱序")
+    void submit_KeepsOrderWithinPartition() throws Exception {
+        // Given
+        Map<Long, List<Long>> written = new ConcurrentHashMap<>();
+        buffer = new BatchWriteBuffer<>("test", 10_000, 7, 1, 1_000, 4, item -> item[0], items -> {
+            for (long[] item : items) {
+                written.computeIfAbsent(item[0], key -> Collections.synchronizedList(new ArrayList<>())).add(item[1]);
+            }
+        });
+
+        // When
+        List<CompletableFuture<long[]>> futures = new ArrayList<>();
+        for (long seq = 0; seq < 500; seq++) {
+            for (long key = 0; key < 10; key++) {
+                futures.add(buffer.submit(new long[]{key, seq}));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(10, written.size());
+        for (List<Long> sequence : written.values()) {
+            assertEquals(500, sequence.size());
+            for (int i = 0; i < sequence.size(); i++) {
+                assertEquals(i, sequence.get(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("关闭时先刷完已入队的记录，之后提交的直接失败")
+    void shutdown_FlushesPending() throws Exception {
+        // Given：第一批写入被阻塞，其余记录停留在队列中
+        CountDownLatch release = new CountDownLatch(1);
+        buffer = new BatchWriteBuffer<>("test", 100, 2, 10, 100, 2, item -> item[0], items -> {
+            await(release);
+            batches.add(new ArrayList<>(items));
+        });
+        List<CompletableFuture<long[]>> futures = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            futures.add(buffer.submit(new long[]{i, i}));
+        }
+
+        // When
+        release.countDown();
+        buffer.shutdown(5_000);
+
+        // Then
+        for (CompletableFuture<long[]> future : futures) {
+            assertTrue(future.isDone());
+            assertFalse(future.isCompletedExceptionally());
+        }
+        assertEquals(10, batches.stream().mapToInt(List::size).sum());
+        assertEquals(0, buffer.getPendingCount());
+        assertTrue(buffer.submit(new long[]{1, 0}).isCompletedExceptionally());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.xima.app.persistence;
+
+import com.xima.app.entity.Conversation;
+import com.xima.app.entity.GroupConversation;
+import com.xima.app.entity.GroupMessage;
+import com.xima.app.entity.Message;
+import com.xima.app.entity.MessageContentType;
+import com.xima.app.entity.MessageStatus;
+import com.xima.app.mapper.ConversationMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ConversationSummaryWriter 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ConversationSummaryWriterTest {
+
+    @Mock
+    private ConversationMapper conversationMapper;
+
+    @InjectMocks
+    private ConversationSummaryWriter conversationSummaryWriter;
+
+    @Test
+    @DisplayName("私聊批次 - 每个会话合并为一行，接收方累计未读")
+    @SuppressWarnings("unchecked")
+    void onMessagesSaved_MergesPerConversation() {
+        // Given：1→2 两条，2→1 一条，3给自己发一条
+        List<Message> batch = Arrays.asList(
+                message(100L, 1L, 2L, "第一条", MessageContentType.TEXT),
+                message(102L, 2L, 1L, "回复", MessageContentType.TEXT),
+                message(101L, 1L, 2L, null, MessageContentType.IMAGE),
+                message(103L, 3L, 3L, "备忘", MessageContentType.TEXT));
+
+        // When
+        conversationSummaryWriter.onMessagesSaved(batch);
+
+        // Then：按 (owner, peer) 排序写入
+        ArgumentCaptor<List<Conversation>> captor = ArgumentCaptor.forClass(List.class);
+        verify(conversationMapper).batchUpsert(captor.capture());
+        List<Conversation> rows = captor.getValue();
+        assertEquals(3, rows.size());
+
+        Conversation owner1 = rows.get(0);
+        assertEquals(1L, owner1.getOwnerId());
+        assertEquals(2L, owner1.getPeerId());
+        assertEquals(102L, owner1.getLastMessageId());
+        assertEquals("回复", owner1.getLastMessagePreview());
+        assertEquals(1, owner1.getUnreadCount());
+
+        Conversation owner2 = rows.get(1);
+        assertEquals(2L, owner2.getOwnerId());
+        assertEquals(102L, owner2.getLastMessageId());
+        assertEquals(2, owner2.getUnreadCount());
+
+        Conversation self = rows.get(2);
+        assertEquals(3L, self.getOwnerId());
+        assertEquals(3L, self.getPeerId());
+        assertEquals(0, self.getUnreadCount());
+    }
+
+    @Test
+    @DisplayName("群聊批次 - 每个群只写最后一条消息")
+    @SuppressWarnings("unchecked")
+    void onGroupMessagesSaved_KeepsLatestPerGroup() {
+        // Given
+        GroupMessage first = groupMessage(200L, 10L, "早");
+        GroupMessage latest = groupMessage(201L, 10L, "晚");
+        GroupMessage other = groupMessage(199L, 5L, "另一个群");
+
+        // When
+        conversationSummaryWriter.onGroupMessagesSaved(Arrays.asList(latest, first, other));
+
+        // Then
+        ArgumentCaptor<List<GroupConversation>> captor = ArgumentCaptor.forClass(List.class);
+        verify(conversationMapper).batchUpsertGroup(captor.capture());
+        List<GroupConversation> rows = captor.getValue();
+        assertEquals(2, rows.size());
+        assertEquals(5L, rows.get(0).getGroupId());
+        assertEquals(201L, rows.get(1).getLastMessageId());
+        assertEquals("晚", rows.get(1).getLastMessagePreview());
+    }
+
+    @Test
+    @DisplayName("消息摘要 - 文本截断，其他类型显示标签")
+    void preview_TruncatesAndLabels() {
+        assertEquals(100, ConversationSummaryWriter.preview("字".repeat(300), MessageContentType.TEXT).length());
+        assertEquals("[文件]", ConversationSummaryWriter.preview("https://x/a.pdf", MessageContentType.FILE));
+        assertEquals("张三 加入了群聊", ConversationSummaryWriter.preview("张三 加入了群聊", MessageContentType.SYSTEM));
+    }
+
+    @Test
+    @DisplayName("撤回未读的私聊消息 - 替换最后一条摘要并扣减接收方未读数")
+    void onMessageRemoved_Unread() {
+        // Given
+        Message message = message(100L, 1L, 2L, "说错了", MessageContentType.TEXT);
+        message.setStatus(MessageStatus.DELIVERED);
+
+        // When
+        conversationSummaryWriter.onMessageRemoved(message, ConversationSummaryWriter.RECALLED_PREVIEW);
+
+        // Then
+        verify(conversationMapper).replaceLastPreview(1L, 2L, 100L, ConversationSummaryWriter.RECALLED_PREVIEW);
+        verify(conversationMapper).decrementUnread(2L, 1L, 1);
+    }
+
+    @Test
+    @DisplayName("删除已读或发给自己的消息 - 只替换摘要，不扣减未读数")
+    void onMessageRemoved_ReadOrSelf() {
+        // Given
+        Message read = message(100L, 1L, 2L, "已读", MessageContentType.TEXT);
+        read.setStatus(MessageStatus.READ);
+        Message self = message(101L, 3L, 3L, "备忘", MessageContentType.TEXT);
+
+        // When
+        conversationSummaryWriter.onMessageRemoved(read, ConversationSummaryWriter.DELETED_PREVIEW);
+        conversationSummaryWriter.onMessageRemoved(self, ConversationSummaryWriter.DELETED_PREVIEW);
+
+        // Then
+        verify(conversationMapper).replaceLastPreview(1L, 2L, 100L, ConversationSummaryWriter.DELETED_PREVIEW);
+        verify(conversationMapper).replaceLastPreview(3L, 3L, 101L, ConversationSummaryWriter.DELETED_PREVIEW);
+        verify(conversationMapper, never()).decrementUnread(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("撤回群消息 - 替换群会话的最后一条摘要")
+    void onGroupMessageRemoved() {
+        // When
+        conversationSummaryWriter.onGroupMessageRemoved(groupMessage(200L, 10L, "说错了"));
+
+        // Then
+        verify(conversationMapper).replaceGroupLastPreview(10L, 200L, ConversationSummaryWriter.RECALLED_PREVIEW);
+    }
+
+    private Message message(Long id, Long senderId, Long receiverId, String content, MessageContentType type) {
+        Message message = new Message(senderId, receiverId, content, type);
+        message.setId(id);
+        message.setCreateTime(LocalDateTime.now());
+        return message;
+    }
+
+    private GroupMessage groupMessage(Long id, Long groupId, String content) {
+        GroupMessage message = new GroupMessage();
+        message.setId(id);
+        message.setGroupId(groupId);
+        message.setSenderId(1L);
+        message.setContent(content);
+        message.setCreateTime(LocalDateTime.now());
+        return message;
+    }
+}
@@ -0,0 +1,120 @@
+package com.xima.app.presence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.entity.Friendship;
+import com.xima.app.entity.UserStatus;
+import com.xima.app.mapper.FriendshipMapper;
+import com.xima.app.websocket.ClusterRouter;
+import com.xima.app.websocket.FramePriority;
+import com.xima.app.websocket.WebSocketSessionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PresenceTracker 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class PresenceTrackerTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private ClusterRouter clusterRouter;
+
+    @Mock
+    private FriendshipMapper friendshipMapper;
+
+    private PresenceTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new PresenceTracker(redisTemplate, sessionManager, clusterRouter, friendshipMapper, new ObjectMapper());
+        ReflectionTestUtils.setField(tracker, "ttlSeconds", 90L);
+        ReflectionTestUtils.setField(tracker, "debounceMs", 60_000L);
+        // 摘要由测试手动触发
+        ReflectionTestUtils.setField(tracker, "digestIntervalMs", 3_600_000L);
+        tracker.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.destroy();
+    }
+
+    @Test
+    @DisplayName("同一周期内多个好友上线，每个接收者只收到一帧摘要")
+    void flushDigests_OneFramePerRecipient() {
+        // Given：用户1、2上线，二者都是用户3的好友
+        tracker.online(1L);
+        tracker.online(2L);
+        when(friendshipMapper.findFriendPairsByUserIds(anyList()))
+                .thenReturn(Arrays.asList(pair(1L, 3L), pair(2L, 3L), pair(1L, 4L)));
+        when(sessionManager.isLocal(3L)).thenReturn(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+        when(sessionManager.sendToUser(eq(3L), anyString(), eq(FramePriority.DROPPABLE))).thenReturn(true);
+
+        // When
+        tracker.flushDigests();
+
+        // Then：不在线的用户4不推送
+        ArgumentCaptor<String> frame = ArgumentCaptor.forClass(String.class);
+        verify(sessionManager, times(1)).sendToUser(eq(3L), frame.capture(), eq(FramePriority.DROPPABLE));
+        verify(sessionManager, never()).sendToUser(eq(4L), anyString(), any(FramePriority.class));
+        assertTrue(frame.getValue().contains("\"1\":\"ONLINE\""));
+        assertTrue(frame.getValue().contains("\"2\":\"ONLINE\""));
+
+        // 已推送的变化不会重复推送
+        tracker.flushDigests();
+        verify(friendshipMapper, times(1)).findFriendPairsByUserIds(anyList());
+    }
+
+    @Test
+    @DisplayName("宽限期内重连不产生状态变化")
+    void offlineThenOnline_NoChange() {
+        // When
+        tracker.offline(1L);
+        tracker.online(1L);
+        tracker.flushDigests();
+
+        // Then
+        verifyNoInteractions(friendshipMapper);
+    }
+
+    @Test
+    @DisplayName("在线时用户自己设置的状态优先，离线时一律为离线")
+    void effectiveStatus() {
+        assertEquals(UserStatus.OFFLINE, PresenceTracker.effectiveStatus(UserStatus.BUSY, false));
+        assertEquals(UserStatus.ONLINE, PresenceTracker.effectiveStatus(UserStatus.OFFLINE, true));
+        assertEquals(UserStatus.BUSY, PresenceTracker.effectiveStatus(UserStatus.BUSY, true));
+    }
+
+    private static Friendship pair(Long userId, Long friendId) {
+        Friendship friendship = new Friendship();
+        friendship.setUserId(userId);
+        friendship.setFriendId(friendId);
+        return friendship;
+    }
+}
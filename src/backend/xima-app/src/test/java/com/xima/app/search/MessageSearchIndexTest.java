@@ -0,0 +1,292 @@
+package com.xima.app.search;
+
+import com.xima.app.entity.GroupMessage;
+import com.xima.app.entity.Message;
+import com.xima.app.entity.MessageContentType;
+import com.xima.app.mapper.GroupMessageMapper;
+import com.xima.app.mapper.MessageMapper;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * MessageSearchIndex 单元测试
+ */
+class MessageSearchIndexTest {
+
+    @TempDir
+    Path indexDir;
+
+    private MessageMapper messageMapper;
+    private GroupMessageMapper groupMessageMapper;
+    private MessageSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        messageMapper = mock(MessageMapper.class);
+        groupMessageMapper = mock(GroupMessageMapper.class);
+        when(messageMapper.findSearchableAfter(anyLong(), anyInt())).thenReturn(Collections.emptyList());
+        when(groupMessageMapper.findSearchableAfter(anyLong(), anyInt())).thenReturn(Collections.emptyList());
+
+        index = new MessageSearchIndex(messageMapper, groupMessageMapper);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "indexDir", indexDir.toString());
+        ReflectionTestUtils.setField(index, "refreshIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(index, "commitIntervalSeconds", 60L);
+        ReflectionTestUtils.setField(index, "bootstrapBatchSize", 100);
+        index.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.destroy();
+    }
+
+    @Test
+    @DisplayName("中文关键词按二元组命中，单字关键词也能命中")
+    void search_ChineseKeyword() throws Exception {
+        // Given
+        index.onMessagesSaved(Arrays.asList(
+                privateMessage(1L, 1L, 2L, "明天下午三点开会"),
+                privateMessage(2L, 1L, 2L, "会议室在三楼")));
+        index.refresh();
+
+        // When
+        List<MessageSearchHit> meeting = index.search(1L, Collections.emptyList(), "开会", null, 0, 10);
+        List<MessageSearchHit> single = index.search(2L, Collections.emptyList(), "会", null, 0, 10);
+        List<MessageSearchHit> none = index.search(1L, Collections.emptyList(), "会开", null, 0, 10);
+
+        // Then
+        assertEquals(1, meeting.size());
+        assertEquals(1L, meeting.get(0).getId());
+        assertEquals("PRIVATE", meeting.get(0).getChatType());
+        assertEquals(2L, meeting.get(0).getReceiverId());
+        assertEquals(2, single.size());
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    @DisplayName("只返回用户参与的私聊和所在群的消息")
+    void search_AccessScope() throws Exception {
+        // Given
+        index.onMessagesSaved(Arrays.asList(
+                privateMessage(1L, 1L, 2L, "周报已提交"),
+                privateMessage(2L, 3L, 4L, "周报还没写")));
+        index.onGroupMessagesSaved(Arrays.asList(
+                groupMessage(3L, 10L, 5L, "本周周报汇总"),
+                groupMessage(4L, 20L, 5L, "周报模板")));
+        index.refresh();
+
+        // When
+        List<MessageSearchHit> hits = index.search(2L, Collections.singletonList(10L), "周报", null, 0, 10);
+
+        // Then
+        assertEquals(2, hits.size());
+        assertTrue(hits.stream().anyMatch(hit -> hit.getId() == 1L && hit.getGroupId() == null));
+        assertTrue(hits.stream().anyMatch(hit -> hit.getId() == 3L && hit.getGroupId() == 10L));
+    }
+
+    @Test
+    @DisplayName("撤回、群解散后不再命中；非文本消息不索引")
+    void search_RemovedMessages() throws Exception {
+        // Given
+        GroupMessage image = groupMessage(7L, 10L, 1L, "/uploads/发布会.png");
+        image.setContentType(MessageContentType.IMAGE);
+        index.onMessagesSaved(Arrays.asList(
+                privateMessage(1L, 1L, 2L, "发布会改期"),
+                privateMessage(2L, 1L, 2L, "发布会照常")));
+        index.onGroupMessagesSaved(Arrays.asList(groupMessage(3L, 10L, 2L, "发布会流程"), image));
+
+        // When
+        index.onPrivateMessageRemoved(1L);
+        index.onGroupDissolved(10L);
+        index.refresh();
+        List<MessageSearchHit> hits = index.search(1L, Collections.singletonList(10L), "发布会", null, 0, 10);
+
+        // Then
+        assertEquals(1, hits.size());
+        assertEquals(2L, hits.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("按相关度排序并分页，相关度相同时新消息在前")
+    void search_RankingAndPaging() throws Exception {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        Message older = privateMessage(1L, 1L, 2L, "上线 上线 上线 今晚上线");
+        older.setCreateTime(now.minusDays(1));
+        Message newer = privateMessage(2L, 1L, 2L, "今晚上线吗，需要确认一下发布窗口和回滚方案");
+        newer.setCreateTime(now);
+        Message newest = privateMessage(3L, 1L, 2L, "今晚上线吗，需要确认一下发布窗口和回滚方案");
+        newest.setCreateTime(now.plusMinutes(1));
+        index.onMessagesSaved(Arrays.asList(older, newer, newest));
+        index.refresh();
+
+        // When
+        List<MessageSearchHit> firstPage = index.search(1L, Collections.emptyList(), "上线", null, 0, 2);
+        List<MessageSearchHit> secondPage = index.search(1L, Collections.emptyList(), "上线", null, 2, 2);
+
+        // Then
+        assertEquals(Arrays.asList(1L, 3L), Arrays.asList(firstPage.get(0).getId(), firstPage.get(1).getId()));
+        assertEquals(1, secondPage.size());
+        assertEquals(2L, secondPage.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("游标翻页覆盖全部结果，与一次取出的全局顺序一致")
+    void search_CursorPaging() throws Exception {
+        // Given：私聊和两个群的消息，相关度和时间有大量重复
+        LocalDateTime now = LocalDateTime.now();
+        List<Message> privateMessages = new ArrayList<>();
+        List<GroupMessage> groupMessages = new ArrayList<>();
+        for (long id = 1; id <= 45; id++) {
+            String content = id % 3 == 0 ? "排期 排期" : "排期";
+            if (id % 3 == 1) {
+                Message message = privateMessage(id, 1L, 2L, content);
+                message.setCreateTime(now.minusMinutes(id % 7));
+                privateMessages.add(message);
+            } else {
+                GroupMessage message = groupMessage(id, id % 2 == 0 ? 10L : 20L, 3L, content);
+                message.setCreateTime(now.minusMinutes(id % 7));
+                groupMessages.add(message);
+            }
+        }
+        index.onMessagesSaved(privateMessages);
+        index.onGroupMessagesSaved(groupMessages);
+        index.refresh();
+        List<Long> groupIds = Arrays.asList(10L, 20L);
+        List<Long> expected = new ArrayList<>();
+        index.search(1L, groupIds, "排期", null, 0, 100).forEach(hit -> expected.add(hit.getId()));
+
+        // When
+        List<Long> paged = new ArrayList<>();
+        SearchCursor cursor = null;
+        List<MessageSearchHit> page;
+        do {
+            page = index.search(1L, groupIds, "排期", cursor, 0, 10);
+            page.forEach(hit -> paged.add(hit.getId()));
+            cursor = page.isEmpty() ? null : SearchCursor.parse(page.get(page.size() - 1).getCursor());
+        } while (page.size() == 10);
+
+        // Then
+        assertEquals(45, expected.size());
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    @DisplayName("首次启动时从数据库建立索引，之后重启不再重建")
+    void bootstrap_FromDatabase() throws Exception {
+        // Given
+        index.destroy();
+        clearInvocations(messageMapper);
+        Path dir = indexDir.resolve("bootstrap");
+        when(messageMapper.findSearchableAfter(0L, 100)).thenReturn(
+                Collections.singletonList(privateMessage(1L, 1L, 2L, "历史消息")));
+        when(groupMessageMapper.findSearchableAfter(0L, 100)).thenReturn(
+                Collections.singletonList(groupMessage(2L, 10L, 3L, "群里的历史消息")));
+        ReflectionTestUtils.setField(index, "closing", false);
+        ReflectionTestUtils.setField(index, "indexDir", dir.toString());
+
+        // When
+        index.init();
+        waitUntilReady();
+        List<MessageSearchHit> hits = index.search(1L, Collections.singletonList(10L), "历史", null, 0, 10);
+        index.destroy();
+        ReflectionTestUtils.setField(index, "closing", false);
+        index.init();
+
+        // Then
+        assertEquals(2, hits.size());
+        assertTrue(index.isReady());
+        verify(messageMapper, times(1)).findSearchableAfter(0L, 100);
+    }
+
+    @Test
+    @DisplayName("撤回、删除随即刷盘，崩溃后重新打开的索引中已不包含")
+    void delete_CommittedPromptly() throws Exception {
+        // Given
+        index.onMessagesSaved(Arrays.asList(
+                privateMessage(1L, 1L, 2L, "第一条"),
+                privateMessage(2L, 1L, 2L, "第二条")));
+
+        // When：不等周期刷盘
+        index.onPrivateMessageRemoved(1L);
+
+        // Then：直接读磁盘上最后一次提交
+        int committedDocs = -1;
+        for (int i = 0; i < 100 && committedDocs != 1; i++) {
+            Thread.sleep(20);
+            try (Directory directory = FSDirectory.open(indexDir)) {
+                if (DirectoryReader.indexExists(directory)) {
+                    try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                        committedDocs = reader.numDocs();
+                    }
+                }
+            }
+        }
+        assertEquals(1, committedDocs);
+    }
+
+    @Test
+    @DisplayName("集群模式下不启用本地索引，由调用方使用数据库查询")
+    void init_ClusterModeDisabled() {
+        // Given
+        index.destroy();
+        clearInvocations(messageMapper);
+        ReflectionTestUtils.setField(index, "closing", false);
+        ReflectionTestUtils.setField(index, "clusterEnabled", true);
+        ReflectionTestUtils.setField(index, "indexDir", indexDir.resolve("cluster").toString());
+
+        // When
+        index.init();
+        index.onMessagesSaved(Collections.singletonList(privateMessage(1L, 1L, 2L, "集群")));
+
+        // Then
+        assertFalse(index.isReady());
+        verify(messageMapper, never()).findSearchableAfter(anyLong(), anyInt());
+    }
+
+    private void waitUntilReady() throws InterruptedException {
+        for (int i = 0; i < 100 && !index.isReady(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(index.isReady());
+    }
+
+    private static Message privateMessage(Long id, Long senderId, Long receiverId, String content) {
+        Message message = new Message();
+        message.setId(id);
+        message.setSenderId(senderId);
+        message.setReceiverId(receiverId);
+        message.setContent(content);
+        message.setCreateTime(LocalDateTime.now());
+        return message;
+    }
+
+    private static GroupMessage groupMessage(Long id, Long groupId, Long senderId, String content) {
+        GroupMessage message = new GroupMessage();
+        message.setId(id);
+        message.setGroupId(groupId);
+        message.setSenderId(senderId);
+        message.setContent(content);
+        message.setCreateTime(LocalDateTime.now());
+        return message;
+    }
+}
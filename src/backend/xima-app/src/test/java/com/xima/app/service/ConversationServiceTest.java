@@ -0,0 +1,145 @@
+package com.xima.app.service;
+
+import com.xima.app.cache.UserProfileCache;
+import com.xima.app.dto.conversation.ConversationDTO;
+import com.xima.app.dto.user.UserProfile;
+import com.xima.app.entity.Friendship;
+import com.xima.app.mapper.ConversationMapper;
+import com.xima.app.mapper.FriendshipMapper;
+import com.xima.app.mapper.MessageMapper;
+import com.xima.app.service.impl.ConversationServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ConversationService 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ConversationServiceTest {
+
+    @Mock
+    private ConversationMapper conversationMapper;
+
+    @Mock
+    private MessageMapper messageMapper;
+
+    @Mock
+    private FriendshipMapper friendshipMapper;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private GroupService groupService;
+
+    @InjectMocks
+    private ConversationServiceImpl conversationService;
+
+    @Test
+    @DisplayName("获取会话列表 - 资料、备注和群未读数批量填充")
+    void getConversations_Enriched() {
+        // Given
+        ConversationDTO privateConversation = ConversationDTO.builder()
+                .type("PRIVATE").peerId(2L).lastSenderId(2L).lastMessagePreview("你好")
+                .lastMessageTime(LocalDateTime.now()).unreadCount(3).build();
+        ConversationDTO groupConversation = ConversationDTO.builder()
+                .type("GROUP").peerId(10L).name("开发群").lastSenderId(3L).lastMessagePreview("[图片]")
+                .lastMessageTime(LocalDateTime.now().minusMinutes(1)).unreadCount(0).build();
+        when(conversationMapper.findByOwnerId(1L, 20, 20))
+                .thenReturn(Arrays.asList(privateConversation, groupConversation));
+
+        Map<Long, UserProfile> profiles = new HashMap<>();
+        profiles.put(2L, new UserProfile(2L, "user2", "小明", "a2.png"));
+        profiles.put(3L, new UserProfile(3L, "user3", "小红", null));
+        when(userProfileCache.getAll(Set.of(2L, 3L))).thenReturn(profiles);
+
+        Friendship friendship = new Friendship();
+        friendship.setFriendId(2L);
+        friendship.setRemark("同事");
+        when(friendshipMapper.findRemarks(1L, Set.of(2L))).thenReturn(List.of(friendship));
+        when(groupService.getUnreadCounts(1L, List.of(10L))).thenReturn(Map.of(10L, 5));
+
+        // When
+        List<ConversationDTO> result = conversationService.getConversations(1L, 1, 20);
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals("小明", result.get(0).getName());
+        assertEquals("a2.png", result.get(0).getAvatar());
+        assertEquals("同事", result.get(0).getRemark());
+        assertEquals(3, result.get(0).getUnreadCount());
+        assertEquals("开发群", result.get(1).getName());
+        assertEquals("小红", result.get(1).getLastSenderName());
+        assertEquals(5, result.get(1).getUnreadCount());
+        verify(userProfileCache, times(1)).getAll(any());
+    }
+
+    @Test
+    @DisplayName("获取会话列表 - 没有会话时不查询资料")
+    void getConversations_Empty() {
+        // Given
+        when(conversationMapper.findByOwnerId(1L, 0, 20)).thenReturn(Collections.emptyList());
+
+        // When
+        List<ConversationDTO> result = conversationService.getConversations(1L, 0, 20);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(userProfileCache, friendshipMapper, groupService);
+    }
+
+    @Test
+    @DisplayName("私聊会话标记已读")
+    void markPrivateAsRead_Success() {
+        // When
+        conversationService.markPrivateAsRead(1L, 2L);
+
+        // Then
+        verify(messageMapper).updateStatusToRead(1L, 2L, null);
+        verify(conversationMapper).resetUnread(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("私聊会话已读到指定消息 - 一条范围更新并按实际条数扣减未读")
+    void markPrivateAsReadUpTo_Success() {
+        // Given
+        when(messageMapper.updateStatusToRead(1L, 2L, 300L)).thenReturn(300);
+
+        // When
+        int updated = conversationService.markPrivateAsReadUpTo(1L, 2L, 300L);
+
+        // Then
+        assertEquals(300, updated);
+        verify(conversationMapper).decrementUnread(1L, 2L, 300);
+    }
+
+    @Test
+    @DisplayName("私聊会话已读到指定消息 - 没有新的已读消息时不更新未读数")
+    void markPrivateAsReadUpTo_NothingToUpdate() {
+        // Given
+        when(messageMapper.updateStatusToRead(1L, 2L, 300L)).thenReturn(0);
+
+        // When
+        int updated = conversationService.markPrivateAsReadUpTo(1L, 2L, 300L);
+
+        // Then
+        assertEquals(0, updated);
+        verify(conversationMapper, never()).decrementUnread(anyLong(), anyLong(), anyInt());
+    }
+}
@@ -1,6 +1,9 @@
 package com.xima.app.service;
 
+import com.xima.app.cache.UserProfileCache;
 import com.xima.app.dto.friend.FriendDTO;
+import com.xima.app.dto.friend.FriendRequestInfoDTO;
+import com.xima.app.dto.user.UserProfile;
 import com.xima.app.entity.Friendship;
 import com.xima.app.entity.FriendshipStatus;
 import com.xima.app.entity.User;
@@ -8,6 +11,7 @@ import com.xima.app.entity.UserStatus;
 import com.xima.app.exception.BusinessException;
 import com.xima.app.mapper.FriendshipMapper;
 import com.xima.app.mapper.UserMapper;
+import com.xima.app.presence.PresenceTracker;
 import com.xima.app.service.impl.FriendshipServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,6 +22,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +41,12 @@ class FriendshipServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private PresenceTracker presenceTracker;
+
     @InjectMocks
     private FriendshipServiceImpl friendshipService;
 
@@ -172,7 +183,8 @@ class FriendshipServiceTest {
         acceptedFriendship.setStatus(FriendshipStatus.ACCEPTED);
 
         when(friendshipMapper.findFriendsByUserId(1L)).thenReturn(Arrays.asList(acceptedFriendship));
-        when(userMapper.findById(2L)).thenReturn(user2);
+        when(userMapper.findByIds(anyCollection())).thenReturn(Arrays.asList(user2));
+        when(presenceTracker.getOnlineUserIds(anyCollection())).thenReturn(Collections.singleton(2L));
 
         // When
         List<FriendDTO> result = friendshipService.getFriendList(1L);
@@ -181,6 +193,51 @@ class FriendshipServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals("user2", result.get(0).getUsername());
+        assertEquals(UserStatus.ONLINE, result.get(0).getStatus());
+        verify(userMapper, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("获取好友列表 - 在线状态以在线跟踪为准，不看表中残留的状态")
+    void getFriendList_StatusFromPresence() {
+        // Given：表中残留 ONLINE，但好友实际不在线
+        Friendship acceptedFriendship = new Friendship();
+        acceptedFriendship.setId(1L);
+        acceptedFriendship.setUserId(1L);
+        acceptedFriendship.setFriendId(2L);
+        acceptedFriendship.setStatus(FriendshipStatus.ACCEPTED);
+
+        when(friendshipMapper.findFriendsByUserId(1L)).thenReturn(Arrays.asList(acceptedFriendship));
+        when(userMapper.findByIds(anyCollection())).thenReturn(Arrays.asList(user2));
+        when(presenceTracker.getOnlineUserIds(anyCollection())).thenReturn(Collections.emptySet());
+
+        // When
+        List<FriendDTO> result = friendshipService.getFriendList(1L);
+
+        // Then
+        assertEquals(UserStatus.OFFLINE, result.get(0).getStatus());
+    }
+
+    @Test
+    @DisplayName("获取待处理好友请求 - 批量获取发起人资料")
+    void getPendingRequests_Success() {
+        // Given
+        Friendship another = new Friendship();
+        another.setId(2L);
+        another.setUserId(3L);
+        another.setFriendId(2L);
+        another.setStatus(FriendshipStatus.PENDING);
+        when(friendshipMapper.findPendingRequestsByFriendId(2L)).thenReturn(Arrays.asList(friendship, another));
+        when(userProfileCache.getAll(anyCollection()))
+                .thenReturn(Collections.singletonMap(1L, UserProfile.fromEntity(user1)));
+
+        // When
+        List<FriendRequestInfoDTO> result = friendshipService.getPendingRequests(2L);
+
+        // Then - 用户3不存在，被跳过
+        assertEquals(1, result.size());
+        assertEquals("user1", result.get(0).getFromUsername());
+        verify(userProfileCache, times(1)).getAll(anyCollection());
     }
 
     @Test
@@ -1,20 +1,32 @@
 package com.xima.app.service;
 
+import com.xima.app.cache.GroupMembershipIndex;
+import com.xima.app.cache.GroupUnreadCounter;
+import com.xima.app.cache.UserProfileCache;
 import com.xima.app.dto.group.CreateGroupRequest;
 import com.xima.app.dto.group.GroupDTO;
 import com.xima.app.dto.group.GroupMemberDTO;
 import com.xima.app.dto.group.GroupMessageDTO;
 import com.xima.app.dto.group.InviteMembersResult;
+import com.xima.app.dto.user.UserProfile;
 import com.xima.app.entity.ChatGroup;
+import com.xima.app.entity.Friendship;
 import com.xima.app.entity.GroupMember;
+import com.xima.app.entity.GroupMessage;
 import com.xima.app.entity.MessageContentType;
 import com.xima.app.entity.User;
+import com.xima.app.mapper.ConversationMapper;
 import com.xima.app.mapper.FriendshipMapper;
 import com.xima.app.mapper.GroupMapper;
 import com.xima.app.mapper.GroupMemberMapper;
 import com.xima.app.mapper.GroupMessageMapper;
 import com.xima.app.mapper.GroupMessageReadMapper;
 import com.xima.app.mapper.UserMapper;
+import com.xima.app.persistence.ConversationSummaryWriter;
+import com.xima.app.persistence.GroupMessageBatchWriter;
+import com.xima.app.persistence.SnowflakeIdGenerator;
+import com.xima.app.search.MessageSearchIndex;
+import com.xima.app.sync.InboxLog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -26,7 +38,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -56,6 +71,33 @@ class GroupServiceTest {
     @Mock
     private FriendshipMapper friendshipMapper;
 
+    @Mock
+    private GroupMembershipIndex membershipIndex;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private GroupMessageBatchWriter groupMessageBatchWriter;
+
+    @Mock
+    private SnowflakeIdGenerator idGenerator;
+
+    @Mock
+    private GroupUnreadCounter unreadCounter;
+
+    @Mock
+    private ConversationMapper conversationMapper;
+
+    @Mock
+    private ConversationSummaryWriter conversationSummaryWriter;
+
+    @Mock
+    private InboxLog inboxLog;
+
+    @Mock
+    private MessageSearchIndex searchIndex;
+
     @InjectMocks
     private GroupService groupService;
 
@@ -181,8 +223,7 @@ class GroupServiceTest {
     @DisplayName("添加群成员成功")
     void addMember_Success() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
-        when(groupMemberMapper.isMember(1L, 3L)).thenReturn(false);
+        when(membershipIndex.get(1L)).thenReturn(members());
         when(userMapper.findById(1L)).thenReturn(owner);
         when(userMapper.findById(3L)).thenReturn(member);
 
@@ -193,13 +234,15 @@ class GroupServiceTest {
         assertTrue(result);
         verify(groupMemberMapper).insert(any(GroupMember.class));
         verify(groupMapper).incrementMemberCount(1L);
+        verify(membershipIndex).addMembers(1L, List.of(3L));
+        verify(unreadCounter).onMembersJoined(1L, List.of(3L));
     }
 
     @Test
     @DisplayName("添加群成员失败 - 无权限")
     void addMember_NoPermission() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 2L)).thenReturn(normalMember);
+        when(membershipIndex.get(1L)).thenReturn(members());
 
         // When
         boolean result = groupService.addMember(1L, 3L, 2L);
@@ -213,8 +256,7 @@ class GroupServiceTest {
     @DisplayName("添加群成员失败 - 已是成员")
     void addMember_AlreadyMember() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
-        when(groupMemberMapper.isMember(1L, 2L)).thenReturn(true);
+        when(membershipIndex.get(1L)).thenReturn(members());
 
         // When
         boolean result = groupService.addMember(1L, 2L, 1L);
@@ -227,7 +269,7 @@ class GroupServiceTest {
     @DisplayName("移除群成员成功")
     void removeMember_Success() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
+        when(membershipIndex.get(1L)).thenReturn(members());
         when(groupMapper.findById(1L)).thenReturn(testGroup);
         when(userMapper.findById(1L)).thenReturn(owner);
         when(userMapper.findById(2L)).thenReturn(member);
@@ -239,13 +281,15 @@ class GroupServiceTest {
         assertTrue(result);
         verify(groupMemberMapper).deleteByGroupIdAndUserId(1L, 2L);
         verify(groupMapper).decrementMemberCount(1L);
+        verify(membershipIndex).removeMember(1L, 2L);
+        verify(unreadCounter).onMemberLeft(1L, 2L);
     }
 
     @Test
     @DisplayName("移除群成员失败 - 不能移除群主")
     void removeMember_CannotRemoveOwner() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
+        when(membershipIndex.get(1L)).thenReturn(members());
         when(groupMapper.findById(1L)).thenReturn(testGroup);
 
         // When
@@ -269,6 +313,7 @@ class GroupServiceTest {
         // Then
         assertTrue(result);
         verify(groupMemberMapper).deleteByGroupIdAndUserId(1L, 2L);
+        verify(unreadCounter).onMemberLeft(1L, 2L);
     }
 
     @Test
@@ -298,6 +343,8 @@ class GroupServiceTest {
         verify(groupMessageMapper).deleteByGroupId(1L);
         verify(groupMemberMapper).deleteByGroupId(1L);
         verify(groupMapper).deleteById(1L);
+        verify(conversationMapper).deleteGroup(1L);
+        verify(searchIndex).onGroupDissolved(1L);
     }
 
     @Test
@@ -317,8 +364,10 @@ class GroupServiceTest {
     @DisplayName("发送群消息成功")
     void sendMessage_Success() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
-        when(userMapper.findById(1L)).thenReturn(owner);
+        when(membershipIndex.get(1L)).thenReturn(GroupMembershipIndex.Members.of(Arrays.asList(ownerMember, normalMember)));
+        when(groupMessageBatchWriter.save(any(GroupMessage.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        when(userProfileCache.get(1L)).thenReturn(UserProfile.fromEntity(owner));
 
         // When
         GroupMessageDTO result = groupService.sendMessage(1L, 1L, "Hello Group!", MessageContentType.TEXT);
@@ -326,41 +375,59 @@ class GroupServiceTest {
         // Then
         assertNotNull(result);
         assertEquals("Hello Group!", result.getContent());
-        verify(groupMessageMapper).insert(any());
+        assertEquals("Group Owner", result.getSenderName());
+        verify(groupMessageBatchWriter).save(any(GroupMessage.class));
+        verify(groupMemberMapper, never()).findByGroupIdAndUserId(anyLong(), anyLong());
+        verify(userMapper, never()).findById(anyLong());
     }
 
     @Test
     @DisplayName("发送群消息失败 - 非群成员")
     void sendMessage_NotMember() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 3L)).thenReturn(null);
+        when(membershipIndex.get(1L)).thenReturn(GroupMembershipIndex.Members.of(Arrays.asList(ownerMember, normalMember)));
 
         // When
         GroupMessageDTO result = groupService.sendMessage(1L, 3L, "Hello!", MessageContentType.TEXT);
 
         // Then
         assertNull(result);
+        verify(groupMessageBatchWriter, never()).save(any());
     }
 
     @Test
     @DisplayName("发送群消息失败 - 被禁言")
     void sendMessage_Muted() {
         // Given
-        GroupMember mutedMember = new GroupMember();
-        mutedMember.setMuted(true);
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 2L)).thenReturn(mutedMember);
+        normalMember.setMuted(true);
+        when(membershipIndex.get(1L)).thenReturn(GroupMembershipIndex.Members.of(Arrays.asList(ownerMember, normalMember)));
 
         // When & Then
         assertThrows(RuntimeException.class, 
             () -> groupService.sendMessage(1L, 2L, "Hello!", MessageContentType.TEXT));
+        verify(groupMessageBatchWriter, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("发送群消息失败 - 内容为空时不入队")
+    void sendMessage_BlankContent() {
+        // Given
+        when(membershipIndex.get(1L)).thenReturn(GroupMembershipIndex.Members.of(Arrays.asList(ownerMember, normalMember)));
+
+        // When & Then
+        assertThrows(RuntimeException.class,
+            () -> groupService.sendMessage(1L, 2L, "  ", MessageContentType.TEXT));
+        assertThrows(RuntimeException.class,
+            () -> groupService.sendMessage(1L, 2L, null, MessageContentType.TEXT));
+        verify(groupMessageBatchWriter, never()).save(any());
     }
 
     @Test
     @DisplayName("检查是否是群成员")
     void isMember_Success() {
         // Given
-        when(groupMemberMapper.isMember(1L, 1L)).thenReturn(true);
-        when(groupMemberMapper.isMember(1L, 999L)).thenReturn(false);
+        when(membershipIndex.isMember(1L, 1L)).thenReturn(true);
+        when(membershipIndex.isMember(1L, 999L)).thenReturn(false);
 
         // When & Then
         assertTrue(groupService.isMember(1L, 1L));
@@ -372,7 +439,7 @@ class GroupServiceTest {
     void setAdmin_Success() {
         // Given
         when(groupMapper.findById(1L)).thenReturn(testGroup);
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 2L)).thenReturn(normalMember);
+        when(membershipIndex.isMember(1L, 2L)).thenReturn(true);
         when(userMapper.findById(1L)).thenReturn(owner);
         when(userMapper.findById(2L)).thenReturn(member);
 
@@ -382,6 +449,7 @@ class GroupServiceTest {
         // Then
         assertTrue(result);
         verify(groupMemberMapper).updateRole(1L, 2L, GroupMember.MemberRole.ADMIN.name());
+        verify(membershipIndex).setRole(1L, 2L, GroupMember.MemberRole.ADMIN);
     }
 
     @Test
@@ -405,7 +473,7 @@ class GroupServiceTest {
     void transferOwner_Success() {
         // Given
         when(groupMapper.findById(1L)).thenReturn(testGroup);
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 2L)).thenReturn(normalMember);
+        when(membershipIndex.isMember(1L, 2L)).thenReturn(true);
         when(userMapper.findById(1L)).thenReturn(owner);
         when(userMapper.findById(2L)).thenReturn(member);
 
@@ -415,15 +483,16 @@ class GroupServiceTest {
         // Then
         assertTrue(result);
         verify(groupMapper).updateOwner(1L, 2L);
+        verify(membershipIndex).setRole(1L, 2L, GroupMember.MemberRole.OWNER);
+        verify(membershipIndex).setRole(1L, 1L, GroupMember.MemberRole.MEMBER);
     }
 
     @Test
     @DisplayName("禁言成员成功")
     void setMuted_Success() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
+        when(membershipIndex.get(1L)).thenReturn(members());
         when(groupMapper.findById(1L)).thenReturn(testGroup);
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 2L)).thenReturn(normalMember);
         when(userMapper.findById(1L)).thenReturn(owner);
         when(userMapper.findById(2L)).thenReturn(member);
 
@@ -433,13 +502,14 @@ class GroupServiceTest {
         // Then
         assertTrue(result);
         verify(groupMemberMapper).updateMuted(1L, 2L, true);
+        verify(membershipIndex).setMuted(1L, 2L, true);
     }
 
     @Test
     @DisplayName("禁言成员失败 - 不能禁言群主")
     void setMuted_CannotMuteOwner() {
         // Given
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
+        when(membershipIndex.get(1L)).thenReturn(members());
         when(groupMapper.findById(1L)).thenReturn(testGroup);
 
         // When
@@ -454,10 +524,9 @@ class GroupServiceTest {
     void inviteMembers_Success() {
         // Given
         when(groupMapper.findById(1L)).thenReturn(testGroup);
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
+        when(membershipIndex.get(1L)).thenReturn(members());
         when(userMapper.findById(1L)).thenReturn(owner);
         when(userMapper.findById(3L)).thenReturn(member);
-        when(groupMemberMapper.isMember(1L, 3L)).thenReturn(false);
 
         // When
         InviteMembersResult result = groupService.inviteMembers(1L, Arrays.asList(3L), 1L);
@@ -466,6 +535,12 @@ class GroupServiceTest {
         assertNotNull(result);
         assertEquals(1, result.getSuccessCount());
         assertEquals(0, result.getFailCount());
+        verify(membershipIndex).addMembers(1L, List.of(3L));
+        verify(unreadCounter).onMembersJoined(1L, List.of(3L));
+        verify(groupMemberMapper, never()).isMember(anyLong(), anyLong());
+        // 邀请系统消息同时更新群会话摘要
+        verify(conversationSummaryWriter).onGroupMessageSaved(argThat(msg ->
+                msg.getContentType() == MessageContentType.SYSTEM && msg.getGroupId().equals(1L)));
     }
 
     @Test
@@ -473,11 +548,10 @@ class GroupServiceTest {
     void inviteMembers_PartialFail() {
         // Given
         when(groupMapper.findById(1L)).thenReturn(testGroup);
-        when(groupMemberMapper.findByGroupIdAndUserId(1L, 1L)).thenReturn(ownerMember);
+        when(membershipIndex.get(1L)).thenReturn(members());
         when(userMapper.findById(1L)).thenReturn(owner);
         when(userMapper.findById(3L)).thenReturn(member);
         when(userMapper.findById(4L)).thenReturn(null); // 用户不存在
-        when(groupMemberMapper.isMember(1L, 3L)).thenReturn(false);
 
         // When
         InviteMembersResult result = groupService.inviteMembers(1L, Arrays.asList(3L, 4L), 1L);
@@ -487,4 +561,116 @@ class GroupServiceTest {
         assertEquals(1, result.getSuccessCount());
         assertEquals(1, result.getFailCount());
     }
+
+    @Test
+    @DisplayName("游标分页获取群聊天记录 - 资料和备注每页批量查询")
+    void getMessagesBefore_BatchesLookups() {
+        // Given
+        GroupMessage fromOwner = new GroupMessage();
+        fromOwner.setId(12L);
+        fromOwner.setGroupId(1L);
+        fromOwner.setSenderId(1L);
+        fromOwner.setContent("hi");
+        fromOwner.setContentType(MessageContentType.TEXT);
+        GroupMessage fromMember = new GroupMessage();
+        fromMember.setId(11L);
+        fromMember.setGroupId(1L);
+        fromMember.setSenderId(2L);
+        fromMember.setContent("hello");
+        fromMember.setContentType(MessageContentType.TEXT);
+        Friendship friendship = new Friendship();
+        friendship.setFriendId(1L);
+        friendship.setRemark("老板");
+
+        when(membershipIndex.isMember(1L, 3L)).thenReturn(true);
+        when(groupMessageMapper.findByGroupIdBefore(1L, Long.MAX_VALUE, 50))
+                .thenReturn(Arrays.asList(fromOwner, fromMember, fromOwner));
+        Map<Long, UserProfile> profiles = new HashMap<>();
+        profiles.put(1L, UserProfile.fromEntity(owner));
+        profiles.put(2L, UserProfile.fromEntity(member));
+        when(userProfileCache.getAll(anyCollection())).thenReturn(profiles);
+        when(friendshipMapper.findRemarks(eq(3L), anyCollection())).thenReturn(Collections.singletonList(friendship));
+
+        // When
+        List<GroupMessageDTO> result = groupService.getMessagesBefore(1L, 3L, null, 50);
+
+        // Then
+        assertEquals(3, result.size());
+        assertEquals(12L, result.get(0).getId());
+        assertEquals("老板", result.get(0).getDisplayName());
+        assertNull(result.get(1).getSenderRemark());
+        verify(userProfileCache, times(1)).getAll(anyCollection());
+        verify(friendshipMapper, times(1)).findRemarks(eq(3L), anyCollection());
+        verify(friendshipMapper, never()).getRemark(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("游标分页获取群聊天记录 - 非成员返回空")
+    void getMessagesBefore_NotMember() {
+        // Given
+        when(membershipIndex.isMember(1L, 9L)).thenReturn(false);
+
+        // When
+        List<GroupMessageDTO> result = groupService.getMessagesBefore(1L, 9L, 100L, 50);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(groupMessageMapper, never()).findByGroupIdBefore(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("获取群未读数 - 从计数器读取，不统计消息表")
+    void getUnreadCounts_FromCounter() {
+        // Given
+        List<Long> groupIds = Arrays.asList(1L, 2L);
+        when(groupMemberMapper.findGroupIdsByUserId(3L)).thenReturn(groupIds);
+        when(unreadCounter.getUnreadCounts(3L, groupIds)).thenReturn(Collections.singletonMap(1L, 5));
+
+        // When
+        Map<Long, Integer> result = groupService.getUnreadCounts(3L);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(5, result.get(1L));
+        verify(groupMessageMapper, never()).countUnreadMessages(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("获取群未读数 - 计数器不可用时按数据库统计")
+    void getUnreadCounts_FallbackToSql() {
+        // Given
+        List<Long> groupIds = Arrays.asList(1L, 2L);
+        when(groupMemberMapper.findGroupIdsByUserId(3L)).thenReturn(groupIds);
+        when(unreadCounter.getUnreadCounts(3L, groupIds)).thenThrow(new IllegalStateException("redis down"));
+        when(groupMessageReadMapper.getLastReadMessageId(1L, 3L)).thenReturn(10L);
+        when(groupMessageReadMapper.getLastReadMessageId(2L, 3L)).thenReturn(null);
+        when(groupMessageMapper.countUnreadMessages(1L, 10L)).thenReturn(2);
+        when(groupMessageMapper.countUnreadMessages(2L, 0L)).thenReturn(0);
+
+        // When
+        Map<Long, Integer> result = groupService.getUnreadCounts(3L);
+
+        // Then
+        assertEquals(Collections.singletonMap(1L, 2), result);
+    }
+
+    @Test
+    @DisplayName("标记群消息已读 - 同步已读计数")
+    void markAsRead_UpdatesCounter() {
+        // Given
+        GroupMessageDTO latest = new GroupMessageDTO();
+        latest.setId(42L);
+        when(groupMessageMapper.findLatestByGroupId(1L)).thenReturn(latest);
+
+        // When
+        groupService.markAsRead(1L, 3L);
+
+        // Then
+        verify(groupMessageReadMapper).upsertLastRead(1L, 3L, 42L);
+        verify(unreadCounter).markRead(1L, 3L);
+    }
+
+    private GroupMembershipIndex.Members members() {
+        return GroupMembershipIndex.Members.of(Arrays.asList(ownerMember, normalMember));
+    }
 }
@@ -1,17 +1,26 @@
 package com.xima.app.service;
 
+import com.xima.app.cache.UserProfileCache;
 import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.dto.message.SearchMessageDTO;
+import com.xima.app.dto.message.UnreadCountDTO;
+import com.xima.app.dto.user.UserProfile;
+import com.xima.app.entity.ChatGroup;
 import com.xima.app.entity.Message;
 import com.xima.app.entity.MessageContentType;
 import com.xima.app.entity.MessageStatus;
 import com.xima.app.entity.User;
 import com.xima.app.exception.BusinessException;
+import com.xima.app.exception.ErrorCode;
 import com.xima.app.mapper.GroupMapper;
 import com.xima.app.mapper.GroupMemberMapper;
-import com.xima.app.mapper.GroupMessageMapper;
 import com.xima.app.mapper.MessageMapper;
-import com.xima.app.mapper.UserMapper;
+import com.xima.app.persistence.ConversationSummaryWriter;
+import com.xima.app.search.MessageSearchHit;
+import com.xima.app.search.MessageSearchIndex;
+import com.xima.app.search.SearchCursor;
 import com.xima.app.service.impl.MessageServiceImpl;
+import com.xima.app.websocket.DeliveryLog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -21,9 +30,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -39,10 +51,7 @@ class MessageServiceTest {
     private MessageMapper messageMapper;
 
     @Mock
-    private UserMapper userMapper;
-
-    @Mock
-    private GroupMessageMapper groupMessageMapper;
+    private UserProfileCache userProfileCache;
 
     @Mock
     private GroupMemberMapper groupMemberMapper;
@@ -50,6 +59,18 @@ class MessageServiceTest {
     @Mock
     private GroupMapper groupMapper;
 
+    @Mock
+    private ConversationService conversationService;
+
+    @Mock
+    private MessageSearchIndex searchIndex;
+
+    @Mock
+    private DeliveryLog deliveryLog;
+
+    @Mock
+    private ConversationSummaryWriter conversationSummaryWriter;
+
     @InjectMocks
     private MessageServiceImpl messageService;
 
@@ -79,14 +100,20 @@ class MessageServiceTest {
         testMessage.setCreateTime(LocalDateTime.now());
     }
 
+    private Map<Long, UserProfile> profiles() {
+        Map<Long, UserProfile> profiles = new HashMap<>();
+        profiles.put(1L, UserProfile.fromEntity(sender));
+        profiles.put(2L, UserProfile.fromEntity(receiver));
+        return profiles;
+    }
+
     @Test
     @DisplayName("获取聊天历史成功")
     void getChatHistory_Success() {
         // Given
         List<Message> messages = Arrays.asList(testMessage);
         when(messageMapper.findChatHistory(1L, 2L, 0, 20)).thenReturn(messages);
-        when(userMapper.findById(1L)).thenReturn(sender);
-        when(userMapper.findById(2L)).thenReturn(receiver);
+        when(userProfileCache.getAll(anyCollection())).thenReturn(profiles());
 
         // When
         List<ChatMessageDTO> result = messageService.getChatHistory(1L, 2L, 0, 20);
@@ -112,14 +139,38 @@ class MessageServiceTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    @DisplayName("游标分页获取聊天历史 - 按时间正序返回")
+    void getChatHistoryBefore_ReturnsAscending() {
+        // Given - 数据库按ID倒序返回
+        Message newer = new Message();
+        newer.setId(5L);
+        newer.setSenderId(2L);
+        newer.setReceiverId(1L);
+        newer.setContent("Hi!");
+        newer.setContentType(MessageContentType.TEXT);
+        newer.setCreateTime(LocalDateTime.now());
+        when(messageMapper.findChatHistoryBefore(1L, 2L, 10L, 20))
+                .thenReturn(new ArrayList<>(Arrays.asList(newer, testMessage)));
+        when(userProfileCache.getAll(anyCollection())).thenReturn(profiles());
+
+        // When
+        List<ChatMessageDTO> result = messageService.getChatHistoryBefore(1L, 2L, 10L, 20);
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(5L, result.get(1).getId());
+        assertEquals("Receiver User", result.get(1).getSenderName());
+    }
+
     @Test
     @DisplayName("获取离线消息成功")
     void getOfflineMessages_Success() {
         // Given
         List<Message> messages = Arrays.asList(testMessage);
         when(messageMapper.findOfflineMessages(2L)).thenReturn(messages);
-        when(userMapper.findById(1L)).thenReturn(sender);
-        when(userMapper.findById(2L)).thenReturn(receiver);
+        when(userProfileCache.getAll(anyCollection())).thenReturn(profiles());
 
         // When
         List<ChatMessageDTO> result = messageService.getOfflineMessages(2L);
@@ -137,8 +188,10 @@ class MessageServiceTest {
         when(messageMapper.findById(1L)).thenReturn(testMessage);
 
         // When & Then
-        assertDoesNotThrow(() -> messageService.markAsRead(1L));
-        verify(messageMapper).updateStatus(1L, MessageStatus.READ.name());
+        assertDoesNotThrow(() -> messageService.markAsRead(2L, 1L));
+        // 读到这条为止：按会话范围更新，不再逐条更新
+        verify(conversationService).markPrivateAsReadUpTo(2L, 1L, 1L);
+        verify(messageMapper, never()).updateStatus(anyLong(), anyString());
     }
 
     @Test
@@ -148,7 +201,19 @@ class MessageServiceTest {
         when(messageMapper.findById(anyLong())).thenReturn(null);
 
         // When & Then
-        assertThrows(BusinessException.class, () -> messageService.markAsRead(999L));
+        assertThrows(BusinessException.class, () -> messageService.markAsRead(2L, 999L));
+    }
+
+    @Test
+    @DisplayName("标记消息已读失败 - 不是接收者")
+    void markAsRead_AccessDenied() {
+        // Given
+        when(messageMapper.findById(1L)).thenReturn(testMessage);
+
+        // When & Then - user 3 trying to mark a message sent from user 1 to user 2
+        BusinessException e = assertThrows(BusinessException.class, () -> messageService.markAsRead(3L, 1L));
+        assertEquals(ErrorCode.ACCESS_DENIED.getCode(), e.getCode());
+        verify(conversationService, never()).markPrivateAsReadUpTo(anyLong(), anyLong(), anyLong());
     }
 
     @Test
@@ -164,6 +229,39 @@ class MessageServiceTest {
         assertEquals(5L, count);
     }
 
+    @Test
+    @DisplayName("游标分页获取离线消息 - 不改变消息状态")
+    void getOfflineMessagesAfter_Success() {
+        // Given
+        when(messageMapper.findOfflineMessagesAfter(2L, 0L, 101)).thenReturn(Arrays.asList(testMessage));
+        when(userProfileCache.getAll(any())).thenReturn(profiles());
+
+        // When
+        List<ChatMessageDTO> result = messageService.getOfflineMessagesAfter(2L, null, 101);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("Sender User", result.get(0).getSenderName());
+        verify(messageMapper, never()).updateStatusToDelivered(anyLong());
+    }
+
+    @Test
+    @DisplayName("批量获取未读消息数 - 一次分组查询")
+    void getUnreadCounts_Success() {
+        // Given
+        when(messageMapper.countUnreadBySender(2L)).thenReturn(Arrays.asList(
+                new UnreadCountDTO(1L, 5L), new UnreadCountDTO(3L, 2L)));
+
+        // When
+        Map<Long, Long> counts = messageService.getUnreadCounts(2L);
+
+        // Then
+        assertEquals(2, counts.size());
+        assertEquals(5L, counts.get(1L));
+        assertEquals(2L, counts.get(3L));
+        verify(messageMapper, never()).countUnreadMessages(anyLong(), anyLong());
+    }
+
     @Test
     @DisplayName("删除消息成功")
     void deleteMessage_Success() {
@@ -173,6 +271,9 @@ class MessageServiceTest {
         // When & Then
         assertDoesNotThrow(() -> messageService.deleteMessage(1L, 1L));
         verify(messageMapper).deleteById(1L);
+        verify(searchIndex).onPrivateMessageRemoved(1L);
+        verify(deliveryLog).remove(testMessage.getReceiverId(), 1L);
+        verify(conversationSummaryWriter).onMessageRemoved(testMessage, ConversationSummaryWriter.DELETED_PREVIEW);
     }
 
     @Test
@@ -202,8 +303,7 @@ class MessageServiceTest {
         // Given
         List<Message> messages = Arrays.asList(testMessage);
         when(messageMapper.searchMessages(1L, "Hello", 0, 20)).thenReturn(messages);
-        when(userMapper.findById(1L)).thenReturn(sender);
-        when(userMapper.findById(2L)).thenReturn(receiver);
+        when(userProfileCache.getAll(anyCollection())).thenReturn(profiles());
 
         // When
         List<ChatMessageDTO> result = messageService.searchMessages(1L, "Hello", 0, 20);
@@ -227,4 +327,122 @@ class MessageServiceTest {
         assertNotNull(result);
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    @DisplayName("全局搜索 - 索引就绪时一次查询索引，群名和用户资料批量填充")
+    void searchAllMessages_UsesIndex() throws Exception {
+        // Given
+        ChatGroup group = new ChatGroup();
+        group.setId(10L);
+        group.setName("项目组");
+        List<MessageSearchHit> hits = Arrays.asList(
+                MessageSearchHit.builder().chatType("GROUP").id(5L).senderId(2L).groupId(10L)
+                        .content("明天开会").createTime(LocalDateTime.now()).score(2f).cursor("L_2.0_2_5").build(),
+                MessageSearchHit.builder().chatType("GROUP").id(4L).senderId(1L).groupId(10L)
+                        .content("开会改到下午").createTime(LocalDateTime.now()).score(1.5f).cursor("L_1.5_1_4").build(),
+                MessageSearchHit.builder().chatType("PRIVATE").id(1L).senderId(1L).receiverId(2L)
+                        .content("开会地点").createTime(LocalDateTime.now()).score(1f).cursor("L_1.0_1_1").build());
+        when(groupMemberMapper.findGroupIdsByUserId(1L)).thenReturn(Arrays.asList(10L, 11L));
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(1L, Arrays.asList(10L, 11L), "开会", null, 20, 20)).thenReturn(hits);
+        when(userProfileCache.getAll(anyCollection())).thenReturn(profiles());
+        when(groupMapper.findByIds(Collections.singleton(10L))).thenReturn(Collections.singletonList(group));
+
+        // When
+        List<SearchMessageDTO> result = messageService.searchAllMessages(1L, "开会", 1, 20);
+
+        // Then
+        assertEquals(3, result.size());
+        assertEquals("项目组", result.get(0).getGroupName());
+        assertEquals("Receiver User", result.get(0).getSenderName());
+        assertEquals("Receiver User", result.get(2).getReceiverName());
+        assertEquals("L_1.0_1_1", result.get(2).getCursor());
+        verify(groupMapper, times(1)).findByIds(anyCollection());
+        verify(userProfileCache, times(1)).getAll(anyCollection());
+        verify(messageMapper, never()).searchAllMessages(anyLong(), anyString(), any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("全局搜索 - 游标翻页从游标之后继续")
+    void searchAllMessagesAfter_IndexCursor() throws Exception {
+        // Given
+        when(groupMemberMapper.findGroupIdsByUserId(1L)).thenReturn(Collections.emptyList());
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(eq(1L), anyCollection(), eq("开会"), any(SearchCursor.class), eq(0), eq(20)))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        List<SearchMessageDTO> result = messageService.searchAllMessagesAfter(1L, "开会", "L_1.5_1700000000000_4", 20);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(searchIndex).search(eq(1L), anyCollection(), eq("开会"),
+                argThat(cursor -> cursor.isFromIndex() && cursor.getScore() == 1.5f
+                        && cursor.getTime() == 1700000000000L && cursor.getId() == 4L), eq(0), eq(20));
+    }
+
+    @Test
+    @DisplayName("全局搜索 - 索引未就绪时一条SQL合并查询私聊和群聊")
+    void searchAllMessages_FallbackToDatabase() throws Exception {
+        // Given
+        SearchMessageDTO row = SearchMessageDTO.builder()
+                .id(7L).chatType("PRIVATE").senderId(1L).receiverId(2L)
+                .content("Hello!").timestamp(LocalDateTime.of(2024, 1, 1, 12, 0)).build();
+        when(searchIndex.isReady()).thenReturn(false);
+        when(messageMapper.searchAllMessages(1L, "Hello", null, null, null, 0, 20)).thenReturn(Arrays.asList(row));
+        when(userProfileCache.getAll(anyCollection())).thenReturn(profiles());
+
+        // When
+        List<SearchMessageDTO> result = messageService.searchAllMessages(1L, "Hello", 0, 20);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("Sender User", result.get(0).getSenderName());
+        SearchCursor cursor = SearchCursor.parse(result.get(0).getCursor());
+        assertFalse(cursor.isFromIndex());
+        assertEquals(7L, cursor.getId());
+        assertEquals("PRIVATE", cursor.getChatType());
+        verify(searchIndex, never()).search(any(), any(), any(), any(), anyInt(), anyInt());
+        verify(groupMemberMapper, never()).findGroupIdsByUserId(anyLong());
+    }
+
+    @Test
+    @DisplayName("全局搜索 - 数据库游标翻页时保持走数据库，游标带会话类型区分两张表的同ID消息")
+    void searchAllMessagesAfter_DatabaseCursor() throws Exception {
+        // Given
+        when(searchIndex.isReady()).thenReturn(true);
+        when(messageMapper.searchAllMessages(eq(1L), eq("Hello"), any(LocalDateTime.class), eq(7L), eq("GROUP"), eq(0), eq(20)))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        List<SearchMessageDTO> result = messageService.searchAllMessagesAfter(1L, "Hello", "D_1704081600000_7_GROUP", 20);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(searchIndex, never()).search(any(), any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("全局搜索 - 旧格式数据库游标按私聊处理")
+    void searchAllMessagesAfter_LegacyDatabaseCursor() {
+        // Given
+        when(searchIndex.isReady()).thenReturn(false);
+        when(messageMapper.searchAllMessages(eq(1L), eq("Hello"), any(LocalDateTime.class), eq(7L), eq("PRIVATE"), eq(0), eq(20)))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        List<SearchMessageDTO> result = messageService.searchAllMessagesAfter(1L, "Hello", "D_1704081600000_7", 20);
+
+        // Then
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    @DisplayName("全局搜索 - 无效游标")
+    void searchAllMessagesAfter_InvalidCursor() {
+        assertThrows(BusinessException.class,
+                () -> messageService.searchAllMessagesAfter(1L, "Hello", "L_abc_1_2", 20));
+        assertThrows(BusinessException.class,
+                () -> messageService.searchAllMessagesAfter(1L, "Hello", "D_1_2_OTHER", 20));
+    }
 }
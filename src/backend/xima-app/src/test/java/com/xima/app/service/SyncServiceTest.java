@@ -0,0 +1,117 @@
+package com.xima.app.service;
+
+import com.xima.app.dto.group.GroupMessageDTO;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.dto.sync.SyncResultDTO;
+import com.xima.app.service.impl.SyncServiceImpl;
+import com.xima.app.sync.InboxEvent;
+import com.xima.app.sync.InboxLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * SyncService 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class SyncServiceTest {
+
+    @Mock
+    private InboxLog inboxLog;
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private GroupService groupService;
+
+    @InjectMocks
+    private SyncServiceImpl syncService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(syncService, "pageSize", 200);
+        ReflectionTestUtils.setField(syncService, "groupMessageLimit", 200);
+    }
+
+    @Test
+    @DisplayName("增量同步 - 按序号顺序还原私聊、群消息、撤回和已读回执")
+    void sync_HydratesEventsInOrder() {
+        // Given：序号10之后有4个事件，其中两个群范围事件属于同一个群
+        List<InboxEvent> events = Arrays.asList(
+                InboxEvent.builder().type(ChatMessageDTO.MessageType.CHAT).id(100L).peerId(2L).build(),
+                InboxEvent.builder().type(ChatMessageDTO.MessageType.GROUP_CHAT).groupId(5L).fromId(200L).id(201L).build(),
+                InboxEvent.builder().type(ChatMessageDTO.MessageType.GROUP_CHAT).groupId(5L).fromId(202L).id(202L).build(),
+                InboxEvent.builder().type(ChatMessageDTO.MessageType.RECALL).id(100L).content("对方撤回了一条消息").build(),
+                InboxEvent.builder().type(ChatMessageDTO.MessageType.READ_RECEIPT).id(99L).peerId(2L).build());
+        when(inboxLog.read(1L, 10L, 200)).thenReturn(new InboxLog.Page(15L, false, false, events));
+        when(messageService.getMessagesByIds(Collections.singletonList(100L))).thenReturn(Collections.singletonList(
+                ChatMessageDTO.builder().id(100L).type(ChatMessageDTO.MessageType.CHAT).senderId(2L).receiverId(1L).build()));
+        // 群消息按合并后的范围一次查询（倒序返回），199 早于范围被过滤
+        when(groupService.getMessagesBefore(5L, 1L, 203L, 200)).thenReturn(Arrays.asList(
+                groupMessage(202L), groupMessage(201L), groupMessage(200L), groupMessage(199L)));
+
+        // When
+        SyncResultDTO result = syncService.sync(1L, 10L, 0);
+
+        // Then
+        assertEquals(ChatMessageDTO.MessageType.SYNC, result.getType());
+        assertEquals(15L, result.getSeq());
+        assertFalse(result.getReset());
+        List<Long> ids = new ArrayList<>();
+        List<ChatMessageDTO.MessageType> types = new ArrayList<>();
+        for (ChatMessageDTO event : result.getEvents()) {
+            ids.add(event.getId());
+            types.add(event.getType());
+        }
+        assertEquals(Arrays.asList(100L, 200L, 201L, 202L, 100L, 99L), ids);
+        assertEquals(Arrays.asList(ChatMessageDTO.MessageType.CHAT, ChatMessageDTO.MessageType.GROUP_CHAT,
+                ChatMessageDTO.MessageType.GROUP_CHAT, ChatMessageDTO.MessageType.GROUP_CHAT,
+                ChatMessageDTO.MessageType.RECALL, ChatMessageDTO.MessageType.READ_RECEIPT), types);
+        ChatMessageDTO receipt = result.getEvents().get(5);
+        assertEquals(2L, receipt.getSenderId());
+        assertEquals(1L, receipt.getReceiverId());
+        verify(groupService, times(1)).getMessagesBefore(anyLong(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("增量同步 - 序号不可用时要求全量重载且不回查消息")
+    void sync_Reset() {
+        // Given
+        when(inboxLog.read(1L, 0L, 50)).thenReturn(InboxLog.Page.reset(42L));
+
+        // When
+        SyncResultDTO result = syncService.sync(1L, 0L, 50);
+
+        // Then
+        assertTrue(result.getReset());
+        assertEquals(42L, result.getSeq());
+        assertTrue(result.getEvents().isEmpty());
+        verifyNoInteractions(messageService, groupService);
+    }
+
+    private GroupMessageDTO groupMessage(Long id) {
+        GroupMessageDTO dto = new GroupMessageDTO();
+        dto.setId(id);
+        dto.setGroupId(5L);
+        dto.setSenderId(3L);
+        dto.setSenderName("成员3");
+        dto.setContent("群消息 " + id);
+        dto.setContentType("TEXT");
+        return dto;
+    }
+}
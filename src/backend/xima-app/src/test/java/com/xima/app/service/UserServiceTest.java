@@ -4,8 +4,10 @@ import com.xima.app.dto.user.UpdateUserRequest;
 import com.xima.app.dto.user.UserDTO;
 import com.xima.app.entity.User;
 import com.xima.app.entity.UserStatus;
+import com.xima.app.event.UserProfileChangedEvent;
 import com.xima.app.exception.BusinessException;
 import com.xima.app.mapper.UserMapper;
+import com.xima.app.presence.PresenceTracker;
 import com.xima.app.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,9 +16,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -31,6 +36,12 @@ class UserServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PresenceTracker presenceTracker;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -61,6 +72,23 @@ class UserServiceTest {
         assertEquals("test@example.com", result.getEmail());
     }
 
+    @Test
+    @DisplayName("返回的状态以在线标记为准：已离线显示OFFLINE，在线时保留自己设置的状态")
+    void getUserById_EffectiveStatus() {
+        // Given：库里残留ONLINE，但已没有在线标记
+        when(userMapper.findById(1L)).thenReturn(testUser);
+        when(presenceTracker.getOnlineUserIds(List.of(1L))).thenReturn(Set.of()).thenReturn(Set.of(1L));
+
+        // When
+        UserDTO offline = userService.getUserById(1L);
+        testUser.setStatus(UserStatus.BUSY);
+        UserDTO busy = userService.getUserById(1L);
+
+        // Then
+        assertEquals(UserStatus.OFFLINE, offline.getStatus());
+        assertEquals(UserStatus.BUSY, busy.getStatus());
+    }
+
     @Test
     @DisplayName("根据ID获取用户失败 - 用户不存在")
     void getUserById_NotFound() {
@@ -88,6 +116,7 @@ class UserServiceTest {
         // Then
         assertNotNull(result);
         verify(userMapper).update(any(User.class));
+        verify(eventPublisher).publishEvent(any(UserProfileChangedEvent.class));
     }
 
     @Test
@@ -107,30 +136,59 @@ class UserServiceTest {
     void searchUsers_Success() {
         // Given
         List<User> users = Arrays.asList(testUser);
-        when(userMapper.findAll()).thenReturn(users);
+        when(userMapper.searchByPrefix("test", "test", 20)).thenReturn(users);
+        when(presenceTracker.getOnlineUserIds(List.of(1L))).thenReturn(Set.of(1L));
 
         // When
-        List<UserDTO> result = userService.searchUsers("test");
+        List<UserDTO> result = userService.searchUsers("test", 20);
 
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals("testuser", result.get(0).getUsername());
+        assertEquals(UserStatus.ONLINE, result.get(0).getStatus());
+        verify(userMapper, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("搜索用户 - LIKE条件转义通配符，精确匹配排序用原始关键字，并限制返回条数")
+    void searchUsers_EscapeAndLimit() {
+        // Given
+        when(userMapper.searchByPrefix(anyString(), anyString(), anyInt())).thenReturn(Collections.emptyList());
+
+        // When
+        userService.searchUsers(" a_b% ", 1000);
+
+        // Then
+        verify(userMapper).searchByPrefix("a\\_b\\%", "a_b%", 50);
+    }
+
+    @Test
+    @DisplayName("搜索用户 - 空关键字不查询")
+    void searchUsers_BlankKeyword() {
+        // When
+        List<UserDTO> result = userService.searchUsers("  ", 20);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(userMapper);
     }
 
     @Test
-    @DisplayName("获取所有用户成功")
+    @DisplayName("分页获取用户成功")
     void getAllUsers_Success() {
         // Given
         List<User> users = Arrays.asList(testUser);
-        when(userMapper.findAll()).thenReturn(users);
+        when(userMapper.findByPage(40, 20)).thenReturn(users);
 
         // When
-        List<UserDTO> result = userService.getAllUsers();
+        List<UserDTO> result = userService.getAllUsers(2, 20);
 
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
+        assertEquals(UserStatus.OFFLINE, result.get(0).getStatus());
+        verify(userMapper, never()).findAll();
     }
 
     @Test
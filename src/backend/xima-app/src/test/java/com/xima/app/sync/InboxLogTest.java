@@ -0,0 +1,151 @@
+package com.xima.app.sync;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xima.app.cache.GroupMembershipIndex;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.entity.GroupMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * InboxLog 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class InboxLogTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private StreamOperations<String, Object, Object> streamOperations;
+
+    @Mock
+    private GroupMembershipIndex membershipIndex;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private InboxLog inboxLog;
+
+    @BeforeEach
+    void setUp() {
+        inboxLog = new InboxLog(redisTemplate, membershipIndex, objectMapper);
+        ReflectionTestUtils.setField(inboxLog, "maxLength", 10000L);
+        ReflectionTestUtils.setField(inboxLog, "ttlHours", 168L);
+    }
+
+    @Test
+    @DisplayName("读取 - 返回序号之后的一页事件")
+    void read_Page() throws Exception {
+        // Given
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForStream()).thenReturn(streamOperations);
+        when(valueOperations.get("xima:sync:seq:1")).thenReturn("13");
+        when(streamOperations.range(eq("xima:sync:inbox:1"), any(), any()))
+                .thenReturn(Arrays.asList(record(11), record(12), record(13)));
+
+        // When
+        InboxLog.Page page = inboxLog.read(1L, 10L, 2);
+
+        // Then
+        assertFalse(page.isReset());
+        assertTrue(page.isHasMore());
+        assertEquals(12L, page.getSeq());
+        assertEquals(2, page.getEvents().size());
+        assertEquals(11L, page.getEvents().get(0).getId());
+    }
+
+    @Test
+    @DisplayName("读取 - 中间的事件已被裁剪时要求全量重载")
+    void read_TrimmedResets() throws Exception {
+        // Given：客户端停在序号10，但收件箱最早只剩序号500
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForStream()).thenReturn(streamOperations);
+        when(valueOperations.get("xima:sync:seq:1")).thenReturn("600");
+        when(streamOperations.range(eq("xima:sync:inbox:1"), any(), any()))
+                .thenReturn(Collections.singletonList(record(500)));
+
+        // When
+        InboxLog.Page page = inboxLog.read(1L, 10L, 100);
+
+        // Then
+        assertTrue(page.isReset());
+        assertEquals(600L, page.getSeq());
+        assertTrue(page.getEvents().isEmpty());
+    }
+
+    @Test
+    @DisplayName("读取 - 新客户端或序号超前时要求全量重载，不读事件流")
+    void read_UnknownSeqResets() {
+        // Given
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("xima:sync:seq:1")).thenReturn("5");
+
+        // When & Then
+        assertTrue(inboxLog.read(1L, 0L, 100).isReset());
+        assertTrue(inboxLog.read(1L, 9L, 100).isReset());
+        assertEquals(5L, inboxLog.read(1L, null, 100).getSeq());
+        verify(redisTemplate, never()).opsForStream();
+    }
+
+    @Test
+    @DisplayName("群消息批次 - 每个群给每个成员追加一条范围事件")
+    @SuppressWarnings("unchecked")
+    void onGroupMessagesSaved_OneEventPerMemberPerGroup() {
+        // Given：群5有3个成员，批次里有该群的3条消息
+        when(membershipIndex.getMemberIds(5L)).thenReturn(Arrays.asList(1L, 2L, 3L));
+        List<GroupMessage> messages = new ArrayList<>();
+        for (long id = 100; id < 103; id++) {
+            GroupMessage message = new GroupMessage();
+            message.setId(id);
+            message.setGroupId(5L);
+            messages.add(message);
+        }
+
+        // When
+        inboxLog.onGroupMessagesSaved(messages);
+
+        // Then
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+        verify(redisTemplate).execute(any(), keys.capture(), args.capture());
+        assertEquals(Arrays.asList("xima:sync:seq:1", "xima:sync:inbox:1", "xima:sync:seq:2", "xima:sync:inbox:2",
+                "xima:sync:seq:3", "xima:sync:inbox:3"), keys.getValue());
+        List<Object> argv = args.getAllValues();
+        assertEquals(5, argv.size());
+        assertTrue(((String) argv.get(2)).contains("\"fromId\":100"));
+        assertTrue(((String) argv.get(2)).contains("\"id\":102"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private MapRecord<String, Object, Object> record(long seq) throws Exception {
+        InboxEvent event = InboxEvent.builder().type(ChatMessageDTO.MessageType.CHAT).id(seq).peerId(2L).build();
+        return (MapRecord<String, Object, Object>) (MapRecord<String, ?, ?>) StreamRecords.newRecord()
+                .in("xima:sync:inbox:1")
+                .withId(RecordId.of(seq, 0))
+                .ofMap(Collections.singletonMap((Object) "e", (Object) objectMapper.writeValueAsString(event)));
+    }
+}
@@ -0,0 +1,118 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ClusterRouter 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ClusterRouterTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ClusterRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = new ClusterRouter(redisTemplate, objectMapper);
+        ReflectionTestUtils.setField(router, "enabled", true);
+        ReflectionTestUtils.setField(router, "nodeId", "node-a");
+        ReflectionTestUtils.setField(router, "routeTtlSeconds", 90L);
+    }
+
+    @Test
+    @DisplayName("批量转发按目标节点分组，每个节点只发布一次，跳过本节点和不在线的用户")
+    void forward_GroupsByNode() throws Exception {
+        // Given
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList()))
+                .thenReturn(Arrays.asList("node-b", "node-a", null, "node-b", "node-c"));
+
+        // When
+        int forwarded = router.forward(Arrays.asList(1L, 2L, 3L, 4L, 5L), "{\"type\":\"GROUP_CHAT\"}",
+                FramePriority.NORMAL);
+
+        // Then
+        assertEquals(3, forwarded);
+        ArgumentCaptor<String> channel = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, times(2)).convertAndSend(channel.capture(), body.capture());
+        assertEquals(Arrays.asList("xima:ws:node:node-b", "xima:ws:node:node-c"), channel.getAllValues());
+        ClusterFrame toB = objectMapper.readValue(body.getAllValues().get(0), ClusterFrame.class);
+        assertEquals(ClusterFrame.Kind.DELIVER, toB.getKind());
+        assertEquals(Arrays.asList(1L, 4L), toB.getUserIds());
+        assertEquals("{\"type\":\"GROUP_CHAT\"}", toB.getPayload());
+    }
+
+    @Test
+    @DisplayName("占用路由时返回之前所在的其他节点，之前就在本节点时返回null")
+    @SuppressWarnings("unchecked")
+    void claim_ReturnsPreviousNode() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+                .thenReturn("node-b", "node-a");
+
+        // When & Then
+        assertEquals("node-b", router.claim(7L));
+        assertNull(router.claim(7L));
+    }
+
+    @Test
+    @DisplayName("收到的转发帧交给注册的处理逻辑")
+    void onFrame_DispatchesToReceiver() throws Exception {
+        // Given
+        List<ClusterFrame> received = new ArrayList<>();
+        router.setReceiver(received::add);
+        ClusterFrame frame = new ClusterFrame(ClusterFrame.Kind.KICK, Arrays.asList(7L), "{\"type\":\"KICK\"}",
+                FramePriority.NORMAL);
+
+        // When
+        router.onFrame(objectMapper.writeValueAsString(frame).getBytes(StandardCharsets.UTF_8));
+
+        // Then
+        assertEquals(1, received.size());
+        assertEquals(frame, received.get(0));
+    }
+
+    @Test
+    @DisplayName("未启用时不访问Redis")
+    void disabled_NoRedisAccess() {
+        // Given
+        ReflectionTestUtils.setField(router, "enabled", false);
+
+        // When
+        assertNull(router.claim(1L));
+        router.release(1L);
+        assertFalse(router.forward(1L, "{}", FramePriority.NORMAL));
+        router.kick("node-b", 1L, "{}");
+
+        // Then
+        verifyNoInteractions(redisTemplate);
+    }
+}
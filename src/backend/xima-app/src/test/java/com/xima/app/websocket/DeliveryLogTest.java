@@ -0,0 +1,139 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xima.app.dto.message.ChatMessageDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * DeliveryLog 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class DeliveryLogTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private StreamOperations<String, Object, Object> streamOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private DeliveryLog deliveryLog;
+
+    @BeforeEach
+    void setUp() {
+        deliveryLog = new DeliveryLog(redisTemplate, objectMapper);
+        ReflectionTestUtils.setField(deliveryLog, "maxLength", 1000L);
+        ReflectionTestUtils.setField(deliveryLog, "ttlHours", 72L);
+        ReflectionTestUtils.setField(deliveryLog, "redeliverLimit", 500);
+    }
+
+    @Test
+    @DisplayName("只确认列出的记录，返回对应的消息ID")
+    @SuppressWarnings("unchecked")
+    void ack_ReturnsAckedMessageIds() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("xima:delivery:2")),
+                eq("1700000000000-1"), eq("1700000000000-0")))
+                .thenReturn(Arrays.asList("102", "101"));
+
+        // When：重复的ID只上报一次
+        List<Long> acked = deliveryLog.ack(2L, Arrays.asList("1700000000000-1", "1700000000000-0", "1700000000000-1"));
+
+        // Then
+        assertEquals(Arrays.asList(102L, 101L), acked);
+    }
+
+    @Test
+    @DisplayName("格式不正确的deliveryId直接忽略，不访问Redis")
+    void ack_InvalidDeliveryId() {
+        assertTrue(deliveryLog.ack(2L, null).isEmpty());
+        assertTrue(deliveryLog.ack(2L, List.of()).isEmpty());
+        assertTrue(deliveryLog.ack(2L, Arrays.asList("+", "-", null)).isEmpty());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("重投的帧带上各自的deliveryId")
+    void pending_InjectsDeliveryId() throws Exception {
+        // Given
+        ChatMessageDTO message = ChatMessageDTO.builder()
+                .id(101L)
+                .type(ChatMessageDTO.MessageType.CHAT)
+                .senderId(1L)
+                .receiverId(2L)
+                .content("hi")
+                .build();
+        Map<Object, Object> fields = new HashMap<>();
+        fields.put("m", "101");
+        fields.put("f", objectMapper.writeValueAsString(message));
+        MapRecord<String, Object, Object> record = StreamRecords.newRecord()
+                .in("xima:delivery:2")
+                .withId(RecordId.of("1700000000000-0"))
+                .ofMap(fields);
+        when(redisTemplate.opsForStream()).thenReturn(streamOperations);
+        when(streamOperations.range(eq("xima:delivery:2"), any(), any())).thenReturn(List.of(record));
+
+        // When
+        List<String> frames = deliveryLog.pending(2L);
+
+        // Then
+        assertEquals(1, frames.size());
+        ChatMessageDTO frame = objectMapper.readValue(frames.get(0), ChatMessageDTO.class);
+        assertEquals(101L, frame.getId());
+        assertEquals("1700000000000-0", frame.getDeliveryId());
+    }
+
+    @Test
+    @DisplayName("撤回或删除的消息从接收者的投递日志中删除，Redis异常不影响调用方")
+    @SuppressWarnings("unchecked")
+    void remove_DeletesMessageRecord() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("xima:delivery:2")), eq("101")))
+                .thenReturn(1L)
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // When & Then
+        deliveryLog.remove(2L, 101L);
+        assertDoesNotThrow(() -> deliveryLog.remove(2L, 101L));
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), eq(List.of("xima:delivery:2")), eq("101"));
+    }
+
+    @Test
+    @DisplayName("Redis不可用时追加失败返回null，由离线推送兜底")
+    @SuppressWarnings("unchecked")
+    void append_RedisUnavailable() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // When
+        String deliveryId = deliveryLog.append(2L, ChatMessageDTO.builder().id(101L).build());
+
+        // Then
+        assertNull(deliveryId);
+    }
+}
@@ -0,0 +1,110 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * GroupFanoutEngine 单元测试
+ */
+class GroupFanoutEngineTest {
+
+    private WebSocketSessionManager sessionManager;
+    private GroupFanoutEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        sessionManager = mock(WebSocketSessionManager.class);
+        engine = new GroupFanoutEngine(sessionManager, new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("小群在当前线程投递，所有成员共享同一个已编码的帧")
+    void fanout_SmallGroupInline() throws Exception {
+        // Given
+        long[] memberIds = {1L, 2L, 3L};
+        List<SessionOutbox> outboxes = outboxes(3);
+        when(sessionManager.getOnlineOutboxes(memberIds)).thenReturn(outboxes);
+        Set<String> threads = recordThreads(outboxes);
+
+        // When
+        int delivered = engine.fanout(memberIds, Map.of("content", "hi"));
+
+        // Then
+        assertEquals(3, delivered);
+        TextMessage frame = sentFrame(outboxes.get(0));
+        assertEquals("{\"content\":\"hi\"}", frame.getPayload());
+        for (SessionOutbox outbox : outboxes) {
+            verify(outbox).offer(same(frame), eq(FramePriority.NORMAL));
+        }
+        assertEquals(Set.of(Thread.currentThread().getName()), threads);
+        verify(sessionManager).forwardToRemote(memberIds, frame);
+    }
+
+    @Test
+    @DisplayName("大群也在当前线程依次入队，同一接收者先后两条消息不乱序")
+    void fanout_LargeGroupKeepsOrder() {
+        // Given
+        long[] memberIds = new long[600];
+        for (int i = 0; i < memberIds.length; i++) {
+            memberIds[i] = i + 1;
+        }
+        List<SessionOutbox> outboxes = outboxes(600);
+        when(sessionManager.getOnlineOutboxes(memberIds)).thenReturn(outboxes);
+        Set<String> threads = recordThreads(outboxes);
+        TextMessage first = new TextMessage("{\"id\":1}");
+        TextMessage recall = new TextMessage("{\"id\":1,\"type\":\"RECALL\"}");
+
+        // When
+        int delivered = engine.fanout(memberIds, first);
+        engine.fanout(memberIds, recall);
+
+        // Then：返回时所有帧都已入队
+        assertEquals(600, delivered);
+        for (SessionOutbox outbox : outboxes) {
+            InOrder inOrder = inOrder(outbox);
+            inOrder.verify(outbox).offer(same(first), eq(FramePriority.NORMAL));
+            inOrder.verify(outbox).offer(same(recall), eq(FramePriority.NORMAL));
+        }
+        assertEquals(Set.of(Thread.currentThread().getName()), threads);
+    }
+
+    private static List<SessionOutbox> outboxes(int count) {
+        List<SessionOutbox> outboxes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            outboxes.add(mock(SessionOutbox.class));
+        }
+        return outboxes;
+    }
+
+    private static Set<String> recordThreads(List<SessionOutbox> outboxes) {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        for (SessionOutbox outbox : outboxes) {
+            when(outbox.offer(any(), any())).thenAnswer(invocation -> {
+                threads.add(Thread.currentThread().getName());
+                return true;
+            });
+        }
+        return threads;
+    }
+
+    private static TextMessage sentFrame(SessionOutbox outbox) {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(outbox).offer(captor.capture(), eq(FramePriority.NORMAL));
+        return captor.getValue();
+    }
+}
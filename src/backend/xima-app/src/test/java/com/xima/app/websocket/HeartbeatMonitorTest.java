@@ -0,0 +1,105 @@
+package com.xima.app.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * HeartbeatMonitor 单元测试
+ * ping间隔2秒、空闲超时5秒、刻度1秒，测试中手动推进时间轮
+ */
+class HeartbeatMonitorTest {
+
+    private HeartbeatMonitor monitor;
+    private WebSocketSession session;
+    private SessionOutbox outbox;
+    private long start;
+    private int ticks;
+
+    @BeforeEach
+    void setUp() {
+        monitor = new HeartbeatMonitor();
+        ReflectionTestUtils.setField(monitor, "pingIntervalSeconds", 2L);
+        ReflectionTestUtils.setField(monitor, "idleTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(monitor, "tickMs", 1000L);
+        // 不启动后台刻度线程
+        monitor.initWheel();
+
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        // 写线程直接在调用线程执行
+        outbox = new SessionOutbox("alice", session, Runnable::run, 16, OverflowPolicy.DROP_THEN_CLOSE);
+        start = outbox.getLastActivityNanos();
+    }
+
+    @Test
+    @DisplayName("空闲超过ping间隔发送ping，超过空闲超时关闭会话")
+    void idleSession_PingedThenReaped() throws Exception {
+        // Given
+        monitor.register(outbox);
+
+        // When & Then：第2秒发ping
+        advanceTo(2);
+        verify(session, times(1)).sendMessage(any(PingMessage.class));
+
+        // 第4秒没有回复，再发ping
+        advanceTo(4);
+        verify(session, times(2)).sendMessage(any(PingMessage.class));
+
+        // 第5秒仍无回复，关闭
+        advanceTo(5);
+        verify(session).close(HeartbeatMonitor.IDLE_TIMEOUT);
+        assertEquals(1, monitor.getStats().getReapedSessions());
+        assertEquals(0, monitor.getStats().getTrackedSessions());
+    }
+
+    @Test
+    @DisplayName("收到pong的会话不会被关闭")
+    void activeSession_NotReaped() throws Exception {
+        // Given
+        monitor.register(outbox);
+
+        // When：每次ping后立即有回复
+        for (int second = 1; second <= 10; second++) {
+            advanceTo(second);
+            ReflectionTestUtils.setField(outbox, "lastActivityNanos", start + TimeUnit.SECONDS.toNanos(second));
+        }
+
+        // Then
+        verify(session, never()).close(any());
+        assertEquals(0, monitor.getStats().getReapedSessions());
+        assertEquals(1, monitor.getStats().getTrackedSessions());
+    }
+
+    @Test
+    @DisplayName("已结束的会话移出时间轮")
+    void closedSession_Dropped() {
+        // Given
+        monitor.register(outbox);
+        outbox.shutdown();
+
+        // When
+        advanceTo(2);
+
+        // Then
+        assertEquals(0, monitor.getStats().getTrackedSessions());
+        assertEquals(0, monitor.getStats().getPingsSent());
+    }
+
+    private void advanceTo(int second) {
+        while (ticks < second) {
+            ticks++;
+            monitor.tick(start + TimeUnit.SECONDS.toNanos(ticks));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.xima.app.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * MeteredSessionDecorator 单元测试
+ */
+class MeteredSessionDecoratorTest {
+
+    private WebSocketSession delegate;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("s1");
+        when(delegate.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("统计发送次数和阻塞时间")
+    void sendMessage_RecordsBlockedTime() throws Exception {
+        // Given：底层发送耗时约20ms
+        doAnswer(invocation -> {
+            Thread.sleep(20);
+            return null;
+        }).when(delegate).sendMessage(any());
+        MeteredSessionDecorator session = new MeteredSessionDecorator(delegate, 10_000, 1024 * 1024);
+
+        // When
+        session.sendMessage(new TextMessage("a"));
+        session.sendMessage(new TextMessage("b"));
+
+        // Then
+        assertEquals(2, session.getSendCount());
+        assertTrue(session.getBlockedTimeMillis() >= 40);
+        assertTrue(session.getMaxBlockedTimeMillis() >= 20);
+        assertTrue(session.getMaxBlockedTimeMillis() <= session.getBlockedTimeMillis());
+        verify(delegate, times(2)).sendMessage(any());
+    }
+
+    @Test
+    @DisplayName("多线程同时发送时底层会话不会被并发调用，所有帧都发出")
+    void sendMessage_SerializesConcurrentSends() throws Exception {
+        // Given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(1);
+            delivered.incrementAndGet();
+            inFlight.decrementAndGet();
+            return null;
+        }).when(delegate).sendMessage(any());
+        MeteredSessionDecorator session = new MeteredSessionDecorator(delegate, 10_000, 1024 * 1024);
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    session.sendMessage(new TextMessage("m" + i));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then：没拿到发送锁的线程只把帧放入缓冲区，由持锁线程代为发出
+        assertEquals(1, maxInFlight.get());
+        assertEquals(200, delivered.get());
+        assertEquals(200, session.getSendCount());
+    }
+
+    @Test
+    @DisplayName("底层发送失败时异常抛给调用方，仍计入统计")
+    void sendMessage_FailureCounted() throws Exception {
+        // Given
+        doThrow(new IOException("broken pipe")).when(delegate).sendMessage(any());
+        MeteredSessionDecorator session = new MeteredSessionDecorator(delegate, 10_000, 1024 * 1024);
+
+        // When & Then
+        assertThrows(IOException.class, () -> session.sendMessage(new TextMessage("a")));
+        assertEquals(1, session.getSendCount());
+    }
+}
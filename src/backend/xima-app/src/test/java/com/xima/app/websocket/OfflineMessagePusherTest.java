@@ -0,0 +1,127 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xima.app.dto.message.ChatMessageDTO;
+import com.xima.app.service.MessageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * OfflineMessagePusher 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class OfflineMessagePusherTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String USERNAME = "user1";
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private WebSocketSession session;
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    private OfflineMessagePusher pusher;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        pusher = new OfflineMessagePusher(messageService, sessionManager, objectMapper);
+        ReflectionTestUtils.setField(pusher, "chunkSize", 2);
+        lenient().when(session.getAttributes()).thenReturn(attributes);
+        lenient().when(sessionManager.sendMessage(eq(USERNAME), anyString())).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("分块推送 - 确认后才标记送达并推送下一块")
+    void pushesNextChunkAfterAck() {
+        // Given：共3条离线消息，每块2条
+        when(messageService.getOfflineMessagesAfter(USER_ID, 0L, 3)).thenReturn(messages(10L, 11L, 12L));
+        when(messageService.getOfflineMessagesAfter(USER_ID, 11L, 3)).thenReturn(messages(12L));
+
+        // When：连接建立
+        pusher.start(session, USERNAME, USER_ID);
+
+        // Then：只推送了第一块，尚未标记送达
+        verify(sessionManager, times(1)).sendMessage(eq(USERNAME), contains("\"cursor\":11"));
+        verify(messageService, never()).markDelivered(anyLong(), anyList());
+
+        // When：确认第一块
+        pusher.onAck(session, USERNAME, USER_ID, 11L);
+
+        // Then
+        verify(messageService).markDelivered(USER_ID, List.of(10L, 11L));
+        verify(sessionManager).sendMessage(eq(USERNAME), contains("\"cursor\":12"));
+
+        // When：确认最后一块
+        pusher.onAck(session, USERNAME, USER_ID, 12L);
+
+        // Then：没有下一块
+        verify(messageService).markDelivered(USER_ID, List.of(12L));
+        verify(messageService, times(2)).getOfflineMessagesAfter(anyLong(), anyLong(), anyInt());
+        assertFalse(attributes.containsKey(OfflineMessagePusher.PENDING_CHUNK_ATTRIBUTE));
+    }
+
+    @Test
+    @DisplayName("分块推送 - 确认的cursor不匹配时忽略")
+    void ignoresMismatchedAck() {
+        // Given
+        when(messageService.getOfflineMessagesAfter(USER_ID, 0L, 3)).thenReturn(messages(10L, 11L));
+        pusher.start(session, USERNAME, USER_ID);
+
+        // When
+        pusher.onAck(session, USERNAME, USER_ID, 10L);
+
+        // Then
+        verify(messageService, never()).markDelivered(anyLong(), anyList());
+        assertTrue(attributes.containsKey(OfflineMessagePusher.PENDING_CHUNK_ATTRIBUTE));
+    }
+
+    @Test
+    @DisplayName("没有离线消息时不推送")
+    void noOfflineMessages() {
+        // Given
+        when(messageService.getOfflineMessagesAfter(USER_ID, 0L, 3)).thenReturn(new ArrayList<>());
+
+        // When
+        pusher.start(session, USERNAME, USER_ID);
+
+        // Then
+        verifyNoInteractions(sessionManager);
+    }
+
+    private List<ChatMessageDTO> messages(Long... ids) {
+        List<ChatMessageDTO> result = new ArrayList<>();
+        for (Long id : ids) {
+            result.add(ChatMessageDTO.builder()
+                    .id(id)
+                    .type(ChatMessageDTO.MessageType.CHAT)
+                    .senderId(2L)
+                    .receiverId(USER_ID)
+                    .content("离线消息 " + id)
+                    .build());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package com.xima.app.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xima.app.service.ConversationService;
+import com.xima.app.sync.InboxEvent;
+import com.xima.app.sync.InboxLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReadReceiptCoalescer 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ReadReceiptCoalescerTest {
+
+    @Mock
+    private ConversationService conversationService;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private InboxLog inboxLog;
+
+    private ReadReceiptCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        coalescer = new ReadReceiptCoalescer(conversationService, sessionManager, inboxLog, objectMapper);
+    }
+
+    @Test
+    @DisplayName("同一会话的多次上报合并为一次范围更新和一帧回执")
+    void flush_CoalescesPerConversation() {
+        // Given：用户1打开与用户2的会话，逐条上报了300条
+        for (long id = 1; id <= 300; id++) {
+            coalescer.submit(1L, 2L, id);
+        }
+        coalescer.submit(1L, 2L, 150L);
+        when(conversationService.markPrivateAsReadUpTo(1L, 2L, 300L)).thenReturn(300);
+
+        // When
+        coalescer.flush();
+
+        // Then
+        verify(conversationService, times(1)).markPrivateAsReadUpTo(anyLong(), anyLong(), anyLong());
+        ArgumentCaptor<String> frame = ArgumentCaptor.forClass(String.class);
+        verify(sessionManager, times(1)).sendToUser(eq(2L), frame.capture());
+        assertTrue(frame.getValue().contains("\"type\":\"READ_RECEIPT\""));
+        assertTrue(frame.getValue().contains("\"id\":300"));
+        // 回执同时写入对方收件箱，供对方重连后增量同步
+        ArgumentCaptor<InboxEvent> event = ArgumentCaptor.forClass(InboxEvent.class);
+        verify(inboxLog).append(eq(Collections.singletonList(2L)), event.capture());
+        assertEquals(300L, event.getValue().getId());
+        assertEquals(1L, event.getValue().getPeerId());
+
+        // 已处理的回执不会重复落库
+        coalescer.flush();
+        verifyNoMoreInteractions(conversationService);
+    }
+
+    @Test
+    @DisplayName("没有新的已读消息时不推送回执")
+    void flush_NothingUpdated() {
+        // Given
+        coalescer.submit(1L, 2L, 10L);
+        when(conversationService.markPrivateAsReadUpTo(1L, 2L, 10L)).thenReturn(0);
+
+        // When
+        coalescer.flush();
+
+        // Then
+        verifyNoInteractions(sessionManager, inboxLog);
+    }
+}
@@ -0,0 +1,196 @@
+package com.xima.app.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * SessionOutbox 单元测试
+ * 写线程池替换为手动执行的任务队列，未执行前入队的帧都停留在出站队列中
+ */
+class SessionOutboxTest {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() {
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("按入队顺序写出，同一时刻只有一个排空任务")
+    void offer_DrainsInOrder() throws Exception {
+        // Given
+        SessionOutbox outbox = outbox(8, OverflowPolicy.DROP_THEN_CLOSE);
+
+        // When
+        outbox.offer(text("a"), FramePriority.NORMAL);
+        outbox.offer(text("b"), FramePriority.DROPPABLE);
+        outbox.offer(text("c"), FramePriority.NORMAL);
+
+        // Then
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(List.of("a", "b", "c"), sentPayloads());
+        assertEquals(0, outbox.getQueuedFrames());
+    }
+
+    @Test
+    @DisplayName("DROP：队列满时丢弃新帧，不断开连接")
+    void overflow_Drop() throws Exception {
+        // Given
+        SessionOutbox outbox = outbox(2, OverflowPolicy.DROP);
+        outbox.offer(text("a"), FramePriority.NORMAL);
+        outbox.offer(text("b"), FramePriority.NORMAL);
+
+        // When
+        boolean accepted = outbox.offer(text("c"), FramePriority.NORMAL);
+        runTasks();
+
+        // Then
+        assertFalse(accepted);
+        assertFalse(outbox.isClosed());
+        assertEquals(1, outbox.getDroppedFrames());
+        assertEquals(List.of("a", "b"), sentPayloads());
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    @DisplayName("DROP_THEN_CLOSE：先丢弃最早的可丢弃帧，新的可丢弃帧直接丢弃")
+    void overflow_DropThenClose_DropsDroppable() throws Exception {
+        // Given
+        SessionOutbox outbox = outbox(2, OverflowPolicy.DROP_THEN_CLOSE);
+        outbox.offer(text("typing"), FramePriority.DROPPABLE);
+        outbox.offer(text("a"), FramePriority.NORMAL);
+
+        // When
+        boolean typingAccepted = outbox.offer(text("typing2"), FramePriority.DROPPABLE);
+        boolean normalAccepted = outbox.offer(text("b"), FramePriority.NORMAL);
+        runTasks();
+
+        // Then
+        assertFalse(typingAccepted);
+        assertTrue(normalAccepted);
+        assertFalse(outbox.isClosed());
+        assertEquals(2, outbox.getDroppedFrames());
+        assertEquals(List.of("a", "b"), sentPayloads());
+    }
+
+    @Test
+    @DisplayName("DROP_THEN_CLOSE：没有可丢弃帧时清空队列并断开连接")
+    void overflow_DropThenClose_Closes() throws Exception {
+        // Given
+        SessionOutbox outbox = outbox(2, OverflowPolicy.DROP_THEN_CLOSE);
+        outbox.offer(text("a"), FramePriority.NORMAL);
+        outbox.offer(text("b"), FramePriority.NORMAL);
+
+        // When
+        boolean accepted = outbox.offer(text("c"), FramePriority.NORMAL);
+        runTasks();
+
+        // Then
+        assertFalse(accepted);
+        assertTrue(outbox.isClosed());
+        assertEquals(3, outbox.getDroppedFrames());
+        assertFalse(outbox.offer(text("d"), FramePriority.NORMAL));
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, never()).sendMessage(any());
+    }
+
+    @Test
+    @DisplayName("CLOSE：队列满直接断开，即使有可丢弃帧")
+    void overflow_Close() throws Exception {
+        // Given
+        SessionOutbox outbox = outbox(2, OverflowPolicy.CLOSE);
+        outbox.offer(text("typing"), FramePriority.DROPPABLE);
+        outbox.offer(text("a"), FramePriority.NORMAL);
+
+        // When
+        boolean accepted = outbox.offer(text("b"), FramePriority.NORMAL);
+        runTasks();
+
+        // Then
+        assertFalse(accepted);
+        assertTrue(outbox.isClosed());
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, never()).sendMessage(any());
+    }
+
+    @Test
+    @DisplayName("最后一帧发出后关闭会话，之后不再接受新帧")
+    void offerAndClose_SendsThenCloses() throws Exception {
+        // Given
+        SessionOutbox outbox = outbox(8, OverflowPolicy.DROP_THEN_CLOSE);
+
+        // When
+        outbox.offerAndClose(text("kick"), CloseStatus.POLICY_VIOLATION);
+        boolean accepted = outbox.offer(text("late"), FramePriority.NORMAL);
+        runTasks();
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(List.of("kick"), sentPayloads());
+        verify(session).close(CloseStatus.POLICY_VIOLATION);
+    }
+
+    @Test
+    @DisplayName("写出失败时丢弃剩余帧并断开连接")
+    void write_FailureCloses() throws Exception {
+        // Given
+        SessionOutbox outbox = outbox(8, OverflowPolicy.DROP_THEN_CLOSE);
+        doThrow(new IOException("broken pipe")).when(session).sendMessage(any());
+        outbox.offer(text("a"), FramePriority.NORMAL);
+        outbox.offer(text("b"), FramePriority.NORMAL);
+
+        // When
+        runTasks();
+
+        // Then
+        assertTrue(outbox.isClosed());
+        assertEquals(1, outbox.getDroppedFrames());
+        verify(session, times(1)).sendMessage(any());
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private SessionOutbox outbox(int capacity, OverflowPolicy policy) {
+        return new SessionOutbox("alice", session, tasks::add, capacity, policy);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> sentPayloads() throws IOException {
+        ArgumentCaptor<WebSocketMessage<?>> captor = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, atLeast(0)).sendMessage(captor.capture());
+        return captor.getAllValues().stream()
+                .map(message -> (String) message.getPayload())
+                .collect(Collectors.toList());
+    }
+
+    private static TextMessage text(String payload) {
+        return new TextMessage(payload);
+    }
+}
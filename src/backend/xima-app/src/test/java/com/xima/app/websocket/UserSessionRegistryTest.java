@@ -0,0 +1,69 @@
+package com.xima.app.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UserSessionRegistry 单元测试
+ */
+class UserSessionRegistryTest {
+
+    private final UserSessionRegistry registry = new UserSessionRegistry();
+
+    @Test
+    @DisplayName("登记、替换、按会话条件移除")
+    void putGetRemove() {
+        // Given
+        SessionOutbox first = outbox("alice");
+        SessionOutbox second = outbox("alice");
+
+        // When & Then
+        assertNull(registry.put(1L, first));
+        assertSame(first, registry.put(1L, second));
+        assertSame(second, registry.get(1L));
+        assertFalse(registry.remove(1L, first));
+        assertTrue(registry.containsKey(1L));
+        assertTrue(registry.remove(1L, second));
+        assertNull(registry.get(1L));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    @DisplayName("大量随机增删后与HashMap结果一致（覆盖扩容和删除回移）")
+    void randomOperations_MatchHashMap() {
+        // Given
+        Map<Long, SessionOutbox> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        // When
+        for (int i = 0; i < 200_000; i++) {
+            long userId = 1 + random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(userId), registry.remove(userId));
+            } else {
+                SessionOutbox outbox = outbox("u" + userId);
+                assertSame(expected.put(userId, outbox), registry.put(userId, outbox));
+            }
+        }
+
+        // Then
+        assertEquals(expected.size(), registry.size());
+        for (long userId = 1; userId <= 20_000; userId++) {
+            assertSame(expected.get(userId), registry.get(userId));
+        }
+        long[] keys = registry.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray(), keys);
+    }
+
+    private static SessionOutbox outbox(String username) {
+        return new SessionOutbox(username, null, Runnable::run, 16, OverflowPolicy.DROP);
+    }
+}
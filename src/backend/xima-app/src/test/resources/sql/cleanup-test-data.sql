@@ -1,4 +1,6 @@
 -- 集成测试清理数据
+DROP TABLE IF EXISTS group_conversation;
+DROP TABLE IF EXISTS conversation;
 DROP TABLE IF EXISTS group_message_read;
 DROP TABLE IF EXISTS group_message;
 DROP TABLE IF EXISTS group_member;
@@ -89,6 +89,29 @@ CREATE TABLE IF NOT EXISTS group_message_read (
     last_read_message_id BIGINT DEFAULT 0
 );
 
+-- 创建会话摘要表
+CREATE TABLE IF NOT EXISTS conversation (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    owner_id BIGINT NOT NULL,
+    peer_id BIGINT NOT NULL,
+    last_message_id BIGINT NOT NULL,
+    last_sender_id BIGINT NOT NULL,
+    last_message_preview VARCHAR(200),
+    last_message_time TIMESTAMP NOT NULL,
+    unread_count INT DEFAULT 0,
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (owner_id, peer_id)
+);
+
+CREATE TABLE IF NOT EXISTS group_conversation (
+    group_id BIGINT PRIMARY KEY,
+    last_message_id BIGINT NOT NULL,
+    last_sender_id BIGINT NOT NULL,
+    last_message_preview VARCHAR(200),
+    last_message_time TIMESTAMP NOT NULL,
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- 插入角色数据
 INSERT INTO role (id, name) VALUES (1, 'ROLE_USER');
 INSERT INTO role (id, name) VALUES (2, 'ROLE_ADMIN');
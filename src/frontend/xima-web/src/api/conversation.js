@@ -0,0 +1,13 @@
+import request from './request'
+
+export const conversationApi = {
+  // 获取会话列表 (私聊+群聊，按最后消息时间倒序，含最后一条消息摘要和未读数)
+  getConversations(page = 0, size = 20) {
+    return request.get('/v1/conversations', { params: { page, size } })
+  },
+
+  // 私聊会话标记已读
+  markPrivateAsRead(peerId) {
+    return request.post(`/v1/conversations/private/${peerId}/read`)
+  }
+}
@@ -79,12 +79,16 @@ export const groupApi = {
     })
   },
 
-  // 获取群聊天记录
-  getMessages(groupId, page = 0, size = 50) {
+  // 获取群聊天记录 (游标分页：beforeId为当前最早一条消息的ID，不传取最新一页，结果按时间倒序)
+  getMessages(groupId, beforeId = null, size = 50) {
+    const params = { size }
+    if (beforeId != null) {
+      params.beforeId = beforeId
+    }
     return request({
       url: `/v1/groups/${groupId}/messages`,
       method: 'get',
-      params: { page, size }
+      params
     })
   },
 
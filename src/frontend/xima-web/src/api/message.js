@@ -1,11 +1,13 @@
 import request from './request'
 
 export const messageApi = {
-  // 获取聊天历史 (后端page从0开始)
-  getChatHistory(friendId, page = 0, size = 20) {
-    return request.get(`/v1/messages/history/${friendId}`, {
-      params: { page, size }
-    })
+  // 获取聊天历史 (游标分页：before为当前最早一条消息的ID，不传取最新一页，结果按时间正序)
+  getChatHistory(friendId, before = null, size = 20) {
+    const params = { size }
+    if (before != null) {
+      params.before = before
+    }
+    return request.get(`/v1/messages/history/${friendId}`, { params })
   },
 
   // 获取离线消息
@@ -23,6 +25,11 @@ export const messageApi = {
     return request.get(`/v1/messages/unread/count/${senderId}`)
   },
 
+  // 批量获取未读消息数 (返回 { senderId: count })
+  getUnreadCounts() {
+    return request.get('/v1/messages/unread/counts')
+  },
+
   // 删除消息
   deleteMessage(messageId) {
     return request.delete(`/v1/messages/${messageId}`)
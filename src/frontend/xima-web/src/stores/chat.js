@@ -19,6 +19,8 @@ export const useChatStore = defineStore('chat', () => {
   const unreadMap = ref({})
   // 群聊未读消息数 { groupId: count }
   const groupUnreadMap = ref({})
+  // 已读上报（由持有WebSocket连接的页面注册），服务端会合并同一会话的多次上报
+  let readReporter = null
 
   // 总未读数（私聊+群聊）
   const totalUnreadCount = computed(() => {
@@ -42,38 +44,78 @@ export const useChatStore = defineStore('chat', () => {
       const res = await friendApi.getFriendList()
       if (res.code === 200) {
         friendList.value = res.data || []
-        // 加载好友列表后，初始化未读消息数
-        await loadOfflineMessages()
+        // 加载好友列表后初始化未读消息数（离线消息由WebSocket连接建立后分块推送）
+        await loadUnreadCounts()
       }
     } catch (error) {
       console.error('加载好友列表失败:', error)
     }
   }
 
-  // 加载离线消息并统计未读数
-  async function loadOfflineMessages() {
+  // 接收一块离线消息（未读数以服务端统计为准，这里不再累加）
+  function receiveOfflineMessages(messages) {
+    messages.forEach(msg => {
+      const senderId = msg.senderId
+      if (!messageMap.value[senderId]) {
+        messageMap.value[senderId] = []
+      }
+      const exists = messageMap.value[senderId].some(m => m.id === msg.id)
+      if (!exists) {
+        messageMap.value[senderId].push(msg)
+      }
+    })
+  }
+
+  // 已同步到的收件箱序号（按用户保存在本地，重连后只拉取之后的事件）
+  function getSyncSeq(userId) {
+    return Number(localStorage.getItem(`syncSeq_${userId}`)) || 0
+  }
+
+  // 应用一页增量同步结果；reset时增量不可用，只重新拉取未读数。未读数以服务端统计为准，这里不累加
+  async function applySync(result, userId) {
+    if (!result.reset) {
+      (result.events || []).forEach(event => {
+        if (event.type === 'CHAT') {
+          appendMessage(messageMap.value, event.senderId === userId ? event.receiverId : event.senderId, event)
+        } else if (event.type === 'GROUP_CHAT') {
+          appendMessage(groupMessageMap.value, event.groupId, event)
+        } else if (event.type === 'RECALL') {
+          recallMessage(event.id, event.groupId, event.content)
+        } else if (event.type === 'READ_RECEIPT') {
+          markPeerRead(event.senderId, event.id)
+        }
+      })
+    }
+    if (result.reset || (result.events && result.events.length > 0)) {
+      await Promise.all([loadUnreadCounts(), loadGroupUnreadCounts()])
+    }
+    localStorage.setItem(`syncSeq_${userId}`, String(result.seq))
+  }
+
+  // 按ID去重追加消息
+  function appendMessage(map, key, message) {
+    if (!map[key]) {
+      map[key] = []
+    }
+    if (!map[key].some(m => m.id === message.id)) {
+      map[key].push(message)
+    }
+  }
+
+  // 加载私聊未读消息数（包含已送达但未读的消息，以服务端统计为准）
+  async function loadUnreadCounts() {
     try {
-      const res = await messageApi.getOfflineMessages()
+      const res = await messageApi.getUnreadCounts()
       if (res.code === 200 && res.data) {
-        const offlineMessages = res.data
-        // 按发送者分组统计未读数
-        offlineMessages.forEach(msg => {
-          const senderId = msg.senderId
-          // 添加到消息列表
-          if (!messageMap.value[senderId]) {
-            messageMap.value[senderId] = []
-          }
-          // 避免重复添加
-          const exists = messageMap.value[senderId].some(m => m.id === msg.id)
-          if (!exists) {
-            messageMap.value[senderId].push(msg)
-            // 增加未读数
-            unreadMap.value[senderId] = (unreadMap.value[senderId] || 0) + 1
+        // res.data 是 { senderId: count } 的对象
+        Object.entries(res.data).forEach(([senderId, count]) => {
+          if (!currentChat.value || currentChat.value.type !== 'friend' || String(currentChat.value.userId) !== senderId) {
+            unreadMap.value[senderId] = count
           }
         })
       }
     } catch (error) {
-      console.error('加载离线消息失败:', error)
+      console.error('加载未读消息数失败:', error)
     }
   }
 
@@ -85,6 +127,26 @@ export const useChatStore = defineStore('chat', () => {
       unreadMap.value[friend.userId] = 0
       // 加载聊天历史
       await loadChatHistory(friend.userId)
+      // 上报已读到最后一条
+      reportRead(friend.userId)
+    }
+  }
+
+  // 注册已读上报函数
+  function setReadReporter(reporter) {
+    readReporter = reporter
+  }
+
+  // 上报与好友的会话已读到最后一条收到的消息
+  function reportRead(friendId) {
+    if (!readReporter) return
+    const messages = messageMap.value[friendId] || []
+    for (let i = messages.length - 1; i >= 0; i--) {
+      const msg = messages[i]
+      if (msg.id && msg.senderId === friendId) {
+        readReporter({ type: 'READ', receiverId: friendId, id: msg.id })
+        return
+      }
     }
   }
 
@@ -164,6 +226,12 @@ export const useChatStore = defineStore('chat', () => {
     }
   }
 
+  // 是否已收到过与好友会话中的某条消息
+  function hasMessage(friendId, messageId) {
+    const messages = messageMap.value[friendId]
+    return !!(messageId && messages && messages.some(m => m.id === messageId))
+  }
+
   // 接收私聊消息
   function receiveMessage(message) {
     const friendId = message.senderId
@@ -179,9 +247,11 @@ export const useChatStore = defineStore('chat', () => {
     }
     messageMap.value[friendId].push(message)
     
-    // 如果不是当前聊天，增加未读数
+    // 如果不是当前聊天，增加未读数；正在聊天则直接上报已读
     if (!currentChat.value || currentChat.value.type !== 'friend' || currentChat.value.userId !== friendId) {
       unreadMap.value[friendId] = (unreadMap.value[friendId] || 0) + 1
+    } else {
+      reportRead(friendId)
     }
   }
 
@@ -246,6 +316,17 @@ export const useChatStore = defineStore('chat', () => {
     }
   }
 
+  // 对方已读到某条消息：自己发出的、ID不大于它的消息都标记为已读
+  function markPeerRead(friendId, upToMessageId) {
+    const messages = messageMap.value[friendId]
+    if (!messages) return
+    messages.forEach(msg => {
+      if (msg.id && msg.id <= upToMessageId && msg.receiverId === friendId) {
+        msg.status = 'READ'
+      }
+    })
+  }
+
   // 处理消息撤回
   function recallMessage(messageId, groupId, content) {
     if (groupId) {
@@ -284,17 +365,22 @@ export const useChatStore = defineStore('chat', () => {
     currentMessages,
     loadFriendList,
     loadGroupList,
-    loadOfflineMessages,
+    receiveOfflineMessages,
+    getSyncSeq,
+    applySync,
     setCurrentChat,
     setCurrentGroupChat,
     clearCurrentChat,
     loadChatHistory,
     loadGroupChatHistory,
+    hasMessage,
     receiveMessage,
     receiveGroupMessage,
     addSentMessage,
     addSentGroupMessage,
     updateFriendStatus,
+    setReadReporter,
+    markPeerRead,
     recallMessage
   }
 })